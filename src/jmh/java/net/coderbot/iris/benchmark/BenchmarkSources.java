@@ -0,0 +1,97 @@
+package net.coderbot.iris.benchmark;
+
+/**
+ * Generates synthetic shader pack sources for benchmarks.
+ */
+public final class BenchmarkSources {
+	private BenchmarkSources() {
+	}
+
+	/**
+	 * Creates a settings file in the style of most shader packs, with a mix of boolean, integer and float options.
+	 */
+	public static String createSettings(int optionCount) {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < optionCount; i++) {
+			switch (i % 4) {
+				case 0:
+					builder.append("#define OPTION_").append(i).append(" // A boolean option\n");
+					break;
+				case 1:
+					builder.append("//#define OPTION_").append(i).append(" // A disabled boolean option\n");
+					break;
+				case 2:
+					builder.append("#define OPTION_").append(i).append(" 2 // [0 1 2 3 4]\n");
+					break;
+				default:
+					builder.append("#define OPTION_").append(i).append(" 0.5 // [0.0 0.25 0.5 0.75 1.0]\n");
+					break;
+			}
+		}
+
+		builder.append("const int shadowMapResolution = 2048; // [1024 2048 4096]\n");
+		builder.append("const float sunPathRotation = -40.0; // [-40.0 0.0 40.0]\n");
+
+		return builder.toString();
+	}
+
+	/**
+	 * Creates a complete program consisting of a settings block followed by a body that uses the options.
+	 */
+	public static String createProgram(int optionCount, int bodyLines) {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("#version 120\n");
+		builder.append("#extension GL_EXT_gpu_shader4 : enable\n");
+		builder.append(createSettings(optionCount));
+		builder.append("#define sqr(x) ((x) * (x))\n");
+		builder.append("#define clamp01(x) clamp(x, 0.0, 1.0)\n");
+		builder.append("uniform sampler2D colortex0;\nvarying vec2 texcoord;\n");
+		builder.append("void main() {\n\tvec3 color = texture2D(colortex0, texcoord).rgb;\n");
+
+		for (int i = 0; i < bodyLines; i++) {
+			int option = (i * 4) % optionCount;
+
+			builder.append("#ifdef OPTION_").append(option).append('\n');
+			builder.append("\tcolor = clamp01(color * sqr(color.r + ").append(i).append(".0)); // Line ").append(i).append('\n');
+			builder.append("#endif\n");
+
+			if (i % 2 == 0) {
+				builder.append("#if OPTION_").append(option + 2).append(" >= 2\n");
+				builder.append("\tcolor *= OPTION_").append(option + 3).append(";\n");
+				builder.append("#endif\n");
+			}
+		}
+
+		builder.append("\tgl_FragData[0] = vec4(color, 1.0);\n}\n");
+
+		return builder.toString();
+	}
+
+	/**
+	 * Creates the vertex shader of a program, which uses the legacy built-in inputs that the shader patcher replaces.
+	 */
+	public static String createVertexProgram(int optionCount, int bodyLines) {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("#version 120\n");
+		builder.append(createSettings(optionCount));
+		builder.append("varying vec2 texcoord;\nvarying vec2 lmcoord;\nvarying vec4 glcolor;\nvarying vec3 normal;\n");
+		builder.append("void main() {\n\tgl_Position = ftransform();\n");
+		builder.append("\ttexcoord = (gl_TextureMatrix[0] * gl_MultiTexCoord0).xy;\n");
+		builder.append("\tlmcoord = (gl_TextureMatrix[1] * gl_MultiTexCoord1).xy;\n");
+		builder.append("\tglcolor = gl_Color;\n\tnormal = normalize(gl_NormalMatrix * gl_Normal);\n");
+
+		for (int i = 0; i < bodyLines; i++) {
+			builder.append("\tvec4 position").append(i).append(" = gl_ModelViewMatrix * gl_Vertex; // Line ").append(i)
+					.append('\n');
+			builder.append("\tnormal += position").append(i).append(".xyz * OPTION_").append((i * 4 + 2) % optionCount)
+					.append(";\n");
+		}
+
+		builder.append("}\n");
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,179 @@
+package net.coderbot.iris.benchmark;
+
+import kroppeb.stareval.element.ExpressionElement;
+import kroppeb.stareval.element.token.IdToken;
+import kroppeb.stareval.element.token.NumberToken;
+import kroppeb.stareval.element.tree.AccessExpressionElement;
+import kroppeb.stareval.element.tree.BinaryExpressionElement;
+import kroppeb.stareval.element.tree.FunctionCall;
+import kroppeb.stareval.element.tree.UnaryExpressionElement;
+import kroppeb.stareval.eval.CompiledExpression;
+import kroppeb.stareval.eval.ExpressionCompiler;
+import kroppeb.stareval.eval.StandardFunctions;
+import kroppeb.stareval.eval.StandardOperators;
+import kroppeb.stareval.eval.VariableTable;
+import kroppeb.stareval.exception.ParseException;
+import kroppeb.stareval.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares evaluating compiled expressions against walking the parsed expression trees, on custom uniform expressions
+ * like the ones that shader packs such as BSL define. Every invocation evaluates all expressions once, like a frame
+ * would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionEvaluationBenchmark {
+	private static final String[] EXPRESSIONS = {
+			"worldTime / 24000.0",
+			"max(sin(worldTime / 24000.0 * 6.28318530718), 0.0)",
+			"max(sin(worldTime / 24000.0 * (-6.28318530718)), 0.0)",
+			"clamp(1.0 - (abs(abs(sunAngle - 0.5) - 0.25) - 0.23) * 100.0, 0.0, 1.0)",
+			"clamp(blindness * 2.0 - 1.0, 0.0, 1.0) * clamp(blindness * 2.0 - 1.0, 0.0, 1.0)",
+			"if(isEyeInWater == 1, 0.5, rainStrength > 0.5 && !(worldTime < 1000), 1.0, pow(0.5 + 0.5 * cos(torad(worldTime / 24000.0 * 360.0)), 2.0))",
+			"frac(cameraPosition.x / 16.0) * 2.0 - 1.0 + sqrt(3.0) * 0.5"
+	};
+
+	private float worldTime = 6000.0f;
+
+	private CompiledExpression[] compiled;
+	private ExpressionElement[] trees;
+	private Map<String, Supplier<Object>> treeVariables;
+
+	@Setup
+	public void setup() throws ParseException {
+		VariableTable variables = new VariableTable.Builder()
+				.addFloat("worldTime", () -> this.worldTime)
+				.addFloat("sunAngle", () -> this.worldTime / 24000.0f)
+				.addFloat("blindness", () -> 0.0f)
+				.addFloat("isEyeInWater", () -> 0.0f)
+				.addFloat("rainStrength", () -> 0.25f)
+				.addFloat("cameraPosition.x", () -> 123.5f)
+				.build();
+
+		treeVariables = new HashMap<>();
+		treeVariables.put("worldTime", () -> this.worldTime);
+		treeVariables.put("sunAngle", () -> this.worldTime / 24000.0f);
+		treeVariables.put("blindness", () -> 0.0f);
+		treeVariables.put("isEyeInWater", () -> 0.0f);
+		treeVariables.put("rainStrength", () -> 0.25f);
+		treeVariables.put("cameraPosition.x", () -> 123.5f);
+
+		compiled = new CompiledExpression[EXPRESSIONS.length];
+		trees = new ExpressionElement[EXPRESSIONS.length];
+
+		for (int i = 0; i < EXPRESSIONS.length; i++) {
+			trees[i] = Parser.parse(EXPRESSIONS[i], StandardOperators.OPTIONS);
+			compiled[i] = ExpressionCompiler.compile(trees[i], StandardFunctions.TABLE, variables);
+		}
+	}
+
+	@Benchmark
+	public void compiled(Blackhole blackhole) {
+		worldTime = (worldTime + 1.0f) % 24000.0f;
+
+		for (CompiledExpression expression : compiled) {
+			blackhole.consume(expression.evaluateFloat());
+		}
+	}
+
+	@Benchmark
+	public void treeWalking(Blackhole blackhole) {
+		worldTime = (worldTime + 1.0f) % 24000.0f;
+
+		for (ExpressionElement tree : trees) {
+			blackhole.consume(evaluate(tree));
+		}
+	}
+
+	/**
+	 * A straightforward interpreter, which evaluates every node of the tree to a boxed value and looks up variables and
+	 * functions by name.
+	 */
+	private Object evaluate(ExpressionElement element) {
+		if (element instanceof NumberToken) {
+			return Float.parseFloat(((NumberToken) element).getNumber());
+		} else if (element instanceof IdToken) {
+			return treeVariables.get(((IdToken) element).getId()).get();
+		} else if (element instanceof AccessExpressionElement) {
+			AccessExpressionElement access = (AccessExpressionElement) element;
+
+			return treeVariables.get(((IdToken) access.getBase()).getId() + "." + access.getIndex()).get();
+		} else if (element instanceof UnaryExpressionElement) {
+			UnaryExpressionElement unary = (UnaryExpressionElement) element;
+			Object inner = evaluate(unary.getInner());
+
+			return unary.getOp() == StandardOperators.NOT ? (Object) !(Boolean) inner : (Object) (-(Float) inner);
+		} else if (element instanceof BinaryExpressionElement) {
+			BinaryExpressionElement binary = (BinaryExpressionElement) element;
+			Object left = evaluate(binary.getLeft());
+			Object right = evaluate(binary.getRight());
+
+			switch (binary.getOp().toString()) {
+				case "multiply{0}": return (Float) left * (Float) right;
+				case "divide{0}": return (Float) left / (Float) right;
+				case "remainder{0}": return (Float) left % (Float) right;
+				case "add{1}": return (Float) left + (Float) right;
+				case "subtract{1}": return (Float) left - (Float) right;
+				case "equals{2}": return left.equals(right);
+				case "notEquals{2}": return !left.equals(right);
+				case "lessThan{2}": return (Float) left < (Float) right;
+				case "moreThan{2}": return (Float) left > (Float) right;
+				case "lessThanOrEquals{2}": return (Float) left <= (Float) right;
+				case "moreThanOrEquals{2}": return (Float) left >= (Float) right;
+				case "and{3}": return (Boolean) left && (Boolean) right;
+				case "or{4}": return (Boolean) left || (Boolean) right;
+				default: throw new IllegalArgumentException(binary.getOp().toString());
+			}
+		}
+
+		FunctionCall call = (FunctionCall) element;
+		List<? extends ExpressionElement> args = call.getArgs();
+		Object[] values = new Object[args.size()];
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = evaluate(args.get(i));
+		}
+
+		switch (call.getId()) {
+			case "if":
+				for (int i = 0; i + 1 < values.length; i += 2) {
+					if ((Boolean) values[i]) {
+						return values[i + 1];
+					}
+				}
+
+				return values[values.length - 1];
+			case "sin": return (float) Math.sin((Float) values[0]);
+			case "cos": return (float) Math.cos((Float) values[0]);
+			case "torad": return (float) Math.toRadians((Float) values[0]);
+			case "abs": return Math.abs((Float) values[0]);
+			case "sqrt": return (float) Math.sqrt((Float) values[0]);
+			case "frac": return (Float) values[0] - (float) Math.floor((Float) values[0]);
+			case "pow": return (float) Math.pow((Float) values[0], (Float) values[1]);
+			case "max": return Math.max((Float) values[0], (Float) values[1]);
+			case "clamp": return Math.max((Float) values[1], Math.min((Float) values[2], (Float) values[0]));
+			default: throw new IllegalArgumentException(call.getId());
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package net.coderbot.iris.benchmark;
+
+import net.coderbot.iris.shaderpack.preprocessor.GlslPreprocessor;
+import net.coderbot.iris.shaderpack.preprocessor.JcppProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the GLSL preprocessor against JCPP on a program shaped like a typical shader pack
+ * program: a large settings block full of options, followed by a body with conditionals and macro invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlslPreprocessorBenchmark {
+	private String source;
+
+	@Setup
+	public void setup() {
+		source = BenchmarkSources.createProgram(400, 200);
+	}
+
+	@Benchmark
+	public String glslPreprocessor() {
+		return GlslPreprocessor.preprocess(source);
+	}
+
+	@Benchmark
+	public String jcpp() {
+		return JcppProcessor.glslPreprocessSource(source);
+	}
+}
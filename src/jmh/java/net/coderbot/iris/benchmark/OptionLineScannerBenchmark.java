@@ -0,0 +1,96 @@
+package net.coderbot.iris.benchmark;
+
+import net.coderbot.iris.shaderpack.OptionLineScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the option line scanner against the regular expressions that the option parsers used to run on every line,
+ * on a program shaped like a typical shader pack program with its settings included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionLineScannerBenchmark {
+	private static final Pattern BOOLEAN_OPTION_PATTERN = Pattern.compile("(?<startingComment>//+)?\\s*(?<define>#define)\\s+(?<name>\\w+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+	private static final Pattern FLOAT_INTEGER_OPTION_PATTERN = Pattern.compile("(?<define>#define)\\s+(?<name>\\w+)\\s+(?<value>-?[\\d.fF]+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+	private static final Pattern INTEGER_OPTION_PATTERN = Pattern.compile("(?<define>#define)\\s+(?<name>\\w+)\\s+(?<value>-?\\d+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+	private static final Pattern CONST_BOOLEAN_PATTERN = Pattern.compile("const\\s+bool\\s+(?<name>\\w+)\\s*=\\s*(?<value>true|false)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+	private static final Pattern CONST_FLOAT_PATTERN = Pattern.compile("const\\s+float\\s+(?<name>\\w+)\\s*=\\s*(?<value>-?[\\d.fF]+)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+	private static final Pattern CONST_INT_PATTERN = Pattern.compile("const\\s+int\\s+(?<name>\\w+)\\s*=\\s*(?<value>-?\\d+)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
+
+	private String[] lines;
+	private final OptionLineScanner scanner = new OptionLineScanner();
+
+	@Setup
+	public void setup() {
+		lines = BenchmarkSources.createProgram(400, 200).split("\n");
+	}
+
+	/**
+	 * The previous approach: every pattern is matched against every trimmed line, and the option parts are extracted
+	 * from the matching pattern.
+	 */
+	@Benchmark
+	public void regex(Blackhole blackhole) {
+		for (String line : lines) {
+			String trimmedLine = line.trim();
+
+			Matcher booleanMatcher = BOOLEAN_OPTION_PATTERN.matcher(trimmedLine);
+			Matcher numberMatcher = FLOAT_INTEGER_OPTION_PATTERN.matcher(trimmedLine);
+
+			if (booleanMatcher.matches()) {
+				blackhole.consume(booleanMatcher.group("name"));
+				blackhole.consume(booleanMatcher.group("commentContent"));
+			} else if (numberMatcher.matches()) {
+				blackhole.consume(INTEGER_OPTION_PATTERN.matcher(trimmedLine).matches());
+				blackhole.consume(numberMatcher.group("name"));
+				blackhole.consume(numberMatcher.group("value"));
+				blackhole.consume(numberMatcher.group("commentContent"));
+			}
+
+			Matcher constBooleanMatcher = CONST_BOOLEAN_PATTERN.matcher(trimmedLine);
+			Matcher constFloatMatcher = CONST_FLOAT_PATTERN.matcher(trimmedLine);
+			Matcher constIntMatcher = CONST_INT_PATTERN.matcher(trimmedLine);
+
+			for (Matcher matcher : new Matcher[] { constBooleanMatcher, constFloatMatcher, constIntMatcher }) {
+				if (matcher.matches()) {
+					blackhole.consume(matcher.group("name"));
+					blackhole.consume(matcher.group("value"));
+					blackhole.consume(matcher.group("commentContent"));
+					break;
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void scanner(Blackhole blackhole) {
+		for (String line : lines) {
+			OptionLineScanner.Kind kind = scanner.scan(line);
+
+			if (kind != OptionLineScanner.Kind.NONE) {
+				blackhole.consume(scanner.getName());
+				blackhole.consume(scanner.getValue());
+				blackhole.consume(scanner.getCommentContent());
+				blackhole.consume(scanner.isIntegerValue());
+			}
+		}
+	}
+}
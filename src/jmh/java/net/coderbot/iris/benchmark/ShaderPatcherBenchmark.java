@@ -0,0 +1,231 @@
+package net.coderbot.iris.benchmark;
+
+import net.coderbot.iris.gl.blending.AlphaTest;
+import net.coderbot.iris.gl.blending.AlphaTestFunction;
+import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.pipeline.newshader.ShaderAttributeInputs;
+import net.coderbot.iris.pipeline.newshader.TriforcePatcher;
+import net.coderbot.iris.shaderpack.preprocessor.GlslPreprocessor;
+import net.coderbot.iris.shaderpack.transform.BuiltinUniformReplacementTransformer;
+import net.coderbot.iris.shaderpack.transform.StringTransformations;
+import net.coderbot.iris.shaderpack.transform.Transformations;
+import net.coderbot.iris.shaderpack.transform.token.GlslTokens;
+import net.coderbot.iris.shaderpack.transform.token.TokenPatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures patching every gbuffers program of a shader pack, and compares the token based patching used by the patcher
+ * against the text searches and replacements that it used to do, on the previous implementation of the
+ * transformations, which rebuilt the whole source for every search and replacement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShaderPatcherBenchmark {
+	// Roughly the number of gbuffers programs that a complete pack provides
+	private static final int PROGRAM_COUNT = 40;
+
+	private static final AlphaTest ALPHA_TEST = new AlphaTest(AlphaTestFunction.GREATER, 0.1f);
+	private static final ShaderAttributeInputs INPUTS = new ShaderAttributeInputs(true, true, false, true, true);
+
+	private String[] vertexSources;
+	private String[] fragmentSources;
+
+	@Setup
+	public void setup() {
+		vertexSources = new String[PROGRAM_COUNT];
+		fragmentSources = new String[PROGRAM_COUNT];
+
+		for (int i = 0; i < PROGRAM_COUNT; i++) {
+			// Vary the size of the programs a bit, like the programs of a real pack
+			vertexSources[i] = GlslPreprocessor.preprocess(BenchmarkSources.createVertexProgram(400, 50 + i * 5));
+			fragmentSources[i] = GlslPreprocessor.preprocess(BenchmarkSources.createProgram(400, 100 + i * 10));
+		}
+	}
+
+	@Benchmark
+	public void patchPack(Blackhole blackhole) {
+		for (int i = 0; i < PROGRAM_COUNT; i++) {
+			blackhole.consume(TriforcePatcher.patchVanilla(vertexSources[i], ShaderType.VERTEX, ALPHA_TEST, false, INPUTS, false));
+			blackhole.consume(TriforcePatcher.patchVanilla(fragmentSources[i], ShaderType.FRAGMENT, ALPHA_TEST, false, INPUTS, false));
+		}
+	}
+
+	@Benchmark
+	public void transformations(Blackhole blackhole) {
+		for (int i = 0; i < PROGRAM_COUNT; i++) {
+			blackhole.consume(transform(vertexSources[i], ShaderType.VERTEX));
+			blackhole.consume(transform(fragmentSources[i], ShaderType.FRAGMENT));
+		}
+	}
+
+	@Benchmark
+	public void legacyTransformations(Blackhole blackhole) {
+		for (int i = 0; i < PROGRAM_COUNT; i++) {
+			blackhole.consume(transformLegacy(vertexSources[i], blackhole));
+			blackhole.consume(transformLegacy(fragmentSources[i], blackhole));
+		}
+	}
+
+	/**
+	 * The searches and replacements that the patcher does on every program, on top of many injected lines.
+	 */
+	private static String transform(String source, ShaderType type) {
+		StringTransformations transformations = new StringTransformations(source);
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize(transformations.getBody()));
+		BuiltinUniformReplacementTransformer lightmapTransformer = new BuiltinUniformReplacementTransformer("iris_UV2");
+
+		TriforcePatcher.patchCommon(transformations, patcher, type, false);
+		lightmapTransformer.apply(patcher);
+
+		for (int i = 2; i < 8; i++) {
+			transformations.define("gl_MultiTexCoord" + i, " vec4(0.0, 0.0, 0.0, 1.0)");
+		}
+
+		patcher.replaceSequence("gl_TextureMatrix[0]", "iris_TextureMat");
+
+		if (!patcher.getTokens().containsIdentifier("irisMain")) {
+			patcher.replaceIdentifier("main", "irisMain");
+		}
+
+		transformations.setBody(patcher.apply());
+		lightmapTransformer.injectUniforms(transformations, patcher);
+
+		return transformations.toString();
+	}
+
+	/**
+	 * The same patches as {@link #transform}, done with plain text searches and replacements on the previous
+	 * implementation of the transformations, which is how the patcher used to work.
+	 */
+	private static String transformLegacy(String source, Blackhole blackhole) {
+		LegacyTransformations transformations = new LegacyTransformations(source);
+
+		for (String search : new String[] { "moj_import", "iris_", "gl_FragColor" }) {
+			blackhole.consume(transformations.contains(search));
+		}
+
+		for (int i = 0; i < 20; i++) {
+			transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "uniform float iris_Injected" + i + ";");
+			transformations.injectLine(Transformations.InjectionPoint.DEFINES, "#define gl_Injected" + i + " iris_Injected" + i);
+		}
+
+		String placeholder = "iris_NormalizedLightmapCoords";
+		blackhole.consume(transformations.contains(placeholder));
+
+		for (String coordName : new String[] { "gl_MultiTexCoord1", "gl_MultiTexCoord2" }) {
+			transformations.replaceExact("(gl_TextureMatrix[1]*" + coordName + ").st", placeholder);
+			transformations.replaceExact("(gl_TextureMatrix[1] * " + coordName + ").st", placeholder);
+			transformations.replaceExact("(gl_TextureMatrix[1] * " + coordName + ").xy", placeholder);
+			transformations.replaceExact("(gl_TextureMatrix[1] * " + coordName + ").xy", placeholder);
+			transformations.replaceExact("(gl_TextureMatrix[1] * " + coordName + ").s", placeholder + ".s");
+			transformations.replaceExact("gl_TextureMatrix[1] * " + coordName, "vec4(" + placeholder + ", 0.0, 1.0)");
+			transformations.replaceExact(coordName + ".xy/255.0", placeholder);
+		}
+
+		transformations.replaceExact("gl_TextureMatrix[1]", "iris_LightmapTextureMatrix");
+		transformations.replaceExact("gl_MultiTexCoord1", "vec4(" + placeholder + " * 255.0, 0.0, 1.0)");
+		transformations.replaceExact("gl_MultiTexCoord2", "vec4(" + placeholder + " * 255.0, 0.0, 1.0)");
+		blackhole.consume(transformations.contains("iris_LightmapTextureMatrix"));
+		transformations.replaceExact(placeholder, "iris_UV2");
+
+		for (int i = 2; i < 8; i++) {
+			transformations.define("gl_MultiTexCoord" + i, " vec4(0.0, 0.0, 0.0, 1.0)");
+		}
+
+		transformations.replaceExact("gl_TextureMatrix[0]", "iris_TextureMat");
+
+		if (!transformations.contains("irisMain")) {
+			transformations.replaceExact("main", "irisMain");
+		}
+
+		return transformations.toString();
+	}
+
+	/**
+	 * The previous implementation of {@link StringTransformations}.
+	 */
+	private static class LegacyTransformations implements Transformations {
+		private String prefix;
+		private String extensions;
+		private StringBuilder injections;
+		private String body;
+		private StringBuilder suffix;
+
+		LegacyTransformations(String base) {
+			int versionStringStart = base.indexOf("#version");
+			String prefix = base.substring(0, versionStringStart);
+			base = base.substring(versionStringStart);
+
+			int splitPoint = base.indexOf("\n") + 1;
+
+			this.prefix = prefix + base.substring(0, splitPoint);
+			this.extensions = "";
+			this.injections = new StringBuilder();
+			this.body = base.substring(splitPoint);
+			this.suffix = new StringBuilder("\n");
+		}
+
+		@Override
+		public String getPrefix() {
+			return prefix;
+		}
+
+		@Override
+		public void setPrefix(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean contains(String content) {
+			return toString().contains(content);
+		}
+
+		@Override
+		public void define(String key, String value) {
+			extensions = extensions + "#define " + key + " " + value + "\n";
+		}
+
+		@Override
+		public void injectLine(InjectionPoint at, String line) {
+			if (at == InjectionPoint.BEFORE_CODE) {
+				injections.append(line);
+				injections.append('\n');
+			} else if (at == InjectionPoint.DEFINES) {
+				extensions = extensions + line + "\n";
+			} else {
+				suffix.append(line);
+				suffix.append('\n');
+			}
+		}
+
+		@Override
+		public void replaceExact(String from, String to) {
+			prefix = prefix.replace(from, to);
+			extensions = extensions.replace(from, to);
+			injections = new StringBuilder(injections.toString().replace(from, to));
+			body = body.replace(from, to);
+			suffix = new StringBuilder(suffix.toString().replace(from, to));
+		}
+
+		@Override
+		public String toString() {
+			return prefix + extensions + injections + body + suffix;
+		}
+	}
+}
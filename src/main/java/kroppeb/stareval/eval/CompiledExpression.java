@@ -0,0 +1,186 @@
+package kroppeb.stareval.eval;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An expression compiled into a flat list of register based instructions, which can be evaluated any number of times
+ * without allocating or boxing anything.
+ *
+ * <p>Every instruction writes to its own register, and the instructions are ordered so that every register is written
+ * before it is read. Constants, including every part of the expression that was folded at compile time, are stored in
+ * registers that are never written to, so they don't cost anything to evaluate. Boolean values are stored as 1 and
+ * 0.</p>
+ *
+ * <p>Since the registers are part of the compiled expression, a compiled expression must not be evaluated from more
+ * than one thread at a time.</p>
+ */
+public final class CompiledExpression {
+	// Every instruction is made of an opcode followed by its destination register and three operands
+	static final int STRIDE = 5;
+
+	static final int LOAD_FLOAT = 0;
+	static final int LOAD_BOOLEAN = 1;
+	static final int MOVE = 2;
+	static final int CALL = 3;
+	static final int SELECT = 4;
+	static final int NOT = 5;
+	static final int NEGATE = 6;
+	static final int ADD = 7;
+	static final int SUBTRACT = 8;
+	static final int MULTIPLY = 9;
+	static final int DIVIDE = 10;
+	static final int REMAINDER = 11;
+	static final int EQUALS = 12;
+	static final int NOT_EQUALS = 13;
+	static final int LESS_THAN = 14;
+	static final int MORE_THAN = 15;
+	static final int LESS_THAN_OR_EQUALS = 16;
+	static final int MORE_THAN_OR_EQUALS = 17;
+	static final int AND = 18;
+	static final int OR = 19;
+
+	private final Type type;
+	private final int[] code;
+	private final float[] registers;
+	private final int result;
+	private final FloatVariable[] floatVariables;
+	private final BooleanSupplier[] booleanVariables;
+	private final ExpressionFunction[] functions;
+	private final boolean pure;
+	private final List<String> variableNames;
+
+	CompiledExpression(Type type, int[] code, float[] registers, int result, FloatVariable[] floatVariables,
+					   BooleanSupplier[] booleanVariables, ExpressionFunction[] functions, boolean pure,
+					   String[] variableNames) {
+		this.type = type;
+		this.code = code;
+		this.registers = registers;
+		this.result = result;
+		this.floatVariables = floatVariables;
+		this.booleanVariables = booleanVariables;
+		this.functions = functions;
+		this.pure = pure;
+		this.variableNames = Collections.unmodifiableList(Arrays.asList(variableNames));
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Returns whether the whole expression was folded into a constant.
+	 */
+	public boolean isConstant() {
+		return this.code.length == 0;
+	}
+
+	/**
+	 * Returns whether the expression always evaluates to the same value as long as its variables don't change, which
+	 * isn't the case if it calls impure functions like {@code random}.
+	 */
+	public boolean isPure() {
+		return this.pure;
+	}
+
+	/**
+	 * Returns the names of the variables that are read when evaluating the expression. Variables that were only
+	 * referenced from parts of the expression that were folded away aren't included.
+	 */
+	public List<String> getVariableNames() {
+		return this.variableNames;
+	}
+
+	/**
+	 * Returns the number of instructions that are run on every evaluation.
+	 */
+	public int getInstructionCount() {
+		return this.code.length / STRIDE;
+	}
+
+	public float evaluateFloat() {
+		this.run();
+
+		return this.registers[this.result];
+	}
+
+	public boolean evaluateBoolean() {
+		this.run();
+
+		return this.registers[this.result] != 0.0f;
+	}
+
+	private void run() {
+		int[] code = this.code;
+		float[] r = this.registers;
+
+		for (int pc = 0; pc < code.length; pc += STRIDE) {
+			int dst = code[pc + 1];
+			int a = code[pc + 2];
+			int b = code[pc + 3];
+
+			switch (code[pc]) {
+				case LOAD_FLOAT:
+					r[dst] = this.floatVariables[a].get();
+					break;
+				case LOAD_BOOLEAN:
+					r[dst] = this.booleanVariables[a].getAsBoolean() ? 1.0f : 0.0f;
+					break;
+				case MOVE:
+					r[dst] = r[a];
+					break;
+				case CALL:
+					r[dst] = this.functions[a].evaluate(r, b, code[pc + 4]);
+					break;
+				case SELECT:
+					r[dst] = r[a] != 0.0f ? r[b] : r[code[pc + 4]];
+					break;
+				default:
+					r[dst] = apply(code[pc], r[a], r[b]);
+			}
+		}
+	}
+
+	/**
+	 * Applies an operator to the values of its operands. Unary operators ignore their second operand. This is also
+	 * used to fold operators with constant operands, so that folding can't change the result of an expression.
+	 */
+	static float apply(int op, float a, float b) {
+		switch (op) {
+			case NOT:
+				return a != 0.0f ? 0.0f : 1.0f;
+			case NEGATE:
+				return -a;
+			case ADD:
+				return a + b;
+			case SUBTRACT:
+				return a - b;
+			case MULTIPLY:
+				return a * b;
+			case DIVIDE:
+				return a / b;
+			case REMAINDER:
+				return a % b;
+			case EQUALS:
+				return a == b ? 1.0f : 0.0f;
+			case NOT_EQUALS:
+				return a != b ? 1.0f : 0.0f;
+			case LESS_THAN:
+				return a < b ? 1.0f : 0.0f;
+			case MORE_THAN:
+				return a > b ? 1.0f : 0.0f;
+			case LESS_THAN_OR_EQUALS:
+				return a <= b ? 1.0f : 0.0f;
+			case MORE_THAN_OR_EQUALS:
+				return a >= b ? 1.0f : 0.0f;
+			case AND:
+				return a != 0.0f && b != 0.0f ? 1.0f : 0.0f;
+			case OR:
+				return a != 0.0f || b != 0.0f ? 1.0f : 0.0f;
+			default:
+				throw new IllegalStateException("Unknown operator " + op);
+		}
+	}
+}
@@ -0,0 +1,371 @@
+package kroppeb.stareval.eval;
+
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import kroppeb.stareval.element.AccessibleExpressionElement;
+import kroppeb.stareval.element.ExpressionElement;
+import kroppeb.stareval.element.token.IdToken;
+import kroppeb.stareval.element.token.NumberToken;
+import kroppeb.stareval.element.tree.AccessExpressionElement;
+import kroppeb.stareval.element.tree.BinaryExpressionElement;
+import kroppeb.stareval.element.tree.FunctionCall;
+import kroppeb.stareval.element.tree.UnaryExpressionElement;
+import kroppeb.stareval.exception.ParseException;
+import kroppeb.stareval.exception.ResolutionException;
+import kroppeb.stareval.parser.BinaryOp;
+import kroppeb.stareval.parser.Parser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Resolves the functions and variables of a parsed expression, checks its types, and compiles it into a
+ * {@link CompiledExpression}.
+ *
+ * <p>Any part of the expression that only depends on constants and pure functions is evaluated at compile time. This
+ * includes the branches of {@code if} calls with a constant condition, of which only the branch that is taken is
+ * compiled. Every variable is read at most once per evaluation, no matter how often it's referenced.</p>
+ *
+ * <p>Expressions must be parsed with {@link StandardOperators#OPTIONS}.</p>
+ */
+public final class ExpressionCompiler {
+	private static final Map<BinaryOp, Integer> BINARY_OPS = new IdentityHashMap<>();
+
+	static {
+		BINARY_OPS.put(StandardOperators.MULTIPLY, CompiledExpression.MULTIPLY);
+		BINARY_OPS.put(StandardOperators.DIVIDE, CompiledExpression.DIVIDE);
+		BINARY_OPS.put(StandardOperators.REMAINDER, CompiledExpression.REMAINDER);
+		BINARY_OPS.put(StandardOperators.ADD, CompiledExpression.ADD);
+		BINARY_OPS.put(StandardOperators.SUBTRACT, CompiledExpression.SUBTRACT);
+		BINARY_OPS.put(StandardOperators.EQUALS, CompiledExpression.EQUALS);
+		BINARY_OPS.put(StandardOperators.NOT_EQUALS, CompiledExpression.NOT_EQUALS);
+		BINARY_OPS.put(StandardOperators.LESS_THAN, CompiledExpression.LESS_THAN);
+		BINARY_OPS.put(StandardOperators.MORE_THAN, CompiledExpression.MORE_THAN);
+		BINARY_OPS.put(StandardOperators.LESS_THAN_OR_EQUALS, CompiledExpression.LESS_THAN_OR_EQUALS);
+		BINARY_OPS.put(StandardOperators.MORE_THAN_OR_EQUALS, CompiledExpression.MORE_THAN_OR_EQUALS);
+		BINARY_OPS.put(StandardOperators.AND, CompiledExpression.AND);
+		BINARY_OPS.put(StandardOperators.OR, CompiledExpression.OR);
+	}
+
+	private final FunctionTable functions;
+	private final VariableTable variables;
+
+	// The initial value of every register, which is the value of constant registers
+	private final FloatArrayList registers = new FloatArrayList();
+	private final BooleanArrayList constant = new BooleanArrayList();
+	private final IntArrayList code = new IntArrayList();
+
+	private final Object2IntMap<String> loadedVariables = new Object2IntOpenHashMap<>();
+	private final List<FloatVariable> floatVariables = new ArrayList<>();
+	private final List<BooleanSupplier> booleanVariables = new ArrayList<>();
+	private final List<ExpressionFunction> calledFunctions = new ArrayList<>();
+	private boolean pure = true;
+
+	private ExpressionCompiler(FunctionTable functions, VariableTable variables) {
+		this.functions = functions;
+		this.variables = variables;
+	}
+
+	public static CompiledExpression compile(String expression, FunctionTable functions, VariableTable variables)
+			throws ParseException {
+		return compile(Parser.parse(expression, StandardOperators.OPTIONS), functions, variables);
+	}
+
+	public static CompiledExpression compile(ExpressionElement expression, FunctionTable functions,
+											 VariableTable variables) throws ResolutionException {
+		ExpressionCompiler compiler = new ExpressionCompiler(functions, variables);
+		int result = compiler.allocate();
+		Type type = compiler.compile(expression, result);
+
+		return new CompiledExpression(type, compiler.code.toIntArray(), compiler.registers.toFloatArray(), result,
+				compiler.floatVariables.toArray(new FloatVariable[0]),
+				compiler.booleanVariables.toArray(new BooleanSupplier[0]),
+				compiler.calledFunctions.toArray(new ExpressionFunction[0]), compiler.pure,
+				compiler.loadedVariables.keySet().toArray(new String[0]));
+	}
+
+	private int allocate() {
+		this.registers.add(0.0f);
+		this.constant.add(false);
+
+		return this.registers.size() - 1;
+	}
+
+	private Type setConstant(int register, Type type, float value) {
+		this.registers.set(register, value);
+		this.constant.set(register, true);
+
+		return type;
+	}
+
+	private Type emit(Type type, int op, int dst, int a, int b, int c) {
+		this.code.add(op);
+		this.code.add(dst);
+		this.code.add(a);
+		this.code.add(b);
+		this.code.add(c);
+
+		return type;
+	}
+
+	/**
+	 * Compiles an expression so that its value ends up in the given register, and returns its type.
+	 */
+	private Type compile(ExpressionElement element, int dst) throws ResolutionException {
+		if (element instanceof NumberToken) {
+			return this.setConstant(dst, Type.FLOAT, parseNumber(((NumberToken) element).getNumber()));
+		} else if (element instanceof IdToken || element instanceof AccessExpressionElement) {
+			return this.compileVariable(getName((AccessibleExpressionElement) element), dst);
+		} else if (element instanceof UnaryExpressionElement) {
+			UnaryExpressionElement unary = (UnaryExpressionElement) element;
+			boolean not = unary.getOp() == StandardOperators.NOT;
+
+			if (!not && unary.getOp() != StandardOperators.NEGATE) {
+				throw new ResolutionException("Unsupported unary operator " + unary.getOp());
+			}
+
+			Type type = not ? Type.BOOLEAN : Type.FLOAT;
+			int inner = this.allocate();
+
+			this.expect(type, this.compile(unary.getInner(), inner), "the operand of " + unary.getOp());
+
+			return this.compileOp(type, not ? CompiledExpression.NOT : CompiledExpression.NEGATE, dst, inner, inner);
+		} else if (element instanceof BinaryExpressionElement) {
+			return this.compileBinary((BinaryExpressionElement) element, dst);
+		} else if (element instanceof FunctionCall) {
+			FunctionCall call = (FunctionCall) element;
+
+			if (call.getId().equals("if")) {
+				return this.compileIf(call.getArgs(), 0, dst);
+			}
+
+			return this.compileCall(call, dst);
+		}
+
+		throw new ResolutionException("Unsupported expression " + element);
+	}
+
+	private Type compileVariable(String name, int dst) throws ResolutionException {
+		Object variable = this.variables.get(name);
+
+		if (variable == null) {
+			switch (name) {
+				case "true":
+					return this.setConstant(dst, Type.BOOLEAN, 1.0f);
+				case "false":
+					return this.setConstant(dst, Type.BOOLEAN, 0.0f);
+				case "pi":
+					return this.setConstant(dst, Type.FLOAT, (float) Math.PI);
+			}
+
+			if (this.functions.has(name)) {
+				throw new ResolutionException("Function " + name + " is used like a variable");
+			}
+
+			throw new ResolutionException("Unknown variable " + name);
+		}
+
+		Type type = VariableTable.getType(variable);
+
+		if (this.loadedVariables.containsKey(name)) {
+			// Copy the value that was already loaded, so that the variable is only read once
+			return this.emit(type, CompiledExpression.MOVE, dst, this.loadedVariables.getInt(name), 0, 0);
+		}
+
+		this.loadedVariables.put(name, dst);
+
+		if (type == Type.BOOLEAN) {
+			this.booleanVariables.add((BooleanSupplier) variable);
+
+			return this.emit(type, CompiledExpression.LOAD_BOOLEAN, dst, this.booleanVariables.size() - 1, 0, 0);
+		} else {
+			this.floatVariables.add((FloatVariable) variable);
+
+			return this.emit(type, CompiledExpression.LOAD_FLOAT, dst, this.floatVariables.size() - 1, 0, 0);
+		}
+	}
+
+	private Type compileBinary(BinaryExpressionElement binary, int dst) throws ResolutionException {
+		Integer op = BINARY_OPS.get(binary.getOp());
+
+		if (op == null) {
+			throw new ResolutionException("Unsupported binary operator " + binary.getOp());
+		}
+
+		int left = this.allocate();
+		int right = this.allocate();
+		Type leftType = this.compile(binary.getLeft(), left);
+		Type rightType = this.compile(binary.getRight(), right);
+		String description = "the operands of " + binary.getOp();
+
+		switch (op) {
+			case CompiledExpression.EQUALS:
+			case CompiledExpression.NOT_EQUALS:
+				this.expect(leftType, rightType, description);
+				return this.compileOp(Type.BOOLEAN, op, dst, left, right);
+			case CompiledExpression.AND:
+			case CompiledExpression.OR:
+				this.expect(Type.BOOLEAN, leftType, description);
+				this.expect(Type.BOOLEAN, rightType, description);
+				return this.compileOp(Type.BOOLEAN, op, dst, left, right);
+			case CompiledExpression.LESS_THAN:
+			case CompiledExpression.MORE_THAN:
+			case CompiledExpression.LESS_THAN_OR_EQUALS:
+			case CompiledExpression.MORE_THAN_OR_EQUALS:
+				this.expect(Type.FLOAT, leftType, description);
+				this.expect(Type.FLOAT, rightType, description);
+				return this.compileOp(Type.BOOLEAN, op, dst, left, right);
+			default:
+				this.expect(Type.FLOAT, leftType, description);
+				this.expect(Type.FLOAT, rightType, description);
+				return this.compileOp(Type.FLOAT, op, dst, left, right);
+		}
+	}
+
+	private Type compileOp(Type type, int op, int dst, int a, int b) {
+		if (this.constant.getBoolean(a) && this.constant.getBoolean(b)) {
+			return this.setConstant(dst, type,
+					CompiledExpression.apply(op, this.registers.getFloat(a), this.registers.getFloat(b)));
+		}
+
+		return this.emit(type, op, dst, a, b, 0);
+	}
+
+	/**
+	 * Compiles {@code if(condition, value, [condition, value, ...] otherwise)}, starting at the given argument.
+	 */
+	private Type compileIf(List<? extends ExpressionElement> args, int index, int dst) throws ResolutionException {
+		if (args.size() < 3 || args.size() % 2 == 0) {
+			throw new ResolutionException("if expects a condition, a value, and a value to use otherwise, but got "
+					+ args.size() + " arguments");
+		}
+
+		if (index == args.size() - 1) {
+			return this.compile(args.get(index), dst);
+		}
+
+		int condition = this.allocate();
+		this.expect(Type.BOOLEAN, this.compile(args.get(index), condition), "the condition of if");
+
+		if (this.constant.getBoolean(condition)) {
+			// Only compile the branch that is taken, but still check the types of the other one
+			boolean taken = this.registers.getFloat(condition) != 0.0f;
+			Type type;
+			Type otherType;
+
+			if (taken) {
+				type = this.compile(args.get(index + 1), dst);
+				otherType = this.typeOf(args, index + 2);
+			} else {
+				type = this.compileIf(args, index + 2, dst);
+				otherType = this.typeOf(args, index + 1);
+			}
+
+			this.expect(type, otherType, "the values of if");
+
+			return type;
+		}
+
+		int value = this.allocate();
+		int otherwise = this.allocate();
+		Type type = this.compile(args.get(index + 1), value);
+
+		this.expect(type, this.compileIf(args, index + 2, otherwise), "the values of if");
+
+		if (this.constant.getBoolean(value) && this.constant.getBoolean(otherwise)
+				&& this.registers.getFloat(value) == this.registers.getFloat(otherwise)) {
+			return this.setConstant(dst, type, this.registers.getFloat(value));
+		}
+
+		return this.emit(type, CompiledExpression.SELECT, dst, condition, value, otherwise);
+	}
+
+	/**
+	 * Determines the type of a branch of an {@code if} that isn't taken, without emitting any code for it.
+	 */
+	private Type typeOf(List<? extends ExpressionElement> args, int index) throws ResolutionException {
+		ExpressionCompiler scratch = new ExpressionCompiler(this.functions, this.variables);
+
+		return index == args.size() - 1
+				? scratch.compile(args.get(index), scratch.allocate())
+				: scratch.compileIf(args, index, scratch.allocate());
+	}
+
+	private Type compileCall(FunctionCall call, int dst) throws ResolutionException {
+		List<? extends ExpressionElement> args = call.getArgs();
+		FunctionTable.Entry entry = this.functions.find(call.getId(), args.size());
+
+		if (entry == null) {
+			if (this.functions.has(call.getId())) {
+				throw new ResolutionException("Function " + call.getId() + " doesn't take " + args.size() + " arguments");
+			}
+
+			throw new ResolutionException("Unknown function " + call.getId());
+		}
+
+		// Arguments are passed in consecutive registers
+		int first = this.registers.size();
+		boolean allConstant = true;
+
+		for (int i = 0; i < args.size(); i++) {
+			this.allocate();
+		}
+
+		for (int i = 0; i < args.size(); i++) {
+			Type type = this.compile(args.get(i), first + i);
+
+			this.expect(entry.getParameterType(i), type, "argument " + (i + 1) + " of " + call.getId());
+			allConstant &= this.constant.getBoolean(first + i);
+		}
+
+		ExpressionFunction function = entry.instances.get();
+
+		if (entry.pure && allConstant) {
+			return this.setConstant(dst, entry.returnType,
+					function.evaluate(this.registers.elements(), first, args.size()));
+		}
+
+		this.calledFunctions.add(function);
+		this.pure &= entry.pure;
+
+		return this.emit(entry.returnType, CompiledExpression.CALL, dst, this.calledFunctions.size() - 1, first,
+				args.size());
+	}
+
+	private void expect(Type expected, Type actual, String description) throws ResolutionException {
+		if (expected != actual) {
+			throw new ResolutionException("Expected " + description + " to be of type " + expected
+					+ ", but got " + actual);
+		}
+	}
+
+	private static String getName(AccessibleExpressionElement element) throws ResolutionException {
+		if (element instanceof IdToken) {
+			return ((IdToken) element).getId();
+		} else if (element instanceof AccessExpressionElement) {
+			AccessExpressionElement access = (AccessExpressionElement) element;
+
+			return getName(access.getBase()) + "." + access.getIndex();
+		}
+
+		throw new ResolutionException("Unsupported expression " + element);
+	}
+
+	private static float parseNumber(String number) throws ResolutionException {
+		try {
+			if (number.startsWith("0x") || number.startsWith("0X")) {
+				return Long.parseLong(number.substring(2), 16);
+			}
+
+			return Float.parseFloat(number);
+		} catch (NumberFormatException e) {
+			throw new ResolutionException("Invalid number " + number);
+		}
+	}
+}
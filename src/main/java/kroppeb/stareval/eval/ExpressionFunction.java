@@ -0,0 +1,16 @@
+package kroppeb.stareval.eval;
+
+/**
+ * A function that can be called from an expression. The arguments are passed in place, as the registers of the
+ * compiled expression, so that calling a function never allocates anything. Boolean arguments and results are
+ * represented as 1 and 0.
+ */
+@FunctionalInterface
+public interface ExpressionFunction {
+	/**
+	 * @param registers the registers of the calling expression
+	 * @param first the register holding the first argument
+	 * @param count the number of arguments, held in consecutive registers
+	 */
+	float evaluate(float[] registers, int first, int count);
+}
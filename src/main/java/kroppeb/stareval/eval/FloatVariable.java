@@ -0,0 +1,6 @@
+package kroppeb.stareval.eval;
+
+@FunctionalInterface
+public interface FloatVariable {
+	float get();
+}
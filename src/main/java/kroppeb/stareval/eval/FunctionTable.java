@@ -0,0 +1,135 @@
+package kroppeb.stareval.eval;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The functions that expressions may call, looked up by name and number of arguments.
+ */
+public final class FunctionTable {
+	private final Map<String, List<Entry>> functions;
+
+	private FunctionTable(Map<String, List<Entry>> functions) {
+		this.functions = functions;
+	}
+
+	Entry find(String name, int argumentCount) {
+		List<Entry> overloads = this.functions.get(name);
+
+		if (overloads == null) {
+			return null;
+		}
+
+		for (Entry entry : overloads) {
+			if (entry.accepts(argumentCount)) {
+				return entry;
+			}
+		}
+
+		return null;
+	}
+
+	boolean has(String name) {
+		return this.functions.containsKey(name);
+	}
+
+	static final class Entry {
+		final Type returnType;
+		// For variadic functions, the type of every argument past the fixed ones is the last type of this array
+		final Type[] parameterTypes;
+		final boolean variadic;
+		// Pure functions always return the same result for the same arguments, and are folded if they are constant
+		final boolean pure;
+		final Supplier<? extends ExpressionFunction> instances;
+
+		Entry(Type returnType, Type[] parameterTypes, boolean variadic, boolean pure,
+			  Supplier<? extends ExpressionFunction> instances) {
+			this.returnType = returnType;
+			this.parameterTypes = parameterTypes;
+			this.variadic = variadic;
+			this.pure = pure;
+			this.instances = instances;
+		}
+
+		boolean accepts(int argumentCount) {
+			if (this.variadic) {
+				return argumentCount >= this.parameterTypes.length;
+			}
+
+			return argumentCount == this.parameterTypes.length;
+		}
+
+		Type getParameterType(int index) {
+			return this.parameterTypes[Math.min(index, this.parameterTypes.length - 1)];
+		}
+	}
+
+	public static class Builder {
+		private final Map<String, List<Entry>> functions = new HashMap<>();
+
+		/**
+		 * Adds a pure function, which is folded into a constant when all of its arguments are constant.
+		 */
+		public Builder add(String name, Type returnType, ExpressionFunction function, Type... parameterTypes) {
+			return this.add(name, new Entry(returnType, parameterTypes, false, true, () -> function));
+		}
+
+		/**
+		 * Adds a pure function taking at least as many arguments as there are parameter types, with any further
+		 * arguments having the type of the last parameter.
+		 */
+		public Builder addVariadic(String name, Type returnType, ExpressionFunction function, Type... parameterTypes) {
+			if (parameterTypes.length == 0) {
+				throw new IllegalArgumentException("A variadic function needs at least one parameter type");
+			}
+
+			return this.add(name, new Entry(returnType, parameterTypes, true, true, () -> function));
+		}
+
+		/**
+		 * Adds a function that may return a different result for the same arguments, such as a random number or a
+		 * smoothed value. A new instance is created for every call to it in an expression, so that instances may keep
+		 * state specific to that call.
+		 */
+		public Builder addImpure(String name, Type returnType, Supplier<? extends ExpressionFunction> instances,
+								 Type... parameterTypes) {
+			return this.add(name, new Entry(returnType, parameterTypes, false, false, instances));
+		}
+
+		/**
+		 * Copies every function of an existing table into this builder.
+		 */
+		public Builder addAll(FunctionTable table) {
+			table.functions.forEach((name, overloads) -> overloads.forEach(entry -> this.add(name, entry)));
+
+			return this;
+		}
+
+		private Builder add(String name, Entry entry) {
+			List<Entry> overloads = this.functions.computeIfAbsent(name, key -> new ArrayList<>());
+
+			for (Entry existing : overloads) {
+				// Overloads are only told apart by their number of arguments
+				if (existing.variadic == entry.variadic
+						&& existing.parameterTypes.length == entry.parameterTypes.length) {
+					throw new IllegalArgumentException("Function " + name + " is already defined with the same number of parameters");
+				}
+			}
+
+			overloads.add(entry);
+
+			return this;
+		}
+
+		public FunctionTable build() {
+			Map<String, List<Entry>> functions = new HashMap<>();
+
+			this.functions.forEach((name, overloads) -> functions.put(name, new ArrayList<>(overloads)));
+
+			return new FunctionTable(functions);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package kroppeb.stareval.eval;
+
+import java.util.Random;
+
+/**
+ * The built-in functions of OptiFine's custom uniform expressions that don't depend on the game.
+ *
+ * <p>{@code if} isn't a function here, since the compiler handles it itself to support both types of values.</p>
+ */
+public final class StandardFunctions {
+	public static final FunctionTable TABLE;
+
+	static {
+		FunctionTable.Builder builder = new FunctionTable.Builder();
+		Type f = Type.FLOAT;
+		Type b = Type.BOOLEAN;
+
+		builder.add("sin", f, (r, i, n) -> (float) Math.sin(r[i]), f);
+		builder.add("cos", f, (r, i, n) -> (float) Math.cos(r[i]), f);
+		builder.add("asin", f, (r, i, n) -> (float) Math.asin(r[i]), f);
+		builder.add("acos", f, (r, i, n) -> (float) Math.acos(r[i]), f);
+		builder.add("tan", f, (r, i, n) -> (float) Math.tan(r[i]), f);
+		builder.add("atan", f, (r, i, n) -> (float) Math.atan(r[i]), f);
+		builder.add("atan2", f, (r, i, n) -> (float) Math.atan2(r[i], r[i + 1]), f, f);
+		builder.add("torad", f, (r, i, n) -> (float) Math.toRadians(r[i]), f);
+		builder.add("todeg", f, (r, i, n) -> (float) Math.toDegrees(r[i]), f);
+
+		builder.addVariadic("min", f, StandardFunctions::min, f, f);
+		builder.addVariadic("max", f, StandardFunctions::max, f, f);
+		builder.add("clamp", f, (r, i, n) -> Math.max(r[i + 1], Math.min(r[i + 2], r[i])), f, f, f);
+		builder.add("abs", f, (r, i, n) -> Math.abs(r[i]), f);
+		builder.add("floor", f, (r, i, n) -> (float) Math.floor(r[i]), f);
+		builder.add("ceil", f, (r, i, n) -> (float) Math.ceil(r[i]), f);
+		builder.add("frac", f, (r, i, n) -> r[i] - (float) Math.floor(r[i]), f);
+		builder.add("round", f, (r, i, n) -> (float) Math.round(r[i]), f);
+		builder.add("signum", f, (r, i, n) -> Math.signum(r[i]), f);
+		builder.add("exp", f, (r, i, n) -> (float) Math.exp(r[i]), f);
+		builder.add("log", f, (r, i, n) -> (float) Math.log(r[i]), f);
+		builder.add("pow", f, (r, i, n) -> (float) Math.pow(r[i], r[i + 1]), f, f);
+		builder.add("sqrt", f, (r, i, n) -> (float) Math.sqrt(r[i]), f);
+		builder.add("fmod", f, (r, i, n) -> r[i] - r[i + 1] * (float) Math.floor(r[i] / r[i + 1]), f, f);
+
+		builder.add("between", b, (r, i, n) -> bool(r[i] >= r[i + 1] && r[i] <= r[i + 2]), f, f, f);
+		builder.add("equals", b, (r, i, n) -> bool(Math.abs(r[i] - r[i + 1]) <= r[i + 2]), f, f, f);
+		builder.addVariadic("in", b, StandardFunctions::in, f, f);
+
+		builder.addImpure("random", f, () -> {
+			Random random = new Random();
+
+			return (r, i, n) -> random.nextFloat();
+		});
+
+		TABLE = builder.build();
+	}
+
+	private StandardFunctions() {
+	}
+
+	private static float min(float[] registers, int first, int count) {
+		float min = registers[first];
+
+		for (int i = first + 1; i < first + count; i++) {
+			min = Math.min(min, registers[i]);
+		}
+
+		return min;
+	}
+
+	private static float max(float[] registers, int first, int count) {
+		float max = registers[first];
+
+		for (int i = first + 1; i < first + count; i++) {
+			max = Math.max(max, registers[i]);
+		}
+
+		return max;
+	}
+
+	private static float in(float[] registers, int first, int count) {
+		for (int i = first + 1; i < first + count; i++) {
+			if (registers[first] == registers[i]) {
+				return 1.0f;
+			}
+		}
+
+		return 0.0f;
+	}
+
+	private static float bool(boolean value) {
+		return value ? 1.0f : 0.0f;
+	}
+}
@@ -0,0 +1,59 @@
+package kroppeb.stareval.eval;
+
+import kroppeb.stareval.parser.BinaryOp;
+import kroppeb.stareval.parser.ParserOptions;
+import kroppeb.stareval.parser.UnaryOp;
+
+/**
+ * The operators of OptiFine's custom uniform expressions, along with their precedence. The compiler recognizes these
+ * operators by identity, so expressions must be parsed with {@link #OPTIONS}.
+ */
+public final class StandardOperators {
+	public static final BinaryOp MULTIPLY = new BinaryOp("multiply", 0);
+	public static final BinaryOp DIVIDE = new BinaryOp("divide", 0);
+	public static final BinaryOp REMAINDER = new BinaryOp("remainder", 0);
+	public static final BinaryOp ADD = new BinaryOp("add", 1);
+	public static final BinaryOp SUBTRACT = new BinaryOp("subtract", 1);
+	public static final BinaryOp EQUALS = new BinaryOp("equals", 2);
+	public static final BinaryOp NOT_EQUALS = new BinaryOp("notEquals", 2);
+	public static final BinaryOp LESS_THAN = new BinaryOp("lessThan", 2);
+	public static final BinaryOp MORE_THAN = new BinaryOp("moreThan", 2);
+	public static final BinaryOp LESS_THAN_OR_EQUALS = new BinaryOp("lessThanOrEquals", 2);
+	public static final BinaryOp MORE_THAN_OR_EQUALS = new BinaryOp("moreThanOrEquals", 2);
+	public static final BinaryOp AND = new BinaryOp("and", 3);
+	public static final BinaryOp OR = new BinaryOp("or", 4);
+
+	public static final UnaryOp NOT = new UnaryOp("not");
+	public static final UnaryOp NEGATE = new UnaryOp("negate");
+
+	public static final ParserOptions OPTIONS;
+
+	static {
+		ParserOptions.Builder builder = new ParserOptions.Builder();
+
+		builder.addBinaryOp("*", MULTIPLY);
+		builder.addBinaryOp("/", DIVIDE);
+		builder.addBinaryOp("%", REMAINDER);
+
+		builder.addBinaryOp("+", ADD);
+		builder.addBinaryOp("-", SUBTRACT);
+
+		builder.addBinaryOp("==", EQUALS);
+		builder.addBinaryOp("!=", NOT_EQUALS);
+		builder.addBinaryOp("<", LESS_THAN);
+		builder.addBinaryOp(">", MORE_THAN);
+		builder.addBinaryOp("<=", LESS_THAN_OR_EQUALS);
+		builder.addBinaryOp(">=", MORE_THAN_OR_EQUALS);
+
+		builder.addBinaryOp("&&", AND);
+		builder.addBinaryOp("||", OR);
+
+		builder.addUnaryOp("!", NOT);
+		builder.addUnaryOp("-", NEGATE);
+
+		OPTIONS = builder.build();
+	}
+
+	private StandardOperators() {
+	}
+}
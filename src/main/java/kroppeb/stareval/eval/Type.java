@@ -0,0 +1,9 @@
+package kroppeb.stareval.eval;
+
+/**
+ * The types of values that expressions can evaluate to. Integers are represented as floats, like OptiFine does.
+ */
+public enum Type {
+	FLOAT,
+	BOOLEAN
+}
@@ -0,0 +1,51 @@
+package kroppeb.stareval.eval;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The variables that expressions may refer to. Variables are read every time that an expression is evaluated.
+ *
+ * <p>Members like {@code cameraPosition.x} are looked up by their full name, so the components of a vector are
+ * registered as separate variables.</p>
+ */
+public final class VariableTable {
+	private final Map<String, Object> variables;
+
+	private VariableTable(Map<String, Object> variables) {
+		this.variables = variables;
+	}
+
+	Object get(String name) {
+		return this.variables.get(name);
+	}
+
+	static Type getType(Object variable) {
+		return variable instanceof BooleanSupplier ? Type.BOOLEAN : Type.FLOAT;
+	}
+
+	public static class Builder {
+		private final Map<String, Object> variables = new HashMap<>();
+
+		public Builder addFloat(String name, FloatVariable variable) {
+			return this.add(name, variable);
+		}
+
+		public Builder addBoolean(String name, BooleanSupplier variable) {
+			return this.add(name, variable);
+		}
+
+		private Builder add(String name, Object variable) {
+			if (this.variables.putIfAbsent(name, variable) != null) {
+				throw new IllegalArgumentException("Variable " + name + " is already defined");
+			}
+
+			return this;
+		}
+
+		public VariableTable build() {
+			return new VariableTable(new HashMap<>(this.variables));
+		}
+	}
+}
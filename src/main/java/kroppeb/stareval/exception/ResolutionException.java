@@ -0,0 +1,11 @@
+package kroppeb.stareval.exception;
+
+/**
+ * Thrown when a parsed expression refers to unknown functions or variables, or when the types of its parts don't fit
+ * together.
+ */
+public class ResolutionException extends ParseException {
+	public ResolutionException(String message) {
+		super(message);
+	}
+}
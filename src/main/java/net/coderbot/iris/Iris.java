@@ -2,6 +2,9 @@ package net.coderbot.iris;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.zip.ZipException;
 
@@ -10,10 +13,12 @@ import com.google.common.collect.ImmutableList;
 import com.mojang.blaze3d.platform.InputConstants;
 import net.coderbot.iris.compat.sodium.AllowedSodiumVersion;
 import net.coderbot.iris.compat.sodium.SodiumVersionCheck;
+import net.coderbot.iris.config.ConfigPersistence;
 import net.coderbot.iris.config.IrisConfig;
 import net.coderbot.iris.gui.screen.ShaderPackScreen;
 import net.coderbot.iris.pipeline.*;
 import net.coderbot.iris.pipeline.newshader.NewWorldRenderingPipeline;
+import net.coderbot.iris.pipeline.newshader.ShaderPrewarmer;
 import net.coderbot.iris.shaderpack.DimensionId;
 import net.coderbot.iris.shaderpack.ProgramSet;
 import net.coderbot.iris.shaderpack.ShaderPack;
@@ -42,6 +47,8 @@ public class Iris implements ClientModInitializer {
 	public static final String MODID = "iris";
 	public static final Logger logger = LogManager.getLogger(MODID);
 	public static final String SODIUM_DOWNLOAD_LINK = "https://discord.gg/XsAddwQkXF";
+	// Long enough to coalesce the writes caused by clicking through a few options, short enough to not lose much on a crash
+	private static final long CONFIG_WRITE_DELAY_MILLIS = 500;
 
 	private static Path shaderpacksDirectory;
 	private static ShaderpackDirectoryManager shaderpacksDirectoryManager;
@@ -56,6 +63,7 @@ public class Iris implements ClientModInitializer {
 
 	private static PipelineManager pipelineManager;
 	private static IrisConfig irisConfig;
+	private static ConfigPersistence configPersistence;
 	private static FileSystem zipFileSystem;
 	private static KeyMapping reloadKeybind;
 	private static KeyMapping toggleShadersKeybind;
@@ -378,6 +386,37 @@ public class Iris implements ClientModInitializer {
 		loadShaderpack();
 	}
 
+	/**
+	 * Applies changes to the values of the given options of the current shader pack, which must already be stored in
+	 * its config. Unlike {@link #reload()}, the shader pack isn't read from the disk again, and only the programs that
+	 * depend on the changed options are preprocessed again. Only the affected programs are compiled again, unless the
+	 * changed options also change the pack directives, in which case the pipelines are recreated.
+	 */
+	public static void reloadChangedOptions(Collection<String> changedOptions) throws IOException {
+		if (currentPack == null) {
+			reload();
+			return;
+		}
+
+		ShaderPack updatedPack = currentPack.withChangedOptions(changedOptions);
+
+		if (updatedPack == currentPack) {
+			logger.info("None of the shader programs depend on the changed options, keeping the current pipelines");
+			return;
+		}
+
+		currentPack = updatedPack;
+
+		if (getPipelineManager().reloadChangedPrograms(updatedPack::getProgramSet)) {
+			return;
+		}
+
+		// NB: The zip filesystem is left open, since the same shader pack stays loaded.
+		currentPack = null;
+		getPipelineManager().destroyPipeline();
+		currentPack = updatedPack;
+	}
+
 	/**
 	 * Destroys and deallocates all created OpenGL resources. Useful as part of a reload.
 	 */
@@ -440,10 +479,27 @@ public class Iris implements ClientModInitializer {
 		}
 	}
 
+	private static List<Runnable> prewarmPipeline(DimensionId dimensionId) {
+		// NB: This runs on a background thread, so read the current pack only once.
+		ShaderPack pack = currentPack;
+
+		if (pack == null) {
+			return Collections.emptyList();
+		}
+
+		return ShaderPrewarmer.prepare(pack.getProgramSet(dimensionId), irisConfig.shouldUseUniformBuffers());
+	}
+
 	@NotNull
 	public static PipelineManager getPipelineManager() {
 		if (pipelineManager == null) {
-			pipelineManager = new PipelineManager(Iris::createPipeline);
+			// Dimensions that end up with the same program set can share the same pipeline
+			pipelineManager = new PipelineManager(Iris::createPipeline,
+					dimensionId -> currentPack != null ? currentPack.getProgramSet(dimensionId) : null);
+
+			if (irisConfig != null && irisConfig.shouldPrewarmPipelines()) {
+				pipelineManager.setPrewarmer(Iris::prewarmPipeline);
+			}
 		}
 
 		return pipelineManager;
@@ -458,6 +514,19 @@ public class Iris implements ClientModInitializer {
 		return currentPackName;
 	}
 
+	/**
+	 * Returns the service that writes config files in the background. Pending writes are flushed when the game exits.
+	 */
+	public static synchronized ConfigPersistence getConfigPersistence() {
+		if (configPersistence == null) {
+			configPersistence = new ConfigPersistence(CONFIG_WRITE_DELAY_MILLIS);
+
+			Runtime.getRuntime().addShutdownHook(new Thread(configPersistence::flush, "Iris Config Flush"));
+		}
+
+		return configPersistence;
+	}
+
 	public static IrisConfig getIrisConfig() {
 		return irisConfig;
 	}
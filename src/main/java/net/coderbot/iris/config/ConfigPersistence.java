@@ -0,0 +1,176 @@
+package net.coderbot.iris.config;
+
+import net.coderbot.iris.Iris;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes config files on a background thread, so that saving a config never blocks the render thread on disk I/O.
+ *
+ * <p>Saving a config only takes a snapshot of its properties. The file is written a short while later, and any
+ * snapshots of the same file that are taken in the meantime replace the pending one, so a burst of changes results in a
+ * single write. Files are written atomically: the new contents are first written to a temporary file next to the
+ * config file, which then replaces the config file. If the game crashes or is killed while writing, the config file
+ * keeps its previous contents.</p>
+ *
+ * <p>Pending writes are lost unless {@link #flush()} is called before the JVM exits, see
+ * {@link Iris#getConfigPersistence()}.</p>
+ */
+public class ConfigPersistence {
+	private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+	private final ScheduledExecutorService executor;
+	private final long delayMillis;
+	private final AtomicInteger writeCount;
+
+	// Guarded by this
+	private final Map<Path, PendingWrite> pending;
+
+	/**
+	 * @param delayMillis how long to wait for further changes to a file before writing it
+	 */
+	public ConfigPersistence(long delayMillis) {
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Iris Config Writer");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		this.delayMillis = delayMillis;
+		this.writeCount = new AtomicInteger();
+		this.pending = new HashMap<>();
+	}
+
+	/**
+	 * Schedules a file to be written with a snapshot of the given properties. The properties may be modified as soon as
+	 * this method returns.
+	 */
+	public void save(Path path, Properties properties, String comment) {
+		Properties snapshot = new Properties();
+		snapshot.putAll(properties);
+
+		synchronized (this) {
+			PendingWrite write = pending.get(path);
+
+			if (write == null) {
+				write = new PendingWrite();
+				write.future = executor.schedule(() -> writePending(path), delayMillis, TimeUnit.MILLISECONDS);
+				pending.put(path, write);
+			}
+
+			write.properties = snapshot;
+			write.comment = comment;
+		}
+	}
+
+	/**
+	 * Writes all pending files immediately, and waits until they have been written.
+	 */
+	public void flush() {
+		ScheduledFuture<?> barrier;
+
+		synchronized (this) {
+			pending.forEach((path, write) -> {
+				// If the write can't be cancelled, it is already running, and the barrier below waits for it.
+				if (write.future.cancel(false)) {
+					write.future = executor.schedule(() -> writePending(path), 0, TimeUnit.MILLISECONDS);
+				}
+			});
+
+			// The executor runs tasks one at a time in order, so this only completes after all of the writes above.
+			barrier = executor.schedule(() -> {}, 0, TimeUnit.MILLISECONDS);
+		}
+
+		try {
+			barrier.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			Iris.logger.error("Failed to wait for config files to be written", e);
+		}
+	}
+
+	/**
+	 * Returns how many files have been written so far.
+	 */
+	public int getWriteCount() {
+		return writeCount.get();
+	}
+
+	private void writePending(Path path) {
+		PendingWrite write;
+
+		synchronized (this) {
+			write = pending.remove(path);
+		}
+
+		if (write == null) {
+			return;
+		}
+
+		try {
+			writeAtomically(path, serialize(write.properties, write.comment));
+			writeCount.incrementAndGet();
+		} catch (IOException e) {
+			Iris.logger.error("Failed to write the config file at " + path, e);
+		}
+	}
+
+	private static byte[] serialize(Properties properties, String comment) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		// NB: This uses ISO-8859-1 with unicode escapes as the encoding
+		properties.store(output, comment);
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Replaces the contents of a file without ever leaving it partially written.
+	 */
+	public static void writeAtomically(Path path, byte[] contents) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(contents);
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+
+			// Make sure that the contents are on the disk before the rename makes them visible
+			channel.force(true);
+		}
+
+		try {
+			Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static class PendingWrite {
+		private ScheduledFuture<?> future;
+		private Properties properties;
+		private String comment;
+	}
+}
@@ -23,6 +23,7 @@ import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.TranslatableComponent;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -64,6 +65,22 @@ public class IrisConfig {
 	 */
 	private int scrollSpeed = 100;
 
+	/**
+	 * Whether shader pack files should be read and preprocessed concurrently while loading. Defaults to true.
+	 */
+	private boolean parallelShaderPackLoading = true;
+
+	/**
+	 * Whether the pipelines of other dimensions should be prepared in the background ahead of time. Defaults to true.
+	 */
+	private boolean prewarmPipelines = true;
+
+	/**
+	 * Whether the standard per-frame uniforms are provided to shader programs through a single uniform buffer. Defaults
+	 * to false.
+	 */
+	private boolean uniformBuffers = false;
+
 	private final Path propertiesPath;
 
 	public IrisConfig(Path propertiesPath) {
@@ -152,6 +169,35 @@ public class IrisConfig {
 		return this.scrollSpeed;
 	}
 
+	/**
+	 * Determines whether shader pack files are read and preprocessed concurrently while loading.
+	 *
+	 * @return False to read and preprocess every file one at a time on the loading thread.
+	 */
+	public boolean isParallelShaderPackLoading() {
+		return parallelShaderPackLoading;
+	}
+
+	/**
+	 * Determines whether the pipelines of other dimensions are prepared in the background once the pipeline for the
+	 * current dimension is ready.
+	 *
+	 * @return False to only prepare the pipeline of a dimension once it is entered.
+	 */
+	public boolean shouldPrewarmPipelines() {
+		return prewarmPipelines;
+	}
+
+	/**
+	 * Determines whether the standard per-frame uniforms, such as the gbuffer matrices and the camera position, are
+	 * packed into a single uniform buffer once per frame, rather than uploaded to every program separately.
+	 *
+	 * @return False to only provide them as plain uniforms.
+	 */
+	public boolean shouldUseUniformBuffers() {
+		return uniformBuffers;
+	}
+
 	/**
 	 * Determines whether or not shaders are used for rendering.
 	 *
@@ -185,6 +231,9 @@ public class IrisConfig {
 		uiTheme = properties.getProperty("uiTheme", this.uiTheme);
 		condenseShaderConfig = Boolean.parseBoolean(properties.getProperty("condenseShaderConfig", String.valueOf(this.condenseShaderConfig)));
 		scrollSpeed = Integer.parseInt(properties.getProperty("scrollSpeed", String.valueOf(this.scrollSpeed)));
+		parallelShaderPackLoading = Boolean.parseBoolean(properties.getProperty("parallelShaderPackLoading", String.valueOf(this.parallelShaderPackLoading)));
+		prewarmPipelines = Boolean.parseBoolean(properties.getProperty("prewarmPipelines", String.valueOf(this.prewarmPipelines)));
+		uniformBuffers = Boolean.parseBoolean(properties.getProperty("uniformBuffers", String.valueOf(this.uniformBuffers)));
 
 		if (shaderPackName != null) {
 			if (shaderPackName.equals("(internal)") || shaderPackName.isEmpty()) {
@@ -207,6 +256,9 @@ public class IrisConfig {
 		properties.setProperty("uiTheme", getUITheme().name());
 		properties.setProperty("condenseShaderConfig", Boolean.toString(getIfCondensedShaderConfig()));
 		properties.setProperty("scrollSpeed", Integer.toString(getScrollSpeed()));
+		properties.setProperty("parallelShaderPackLoading", Boolean.toString(isParallelShaderPackLoading()));
+		properties.setProperty("prewarmPipelines", Boolean.toString(shouldPrewarmPipelines()));
+		properties.setProperty("uniformBuffers", Boolean.toString(shouldUseUniformBuffers()));
 
 		return properties;
 	}
@@ -217,26 +269,30 @@ public class IrisConfig {
 	 * @throws IOException if the file could not be loaded
 	 */
 	public void load() throws IOException {
+		// Make sure that no previous save is still pending, which might also be the save that creates the file
+		Iris.getConfigPersistence().flush();
+
 		if (!Files.exists(propertiesPath)) {
 			return;
 		}
 
 		Properties properties = new Properties();
 		// NB: This uses ISO-8859-1 with unicode escapes as the encoding
-		properties.load(Files.newInputStream(propertiesPath));
+		try (InputStream stream = Files.newInputStream(propertiesPath)) {
+			properties.load(stream);
+		}
 
 		this.read(properties);
 	}
 
 	/**
-	 * Serializes the config into a file. Should be called whenever any config values are modified.
+	 * Serializes the config into a file. Should be called whenever any config values are modified. The file is written
+	 * in the background, see {@link ConfigPersistence}.
 	 *
 	 * @throws IOException file exceptions
 	 */
 	public void save() throws IOException {
-		Properties properties = this.write();
-		// NB: This uses ISO-8859-1 with unicode escapes as the encoding
-		properties.store(Files.newOutputStream(propertiesPath), COMMENT);
+		Iris.getConfigPersistence().save(propertiesPath, this.write(), COMMENT);
 	}
 
 	/**
@@ -113,6 +113,16 @@ public class IrisRenderSystem {
 		GL32C.glBufferData(target, data, usage);
 	}
 
+	public static void bufferSubData(int target, long offset, ByteBuffer data) {
+		RenderSystem.assertOnRenderThreadOrInit();
+		GL32C.glBufferSubData(target, offset, data);
+	}
+
+	public static void bindBufferBase(int target, int index, int buffer) {
+		RenderSystem.assertOnRenderThreadOrInit();
+		GL32C.glBindBufferBase(target, index, buffer);
+	}
+
 	public static void vertexAttrib4f(int index, float v0, float v1, float v2, float v3) {
 		RenderSystem.assertOnRenderThreadOrInit();
 		GL32C.glVertexAttrib4f(index, v0, v1, v2, v3);
@@ -152,6 +162,11 @@ public class IrisRenderSystem {
 		return GL32C.glGetUniformBlockIndex(program, uniformBlockName);
 	}
 
+	public static int getActiveUniformsi(int program, int uniformIndex, int pname) {
+		RenderSystem.assertOnRenderThreadOrInit();
+		return GL32C.glGetActiveUniformsi(program, uniformIndex, pname);
+	}
+
 	public static void uniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
 		RenderSystem.assertOnRenderThreadOrInit();
 		GL32C.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
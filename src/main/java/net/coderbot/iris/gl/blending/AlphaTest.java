@@ -1,5 +1,7 @@
 package net.coderbot.iris.gl.blending;
 
+import java.util.Objects;
+
 public class AlphaTest {
 	public static final AlphaTest ALWAYS = new AlphaTest(AlphaTestFunction.ALWAYS, 0.0f);
 
@@ -36,4 +38,24 @@ public class AlphaTest {
 	public float getReference() {
 		return reference;
 	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		AlphaTest that = (AlphaTest) o;
+
+		return function == that.function && Float.compare(reference, that.reference) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(function, reference);
+	}
 }
@@ -31,6 +31,7 @@ public final class Program extends GlResource {
 	}
 
 	public void destroyInternal() {
+		uniforms.destroy();
 		GlStateManager.glDeleteProgram(getGlId());
 	}
 
@@ -8,6 +8,7 @@ import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import net.coderbot.iris.gl.sampler.SamplerBinding;
 import net.coderbot.iris.gl.sampler.SamplerHolder;
 import net.coderbot.iris.gl.sampler.SamplerLimits;
+import net.coderbot.iris.gl.uniform.UniformStatistics;
 import net.coderbot.iris.shaderpack.PackRenderTargetDirectives;
 import org.lwjgl.opengl.GL20C;
 
@@ -26,19 +27,25 @@ public class ProgramSamplers {
 	}
 
 	public void update() {
+		long start = UniformStatistics.startTiming();
+
 		if (initializer != null) {
 			for (GlUniform1iCall call : initializer) {
 				RenderSystem.glUniform1i(call.getLocation(), call.getValue());
 			}
 
+			UniformStatistics.recordUploads(initializer.size());
 			initializer = null;
 		}
 
 		for (SamplerBinding samplerBinding : samplerBindings) {
 			samplerBinding.update();
+			UniformStatistics.recordTextureBind();
 		}
 
 		RenderSystem.activeTexture(GL20C.GL_TEXTURE0);
+
+		UniformStatistics.stopTiming(start);
 	}
 
 	public static Builder builder(int program, Set<Integer> reservedTextureUnits) {
@@ -14,7 +14,9 @@ import net.coderbot.iris.Iris;
 import net.coderbot.iris.gl.IrisRenderSystem;
 import net.coderbot.iris.gl.uniform.DynamicLocationalUniformHolder;
 import net.coderbot.iris.gl.uniform.Uniform;
+import net.coderbot.iris.gl.uniform.UniformBuffer;
 import net.coderbot.iris.gl.uniform.UniformHolder;
+import net.coderbot.iris.gl.uniform.UniformStatistics;
 import net.coderbot.iris.gl.uniform.UniformType;
 import net.coderbot.iris.gl.uniform.UniformUpdateFrequency;
 import net.coderbot.iris.gl.uniform.ValueUpdateNotifier;
@@ -22,6 +24,7 @@ import net.coderbot.iris.uniforms.SystemTimeUniforms;
 import net.minecraft.client.Minecraft;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL20C;
+import org.lwjgl.opengl.GL31C;
 
 import java.nio.IntBuffer;
 import java.util.ArrayList;
@@ -37,18 +40,23 @@ public class ProgramUniforms {
 	private final ImmutableList<Uniform> perFrame;
 	private final ImmutableList<Uniform> dynamic;
 	private final ImmutableList<ValueUpdateNotifier> notifiersToReset;
+	private final ImmutableList<UniformBuffer> uniformBuffers;
+	private final UniformStatistics.ProgramStatistics statistics;
 
 	private ImmutableList<Uniform> once;
 	long lastTick = -1;
 	int lastFrame = -1;
 
 	public ProgramUniforms(ImmutableList<Uniform> once, ImmutableList<Uniform> perTick, ImmutableList<Uniform> perFrame,
-						   ImmutableList<Uniform> dynamic, ImmutableList<ValueUpdateNotifier> notifiersToReset) {
+						   ImmutableList<Uniform> dynamic, ImmutableList<ValueUpdateNotifier> notifiersToReset,
+						   ImmutableList<UniformBuffer> uniformBuffers, UniformStatistics.ProgramStatistics statistics) {
 		this.once = once;
 		this.perTick = perTick;
 		this.perFrame = perFrame;
 		this.dynamic = dynamic;
 		this.notifiersToReset = notifiersToReset;
+		this.uniformBuffers = uniformBuffers;
+		this.statistics = statistics;
 	}
 
 	private void updateStage(ImmutableList<Uniform> uniforms) {
@@ -62,12 +70,29 @@ public class ProgramUniforms {
 	}
 
 	public void update() {
+		if (UniformStatistics.ENABLED) {
+			// Also attributes the samplers that are updated right after the uniforms to this program
+			UniformStatistics.select(statistics, SystemTimeUniforms.COUNTER.getAsInt());
+		}
+
+		long start = UniformStatistics.startTiming();
+
+		updateUniforms();
+
+		UniformStatistics.stopTiming(start);
+	}
+
+	private void updateUniforms() {
 		if (active != null) {
 			active.removeListeners();
 		}
 
 		active = this;
 
+		for (UniformBuffer buffer : uniformBuffers) {
+			buffer.update();
+		}
+
 		updateStage(dynamic);
 
 		if (once != null) {
@@ -106,6 +131,17 @@ public class ProgramUniforms {
 		}
 	}
 
+	/**
+	 * Releases everything that refers to this set of uniforms, once the program that it belongs to is destroyed.
+	 */
+	public void destroy() {
+		if (active == this) {
+			removeListeners();
+		}
+
+		UniformStatistics.unregister(statistics);
+	}
+
 	public static void clearActiveUniforms() {
 		if (active != null) {
 			active.removeListeners();
@@ -128,6 +164,7 @@ public class ProgramUniforms {
 		private final Map<String, UniformType> uniformNames;
 		private final Map<String, UniformType> externalUniformNames;
 		private final List<ValueUpdateNotifier> notifiersToReset;
+		private final List<UniformBuffer> uniformBuffers;
 
 		protected Builder(String name, int program) {
 			this.name = name;
@@ -141,6 +178,7 @@ public class ProgramUniforms {
 			uniformNames = new HashMap<>();
 			externalUniformNames = new HashMap<>();
 			notifiersToReset = new ArrayList<>();
+			uniformBuffers = new ArrayList<>();
 		}
 
 		@Override
@@ -229,6 +267,11 @@ public class ProgramUniforms {
 						continue;
 					}
 
+					if (IrisRenderSystem.getActiveUniformsi(program, index, GL31C.GL_UNIFORM_BLOCK_INDEX) != -1) {
+						// Members of uniform blocks are provided through uniform buffers, not through uniforms.
+						continue;
+					}
+
 					if (size == 1) {
 						Iris.logger.warn("[" + this.name + "] Unsupported uniform: " + typeName + " " + name);
 					} else {
@@ -262,8 +305,17 @@ public class ProgramUniforms {
 				}
 			}
 
+			ImmutableList.Builder<UniformBuffer> usedBuffers = ImmutableList.builder();
+
+			for (UniformBuffer buffer : uniformBuffers) {
+				if (buffer.bindTo(program)) {
+					usedBuffers.add(buffer);
+				}
+			}
+
 			return new ProgramUniforms(ImmutableList.copyOf(once.values()), ImmutableList.copyOf(perTick.values()), ImmutableList.copyOf(perFrame.values()),
-					ImmutableList.copyOf(dynamic.values()), ImmutableList.copyOf(notifiersToReset));
+					ImmutableList.copyOf(dynamic.values()), ImmutableList.copyOf(notifiersToReset), usedBuffers.build(),
+					UniformStatistics.forProgram(name));
 		}
 
 		@Override
@@ -280,6 +332,13 @@ public class ProgramUniforms {
 
 			return this;
 		}
+
+		@Override
+		public Builder uniformBlock(UniformBuffer buffer) {
+			uniformBuffers.add(buffer);
+
+			return this;
+		}
 	}
 
 	private static String getTypeName(int type) {
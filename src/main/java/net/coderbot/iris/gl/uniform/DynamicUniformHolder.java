@@ -16,4 +16,10 @@ public interface DynamicUniformHolder extends UniformHolder {
 	DynamicUniformHolder uniform2i(String name, Supplier<Vector2i> value, ValueUpdateNotifier notifier);
 	DynamicUniformHolder uniform4f(String name, Supplier<Vector4f> value, ValueUpdateNotifier notifier);
 	DynamicUniformHolder uniform4i(String name, Supplier<Vector4i> value, ValueUpdateNotifier notifier);
+
+	/**
+	 * Makes the program read the uniform block with the name of the given buffer from that buffer, if the program
+	 * declares that block, and keeps the buffer up to date whenever the program is used.
+	 */
+	DynamicUniformHolder uniformBlock(UniformBuffer buffer);
 }
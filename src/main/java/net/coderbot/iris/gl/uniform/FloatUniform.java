@@ -27,11 +27,14 @@ public class FloatUniform extends Uniform {
 	}
 
 	private void updateValue() {
+		UniformStatistics.recordEvaluation();
+
 		float newValue = value.getAsFloat();
 
 		if (cachedValue != newValue) {
 			cachedValue = newValue;
 			IrisRenderSystem.uniform1f(location, newValue);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -29,11 +29,14 @@ public class IntUniform extends Uniform {
 	}
 
 	private void updateValue() {
+		UniformStatistics.recordEvaluation();
+
 		int newValue = value.getAsInt();
 
 		if (cachedValue != newValue) {
 			cachedValue = newValue;
 			RenderSystem.glUniform1i(location, newValue);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -1,35 +1,32 @@
 package net.coderbot.iris.gl.uniform;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import net.coderbot.iris.vendored.joml.Matrix4f;
-import org.lwjgl.BufferUtils;
 
-import java.nio.FloatBuffer;
 import java.util.function.Supplier;
 
 public class JomlMatrixUniform extends Uniform {
-	private FloatBuffer buffer = BufferUtils.createFloatBuffer(16);
-	private Matrix4f cachedValue;
+	private final Matrix4f cachedValue = new Matrix4f();
+	private boolean hasValue;
 	private final Supplier<Matrix4f> value;
 
 	JomlMatrixUniform(int location, Supplier<Matrix4f> value) {
 		super(location);
 
-		this.cachedValue = null;
 		this.value = value;
 	}
 
 	@Override
 	public void update() {
-		Matrix4f newValue = value.get();
+		UniformStatistics.recordEvaluation();
 
-		if (!newValue.equals(cachedValue)) {
-			cachedValue = new Matrix4f(newValue);
+		Matrix4f newValue = value.get();
 
-			cachedValue.get(buffer);
-			buffer.rewind();
+		if (!hasValue || !newValue.equals(cachedValue)) {
+			cachedValue.set(newValue);
+			hasValue = true;
 
-			RenderSystem.glUniformMatrix4(location, false, buffer);
+			MatrixUploads.upload(location, cachedValue);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -1,35 +1,31 @@
 package net.coderbot.iris.gl.uniform;
 
-import com.mojang.blaze3d.systems.RenderSystem;
-import org.lwjgl.BufferUtils;
-
-import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.function.Supplier;
 
 public class MatrixFromFloatArrayUniform extends Uniform {
-	private FloatBuffer buffer = BufferUtils.createFloatBuffer(16);
-	private float[] cachedValue;
+	private final float[] cachedValue = new float[16];
+	private boolean hasValue;
 	private final Supplier<float[]> value;
 
 	MatrixFromFloatArrayUniform(int location, Supplier<float[]> value) {
 		super(location);
 
-		this.cachedValue = null;
 		this.value = value;
 	}
 
 	@Override
 	public void update() {
-		float[] newValue = value.get();
+		UniformStatistics.recordEvaluation();
 
-		if (!Arrays.equals(newValue, cachedValue)) {
-			cachedValue = Arrays.copyOf(newValue, 16);
+		float[] newValue = value.get();
 
-			buffer.put(cachedValue);
-			buffer.rewind();
+		if (!hasValue || !Arrays.equals(newValue, cachedValue)) {
+			System.arraycopy(newValue, 0, cachedValue, 0, 16);
+			hasValue = true;
 
-			RenderSystem.glUniformMatrix4(location, false, buffer);
+			MatrixUploads.upload(location, cachedValue);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -1,35 +1,37 @@
 package net.coderbot.iris.gl.uniform;
 
-import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.math.Matrix4f;
-import org.lwjgl.BufferUtils;
 
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 public class MatrixUniform extends Uniform {
-	private FloatBuffer buffer = BufferUtils.createFloatBuffer(16);
-	private Matrix4f cachedValue;
+	private final float[] cachedValue = new float[16];
+	private final float[] newValue = new float[16];
+	private final FloatBuffer newValueBuffer = FloatBuffer.wrap(newValue);
+	private boolean hasValue;
 	private final Supplier<Matrix4f> value;
 
 	MatrixUniform(int location, Supplier<Matrix4f> value) {
 		super(location);
 
-		this.cachedValue = null;
 		this.value = value;
 	}
 
 	@Override
 	public void update() {
-		Matrix4f newValue = value.get();
+		UniformStatistics.recordEvaluation();
 
-		if (!newValue.equals(cachedValue)) {
-			cachedValue = newValue.copy();
+		value.get().store(newValueBuffer);
+		newValueBuffer.rewind();
 
-			cachedValue.store(buffer);
-			buffer.rewind();
+		if (!hasValue || !Arrays.equals(newValue, cachedValue)) {
+			System.arraycopy(newValue, 0, cachedValue, 0, 16);
+			hasValue = true;
 
-			RenderSystem.glUniformMatrix4(location, false, buffer);
+			MatrixUploads.upload(location, cachedValue);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -0,0 +1,31 @@
+package net.coderbot.iris.gl.uniform;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.coderbot.iris.vendored.joml.Matrix4f;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Uploads the values of matrix uniforms through a single direct buffer, rather than every matrix uniform having its own.
+ */
+final class MatrixUploads {
+	// Uniforms are only updated on the render thread, so the buffer can be shared between all matrix uniforms.
+	private static final FloatBuffer BUFFER = BufferUtils.createFloatBuffer(16);
+
+	private MatrixUploads() {
+	}
+
+	static void upload(int location, float[] values) {
+		BUFFER.put(values, 0, 16);
+		BUFFER.rewind();
+
+		RenderSystem.glUniformMatrix4(location, false, BUFFER);
+	}
+
+	static void upload(int location, Matrix4f matrix) {
+		matrix.get(BUFFER);
+
+		RenderSystem.glUniformMatrix4(location, false, BUFFER);
+	}
+}
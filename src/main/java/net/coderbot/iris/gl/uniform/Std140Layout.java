@@ -0,0 +1,165 @@
+package net.coderbot.iris.gl.uniform;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The memory layout of a uniform block declared with {@code layout(std140)}, as defined by section 7.6.2.2 of the
+ * OpenGL 4.6 core profile specification.
+ *
+ * <p>Unlike the default layout, the std140 layout only depends on the types and order of the members of a block, so
+ * the offsets of all members can be computed ahead of time without asking the driver, and the same buffer can be used
+ * with every program that declares the block in exactly the same way.</p>
+ */
+public final class Std140Layout {
+	public enum Type {
+		FLOAT("float", 4, 4),
+		INT("int", 4, 4),
+		VEC2("vec2", 8, 8),
+		// Three-component vectors take up 12 bytes, but are aligned like four-component vectors
+		VEC3("vec3", 12, 16),
+		VEC4("vec4", 16, 16),
+		// Column-major, stored like an array of four vec4 columns
+		MAT4("mat4", 64, 16);
+
+		private final String glslName;
+		private final int size;
+		private final int alignment;
+
+		Type(String glslName, int size, int alignment) {
+			this.glslName = glslName;
+			this.size = size;
+			this.alignment = alignment;
+		}
+
+		public String getGlslName() {
+			return glslName;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public int getAlignment() {
+			return alignment;
+		}
+	}
+
+	private final ImmutableList<Member> members;
+	private final Map<String, Member> byName;
+	private final int size;
+
+	private Std140Layout(ImmutableList<Member> members, int size) {
+		this.members = members;
+		this.byName = new HashMap<>();
+		this.size = size;
+
+		for (Member member : members) {
+			byName.put(member.getName(), member);
+		}
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public ImmutableList<Member> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Returns the member with the given name, or null if there is no such member.
+	 */
+	public Member getMember(String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * Returns the size of the whole block in bytes, which is what a buffer backing this block must hold at least.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Creates a GLSL declaration of a uniform block with this layout, without an instance name so that its members
+	 * are referenced by their names alone.
+	 */
+	public String declare(String blockName) {
+		StringBuilder declaration = new StringBuilder();
+
+		declaration.append("layout(std140) uniform ").append(blockName).append(" {\n");
+
+		for (Member member : members) {
+			declaration.append("    ").append(member.getType().getGlslName()).append(' ').append(member.getName()).append(";\n");
+		}
+
+		return declaration.append("};").toString();
+	}
+
+	private static int align(int offset, int alignment) {
+		return (offset + alignment - 1) / alignment * alignment;
+	}
+
+	public static final class Member {
+		private final String name;
+		private final Type type;
+		private final int offset;
+
+		private Member(String name, Type type, int offset) {
+			this.name = name;
+			this.type = type;
+			this.offset = offset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		/**
+		 * Returns the offset of this member from the start of the block in bytes.
+		 */
+		public int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public String toString() {
+			return type.getGlslName() + " " + name + " @ " + offset;
+		}
+	}
+
+	public static final class Builder {
+		private final ImmutableList.Builder<Member> members;
+		private final Map<String, Type> names;
+		private int offset;
+
+		private Builder() {
+			this.members = ImmutableList.builder();
+			this.names = new HashMap<>();
+		}
+
+		public Builder add(Type type, String name) {
+			if (names.put(name, type) != null) {
+				throw new IllegalArgumentException("Duplicate uniform block member: " + name);
+			}
+
+			offset = align(offset, type.getAlignment());
+			members.add(new Member(name, type, offset));
+			offset += type.getSize();
+
+			return this;
+		}
+
+		public Std140Layout build() {
+			// The size of a block is rounded up to the alignment of a vec4, just like the size of a structure.
+			return new Std140Layout(members.build(), align(offset, 16));
+		}
+	}
+}
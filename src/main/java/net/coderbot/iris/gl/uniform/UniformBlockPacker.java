@@ -0,0 +1,146 @@
+package net.coderbot.iris.gl.uniform;
+
+import net.coderbot.iris.vendored.joml.Matrix4f;
+import net.coderbot.iris.vendored.joml.Vector2f;
+import net.coderbot.iris.vendored.joml.Vector3d;
+import net.coderbot.iris.vendored.joml.Vector3f;
+import net.coderbot.iris.vendored.joml.Vector4f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Packs the values of the members of a uniform block into a single buffer according to a {@link Std140Layout}, ready
+ * to be uploaded to a uniform buffer in one call.
+ *
+ * <p>Every member can be provided with a value once, further attempts to provide the same member are ignored so that
+ * every program of a pipeline can try to provide the same values. Members that are never provided stay zero. This
+ * class doesn't make any OpenGL calls.</p>
+ */
+public class UniformBlockPacker {
+	private final Std140Layout layout;
+	private final ByteBuffer buffer;
+	private final List<Runnable> writers;
+	private final Set<String> provided;
+
+	public UniformBlockPacker(Std140Layout layout) {
+		this.layout = layout;
+		// The buffer is handed directly to OpenGL, so it must use the native byte order.
+		this.buffer = ByteBuffer.allocateDirect(layout.getSize()).order(ByteOrder.nativeOrder());
+		this.writers = new ArrayList<>();
+		this.provided = new HashSet<>();
+	}
+
+	public Std140Layout getLayout() {
+		return layout;
+	}
+
+	public boolean addFloat(String name, FloatSupplier value) {
+		return add(name, Std140Layout.Type.FLOAT, (buffer, offset) -> buffer.putFloat(offset, value.getAsFloat()));
+	}
+
+	public boolean addInt(String name, IntSupplier value) {
+		return add(name, Std140Layout.Type.INT, (buffer, offset) -> buffer.putInt(offset, value.getAsInt()));
+	}
+
+	public boolean addVec2(String name, Supplier<Vector2f> value) {
+		return add(name, Std140Layout.Type.VEC2, (buffer, offset) -> value.get().get(offset, buffer));
+	}
+
+	public boolean addVec3(String name, Supplier<Vector3f> value) {
+		return add(name, Std140Layout.Type.VEC3, (buffer, offset) -> value.get().get(offset, buffer));
+	}
+
+	/**
+	 * Provides a vec3 member with the first three components of a four-component vector.
+	 */
+	public boolean addTruncatedVec3(String name, Supplier<Vector4f> value) {
+		return add(name, Std140Layout.Type.VEC3, (buffer, offset) -> {
+			Vector4f vector = value.get();
+
+			buffer.putFloat(offset, vector.x);
+			buffer.putFloat(offset + 4, vector.y);
+			buffer.putFloat(offset + 8, vector.z);
+		});
+	}
+
+	public boolean addVec3d(String name, Supplier<Vector3d> value) {
+		return add(name, Std140Layout.Type.VEC3, (buffer, offset) -> {
+			Vector3d vector = value.get();
+
+			buffer.putFloat(offset, (float) vector.x);
+			buffer.putFloat(offset + 4, (float) vector.y);
+			buffer.putFloat(offset + 8, (float) vector.z);
+		});
+	}
+
+	public boolean addVec4(String name, Supplier<Vector4f> value) {
+		return add(name, Std140Layout.Type.VEC4, (buffer, offset) -> value.get().get(offset, buffer));
+	}
+
+	public boolean addMatrix(String name, Supplier<Matrix4f> value) {
+		// JOML stores matrices in column-major order, which is exactly the std140 layout of a mat4.
+		return add(name, Std140Layout.Type.MAT4, (buffer, offset) -> value.get().get(offset, buffer));
+	}
+
+	/**
+	 * Provides a mat4 member with 16 values in column-major order.
+	 */
+	public boolean addMatrixFromArray(String name, Supplier<float[]> value) {
+		return add(name, Std140Layout.Type.MAT4, (buffer, offset) -> {
+			float[] values = value.get();
+
+			for (int i = 0; i < 16; i++) {
+				buffer.putFloat(offset + i * 4, values[i]);
+			}
+		});
+	}
+
+	/**
+	 * Returns whether a value has been provided for the given member.
+	 */
+	public boolean isProvided(String name) {
+		return provided.contains(name);
+	}
+
+	/**
+	 * Writes the current values of all provided members into the buffer, and returns the buffer with its position at
+	 * zero and its limit at the size of the block.
+	 */
+	public ByteBuffer pack() {
+		for (Runnable writer : writers) {
+			writer.run();
+		}
+
+		buffer.clear();
+
+		return buffer;
+	}
+
+	private boolean add(String name, Std140Layout.Type type, MemberWriter writer) {
+		Std140Layout.Member member = layout.getMember(name);
+
+		if (member == null || member.getType() != type || !provided.add(name)) {
+			return false;
+		}
+
+		int offset = member.getOffset();
+		writers.add(() -> writer.write(buffer, offset));
+
+		return true;
+	}
+
+	@FunctionalInterface
+	private interface MemberWriter {
+		/**
+		 * Writes the value of a member at the given offset, using absolute puts.
+		 */
+		void write(ByteBuffer buffer, int offset);
+	}
+}
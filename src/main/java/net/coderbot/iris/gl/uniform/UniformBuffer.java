@@ -0,0 +1,86 @@
+package net.coderbot.iris.gl.uniform;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import net.coderbot.iris.gl.GlResource;
+import net.coderbot.iris.gl.IrisRenderSystem;
+import org.lwjgl.opengl.GL31C;
+
+import java.util.function.IntSupplier;
+
+/**
+ * A uniform buffer backing a uniform block that is shared by many programs, with the values of its members packed and
+ * uploaded at most once per frame, and the buffer bound to a fixed binding point that every program reads the block
+ * from.
+ */
+public class UniformBuffer extends GlResource {
+	private final String blockName;
+	private final int binding;
+	private final UniformBlockPacker packer;
+	private final IntSupplier frameCounter;
+
+	private boolean hasFrame;
+	private int lastFrame;
+
+	public UniformBuffer(String blockName, int binding, UniformBlockPacker packer, IntSupplier frameCounter) {
+		super(GlStateManager._glGenBuffers());
+
+		this.blockName = blockName;
+		this.binding = binding;
+		this.packer = packer;
+		this.frameCounter = frameCounter;
+
+		GlStateManager._glBindBuffer(GL31C.GL_UNIFORM_BUFFER, getGlId());
+		GlStateManager._glBufferData(GL31C.GL_UNIFORM_BUFFER, packer.getLayout().getSize(), GL31C.GL_DYNAMIC_DRAW);
+		GlStateManager._glBindBuffer(GL31C.GL_UNIFORM_BUFFER, 0);
+	}
+
+	public UniformBlockPacker getPacker() {
+		return packer;
+	}
+
+	/**
+	 * Makes the uniform block of the given program read from this buffer, if the program has a block with the name of
+	 * this buffer.
+	 *
+	 * @return whether the program has the uniform block
+	 */
+	public boolean bindTo(int program) {
+		int index = IrisRenderSystem.getUniformBlockIndex(program, blockName);
+
+		if (index == GL31C.GL_INVALID_INDEX) {
+			return false;
+		}
+
+		IrisRenderSystem.uniformBlockBinding(program, index, binding);
+
+		return true;
+	}
+
+	/**
+	 * Uploads the current values of all members and binds the buffer, unless that has already happened this frame.
+	 * This is cheap to call for every program that uses the block.
+	 */
+	public void update() {
+		int frame = frameCounter.getAsInt();
+
+		if (hasFrame && lastFrame == frame) {
+			return;
+		}
+
+		hasFrame = true;
+		lastFrame = frame;
+
+		GlStateManager._glBindBuffer(GL31C.GL_UNIFORM_BUFFER, getGlId());
+		IrisRenderSystem.bufferSubData(GL31C.GL_UNIFORM_BUFFER, 0, packer.pack());
+		GlStateManager._glBindBuffer(GL31C.GL_UNIFORM_BUFFER, 0);
+		UniformStatistics.recordUploads(1);
+
+		// Bound again every frame, in case something else has used the same binding point in the meantime.
+		IrisRenderSystem.bindBufferBase(GL31C.GL_UNIFORM_BUFFER, binding, getGlId());
+	}
+
+	@Override
+	protected void destroyInternal() {
+		GlStateManager._glDeleteBuffers(getGlId());
+	}
+}
@@ -0,0 +1,342 @@
+package net.coderbot.iris.gl.uniform;
+
+import net.coderbot.iris.Iris;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Counts how much work updating the uniforms and samplers of each program takes, per frame: how many values were
+ * evaluated, how many of them had changed, how many OpenGL calls were issued to upload them, and how long it took.
+ * Values that were evaluated but hadn't changed are the redundant part of the work.
+ *
+ * <p>Collecting these statistics is only enabled if the game is started with {@code -Diris.uniformStatistics=true}.
+ * Since {@link #ENABLED} is a constant, the JIT compiler removes every recording call entirely when they are disabled,
+ * so that the instrumentation costs nothing during normal play.</p>
+ */
+public final class UniformStatistics {
+	public static final boolean ENABLED = Boolean.getBoolean("iris.uniformStatistics");
+
+	private static final List<ProgramStatistics> PROGRAMS = new ArrayList<>();
+	private static ProgramStatistics active;
+	private static boolean hasFrame;
+	private static int lastFrame;
+	private static int framesRecorded;
+
+	private UniformStatistics() {
+	}
+
+	/**
+	 * Creates and registers the statistics of a program, or returns null if statistics are disabled.
+	 */
+	public static ProgramStatistics forProgram(String name) {
+		if (!ENABLED) {
+			return null;
+		}
+
+		ProgramStatistics statistics = new ProgramStatistics(name);
+		PROGRAMS.add(statistics);
+
+		return statistics;
+	}
+
+	/**
+	 * Forgets about the statistics of a program that is being destroyed, so that programs that were replaced don't
+	 * stay in the report.
+	 */
+	public static void unregister(ProgramStatistics statistics) {
+		if (!ENABLED || statistics == null) {
+			return;
+		}
+
+		PROGRAMS.remove(statistics);
+
+		if (active == statistics) {
+			active = null;
+		}
+	}
+
+	/**
+	 * Attributes everything recorded from now on to the given program, which is about to be used. The statistics of
+	 * the previous frame are completed once the first program of a new frame is selected.
+	 */
+	public static void select(ProgramStatistics statistics, int frame) {
+		if (!ENABLED) {
+			return;
+		}
+
+		if (!hasFrame || lastFrame != frame) {
+			if (hasFrame) {
+				for (ProgramStatistics program : PROGRAMS) {
+					program.endFrame();
+				}
+
+				framesRecorded += 1;
+			}
+
+			hasFrame = true;
+			lastFrame = frame;
+		}
+
+		active = statistics;
+
+		if (statistics != null) {
+			statistics.recordApplied();
+		}
+	}
+
+	public static long startTiming() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	public static void stopTiming(long start) {
+		if (ENABLED && active != null) {
+			active.recordTime(System.nanoTime() - start);
+		}
+	}
+
+	public static void recordEvaluation() {
+		if (ENABLED && active != null) {
+			active.recordEvaluation();
+		}
+	}
+
+	/**
+	 * Records that an evaluated value had changed, and was uploaded with a single OpenGL call.
+	 */
+	public static void recordUpload() {
+		if (ENABLED && active != null) {
+			active.recordUpload();
+		}
+	}
+
+	/**
+	 * Records OpenGL calls that set up uniforms without having evaluated anything, such as sampler units.
+	 */
+	public static void recordUploads(int count) {
+		if (ENABLED && active != null) {
+			active.recordUploads(count);
+		}
+	}
+
+	public static void recordTextureBind() {
+		if (ENABLED && active != null) {
+			active.recordTextureBind();
+		}
+	}
+
+	/**
+	 * Returns the sum of the statistics of all programs over the last completed frame.
+	 */
+	public static Counts getLastFrameTotal() {
+		Counts total = new Counts();
+
+		for (ProgramStatistics program : PROGRAMS) {
+			total.add(program.lastFrame);
+		}
+
+		return total;
+	}
+
+	/**
+	 * Returns the number of programs that were used during the last completed frame. Programs of pipelines that
+	 * exist but aren't rendering, such as those of other dimensions, are left out.
+	 */
+	public static int getProgramCount() {
+		int count = 0;
+
+		for (ProgramStatistics program : PROGRAMS) {
+			if (program.lastFrame.applied > 0) {
+				count += 1;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Writes a report of everything that was recorded so far to the log, and then forgets about all programs, since
+	 * they are about to be destroyed.
+	 */
+	public static void dump() {
+		if (!ENABLED) {
+			return;
+		}
+
+		for (String line : createReport(PROGRAMS, framesRecorded)) {
+			Iris.logger.info(line);
+		}
+
+		PROGRAMS.clear();
+		active = null;
+		hasFrame = false;
+		framesRecorded = 0;
+	}
+
+	/**
+	 * Creates a report with the average work per frame of each program, sorted by the time that was spent on it.
+	 */
+	public static List<String> createReport(Collection<ProgramStatistics> programs, int frames) {
+		List<String> report = new ArrayList<>();
+		List<ProgramStatistics> sorted = new ArrayList<>(programs);
+		sorted.sort(Comparator.comparingLong((ProgramStatistics program) -> program.total.nanos).reversed());
+
+		Counts total = new Counts();
+
+		for (ProgramStatistics program : sorted) {
+			total.add(program.total);
+		}
+
+		report.add("Uniform statistics over " + frames + " frames, averages per frame:");
+		report.add("  " + format("(all programs)", total, frames));
+
+		for (ProgramStatistics program : sorted) {
+			report.add("  " + format(program.name, program.total, frames));
+		}
+
+		return report;
+	}
+
+	private static String format(String name, Counts counts, int frames) {
+		int divisor = Math.max(frames, 1);
+
+		return String.format("%s: applied %.1f times, %.1f values evaluated, %.1f changed (%d%% redundant), " +
+						"%.1f uniform uploads, %.1f texture binds, %.3f ms",
+				name, (double) counts.applied / divisor, (double) counts.evaluated / divisor,
+				(double) counts.changed / divisor, counts.getRedundantPercentage(), (double) counts.uploads / divisor,
+				(double) counts.textureBinds / divisor, counts.nanos / 1.0E6 / divisor);
+	}
+
+	public static final class ProgramStatistics {
+		private final String name;
+		private final Counts current;
+		private final Counts lastFrame;
+		private final Counts total;
+
+		public ProgramStatistics(String name) {
+			this.name = name;
+			this.current = new Counts();
+			this.lastFrame = new Counts();
+			this.total = new Counts();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns what is being recorded for the current frame, which is only complete once the next frame starts.
+		 */
+		public Counts getCurrent() {
+			return current;
+		}
+
+		public Counts getLastFrame() {
+			return lastFrame;
+		}
+
+		public Counts getTotal() {
+			return total;
+		}
+
+		public void recordApplied() {
+			current.applied += 1;
+		}
+
+		public void recordEvaluation() {
+			current.evaluated += 1;
+		}
+
+		public void recordUpload() {
+			current.changed += 1;
+			current.uploads += 1;
+		}
+
+		public void recordUploads(int count) {
+			current.uploads += count;
+		}
+
+		public void recordTextureBind() {
+			current.evaluated += 1;
+			current.textureBinds += 1;
+		}
+
+		public void recordTime(long nanos) {
+			current.nanos += nanos;
+		}
+
+		public void endFrame() {
+			lastFrame.clear();
+			lastFrame.add(current);
+			total.add(current);
+			current.clear();
+		}
+	}
+
+	public static final class Counts {
+		int applied;
+		int evaluated;
+		int changed;
+		int uploads;
+		int textureBinds;
+		long nanos;
+
+		public int getApplied() {
+			return applied;
+		}
+
+		public int getEvaluated() {
+			return evaluated;
+		}
+
+		public int getChanged() {
+			return changed;
+		}
+
+		public int getUploads() {
+			return uploads;
+		}
+
+		public int getTextureBinds() {
+			return textureBinds;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * Returns the percentage of evaluated uniform values that hadn't changed. Sampler bindings are left out, since
+		 * their textures are bound whether or not they changed.
+		 */
+		public int getRedundantPercentage() {
+			int uniformsEvaluated = evaluated - textureBinds;
+
+			if (uniformsEvaluated <= 0) {
+				return 0;
+			}
+
+			return (int) (100L * (uniformsEvaluated - changed) / uniformsEvaluated);
+		}
+
+		void add(Counts other) {
+			applied += other.applied;
+			evaluated += other.evaluated;
+			changed += other.changed;
+			uploads += other.uploads;
+			textureBinds += other.textureBinds;
+			nanos += other.nanos;
+		}
+
+		void clear() {
+			applied = 0;
+			evaluated = 0;
+			changed = 0;
+			uploads = 0;
+			textureBinds = 0;
+			nanos = 0;
+		}
+	}
+}
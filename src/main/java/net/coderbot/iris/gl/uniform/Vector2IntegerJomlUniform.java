@@ -30,11 +30,14 @@ public class Vector2IntegerJomlUniform extends Uniform {
 	}
 
 	private void updateValue() {
+		UniformStatistics.recordEvaluation();
+
 		Vector2i newValue = value.get();
 
 		if (cachedValue == null || !newValue.equals(cachedValue)) {
 			cachedValue = newValue;
 			IrisRenderSystem.uniform2i(this.location, newValue.x, newValue.y);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
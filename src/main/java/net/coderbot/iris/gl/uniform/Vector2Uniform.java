@@ -6,24 +6,26 @@ import net.coderbot.iris.gl.IrisRenderSystem;
 import net.coderbot.iris.vendored.joml.Vector2f;
 
 public class Vector2Uniform extends Uniform {
-	private Vector2f cachedValue;
+	private final Vector2f cachedValue;
 	private final Supplier<Vector2f> value;
 
 	Vector2Uniform(int location, Supplier<Vector2f> value) {
 		super(location);
 
-		this.cachedValue = null;
+		this.cachedValue = new Vector2f();
 		this.value = value;
-
 	}
 
 	@Override
 	public void update() {
+		UniformStatistics.recordEvaluation();
+
 		Vector2f newValue = value.get();
 
-		if (cachedValue == null || !newValue.equals(cachedValue)) {
-			cachedValue = newValue;
-			IrisRenderSystem.uniform2f(this.location, newValue.x, newValue.y);
+		if (!newValue.equals(cachedValue)) {
+			cachedValue.set(newValue.x, newValue.y);
+			IrisRenderSystem.uniform2f(this.location, cachedValue.x, cachedValue.y);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
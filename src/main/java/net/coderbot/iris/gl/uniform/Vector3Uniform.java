@@ -44,11 +44,14 @@ public class Vector3Uniform extends Uniform {
 
 	@Override
 	public void update() {
+		UniformStatistics.recordEvaluation();
+
 		Vector3f newValue = value.get();
 
 		if (!newValue.equals(cachedValue)) {
 			cachedValue.set(newValue.x(), newValue.y(), newValue.z());
 			IrisRenderSystem.uniform3f(location, cachedValue.x(), cachedValue.y(), cachedValue.z());
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -31,11 +31,14 @@ public class Vector4IntegerJomlUniform extends Uniform {
 	}
 
 	private void updateValue() {
+		UniformStatistics.recordEvaluation();
+
 		Vector4i newValue = value.get();
 
 		if (cachedValue == null || !newValue.equals(cachedValue)) {
 			cachedValue = newValue;
 			IrisRenderSystem.uniform4i(this.location, newValue.x, newValue.y, newValue.z, newValue.w);
+			UniformStatistics.recordUpload();
 		}
 	}
 }
@@ -30,11 +30,14 @@ public class Vector4Uniform extends Uniform {
 	}
 
 	private void updateValue() {
+		UniformStatistics.recordEvaluation();
+
 		Vector4f newValue = value.get();
 
 		if (!newValue.equals(cachedValue)) {
 			cachedValue.set(newValue.x(), newValue.y(), newValue.z(), newValue.w());
 			IrisRenderSystem.uniform4f(location, cachedValue.x(), cachedValue.y(), cachedValue.z(), cachedValue.w());
+			UniformStatistics.recordUpload();
 		}
 	}
 }
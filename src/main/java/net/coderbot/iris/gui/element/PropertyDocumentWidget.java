@@ -165,6 +165,7 @@ public class PropertyDocumentWidget extends IrisObjectSelectionList<PropertyDocu
 							if (intOptionProperty == null) {
 								intOptionProperty = new IntOptionProperty(vals, vals.indexOf(intOption.getDefaultValue()), widget, p, GuiUtil.trimmed(font, (hasTranslation ? "option." : "") + p, tw, hasTranslation, true), sliderOptions.contains(p));
 								sharedOptionProperties.put(p, intOptionProperty);
+								intOptionProperty.setOptionId(intOption.getId());
 							}
 							page.add(intOptionProperty);
 						} else if (floatOption != null) {
@@ -173,6 +174,7 @@ public class PropertyDocumentWidget extends IrisObjectSelectionList<PropertyDocu
 							if (floatOptionProperty == null) {
 								floatOptionProperty = new FloatOptionProperty(vals, vals.indexOf(floatOption.getDefaultValue()), widget, p, GuiUtil.trimmed(font, (hasTranslation ? "option." : "") + p, tw, hasTranslation, true), sliderOptions.contains(p));
 								sharedOptionProperties.put(p, floatOptionProperty);
+								floatOptionProperty.setOptionId(floatOption.getId());
 							}
 							page.add(floatOptionProperty);
 						} else if (boolOption != null) {
@@ -180,6 +182,7 @@ public class PropertyDocumentWidget extends IrisObjectSelectionList<PropertyDocu
 							if (booleanOptionProperty == null) {
 								booleanOptionProperty = new BooleanOptionProperty(widget, boolOption.getDefaultValue(), p, GuiUtil.trimmed(font, (hasTranslation ? "option." : "") + p, tw, hasTranslation, true), sliderOptions.contains(p));
 								sharedOptionProperties.put(p, booleanOptionProperty);
+								booleanOptionProperty.setOptionId(boolOption.getId());
 							}
 							page.add(booleanOptionProperty);
 						} else {
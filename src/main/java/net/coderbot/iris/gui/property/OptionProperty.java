@@ -16,6 +16,8 @@ public abstract class OptionProperty<T> extends ValueProperty<T> {
     protected int index;
     protected final int defaultIndex;
     protected final boolean isSlider;
+    // The id of the shader pack option in the OptionRegistry of the config, or -1 if it isn't known
+    protected int optionId = -1;
 
     public OptionProperty(List<T> values, int defaultIndex, PropertyDocumentWidget document, String key, Component label, boolean isSlider) {
         super(document, key, label);
@@ -25,6 +27,14 @@ public abstract class OptionProperty<T> extends ValueProperty<T> {
         this.isSlider = isSlider;
     }
 
+    public int getOptionId() {
+        return optionId;
+    }
+
+    public void setOptionId(int optionId) {
+        this.optionId = optionId;
+    }
+
     public void cycle(boolean reverse) {
     	if (reverse) {
 			this.index--;
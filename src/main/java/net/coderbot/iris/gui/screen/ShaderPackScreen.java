@@ -16,6 +16,7 @@ import net.coderbot.iris.gui.property.OptionProperty;
 import net.coderbot.iris.gui.property.PropertyList;
 import net.coderbot.iris.gui.property.StringOptionProperty;
 import net.coderbot.iris.shaderpack.Option;
+import net.coderbot.iris.shaderpack.OptionRegistry;
 import net.coderbot.iris.shaderpack.ShaderPack;
 import net.coderbot.iris.shaderpack.ShaderPackConfig;
 import net.coderbot.iris.shaderpack.ShaderProperties;
@@ -33,7 +34,9 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -52,6 +55,9 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 
 	private boolean dropChanges = false;
 
+	// The names of the options whose values were changed since the changes were last applied
+	private final Set<String> changedOptions = new HashSet<>();
+
 	public ShaderPackScreen(Screen parent) {
 		super(new TranslatableComponent("options.iris.shaderPackSelection.title"));
 
@@ -240,9 +246,10 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 		IrisConfig config = Iris.getIrisConfig();
 
 		String name = entry.getPackName();
-		boolean changed = this.shaderProperties.saveProperties();
+		boolean changed = this.shaderProperties.saveProperties() || !changedOptions.isEmpty();
 		boolean buttonEnabled = this.shaderPackList.getEnableShadersButton().enabled;
-		if (config.areShadersEnabled() == buttonEnabled && name.equals(config.getShaderPackName().orElse("")) && !changed) return;
+		boolean samePack = config.areShadersEnabled() == buttonEnabled && name.equals(config.getShaderPackName().orElse(""));
+		if (samePack && !changed) return;
 
 		config.setShaderPackName(name);
 		// Not using IrisApi.getInstance().getConfig().setShadersEnabledAndApply due to its lack of sending a message to the user in chat notifying them of the failure to compile
@@ -257,7 +264,12 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 		}
 
 		try {
-			Iris.reload();
+			// If only option values changed, there's no need to load the whole shader pack again
+			if (samePack) {
+				Iris.reloadChangedOptions(changedOptions);
+			} else {
+				Iris.reload();
+			}
 		} catch (IOException e) {
 			Iris.logger.error("Error reloading shader pack while applying changes!");
 			Iris.logger.catching(e);
@@ -266,6 +278,7 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 				this.minecraft.player.displayClientMessage(new TranslatableComponent("iris.shaders.reloaded.failure", Throwables.getRootCause(e).getMessage()).withStyle(ChatFormatting.RED), false);
 			}
 		}
+		this.changedOptions.clear();
 		this.reloadShaderConfig();
 	}
 
@@ -291,30 +304,32 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 			AtomicReference<String> newProfileName = new AtomicReference<>();
 
 			ShaderPackConfig config = shaderPack.getConfig();
+			OptionRegistry registry = config.getRegistry();
 			for (String pageName : shaderProperties.getPages()) {
 				PropertyList propertyList = shaderProperties.getPage(pageName);
 				propertyList.forEvery(property -> {
 					if (property instanceof OptionProperty) {
 						String key = ((OptionProperty<?>) property).getKey();
+						int id = ((OptionProperty<?>) property).getOptionId();
 						if (property instanceof IntOptionProperty) {
-							Option<Integer> opt = config.getIntegerOption(key);
-							if (opt != null && !opt.getValue().equals(((IntOptionProperty) property).getValue())) {
-								opt.setValue(((IntOptionProperty) property).getValue());
-								opt.save(config.getConfigProperties());
+							int value = ((IntOptionProperty) property).getValue();
+							if (id != -1 && registry.getInt(id) != value) {
+								registry.setInt(id, value);
+								changedOptions.add(key);
 								propertiesChanged.set(true);
 							}
 						} else if (property instanceof FloatOptionProperty) {
-							Option<Float> opt = config.getFloatOption(key);
-							if (opt != null && !opt.getValue().equals(((OptionProperty<?>) property).getValue())) {
-								opt.setValue(((FloatOptionProperty) property).getValue());
-								opt.save(config.getConfigProperties());
+							float value = ((FloatOptionProperty) property).getValue();
+							if (id != -1 && registry.getFloat(id) != value) {
+								registry.setFloat(id, value);
+								changedOptions.add(key);
 								propertiesChanged.set(true);
 							}
 						} else if (property instanceof BooleanOptionProperty) {
-							Option<Boolean> opt = config.getBooleanOption(key);
-							if (opt != null && !opt.getValue().equals(((BooleanOptionProperty) property).getValue())) {
-								opt.setValue(((BooleanOptionProperty) property).getValue());
-								opt.save(config.getConfigProperties());
+							boolean value = ((BooleanOptionProperty) property).getValue();
+							if (id != -1 && registry.getBoolean(id) != value) {
+								registry.setBoolean(id, value);
+								changedOptions.add(key);
 								propertiesChanged.set(true);
 							}
 						} else if (property instanceof StringOptionProperty) {
@@ -338,7 +353,6 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 
 			try {
 				config.save();
-				config.load();
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -352,20 +366,19 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 			}
 
 			ShaderPackConfig config = shaderPack.getConfig();
+			OptionRegistry registry = config.getRegistry();
 			for (String pageName : shaderProperties.getPages()) {
 				PropertyList propertyList = shaderProperties.getPage(pageName);
 				propertyList.forEvery(property -> {
 					if (property instanceof OptionProperty) {
 						String key = ((OptionProperty<?>) property).getKey();
+						int id = ((OptionProperty<?>) property).getOptionId();
 						if (property instanceof IntOptionProperty) {
-							Option<Integer> opt = config.getIntegerOption(key);
-							if (opt != null) ((IntOptionProperty) property).setValue(opt.getValue());
+							if (id != -1) ((IntOptionProperty) property).setValue(registry.getInt(id));
 						} else if (property instanceof FloatOptionProperty) {
-							Option<Float> opt = config.getFloatOption(key);
-							if (opt != null) ((FloatOptionProperty) property).setValue(opt.getValue());
+							if (id != -1) ((FloatOptionProperty) property).setValue(registry.getFloat(id));
 						} else if (property instanceof BooleanOptionProperty) {
-							Option<Boolean> opt = config.getBooleanOption(key);
-							if (opt != null) ((BooleanOptionProperty) property).setValue(opt.getValue());
+							if (id != -1) ((BooleanOptionProperty) property).setValue(registry.getBoolean(id));
 						} else if (property instanceof StringOptionProperty) {
 							if (!((StringOptionProperty) property).getKey().equals("<profile>") || !config.getConfigProperties().containsKey(key)) return;
 
@@ -413,7 +426,7 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 						Option<Integer> opt = config.getIntegerOption(settingKey);
 						if (opt != null && opt.getValue() != value) {
 							opt.setValue(value);
-							opt.save(config.getConfigProperties());
+							changedOptions.add(opt.getName());
 							propertiesChanged.set(true);
 						}
 					} catch (NumberFormatException e) {
@@ -422,7 +435,7 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 							Option<Float> opt = config.getFloatOption(settingKey);
 							if (opt != null && opt.getValue() != value) {
 								opt.setValue(value);
-								opt.save(config.getConfigProperties());
+								changedOptions.add(opt.getName());
 								propertiesChanged.set(true);
 							}
 						} catch (NumberFormatException ex) {
@@ -434,7 +447,7 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 				Option<Boolean> opt = config.getBooleanOption(setting.substring(1));
 				if (opt != null && opt.getValue()) {
 					opt.setValue(false);
-					opt.save(config.getConfigProperties());
+					changedOptions.add(opt.getName());
 					propertiesChanged.set(true);
 				}
 			} else if (setting.startsWith("profile.")) {
@@ -449,7 +462,7 @@ public class ShaderPackScreen extends Screen implements HudHideable {
 				Option<Boolean> opt = config.getBooleanOption(setting);
 				if (opt != null && !opt.getValue()) {
 					opt.setValue(true);
-					opt.save(config.getConfigProperties());
+					changedOptions.add(opt.getName());
 					propertiesChanged.set(true);
 				}
 			}
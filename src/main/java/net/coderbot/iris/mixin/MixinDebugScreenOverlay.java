@@ -1,6 +1,7 @@
 package net.coderbot.iris.mixin;
 
 import net.coderbot.iris.Iris;
+import net.coderbot.iris.gl.uniform.UniformStatistics;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.gui.components.DebugScreenOverlay;
 import org.spongepowered.asm.mixin.Mixin;
@@ -68,6 +69,16 @@ public abstract class MixinDebugScreenOverlay {
 		}
 
 		Iris.getPipelineManager().getPipeline().ifPresent(pipeline -> pipeline.addDebugText(messages));
+
+		if (UniformStatistics.ENABLED) {
+			UniformStatistics.Counts counts = UniformStatistics.getLastFrameTotal();
+
+			messages.add("[Iris] Uniforms: " + counts.getEvaluated() + " evaluated, " + counts.getChanged()
+					+ " changed (" + counts.getRedundantPercentage() + "% redundant), " + counts.getUploads() + " uploads");
+			messages.add("[Iris] " + counts.getApplied() + " program updates, " + counts.getTextureBinds()
+					+ " texture binds, " + String.format("%.3f ms", counts.getNanos() / 1.0E6)
+					+ " over " + UniformStatistics.getProgramCount() + " programs (full report on reload)");
+		}
 	}
 
 	// stackoverflow.com/a/3758880
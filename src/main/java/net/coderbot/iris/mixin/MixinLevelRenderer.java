@@ -91,6 +91,9 @@ public class MixinLevelRenderer {
 		pipeline.finalizeLevelRendering();
 		pipeline.setPhase(WorldRenderingPhase.NOT_RENDERING_WORLD);
 		pipeline = null;
+
+		// Use some of the remaining frame time to prepare the pipelines of other dimensions
+		Iris.getPipelineManager().runPrewarmTasks();
 	}
 
 	@Inject(method = RENDER, at = @At(value = "INVOKE", target = "Lnet/minecraft/client/renderer/LevelRenderer;setupRender(Lnet/minecraft/client/Camera;Lnet/minecraft/client/renderer/culling/Frustum;ZZ)V", shift = At.Shift.AFTER))
@@ -34,7 +34,9 @@ import net.coderbot.iris.shadows.EmptyShadowMapRenderer;
 import net.coderbot.iris.shadows.ShadowMapRenderer;
 import net.coderbot.iris.uniforms.CapturedRenderingState;
 import net.coderbot.iris.uniforms.CommonUniforms;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.coderbot.iris.vendored.joml.Vector3d;
 import net.coderbot.iris.vendored.joml.Vector4f;
 import net.minecraft.client.Camera;
@@ -111,6 +113,8 @@ public class DeferredWorldRenderingPipeline implements WorldRenderingPipeline {
 	private final FinalPassRenderer finalPassRenderer;
 	private final CustomTextureManager customTextureManager;
 	private final FrameUpdateNotifier updateNotifier;
+	private final CustomUniforms customUniforms;
+	private final FrameUniformCache uniformCache;
 	private final CenterDepthSampler centerDepthSampler;
 
 	private final ImmutableSet<Integer> flippedBeforeTranslucent;
@@ -144,6 +148,8 @@ public class DeferredWorldRenderingPipeline implements WorldRenderingPipeline {
 		this.shouldRenderParticlesBeforeDeferred = programs.getPackDirectives().areParticlesBeforeDeferred();
 		this.oldLighting = programs.getPackDirectives().isOldLighting();
 		this.updateNotifier = new FrameUpdateNotifier();
+		this.uniformCache = new FrameUniformCache();
+		this.customUniforms = CustomUniforms.create(programs.getPack().getIdMap(), programs.getPackDirectives(), updateNotifier);
 
 		this.allPasses = new ArrayList<>();
 
@@ -200,17 +206,17 @@ public class DeferredWorldRenderingPipeline implements WorldRenderingPipeline {
 		};
 
 		this.deferredRenderer = new CompositeRenderer(programs.getPackDirectives(), programs.getDeferred(), renderTargets,
-				customTextureManager.getNoiseTexture(), updateNotifier, centerDepthSampler, flipper, shadowMapRendererSupplier,
+				customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, centerDepthSampler, flipper, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.DEFERRED, Object2ObjectMaps.emptyMap()),
 				programs.getPackDirectives().getExplicitFlips("deferred_pre"));
 
 		flippedAfterTranslucent = flipper.snapshot();
 
 		this.compositeRenderer = new CompositeRenderer(programs.getPackDirectives(), programs.getComposite(), renderTargets,
-				customTextureManager.getNoiseTexture(), updateNotifier, centerDepthSampler, flipper, shadowMapRendererSupplier,
+				customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, centerDepthSampler, flipper, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.COMPOSITE_AND_FINAL, Object2ObjectMaps.emptyMap()),
 				programs.getPackDirectives().getExplicitFlips("composite_pre"));
-		this.finalPassRenderer = new FinalPassRenderer(programs, renderTargets, customTextureManager.getNoiseTexture(), updateNotifier, flipper.snapshot(),
+		this.finalPassRenderer = new FinalPassRenderer(programs, renderTargets, customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, flipper.snapshot(),
 				centerDepthSampler, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.COMPOSITE_AND_FINAL, Object2ObjectMaps.emptyMap()),
 				this.compositeRenderer.getFlippedAtLeastOnceFinal());
@@ -526,7 +532,7 @@ public class DeferredWorldRenderingPipeline implements WorldRenderingPipeline {
 			throw new RuntimeException("Shader compilation failed!", e);
 		}
 
-		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, null);
+		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, null, customUniforms, uniformCache);
 
 		Supplier<ImmutableSet<Integer>> flipped =
 				() -> isBeforeTranslucent ? flippedBeforeTranslucent : flippedAfterTranslucent;
@@ -840,6 +846,16 @@ public class DeferredWorldRenderingPipeline implements WorldRenderingPipeline {
 		return updateNotifier;
 	}
 
+	@Override
+	public CustomUniforms getCustomUniforms() {
+		return customUniforms;
+	}
+
+	@Override
+	public FrameUniformCache getUniformCache() {
+		return uniformCache;
+	}
+
 	private boolean isRenderingShadow = false;
 
 	public void beginShadowRender() {
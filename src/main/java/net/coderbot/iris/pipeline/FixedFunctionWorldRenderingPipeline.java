@@ -4,7 +4,9 @@ import com.mojang.blaze3d.platform.GlStateManager;
 import net.coderbot.iris.block_rendering.BlockRenderingSettings;
 import net.coderbot.iris.layer.GbufferProgram;
 import net.coderbot.iris.mixin.LevelRendererAccessor;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.minecraft.client.Camera;
 import net.minecraft.client.Minecraft;
 import java.util.List;
@@ -91,6 +93,18 @@ public class FixedFunctionWorldRenderingPipeline implements WorldRenderingPipeli
 		return new FrameUpdateNotifier();
 	}
 
+	@Override
+	public CustomUniforms getCustomUniforms() {
+		// no shaders to give custom uniforms to
+		return null;
+	}
+
+	@Override
+	public FrameUniformCache getUniformCache() {
+		// no shaders to share uniform values between
+		return null;
+	}
+
 	@Override
 	public boolean shouldDisableVanillaEntityShadows() {
 		return false;
@@ -1,51 +1,179 @@
 package net.coderbot.iris.pipeline;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mojang.blaze3d.platform.GlStateManager;
 import net.coderbot.iris.Iris;
 import net.coderbot.iris.block_rendering.BlockRenderingSettings;
+import net.coderbot.iris.gl.uniform.UniformStatistics;
 import net.coderbot.iris.shaderpack.DimensionId;
+import net.coderbot.iris.shaderpack.ProgramSet;
 import net.coderbot.iris.uniforms.SystemTimeUniforms;
 import net.minecraft.client.Minecraft;
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.opengl.GL20C;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 public class PipelineManager {
 	private static PipelineManager instance;
+	/**
+	 * How much time prewarming may take on the render thread each frame.
+	 */
+	private static final long PREWARM_BUDGET_NANOS = 2_000_000L;
 	private final Function<DimensionId, WorldRenderingPipeline> pipelineFactory;
+	private final Function<DimensionId, Object> sharingKey;
 	private final Map<DimensionId, WorldRenderingPipeline> pipelinesPerDimension = new HashMap<>();
+	private final Map<Object, WorldRenderingPipeline> pipelinesPerKey = new HashMap<>();
 	private WorldRenderingPipeline pipeline;
 	private boolean sodiumShaderReloadNeeded;
 
+	@Nullable
+	private Prewarmer prewarmer;
+	private ExecutorService prewarmExecutor;
+	private final Set<Object> prewarmedKeys = new HashSet<>();
+	private final Queue<Runnable> prewarmTasks = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger prewarmGeneration = new AtomicInteger();
+
 	public PipelineManager(Function<DimensionId, WorldRenderingPipeline> pipelineFactory) {
+		this(pipelineFactory, Function.identity());
+	}
+
+	/**
+	 * @param sharingKey maps each dimension to a key identifying the pipeline it needs. Dimensions with equal keys
+	 *                   share a single pipeline instead of each compiling their own copy of the same programs. A null
+	 *                   key is a valid key.
+	 */
+	public PipelineManager(Function<DimensionId, WorldRenderingPipeline> pipelineFactory,
+						   Function<DimensionId, Object> sharingKey) {
 		this.pipelineFactory = pipelineFactory;
+		this.sharingKey = sharingKey;
 	}
 
 	public WorldRenderingPipeline preparePipeline(DimensionId currentDimension) {
-		if (!pipelinesPerDimension.containsKey(currentDimension)) {
+		if (pipelinesPerDimension.containsKey(currentDimension)) {
+			pipeline = pipelinesPerDimension.get(currentDimension);
+
+			return pipeline;
+		}
+
+		Object key = sharingKey.apply(currentDimension);
+		WorldRenderingPipeline shared = pipelinesPerKey.get(key);
+
+		if (shared != null) {
+			Iris.logger.info("Sharing an existing pipeline with dimension {}", currentDimension);
+			pipeline = shared;
+			pipelinesPerDimension.put(currentDimension, pipeline);
+		} else {
 			SystemTimeUniforms.COUNTER.reset();
 			SystemTimeUniforms.TIMER.reset();
 
 			Iris.logger.info("Creating pipeline for dimension {}", currentDimension);
 			pipeline = pipelineFactory.apply(currentDimension);
 			pipelinesPerDimension.put(currentDimension, pipeline);
+			pipelinesPerKey.put(key, pipeline);
 			sodiumShaderReloadNeeded = true;
 
 			if (BlockRenderingSettings.INSTANCE.isReloadRequired()) {
 				Minecraft.getInstance().levelRenderer.allChanged();
 				BlockRenderingSettings.INSTANCE.clearReloadRequired();
 			}
-		} else {
-			pipeline = pipelinesPerDimension.get(currentDimension);
+
+			schedulePrewarming();
 		}
 
 		return pipeline;
 	}
 
+	/**
+	 * Enables prewarming: once the pipeline for the current dimension is ready, the pipelines of the other dimensions
+	 * are prepared ahead of time so that entering them later doesn't freeze the game for as long.
+	 */
+	public void setPrewarmer(@Nullable Prewarmer prewarmer) {
+		this.prewarmer = prewarmer;
+	}
+
+	private void schedulePrewarming() {
+		Prewarmer prewarmer = this.prewarmer;
+
+		if (prewarmer == null) {
+			return;
+		}
+
+		int generation = prewarmGeneration.get();
+
+		for (DimensionId dimension : DimensionId.values()) {
+			Object key = sharingKey.apply(dimension);
+
+			if (pipelinesPerKey.containsKey(key) || !prewarmedKeys.add(key)) {
+				continue;
+			}
+
+			getPrewarmExecutor().execute(() -> {
+				if (generation != prewarmGeneration.get()) {
+					return;
+				}
+
+				List<Runnable> tasks;
+
+				try {
+					tasks = prewarmer.prepare(dimension);
+				} catch (RuntimeException e) {
+					Iris.logger.warn("Failed to prepare the pipeline for dimension {} ahead of time", dimension, e);
+					return;
+				}
+
+				// NB: A task from a destroyed pipeline can still slip in here, but running it is harmless.
+				for (Runnable task : tasks) {
+					prewarmTasks.add(() -> {
+						// Skip the remaining tasks once the pipeline has actually been created
+						if (generation == prewarmGeneration.get() && !pipelinesPerKey.containsKey(key)) {
+							task.run();
+						}
+					});
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs the render thread part of prewarming in small batches, stopping once this frame's time budget for
+	 * prewarming has been used up. Must be called on the render thread, ideally at the end of a frame.
+	 */
+	public void runPrewarmTasks() {
+		if (prewarmTasks.isEmpty()) {
+			return;
+		}
+
+		long deadline = System.nanoTime() + PREWARM_BUDGET_NANOS;
+		Runnable task;
+
+		while (System.nanoTime() < deadline && (task = prewarmTasks.poll()) != null) {
+			task.run();
+		}
+	}
+
+	private ExecutorService getPrewarmExecutor() {
+		if (prewarmExecutor == null) {
+			prewarmExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("Iris Pipeline Prewarmer").setDaemon(true).setPriority(Thread.MIN_PRIORITY).build());
+		}
+
+		return prewarmExecutor;
+	}
+
 	@Nullable
 	public WorldRenderingPipeline getPipelineNullable() {
 		return pipeline;
@@ -79,14 +207,87 @@ public class PipelineManager {
 		return instance;
 	}
 
+	/**
+	 * Switches the existing pipelines over to programs that were created from the same shader pack with different
+	 * option values, so that only the programs whose sources have changed are compiled again.
+	 *
+	 * @param programSets maps each dimension to its new programs
+	 * @return false if at least one pipeline has to be recreated instead, in which case the caller must destroy the
+	 *         pipelines
+	 */
+	public boolean reloadChangedPrograms(Function<DimensionId, ProgramSet> programSets) {
+		Map<WorldRenderingPipeline, ProgramSet> updates = new IdentityHashMap<>();
+
+		for (Map.Entry<DimensionId, WorldRenderingPipeline> entry : pipelinesPerDimension.entrySet()) {
+			ProgramSet programSet = programSets.apply(entry.getKey());
+			ProgramSet previous = updates.putIfAbsent(entry.getValue(), programSet);
+
+			if (previous != null && previous != programSet) {
+				// The dimensions sharing this pipeline don't share the same programs anymore
+				return false;
+			}
+		}
+
+		for (Map.Entry<WorldRenderingPipeline, ProgramSet> update : updates.entrySet()) {
+			WorldRenderingPipeline pipeline = update.getKey();
+			SodiumTerrainPipeline sodiumTerrainPipeline = pipeline.getSodiumTerrainPipeline();
+
+			try {
+				if (!pipeline.reloadChangedPrograms(update.getValue())) {
+					return false;
+				}
+			} catch (RuntimeException e) {
+				Iris.logger.warn("Failed to recreate the changed programs, recreating the whole pipeline instead", e);
+				return false;
+			}
+
+			if (pipeline.getSodiumTerrainPipeline() != sodiumTerrainPipeline) {
+				sodiumShaderReloadNeeded = true;
+			}
+		}
+
+		// The sharing keys of the pipelines may refer to the previous programs
+		pipelinesPerKey.clear();
+		pipelinesPerDimension.forEach((dimension, pipeline) ->
+				pipelinesPerKey.putIfAbsent(sharingKey.apply(dimension), pipeline));
+
+		// Anything that was prepared ahead of time was prepared from the previous programs
+		prewarmGeneration.incrementAndGet();
+		prewarmedKeys.clear();
+		prewarmTasks.clear();
+
+		if (pipeline != null) {
+			schedulePrewarming();
+		}
+
+		return true;
+	}
+
 	public void destroyPipeline() {
+		// The programs that the statistics were recorded for are about to be destroyed, so this is the last chance to
+		// report them.
+		UniformStatistics.dump();
+
+		// A pipeline shared by several dimensions must only be destroyed once
+		Set<WorldRenderingPipeline> destroyed = Collections.newSetFromMap(new IdentityHashMap<>());
+
 		pipelinesPerDimension.forEach((dimensionId, pipeline) -> {
+			if (!destroyed.add(pipeline)) {
+				return;
+			}
+
 			Iris.logger.info("Destroying pipeline {}", dimensionId);
 			resetTextureState();
 			pipeline.destroy();
 		});
 
 		pipelinesPerDimension.clear();
+		pipelinesPerKey.clear();
+
+		// Anything that was prepared ahead of time belongs to the pipelines that were just destroyed
+		prewarmGeneration.incrementAndGet();
+		prewarmedKeys.clear();
+		prewarmTasks.clear();
 		pipeline = null;
 	}
 
@@ -108,4 +309,17 @@ public class PipelineManager {
 		// This seems to be what most code expects. It's a sane default in any case.
 		GlStateManager.glActiveTexture(GL20C.GL_TEXTURE0);
 	}
+
+	/**
+	 * Prepares the pipeline for a dimension ahead of time.
+	 */
+	@FunctionalInterface
+	public interface Prewarmer {
+		/**
+		 * Does the CPU-side work of creating the pipeline for the given dimension. Called on a background thread.
+		 *
+		 * @return small tasks that must run on the render thread to finish preparing the pipeline
+		 */
+		List<Runnable> prepare(DimensionId dimension);
+	}
 }
@@ -159,6 +159,14 @@ public class ShadowRenderer implements ShadowMapRenderer {
 	}
 
 	public static PoseStack createShadowModelView(float sunPathRotation, float intervalSize) {
+		// Set up our modelview matrix stack
+		PoseStack modelView = new PoseStack();
+		createShadowModelView(sunPathRotation, intervalSize, modelView.last().pose());
+
+		return modelView;
+	}
+
+	public static void createShadowModelView(float sunPathRotation, float intervalSize, Matrix4f target) {
 		// Determine the camera position
 		Vector3d cameraPos = CameraUniforms.getUnshiftedCameraPosition();
 
@@ -166,11 +174,7 @@ public class ShadowRenderer implements ShadowMapRenderer {
 		double cameraY = cameraPos.y;
 		double cameraZ = cameraPos.z;
 
-		// Set up our modelview matrix stack
-		PoseStack modelView = new PoseStack();
-		ShadowMatrices.createModelViewMatrix(modelView.last().pose(), getShadowAngle(), intervalSize, sunPathRotation, cameraX, cameraY, cameraZ);
-
-		return modelView;
+		ShadowMatrices.createModelViewMatrix(target, getShadowAngle(), intervalSize, sunPathRotation, cameraX, cameraY, cameraZ);
 	}
 
 	private static ClientLevel getLevel() {
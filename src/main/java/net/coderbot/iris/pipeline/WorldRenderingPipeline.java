@@ -3,7 +3,10 @@ package net.coderbot.iris.pipeline;
 import net.coderbot.iris.layer.GbufferProgram;
 import net.coderbot.iris.mixin.LevelRendererAccessor;
 import net.coderbot.iris.pipeline.newshader.WorldRenderingPhase;
+import net.coderbot.iris.shaderpack.ProgramSet;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.minecraft.client.Camera;
 import java.util.List;
 import java.util.OptionalInt;
@@ -26,11 +29,24 @@ public interface WorldRenderingPipeline {
 
 	SodiumTerrainPipeline getSodiumTerrainPipeline();
 	FrameUpdateNotifier getFrameUpdateNotifier();
+	CustomUniforms getCustomUniforms();
+	FrameUniformCache getUniformCache();
 
 	default void setPhase(WorldRenderingPhase phase) {
 		// no-op
 	}
 
+	/**
+	 * Switches to programs that were created from the same shader pack with different option values, recreating only
+	 * the programs whose sources have changed.
+	 *
+	 * @return false if the new programs differ in more than their sources, and the whole pipeline has to be
+	 *         recreated instead
+	 */
+	default boolean reloadChangedPrograms(ProgramSet programSet) {
+		return false;
+	}
+
 	boolean shouldDisableVanillaEntityShadows();
 	boolean shouldDisableDirectionalShading();
 	boolean shouldRenderClouds();
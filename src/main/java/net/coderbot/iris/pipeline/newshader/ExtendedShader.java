@@ -60,6 +60,12 @@ public class ExtendedShader extends ShaderInstance implements SamplerHolder, Ima
 		return intensitySwizzle;
 	}
 
+	@Override
+	public void close() {
+		uniforms.destroy();
+		super.close();
+	}
+
 	@Override
 	public void clear() {
 		ProgramUniforms.clearActiveUniforms();
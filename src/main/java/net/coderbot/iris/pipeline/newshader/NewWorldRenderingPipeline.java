@@ -8,6 +8,7 @@ import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.VertexFormat;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMaps;
+import net.coderbot.iris.Iris;
 import net.coderbot.iris.block_rendering.BlockMaterialMapping;
 import net.coderbot.iris.block_rendering.BlockRenderingSettings;
 import net.coderbot.iris.gl.IrisRenderSystem;
@@ -42,7 +43,9 @@ import net.coderbot.iris.shaderpack.texture.TextureStage;
 import net.coderbot.iris.shadows.EmptyShadowMapRenderer;
 import net.coderbot.iris.shadows.ShadowMapRenderer;
 import net.coderbot.iris.uniforms.CapturedRenderingState;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.coderbot.iris.vendored.joml.Vector3d;
 import net.coderbot.iris.vendored.joml.Vector4f;
 import net.coderbot.iris.vertices.IrisVertexFormats;
@@ -65,6 +68,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -85,8 +89,12 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 
 	private final CustomTextureManager customTextureManager;
 	private final FrameUpdateNotifier updateNotifier;
+	private final CustomUniforms customUniforms;
+	private final FrameUniformCache uniformCache;
 	private final CenterDepthSampler centerDepthSampler;
-	private final SodiumTerrainPipeline sodiumTerrainPipeline;
+	private final Function<ProgramSet, SodiumTerrainPipeline> createSodiumTerrainPipeline;
+	private SodiumTerrainPipeline sodiumTerrainPipeline;
+	private ProgramSet programSet;
 
 	private final ImmutableSet<Integer> flippedBeforeTranslucent;
 	private final ImmutableSet<Integer> flippedAfterTranslucent;
@@ -123,6 +131,7 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 			Files.createDirectories(debugOutDir);
 		}
 
+		this.programSet = programSet;
 		this.shouldRenderClouds = programSet.getPackDirectives().areCloudsEnabled();
 		this.shouldRenderUnderwaterOverlay = programSet.getPackDirectives().underwaterOverlay();
 		this.shouldRenderVignette = programSet.getPackDirectives().vignette();
@@ -130,6 +139,8 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 		this.shouldRenderParticlesBeforeDeferred = programSet.getPackDirectives().areParticlesBeforeDeferred();
 		this.oldLighting = programSet.getPackDirectives().isOldLighting();
 		this.updateNotifier = new FrameUpdateNotifier();
+		this.uniformCache = new FrameUniformCache(Iris.getIrisConfig().shouldUseUniformBuffers());
+		this.customUniforms = CustomUniforms.create(programSet.getPack().getIdMap(), programSet.getPackDirectives(), updateNotifier);
 
 		this.renderTargets = new RenderTargets(Minecraft.getInstance().getMainRenderTarget(), programSet.getPackDirectives().getRenderTargetDirectives());
 		this.sunPathRotation = programSet.getPackDirectives().getSunPathRotation();
@@ -177,17 +188,17 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 		};
 
 		this.deferredRenderer = new CompositeRenderer(programSet.getPackDirectives(), programSet.getDeferred(), renderTargets,
-				customTextureManager.getNoiseTexture(), updateNotifier, centerDepthSampler, flipper, shadowMapRendererSupplier,
+				customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, centerDepthSampler, flipper, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.DEFERRED, Object2ObjectMaps.emptyMap()),
 				programSet.getPackDirectives().getExplicitFlips("deferred_pre"));
 
 		flippedAfterTranslucent = flipper.snapshot();
 
 		this.compositeRenderer = new CompositeRenderer(programSet.getPackDirectives(), programSet.getComposite(), renderTargets,
-				customTextureManager.getNoiseTexture(), updateNotifier, centerDepthSampler, flipper, shadowMapRendererSupplier,
+				customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, centerDepthSampler, flipper, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.COMPOSITE_AND_FINAL, Object2ObjectMaps.emptyMap()),
 				programSet.getPackDirectives().getExplicitFlips("composite_pre"));
-		this.finalPassRenderer = new FinalPassRenderer(programSet, renderTargets, customTextureManager.getNoiseTexture(), updateNotifier, flipper.snapshot(),
+		this.finalPassRenderer = new FinalPassRenderer(programSet, renderTargets, customTextureManager.getNoiseTexture(), updateNotifier, customUniforms, uniformCache, flipper.snapshot(),
 				centerDepthSampler, shadowMapRendererSupplier,
 				customTextureManager.getCustomTextureIdMap().getOrDefault(TextureStage.COMPOSITE_AND_FINAL, Object2ObjectMaps.emptyMap()),
 				this.compositeRenderer.getFlippedAtLeastOnceFinal());
@@ -258,20 +269,13 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 
 		this.baseline = renderTargets.createFramebufferWritingToMain(new int[] {0});
 		this.loadedShaders = new HashSet<>();
+		PatchedShaderCache patchCache = new PatchedShaderCache(uniformCache.getFrameUniforms() != null);
 
 		ProgramFallbackResolver resolver = new ProgramFallbackResolver(programSet);
 
 		this.shaderMap = new ShaderMap(key -> {
 			try {
-				if (key.isShadow()) {
-					if (shadowMapRenderer != null) {
-						return createShadowShader(key.getName(), resolver.resolve(key.getProgram()), key);
-					} else {
-						return null;
-					}
-				} else {
-					return createShader(key.getName(), resolver.resolve(key.getProgram()), key);
-				}
+				return createShader(key, resolver.resolve(key.getProgram()), patchCache);
 			} catch (IOException e) {
 				destroyShaders();
 				throw new RuntimeException(e);
@@ -281,6 +285,8 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 			}
 		});
 
+		Iris.logger.debug("Patched {} shader sources and reused them {} times", patchCache.size(), patchCache.getHits());
+
 		BlockRenderingSettings.INSTANCE.setBlockStateIds(
 				BlockMaterialMapping.createBlockStateIdMap(programSet.getPack().getIdMap().getBlockProperties()));
 
@@ -299,26 +305,127 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 			// TODO: Can we remove this?
 			this.shadowMapRenderer = new EmptyShadowMapRenderer(programSet.getPackDirectives().getShadowDirectives().getResolution());
 		} else {
-			ShaderInstance shader = shaderMap.getShader(ShaderKey.SHADOW_TERRAIN_CUTOUT);
-
-			if (shader instanceof ExtendedShader && shadowMapRenderer instanceof ShadowRenderer) {
-				// Assume voxelization if image load / store is detected in the shadow program.
-				// We have to do this here to avoid a circular reference in setting up shaders.
-				// This code should probably be cleaned up later.
-				ImageHolder holder = ((ExtendedShader) getShaderMap().getShader(ShaderKey.SHADOW_TERRAIN_CUTOUT));
-
-				((ShadowRenderer) shadowMapRenderer).packHasVoxelization
-						|= IrisImages.hasShadowImages(holder)
-						|| IrisImages.hasRenderTargetImages(holder, renderTargets);
-			}
+			detectVoxelization();
 		}
 
 		// TODO: Create fallback Sodium shaders if the pack doesn't provide terrain shaders
 		//       Currently we use Sodium's shaders but they don't support EXP2 fog underwater.
-		this.sodiumTerrainPipeline = new SodiumTerrainPipeline(this, programSet, createTerrainSamplers,
+		this.createSodiumTerrainPipeline = programs -> new SodiumTerrainPipeline(this, programs, createTerrainSamplers,
 				createShadowTerrainSamplers, createTerrainImages, createShadowTerrainImages, renderTargets, flippedBeforeTranslucent, flippedAfterTranslucent,
 				shadowMapRenderer instanceof ShadowRenderer ? ((ShadowRenderer) shadowMapRenderer).getFramebuffer() :
 						null);
+		this.sodiumTerrainPipeline = createSodiumTerrainPipeline.apply(programSet);
+	}
+
+	private void detectVoxelization() {
+		ShaderInstance shader = shaderMap.getShader(ShaderKey.SHADOW_TERRAIN_CUTOUT);
+
+		if (shader instanceof ExtendedShader && shadowMapRenderer instanceof ShadowRenderer) {
+			// Assume voxelization if image load / store is detected in the shadow program.
+			// We have to do this here to avoid a circular reference in setting up shaders.
+			// This code should probably be cleaned up later.
+			ImageHolder holder = ((ExtendedShader) getShaderMap().getShader(ShaderKey.SHADOW_TERRAIN_CUTOUT));
+
+			((ShadowRenderer) shadowMapRenderer).packHasVoxelization
+					|= IrisImages.hasShadowImages(holder)
+					|| IrisImages.hasRenderTargetImages(holder, renderTargets);
+		}
+	}
+
+	@Override
+	public boolean reloadChangedPrograms(ProgramSet programSet) {
+		if (destroyed) {
+			return false;
+		}
+
+		ProgramSet previous = this.programSet;
+
+		if (programSet == previous) {
+			return true;
+		}
+
+		// Everything outside of the individual programs, such as the render targets, the custom textures, the custom
+		// uniforms and the shadow map, is set up from the pack directives and the shadow program.
+		if (!previous.getPackDirectives().equals(programSet.getPackDirectives())
+				|| !hasSameSources(previous.getShadow(), programSet.getShadow())) {
+			return false;
+		}
+
+		if (!deferredRenderer.canReplacePrograms(programSet.getDeferred())
+				|| !compositeRenderer.canReplacePrograms(programSet.getComposite())
+				|| !finalPassRenderer.canReplacePrograms(programSet)) {
+			return false;
+		}
+
+		ProgramFallbackResolver previousResolver = new ProgramFallbackResolver(previous);
+		ProgramFallbackResolver resolver = new ProgramFallbackResolver(programSet);
+		PatchedShaderCache patchCache = new PatchedShaderCache(uniformCache.getFrameUniforms() != null);
+		boolean hadShadowMap = shadowMapRenderer instanceof ShadowRenderer;
+		int replaced = 0;
+
+		for (ShaderKey key : ShaderKey.values()) {
+			Optional<ProgramSource> source = resolver.resolve(key.getProgram());
+
+			if (hasSameSources(previousResolver.resolve(key.getProgram()), source)) {
+				continue;
+			}
+
+			ShaderInstance shader;
+
+			try {
+				shader = createShader(key, source, patchCache);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+
+			ShaderInstance previousShader = shaderMap.replaceShader(key, shader);
+
+			if (previousShader != null) {
+				loadedShaders.remove(previousShader);
+				previousShader.clear();
+				previousShader.close();
+			}
+
+			replaced += 1;
+		}
+
+		replaced += deferredRenderer.replacePrograms(programSet.getDeferred());
+		replaced += compositeRenderer.replacePrograms(programSet.getComposite());
+		replaced += finalPassRenderer.replacePrograms(programSet);
+
+		if (!hadShadowMap && shadowMapRenderer instanceof ShadowRenderer) {
+			// A changed program started to sample the shadow map, which was never rendered before.
+			return false;
+		}
+
+		detectVoxelization();
+
+		if (!hasSameTerrainSources(previous, programSet)) {
+			// Sodium compiles the terrain programs itself once it notices the new terrain pipeline
+			sodiumTerrainPipeline = createSodiumTerrainPipeline.apply(programSet);
+		}
+
+		this.programSet = programSet;
+
+		Iris.logger.info("Recreated {} programs affected by changed shader pack options", replaced);
+
+		return true;
+	}
+
+	private static boolean hasSameSources(Optional<ProgramSource> a, Optional<ProgramSource> b) {
+		if (!a.isPresent() || !b.isPresent()) {
+			return a.isPresent() == b.isPresent();
+		}
+
+		return a.get().hasSameSources(b.get());
+	}
+
+	private static boolean hasSameTerrainSources(ProgramSet a, ProgramSet b) {
+		return hasSameSources(a.getGbuffersTerrain(), b.getGbuffersTerrain())
+				&& hasSameSources(a.getGbuffersTexturedLit(), b.getGbuffersTexturedLit())
+				&& hasSameSources(a.getGbuffersTextured(), b.getGbuffersTextured())
+				&& hasSameSources(a.getGbuffersBasic(), b.getGbuffersBasic())
+				&& hasSameSources(a.getGbuffersWater(), b.getGbuffersWater());
 	}
 
 	@SafeVarargs
@@ -332,23 +439,35 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 		return Optional.empty();
 	}
 
-	private ShaderInstance createShader(String name, Optional<ProgramSource> source, ShaderKey key) throws IOException {
+	private ShaderInstance createShader(ShaderKey key, Optional<ProgramSource> source,
+										PatchedShaderCache patchCache) throws IOException {
+		if (!key.isShadow()) {
+			return createShader(key.getName(), source, key, patchCache);
+		} else if (shadowMapRenderer instanceof ShadowRenderer) {
+			return createShadowShader(key.getName(), source, key, patchCache);
+		} else {
+			return null;
+		}
+	}
+
+	private ShaderInstance createShader(String name, Optional<ProgramSource> source, ShaderKey key,
+										PatchedShaderCache patchCache) throws IOException {
 		if (!source.isPresent()) {
 			return createFallbackShader(name, key);
 		}
 
 		return createShader(name, source.get(), key.getAlphaTest(), key.getVertexFormat(), key.getFogMode(),
-				key.isBeaconBeam(), key.isFullbright());
+				key.isBeaconBeam(), key.isFullbright(), patchCache);
 	}
 
 	private ShaderInstance createShader(String name, ProgramSource source, AlphaTest fallbackAlpha,
 										VertexFormat vertexFormat, FogMode fogMode, boolean isBeacon,
-										boolean isFullbright) throws IOException {
+										boolean isFullbright, PatchedShaderCache patchCache) throws IOException {
 		GlFramebuffer beforeTranslucent = renderTargets.createGbufferFramebuffer(flippedBeforeTranslucent, source.getDirectives().getDrawBuffers());
 		GlFramebuffer afterTranslucent = renderTargets.createGbufferFramebuffer(flippedAfterTranslucent, source.getDirectives().getDrawBuffers());
 
 		ExtendedShader extendedShader = NewShaderTests.create(name, source, beforeTranslucent, afterTranslucent,
-				baseline, fallbackAlpha, vertexFormat, updateNotifier, this, fogMode, isBeacon, isFullbright);
+				baseline, fallbackAlpha, vertexFormat, updateNotifier, this, patchCache, fogMode, isBeacon, isFullbright);
 
 		loadedShaders.add(extendedShader);
 
@@ -373,13 +492,14 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 		return shader;
 	}
 
-	private ShaderInstance createShadowShader(String name, Optional<ProgramSource> source, ShaderKey key) throws IOException {
+	private ShaderInstance createShadowShader(String name, Optional<ProgramSource> source, ShaderKey key,
+											  PatchedShaderCache patchCache) throws IOException {
 		if (!source.isPresent()) {
 			return createFallbackShadowShader(name, key);
 		}
 
 		return createShadowShader(name, source.get(), key.getAlphaTest(), key.getVertexFormat(), key.isBeaconBeam(),
-				key.isFullbright());
+				key.isFullbright(), patchCache);
 	}
 
 	private ShaderInstance createFallbackShadowShader(String name, ShaderKey key) throws IOException {
@@ -395,11 +515,12 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 	}
 
 	private ShaderInstance createShadowShader(String name, ProgramSource source, AlphaTest fallbackAlpha,
-											  VertexFormat vertexFormat, boolean isBeacon, boolean isFullbright) throws IOException {
+											  VertexFormat vertexFormat, boolean isBeacon, boolean isFullbright,
+											  PatchedShaderCache patchCache) throws IOException {
 		GlFramebuffer framebuffer = ((ShadowRenderer) this.shadowMapRenderer).getFramebuffer();
 
 		ExtendedShader extendedShader = NewShaderTests.create(name, source, framebuffer, framebuffer, baseline,
-				fallbackAlpha, vertexFormat, updateNotifier, this, FogMode.ENABLED, isBeacon, isFullbright);
+				fallbackAlpha, vertexFormat, updateNotifier, this, patchCache, FogMode.ENABLED, isBeacon, isFullbright);
 
 		loadedShaders.add(extendedShader);
 
@@ -657,6 +778,7 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 
 		compositeRenderer.destroy();
 		customTextureManager.destroy();
+		uniformCache.destroy();
 
 		GlStateManager._glBindFramebuffer(GL30C.GL_READ_FRAMEBUFFER, 0);
 		GlStateManager._glBindFramebuffer(GL30C.GL_DRAW_FRAMEBUFFER, 0);
@@ -678,6 +800,16 @@ public class NewWorldRenderingPipeline implements WorldRenderingPipeline, CoreWo
 		return updateNotifier;
 	}
 
+	@Override
+	public CustomUniforms getCustomUniforms() {
+		return customUniforms;
+	}
+
+	@Override
+	public FrameUniformCache getUniformCache() {
+		return uniformCache;
+	}
+
 	@Override
 	public float getSunPathRotation() {
 		return sunPathRotation;
@@ -0,0 +1,121 @@
+package net.coderbot.iris.pipeline.newshader;
+
+import net.coderbot.iris.gl.blending.AlphaTest;
+import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.shaderpack.ProgramSource;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Memoizes the output of {@link TriforcePatcher#patchVanilla} while a pipeline creates its shaders.
+ *
+ * <p>A single program of a shader pack usually backs many vanilla shaders: gbuffers_entities alone is used for solid,
+ * cutout and translucent entities, lightning, text and more. Most of these only differ in state that doesn't affect
+ * patching, like the fog mode, so they end up patching the exact same source with the exact same parameters.</p>
+ *
+ * <p>Sources are compared by the identity of their {@link ProgramSource}, which is cheap and can never return a stale
+ * result, since the cache is discarded once the shaders have been created, and changed programs always come with new
+ * program sources.</p>
+ */
+public class PatchedShaderCache {
+	private final Map<Key, String> patched;
+	private final Map<ProgramSource, Boolean> frameUniformBlockUsage;
+	private final boolean frameUniformBlock;
+	private int hits;
+
+	/**
+	 * @param frameUniformBlock whether the pipeline provides the per-frame uniforms in a uniform block, each program
+	 *                          still only reads them from it if all of its shaders can be patched to do so
+	 */
+	public PatchedShaderCache(boolean frameUniformBlock) {
+		this.patched = new HashMap<>();
+		this.frameUniformBlockUsage = new IdentityHashMap<>();
+		this.frameUniformBlock = frameUniformBlock;
+	}
+
+	public String patchVanilla(ProgramSource source, ShaderType type, AlphaTest alpha, boolean hasChunkOffset,
+							   ShaderAttributeInputs inputs) {
+		Key key = new Key(source, type, alpha, hasChunkOffset, inputs);
+		String cached = patched.get(key);
+
+		if (cached != null) {
+			hits++;
+			return cached;
+		}
+
+		boolean useFrameUniformBlock = frameUniformBlock && frameUniformBlockUsage.computeIfAbsent(source,
+				TriforcePatcher::canUseFrameUniformBlock);
+		String result = TriforcePatcher.patchVanilla(getSource(source, type), type, alpha, hasChunkOffset, inputs, useFrameUniformBlock);
+		patched.put(key, result);
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of times that patching was skipped because an identical patch had already been done.
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	public int size() {
+		return patched.size();
+	}
+
+	private static String getSource(ProgramSource source, ShaderType type) {
+		Optional<String> text;
+
+		if (type == ShaderType.VERTEX) {
+			text = source.getVertexSource();
+		} else if (type == ShaderType.GEOMETRY) {
+			text = source.getGeometrySource();
+		} else {
+			text = source.getFragmentSource();
+		}
+
+		return text.orElseThrow(RuntimeException::new);
+	}
+
+	private static final class Key {
+		private final ProgramSource source;
+		private final ShaderType type;
+		private final AlphaTest alpha;
+		private final boolean hasChunkOffset;
+		private final ShaderAttributeInputs inputs;
+		private final int hash;
+
+		Key(ProgramSource source, ShaderType type, AlphaTest alpha, boolean hasChunkOffset, ShaderAttributeInputs inputs) {
+			this.source = source;
+			this.type = type;
+			this.alpha = alpha;
+			this.hasChunkOffset = hasChunkOffset;
+			this.inputs = inputs;
+			this.hash = Objects.hash(System.identityHashCode(source), type, alpha, hasChunkOffset, inputs);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			Key that = (Key) o;
+
+			return hash == that.hash && source == that.source && type == that.type
+					&& hasChunkOffset == that.hasChunkOffset && alpha.equals(that.alpha) && inputs.equals(that.inputs);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -3,6 +3,8 @@ package net.coderbot.iris.pipeline.newshader;
 import com.mojang.blaze3d.vertex.DefaultVertexFormat;
 import com.mojang.blaze3d.vertex.VertexFormat;
 
+import java.util.Objects;
+
 public class ShaderAttributeInputs {
 	private boolean color;
 	private boolean tex;
@@ -70,4 +72,25 @@ public class ShaderAttributeInputs {
 	public boolean isNewLines() {
 		return newLines;
 	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		ShaderAttributeInputs that = (ShaderAttributeInputs) o;
+
+		return color == that.color && tex == that.tex && overlay == that.overlay && light == that.light
+				&& normal == that.normal && newLines == that.newLines;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(color, tex, overlay, light, normal, newLines);
+	}
 }
@@ -25,4 +25,14 @@ public class ShaderMap {
 	public ShaderInstance getShader(ShaderKey id) {
 		return shaders[id.ordinal()];
 	}
+
+	/**
+	 * Replaces the shader of the given key, returning the previous shader so that it can be destroyed.
+	 */
+	public ShaderInstance replaceShader(ShaderKey id, ShaderInstance shader) {
+		ShaderInstance previous = shaders[id.ordinal()];
+		shaders[id.ordinal()] = shader;
+
+		return previous;
+	}
 }
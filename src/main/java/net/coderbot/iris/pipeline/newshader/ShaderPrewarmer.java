@@ -0,0 +1,158 @@
+package net.coderbot.iris.pipeline.newshader;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.GlUtil;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.coderbot.iris.Iris;
+import net.coderbot.iris.gl.blending.AlphaTest;
+import net.coderbot.iris.gl.shader.GlShader;
+import net.coderbot.iris.gl.shader.ShaderConstants;
+import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.gl.shader.ShaderWorkarounds;
+import net.coderbot.iris.shaderpack.ProgramFallbackResolver;
+import net.coderbot.iris.shaderpack.ProgramSet;
+import net.coderbot.iris.shaderpack.ProgramSource;
+import net.minecraft.Util;
+import org.lwjgl.opengl.GL11C;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Prepares the shaders of a {@link NewWorldRenderingPipeline} ahead of time, before the pipeline itself is created.
+ *
+ * <p>All of the CPU-side work (preprocessing, directive parsing, and patching) happens in {@link #prepare}, which may
+ * run on a background thread. It returns one small task per distinct patched shader that compiles and then
+ * immediately deletes that shader on the render thread. The compiled shader objects aren't kept, since they can only
+ * be attached to programs once the pipeline exists, but compiling the exact sources that the pipeline will compile
+ * later populates the shader caches of the driver, which makes the later compile much cheaper on most drivers.</p>
+ *
+ * <p>Without a driver shader cache, compiling the shaders ahead of time would only double the cost of compiling them,
+ * so the compile tasks do nothing unless the driver is known to have one.</p>
+ */
+public class ShaderPrewarmer {
+	private static final ShaderConstants EMPTY_CONSTANTS = ShaderConstants.builder().build();
+
+	// Only accessed on the render thread
+	private static Boolean driverShaderCache;
+
+	/**
+	 * @param frameUniformBlock whether the pipeline will patch shaders to read the per-frame uniforms from a uniform
+	 *                          block, the prepared shaders would be of no use otherwise
+	 */
+	public static List<Runnable> prepare(ProgramSet programSet, boolean frameUniformBlock) {
+		programSet.preloadSources();
+
+		ProgramFallbackResolver resolver = new ProgramFallbackResolver(programSet);
+		boolean hasShadow = programSet.getShadow().isPresent();
+
+		Set<String> seen = new HashSet<>();
+		List<Runnable> tasks = new ArrayList<>();
+
+		for (ShaderKey key : ShaderKey.values()) {
+			if (key.isShadow() && !hasShadow) {
+				continue;
+			}
+
+			ProgramSource source = resolver.resolveNullable(key.getProgram());
+
+			// Programs that fall back to the synthesized shaders are small, and not worth preparing.
+			if (source == null || !source.isValid()) {
+				continue;
+			}
+
+			AlphaTest alpha = source.getDirectives().getAlphaTestOverride().orElse(key.getAlphaTest());
+			ShaderAttributeInputs inputs = new ShaderAttributeInputs(key.getVertexFormat(), key.isFullbright());
+			boolean useFrameUniformBlock = frameUniformBlock && TriforcePatcher.canUseFrameUniformBlock(source);
+
+			addCompileTask(tasks, seen, ShaderType.VERTEX, TriforcePatcher.patchVanilla(
+					source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX, alpha, true, inputs, useFrameUniformBlock));
+			addCompileTask(tasks, seen, ShaderType.FRAGMENT, TriforcePatcher.patchVanilla(
+					source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT, alpha, true, inputs, useFrameUniformBlock));
+		}
+
+		List<ProgramSource> passes = new ArrayList<>();
+
+		addPasses(passes, programSet.getDeferred());
+		addPasses(passes, programSet.getComposite());
+		programSet.getCompositeFinal().ifPresent(passes::add);
+
+		for (ProgramSource source : passes) {
+			boolean useFrameUniformBlock = frameUniformBlock && TriforcePatcher.canUseFrameUniformBlock(source);
+
+			// Composite passes are compiled through GlShader, which also processes the patched source.
+			addCompileTask(tasks, seen, ShaderType.VERTEX, GlShader.processShader(TriforcePatcher.patchComposite(
+					source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX, useFrameUniformBlock), EMPTY_CONSTANTS));
+			addCompileTask(tasks, seen, ShaderType.FRAGMENT, GlShader.processShader(TriforcePatcher.patchComposite(
+					source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT, useFrameUniformBlock), EMPTY_CONSTANTS));
+		}
+
+		return tasks;
+	}
+
+	private static void addPasses(List<ProgramSource> passes, ProgramSource[] sources) {
+		for (ProgramSource source : sources) {
+			// Geometry shaders aren't supported in composite passes yet, so the pipeline won't compile these.
+			if (source != null && source.isValid() && !source.hasGeometrySource()) {
+				passes.add(source);
+			}
+		}
+	}
+
+	private static void addCompileTask(List<Runnable> tasks, Set<String> seen, ShaderType type, String source) {
+		if (!seen.add(source)) {
+			return;
+		}
+
+		tasks.add(() -> {
+			RenderSystem.assertOnRenderThread();
+
+			if (!hasDriverShaderCache()) {
+				return;
+			}
+
+			// Compile errors are deliberately ignored here, they are reported once the pipeline compiles the shader.
+			int handle = GlStateManager.glCreateShader(type.id);
+			ShaderWorkarounds.safeShaderSource(handle, source);
+			GlStateManager.glCompileShader(handle);
+			GlStateManager.glDeleteShader(handle);
+		});
+	}
+
+	/**
+	 * Guesses whether the driver keeps compiled shaders in a cache, since there is no way to ask it directly. Must be
+	 * called on the render thread.
+	 */
+	private static boolean hasDriverShaderCache() {
+		if (driverShaderCache == null) {
+			driverShaderCache = detectDriverShaderCache();
+			Iris.logger.info("Driver shader cache detected: {}, {} shaders ahead of time", driverShaderCache,
+					driverShaderCache ? "compiling" : "not compiling");
+		}
+
+		return driverShaderCache;
+	}
+
+	private static boolean detectDriverShaderCache() {
+		String vendor = String.valueOf(GlUtil.getVendor()).toLowerCase(Locale.ROOT);
+		String version = String.valueOf(GlStateManager._getString(GL11C.GL_VERSION));
+
+		if (version.contains("Mesa")) {
+			// Mesa has an on-disk shader cache that is enabled by default, unless it has been explicitly disabled
+			return !"true".equals(System.getenv("MESA_SHADER_CACHE_DISABLE"))
+					&& !"true".equals(System.getenv("MESA_GLSL_CACHE_DISABLE"));
+		}
+
+		if (vendor.startsWith("nvidia")) {
+			return true;
+		}
+
+		// The proprietary AMD and Intel drivers for Windows cache shaders, other drivers of theirs may not.
+		boolean windows = Util.getPlatform() == Util.OS.WINDOWS;
+
+		return windows && (vendor.startsWith("ati") || vendor.startsWith("amd") || vendor.startsWith("intel"));
+	}
+}
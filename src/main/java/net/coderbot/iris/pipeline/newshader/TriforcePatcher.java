@@ -3,25 +3,47 @@ package net.coderbot.iris.pipeline.newshader;
 import net.coderbot.iris.Iris;
 import net.coderbot.iris.gl.blending.AlphaTest;
 import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.gl.uniform.Std140Layout;
 import net.coderbot.iris.pipeline.SodiumTerrainPipeline;
+import net.coderbot.iris.shaderpack.ProgramSource;
 import net.coderbot.iris.shaderpack.transform.BuiltinUniformReplacementTransformer;
 import net.coderbot.iris.shaderpack.transform.StringTransformations;
 import net.coderbot.iris.shaderpack.transform.Transformations;
-
+import net.coderbot.iris.shaderpack.transform.token.GlslTokens;
+import net.coderbot.iris.shaderpack.transform.token.TokenPatcher;
+import net.coderbot.iris.uniforms.FrameUniformBlock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Patches shader pack programs to run against the core profile.
+ *
+ * <p>Lines are injected through {@link Transformations}, while everything that inspects or replaces the code of the
+ * shader pack itself works on its tokens through a {@link TokenPatcher}, so that comments and parts of longer
+ * identifiers never match. All replacements for a shader are applied in a single pass at the end of patching.</p>
+ */
 public class TriforcePatcher {
-	public static void patchCommon(StringTransformations transformations, ShaderType type) {
+	public static void patchCommon(Transformations transformations, TokenPatcher patcher, ShaderType type, boolean frameUniformBlock) {
 		// TODO: Only do the NewLines patches if the source code isn't from gbuffers_lines
+		GlslTokens tokens = patcher.getTokens();
 
-		if (transformations.contains("moj_import")) {
+		if (tokens.containsIdentifier("moj_import")) {
 			throw new IllegalStateException("Iris shader programs may not use moj_import directives.");
 		}
 
-		if (transformations.contains("iris_")) {
+		if (tokens.containsIdentifierStartingWith("iris_")) {
 			throw new IllegalStateException("Detected a potential reference to unstable and internal Iris shader interfaces (iris_). This isn't currently supported.");
 		}
 
 		fixVersion(transformations);
 
+		if (frameUniformBlock) {
+			moveIntoFrameUniformBlock(transformations, patcher);
+		}
+
 		// This must be defined and valid in all shader passes, including composite passes.
 		//
 		// A shader that relies on this behavior is SEUS v11 - it reads gl_Fog.color and breaks if it is not properly
@@ -62,7 +84,7 @@ public class TriforcePatcher {
 
 
 		if (type == ShaderType.FRAGMENT) {
-			if (transformations.contains("gl_FragColor")) {
+			if (tokens.containsIdentifier("gl_FragColor")) {
 				// TODO: Find a way to properly support gl_FragColor
 				Iris.logger.warn("[Triforce Patcher] gl_FragColor is not supported yet, please use gl_FragData! Assuming that the shaderpack author intended to use gl_FragData[0]...");
 				transformations.injectLine(Transformations.InjectionPoint.DEFINES, "#define gl_FragColor iris_FragData[0]");
@@ -96,13 +118,14 @@ public class TriforcePatcher {
 		//System.out.println(transformations.toString());
 	}
 
-	public static String patchVanilla(String source, ShaderType type, AlphaTest alpha, boolean hasChunkOffset, ShaderAttributeInputs inputs) {
+	public static String patchVanilla(String source, ShaderType type, AlphaTest alpha, boolean hasChunkOffset, ShaderAttributeInputs inputs, boolean frameUniformBlock) {
 
 		StringTransformations transformations = new StringTransformations(source);
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize(transformations.getBody()));
 
-		patchCommon(transformations, type);
+		patchCommon(transformations, patcher, type, frameUniformBlock);
 
-		addAlphaTest(transformations, type, alpha);
+		addAlphaTest(transformations, patcher, type, alpha);
 
 		transformations.define("gl_ProjectionMatrix", "iris_ProjMat");
 		transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "uniform mat4 iris_ProjMat;");
@@ -159,8 +182,8 @@ public class TriforcePatcher {
 		transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "uniform mat4 iris_TextureMat;");
 
 		// TODO: More solid way to handle texture matrices
-		transformations.replaceExact("gl_TextureMatrix[0]", "iris_TextureMat");
-		transformations.replaceExact("gl_TextureMatrix[1]", "iris_LightmapTextureMatrix");
+		patcher.replaceSequence("gl_TextureMatrix[0]", "iris_TextureMat");
+		patcher.replaceSequence("gl_TextureMatrix[1]", "iris_LightmapTextureMatrix");
 
 		// TODO: Should probably add the normal matrix as a proper uniform that's computed on the CPU-side of things
 		transformations.define("gl_NormalMatrix", "mat3(transpose(inverse(gl_ModelViewMatrix)))");
@@ -199,12 +222,12 @@ public class TriforcePatcher {
 				transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "vec3 iris_vertex_offset = vec3(0.0);");
 				transformations.injectLine(Transformations.InjectionPoint.DEFINES, "#define gl_Vertex vec4(iris_Position + iris_vertex_offset, 1.0)");
 
-				if (transformations.contains("irisMain")) {
+				if (patcher.getTokens().containsIdentifier("irisMain")) {
 					throw new IllegalStateException("Shader already contains \"irisMain\"???");
 				}
 
 				// Create our own main function to wrap the existing main function, so that we can do our line shenanagains.
-				transformations.replaceExact("main", "irisMain");
+				patcher.replaceIdentifier("main", "irisMain");
 
 				transformations.injectLine(Transformations.InjectionPoint.END,
 						"uniform vec2 iris_ScreenSize;\n" +
@@ -251,17 +274,20 @@ public class TriforcePatcher {
 			transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "vec4 ftransform() { return gl_ModelViewProjectionMatrix * gl_Vertex; }");
 		}
 
+		transformations.setBody(patcher.apply());
 
 		return transformations.toString();
 	}
 
-	public static String patchSodium(String source, ShaderType type, AlphaTest alpha, ShaderAttributeInputs inputs, float positionScale, float positionOffset, float textureScale) {
+	public static String patchSodium(String source, ShaderType type, AlphaTest alpha, ShaderAttributeInputs inputs, float positionScale, float positionOffset, float textureScale, boolean frameUniformBlock) {
 		StringTransformations transformations = new StringTransformations(source);
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize(transformations.getBody()));
+		BuiltinUniformReplacementTransformer lightmapTransformer = null;
 
-		patchCommon(transformations, type);
-		addAlphaTest(transformations, type, alpha);
+		patchCommon(transformations, patcher, type, frameUniformBlock);
+		addAlphaTest(transformations, patcher, type, alpha);
 
-		transformations.replaceExact("gl_TextureMatrix[0]", "mat4(1.0)");
+		patcher.replaceSequence("gl_TextureMatrix[0]", "mat4(1.0)");
 
 		transformations.define("gl_ProjectionMatrix", "u_ProjectionMatrix");
 
@@ -273,7 +299,8 @@ public class TriforcePatcher {
 			}
 
 			if (inputs.hasLight()) {
-				new BuiltinUniformReplacementTransformer("_vert_tex_light_coord").apply(transformations);
+				lightmapTransformer = new BuiltinUniformReplacementTransformer("_vert_tex_light_coord");
+				lightmapTransformer.apply(patcher);
 			} else {
 				transformations.define("gl_MultiTexCoord1", "vec4(0.0, 0.0, 0.0, 1.0)");
 			}
@@ -328,13 +355,13 @@ public class TriforcePatcher {
 
 			transformations.define("gl_Vertex", "getVertexPosition()");
 
-			if (transformations.contains("irisMain")) {
+			if (patcher.getTokens().containsIdentifier("irisMain")) {
 				throw new IllegalStateException("Shader already contains \"irisMain\"???");
 			}
 
 			// Create our own main function to wrap the existing main function, so that we can run the alpha test at the
 			// end.
-			transformations.replaceExact("main", "irisMain");
+			patcher.replaceIdentifier("main", "irisMain");
 			transformations.injectLine(Transformations.InjectionPoint.END, "void main() {\n" +
 					"   _vert_init();\n" +
 					"\n" +
@@ -352,19 +379,25 @@ public class TriforcePatcher {
 		// Just being careful
 		transformations.define("ftransform", "iris_ftransform");
 
+		transformations.setBody(patcher.apply());
+
+		if (lightmapTransformer != null) {
+			lightmapTransformer.injectUniforms(transformations, patcher);
+		}
+
 		return transformations.toString();
 	}
 
-	public static String patchComposite(String source, ShaderType type) {
+	public static String patchComposite(String source, ShaderType type, boolean frameUniformBlock) {
 		StringTransformations transformations = new StringTransformations(source);
-		patchCommon(transformations, type);
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize(transformations.getBody()));
+		patchCommon(transformations, patcher, type, frameUniformBlock);
 
 		// TODO: More solid way to handle texture matrices
 		// TODO: Provide these values with uniforms
 
 		for (int i = 0; i < 8; i++) {
-			transformations.replaceExact("gl_TextureMatrix[" + i + "]", "mat4(1.0)");
-			transformations.replaceExact("gl_TextureMatrix [" + i + "]", "mat4(1.0)");
+			patcher.replaceSequence("gl_TextureMatrix[" + i + "]", "mat4(1.0)");
 		}
 
 		// TODO: Other fog things
@@ -404,18 +437,20 @@ public class TriforcePatcher {
 			transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "vec4 ftransform() { return gl_ModelViewProjectionMatrix * gl_Vertex; }");
 		}
 
+		transformations.setBody(patcher.apply());
+
 		return transformations.toString();
 	}
 
-	private static void addAlphaTest(StringTransformations transformations, ShaderType type, AlphaTest alpha) {
+	private static void addAlphaTest(Transformations transformations, TokenPatcher patcher, ShaderType type, AlphaTest alpha) {
 		if (type == ShaderType.FRAGMENT) {
-			if (transformations.contains("irisMain")) {
+			if (patcher.getTokens().containsIdentifier("irisMain")) {
 				throw new IllegalStateException("Shader already contains \"irisMain\"???");
 			}
 
 			// Create our own main function to wrap the existing main function, so that we can run the alpha test at the
 			// end.
-			transformations.replaceExact("main", "irisMain");
+			patcher.replaceIdentifier("main", "irisMain");
 			transformations.injectLine(Transformations.InjectionPoint.END, "void main() {\n" +
 					"    irisMain();\n" +
 					"\n" +
@@ -424,6 +459,152 @@ public class TriforcePatcher {
 		}
 	}
 
+	/**
+	 * Returns whether all of the given shaders of a program can read the per-frame uniforms from the
+	 * {@link FrameUniformBlock}. Null sources, such as a missing geometry shader, are skipped.
+	 *
+	 * <p>Only plain declarations like {@code uniform vec3 cameraPosition;} or {@code uniform float viewWidth, viewHeight;}
+	 * with the same type as the block member can be replaced. Since the declaration of the block must be the same in
+	 * every shader of a program, it always declares every member, so none of the shaders may reference a member of the
+	 * block in any other way. Otherwise, a member would be declared both as a plain uniform and in the block, and the
+	 * program would fail to link. This has to be decided once for the whole program, and the result passed to every
+	 * {@code patch} call for its shaders.</p>
+	 */
+	public static boolean canUseFrameUniformBlock(String... sources) {
+		for (String source : sources) {
+			if (source == null) {
+				continue;
+			}
+
+			GlslTokens tokens = GlslTokens.tokenize(source);
+			Set<String> moved = findMovedUniforms(findUniformDeclarations(tokens));
+
+			for (Std140Layout.Member member : FrameUniformBlock.LAYOUT.getMembers()) {
+				if (!moved.contains(member.getName()) && tokens.containsIdentifier(member.getName())) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	public static boolean canUseFrameUniformBlock(ProgramSource source) {
+		return canUseFrameUniformBlock(source.getVertexSource().orElse(null), source.getGeometrySource().orElse(null),
+				source.getFragmentSource().orElse(null));
+	}
+
+	/**
+	 * Replaces the declarations of the uniforms in the {@link FrameUniformBlock} with a declaration of that block, so
+	 * that they're read from a uniform buffer instead. This must only be done if
+	 * {@link #canUseFrameUniformBlock(String...)} returned true for the program that the shader belongs to.
+	 */
+	private static void moveIntoFrameUniformBlock(Transformations transformations, TokenPatcher patcher) {
+		List<UniformDeclaration> declarations = findUniformDeclarations(patcher.getTokens());
+		Set<String> moved = findMovedUniforms(declarations);
+
+		if (moved.isEmpty()) {
+			return;
+		}
+
+		for (UniformDeclaration declaration : declarations) {
+			List<String> kept = new ArrayList<>(declaration.names);
+			kept.removeAll(moved);
+
+			if (kept.size() != declaration.names.size()) {
+				patcher.replaceSequence(declaration.text,
+						kept.isEmpty() ? "" : "uniform " + declaration.type + " " + String.join(", ", kept) + ";");
+			}
+		}
+
+		transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE,
+				FrameUniformBlock.LAYOUT.declare(FrameUniformBlock.NAME));
+	}
+
+	private static Set<String> findMovedUniforms(List<UniformDeclaration> declarations) {
+		Set<String> moved = new HashSet<>();
+
+		for (UniformDeclaration declaration : declarations) {
+			for (String name : declaration.names) {
+				Std140Layout.Member member = FrameUniformBlock.LAYOUT.getMember(name);
+
+				if (member != null && member.getType().getGlslName().equals(declaration.type)) {
+					moved.add(name);
+				}
+			}
+		}
+
+		return moved;
+	}
+
+	/**
+	 * Finds the declarations of the form {@code uniform <type> <name>, <name>, ...;} without any qualifiers, arrays, or
+	 * initializers.
+	 */
+	private static List<UniformDeclaration> findUniformDeclarations(GlslTokens tokens) {
+		List<UniformDeclaration> declarations = new ArrayList<>();
+
+		for (int token = 0; token < tokens.size(); token++) {
+			if (tokens.getType(token) != GlslTokens.Type.IDENTIFIER || !tokens.textEquals(token, "uniform")) {
+				continue;
+			}
+
+			int next = skipTrivia(tokens, token + 1);
+
+			if (next == tokens.size() || tokens.getType(next) != GlslTokens.Type.IDENTIFIER) {
+				continue;
+			}
+
+			String type = tokens.getText(next);
+			List<String> names = new ArrayList<>();
+			StringBuilder text = new StringBuilder("uniform ").append(type);
+
+			while (true) {
+				next = skipTrivia(tokens, next + 1);
+
+				if (next == tokens.size() || tokens.getType(next) != GlslTokens.Type.IDENTIFIER) {
+					break;
+				}
+
+				names.add(tokens.getText(next));
+				text.append(' ').append(tokens.getText(next));
+				next = skipTrivia(tokens, next + 1);
+
+				if (next < tokens.size() && tokens.textEquals(next, ";")) {
+					declarations.add(new UniformDeclaration(type, names, text.append(';').toString()));
+					break;
+				} else if (next == tokens.size() || !tokens.textEquals(next, ",")) {
+					break;
+				}
+
+				text.append(',');
+			}
+		}
+
+		return declarations;
+	}
+
+	private static class UniformDeclaration {
+		private final String type;
+		private final List<String> names;
+		// Matches the declaration token by token
+		private final String text;
+
+		UniformDeclaration(String type, List<String> names, String text) {
+			this.type = type;
+			this.names = names;
+			this.text = text;
+		}
+	}
+
+	private static int skipTrivia(GlslTokens tokens, int token) {
+		while (token < tokens.size() && tokens.isTrivia(token)) {
+			token++;
+		}
+
+		return token;
+	}
+
 	private static void fixVersion(Transformations transformations) {
 		String prefix = transformations.getPrefix();
 		int split = prefix.indexOf("#version");
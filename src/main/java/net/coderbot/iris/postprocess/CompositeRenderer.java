@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -35,7 +36,9 @@ import net.coderbot.iris.shaderpack.ProgramSource;
 import net.coderbot.iris.shadows.ShadowMapRenderer;
 import net.coderbot.iris.uniforms.CommonUniforms;
 import net.coderbot.iris.uniforms.IrisInternalUniforms;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.Minecraft;
 import org.lwjgl.opengl.GL15C;
@@ -50,20 +53,27 @@ public class CompositeRenderer {
 	private final ImmutableList<Pass> passes;
 	private final IntSupplier noiseTexture;
 	private final FrameUpdateNotifier updateNotifier;
+	private final CustomUniforms customUniforms;
+	private final FrameUniformCache uniformCache;
 	private final CenterDepthSampler centerDepthSampler;
 	private final Object2ObjectMap<String, IntSupplier> customTextureIds;
+	private final Supplier<ShadowMapRenderer> shadowMapRendererSupplier;
 	private final ImmutableSet<Integer> flippedAtLeastOnceFinal;
 
 	public CompositeRenderer(PackDirectives packDirectives, ProgramSource[] sources, RenderTargets renderTargets,
-							 IntSupplier noiseTexture, FrameUpdateNotifier updateNotifier,
+							 IntSupplier noiseTexture, FrameUpdateNotifier updateNotifier, CustomUniforms customUniforms,
+							 FrameUniformCache uniformCache,
 							 CenterDepthSampler centerDepthSampler, BufferFlipper bufferFlipper,
 							 Supplier<ShadowMapRenderer> shadowMapRendererSupplier,
 							 Object2ObjectMap<String, IntSupplier> customTextureIds, ImmutableMap<Integer, Boolean> explicitPreFlips) {
 		this.noiseTexture = noiseTexture;
 		this.updateNotifier = updateNotifier;
+		this.customUniforms = customUniforms;
+		this.uniformCache = uniformCache;
 		this.centerDepthSampler = centerDepthSampler;
 		this.renderTargets = renderTargets;
 		this.customTextureIds = customTextureIds;
+		this.shadowMapRendererSupplier = shadowMapRendererSupplier;
 
 		final PackRenderTargetDirectives renderTargetDirectives = packDirectives.getRenderTargetDirectives();
 		final Map<Integer, PackRenderTargetDirectives.RenderTargetSettings> renderTargetSettings =
@@ -90,6 +100,7 @@ public class CompositeRenderer {
 			ImmutableSet<Integer> flipped = bufferFlipper.snapshot();
 			ImmutableSet<Integer> flippedAtLeastOnceSnapshot = flippedAtLeastOnce.build();
 
+			pass.source = source;
 			pass.program = createProgram(source, flipped, flippedAtLeastOnceSnapshot, shadowMapRendererSupplier);
 			int[] drawBuffers = directives.getDrawBuffers();
 
@@ -134,7 +145,75 @@ public class CompositeRenderer {
 		return this.flippedAtLeastOnceFinal;
 	}
 
+	/**
+	 * Checks whether the given programs can take the place of the programs of the current passes. This is the case if
+	 * the same passes write to the same buffers and flip them in the same way, so that the framebuffers and the buffers
+	 * that every pass reads from stay the same.
+	 */
+	public boolean canReplacePrograms(ProgramSource[] sources) {
+		int index = 0;
+
+		for (ProgramSource source : sources) {
+			if (source == null || !source.isValid()) {
+				continue;
+			}
+
+			if (index >= passes.size()) {
+				return false;
+			}
+
+			ProgramSource previous = passes.get(index).source;
+			ProgramDirectives directives = source.getDirectives();
+
+			if (!previous.getName().equals(source.getName())
+					|| !Arrays.equals(previous.getDirectives().getDrawBuffers(), directives.getDrawBuffers())
+					|| !previous.getDirectives().getExplicitFlips().equals(directives.getExplicitFlips())) {
+				return false;
+			}
+
+			index += 1;
+		}
+
+		return index == passes.size();
+	}
+
+	/**
+	 * Recreates the programs of the passes whose sources have changed, keeping everything else. Only valid if
+	 * {@link #canReplacePrograms(ProgramSource[])} returned true for the same programs.
+	 *
+	 * @return the number of programs that were recreated
+	 */
+	public int replacePrograms(ProgramSource[] sources) {
+		int index = 0;
+		int replaced = 0;
+
+		for (ProgramSource source : sources) {
+			if (source == null || !source.isValid()) {
+				continue;
+			}
+
+			Pass pass = passes.get(index);
+			index += 1;
+
+			if (!pass.source.hasSameSources(source)) {
+				Program program = createProgram(source, pass.stageReadsFromAlt, pass.flippedAtLeastOnce,
+						shadowMapRendererSupplier);
+
+				pass.destroy();
+				pass.program = program;
+				replaced += 1;
+			}
+
+			pass.source = source;
+			pass.viewportScale = source.getDirectives().getViewportScale();
+			pass.mipmappedBuffers = source.getDirectives().getMipmappedBuffers();
+		}
+
+		return replaced;
+	}
+
 	private static final class Pass {
+		ProgramSource source;
 		Program program;
 		GlFramebuffer framebuffer;
 		ImmutableSet<Integer> flippedAtLeastOnce;
@@ -216,14 +295,15 @@ public class CompositeRenderer {
 	// TODO: Don't just copy this from DeferredWorldRenderingPipeline
 	private Program createProgram(ProgramSource source, ImmutableSet<Integer> flipped, ImmutableSet<Integer> flippedAtLeastOnceSnapshot,
 														   Supplier<ShadowMapRenderer> shadowMapRendererSupplier) {
-		String vertex = TriforcePatcher.patchComposite(source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX);
+		boolean frameUniformBlock = uniformCache.getFrameUniforms() != null && TriforcePatcher.canUseFrameUniformBlock(source);
+		String vertex = TriforcePatcher.patchComposite(source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX, frameUniformBlock);
 
 		if (source.getGeometrySource().isPresent()) {
 			// TODO(21w10a): support geometry shaders
 			throw new RuntimeException("Geometry shaders are not supported yet.");
 		}
 
-		String fragment = TriforcePatcher.patchComposite(source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT);
+		String fragment = TriforcePatcher.patchComposite(source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT, frameUniformBlock);
 
 		ProgramBuilder builder;
 
@@ -237,7 +317,7 @@ public class CompositeRenderer {
 
 		ProgramSamplers.CustomTextureSamplerInterceptor customTextureSamplerInterceptor = ProgramSamplers.customTextureSamplerInterceptor(builder, customTextureIds, flippedAtLeastOnceSnapshot);
 
-		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, FogMode.OFF);
+		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, FogMode.OFF, customUniforms, uniformCache);
 		IrisSamplers.addRenderTargetSamplers(customTextureSamplerInterceptor, () -> flipped, renderTargets, true);
 		IrisImages.addRenderTargetImages(builder, () -> flipped, renderTargets);
 
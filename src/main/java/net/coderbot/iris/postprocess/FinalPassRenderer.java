@@ -29,7 +29,9 @@ import net.coderbot.iris.shaderpack.ProgramSource;
 import net.coderbot.iris.shadows.ShadowMapRenderer;
 import net.coderbot.iris.uniforms.CommonUniforms;
 import net.coderbot.iris.uniforms.IrisInternalUniforms;
+import net.coderbot.iris.uniforms.FrameUniformCache;
 import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.Minecraft;
 import org.jetbrains.annotations.Nullable;
@@ -51,23 +53,31 @@ public class FinalPassRenderer {
 
 	@Nullable
 	private final Pass finalPass;
+	private final Supplier<ShadowMapRenderer> shadowMapRendererSupplier;
 	private final ImmutableList<SwapPass> swapPasses;
 	private final GlFramebuffer baseline;
 	private final IntSupplier noiseTexture;
 	private final FrameUpdateNotifier updateNotifier;
+	private final CustomUniforms customUniforms;
+	private final FrameUniformCache uniformCache;
 	private final CenterDepthSampler centerDepthSampler;
 	private final Object2ObjectMap<String, IntSupplier> customTextureIds;
 
 	// TODO: The length of this argument list is getting a bit ridiculous
 	public FinalPassRenderer(ProgramSet pack, RenderTargets renderTargets, IntSupplier noiseTexture,
-							 FrameUpdateNotifier updateNotifier, ImmutableSet<Integer> flippedBuffers,
+							 FrameUpdateNotifier updateNotifier, CustomUniforms customUniforms,
+							 FrameUniformCache uniformCache,
+							 ImmutableSet<Integer> flippedBuffers,
 							 CenterDepthSampler centerDepthSampler,
 							 Supplier<ShadowMapRenderer> shadowMapRendererSupplier,
 							 Object2ObjectMap<String, IntSupplier> customTextureIds,
 							 ImmutableSet<Integer> flippedAtLeastOnce) {
 		this.updateNotifier = updateNotifier;
+		this.customUniforms = customUniforms;
+		this.uniformCache = uniformCache;
 		this.centerDepthSampler = centerDepthSampler;
 		this.customTextureIds = customTextureIds;
+		this.shadowMapRendererSupplier = shadowMapRendererSupplier;
 
 		final PackRenderTargetDirectives renderTargetDirectives = pack.getPackDirectives().getRenderTargetDirectives();
 		final Map<Integer, PackRenderTargetDirectives.RenderTargetSettings> renderTargetSettings =
@@ -79,8 +89,10 @@ public class FinalPassRenderer {
 			Pass pass = new Pass();
 			ProgramDirectives directives = source.getDirectives();
 
+			pass.source = source;
 			pass.program = createProgram(source, flippedBuffers, flippedAtLeastOnce, shadowMapRendererSupplier);
 			pass.stageReadsFromAlt = flippedBuffers;
+			pass.flippedAtLeastOnce = flippedAtLeastOnce;
 			pass.mipmappedBuffers = directives.getMipmappedBuffers();
 
 			return pass;
@@ -120,9 +132,48 @@ public class FinalPassRenderer {
 		GlStateManager._glBindFramebuffer(GL30C.GL_READ_FRAMEBUFFER, 0);
 	}
 
+	/**
+	 * Checks whether the final program of the given programs can take the place of the current final program, which
+	 * is the case if both exist or both don't exist.
+	 */
+	public boolean canReplacePrograms(ProgramSet programSet) {
+		return programSet.getCompositeFinal().isPresent() == (finalPass != null);
+	}
+
+	/**
+	 * Recreates the final program if its sources have changed. Only valid if
+	 * {@link #canReplacePrograms(ProgramSet)} returned true for the same programs.
+	 *
+	 * @return the number of programs that were recreated
+	 */
+	public int replacePrograms(ProgramSet programSet) {
+		if (finalPass == null) {
+			return 0;
+		}
+
+		ProgramSource source = programSet.getCompositeFinal().orElseThrow(IllegalStateException::new);
+		int replaced = 0;
+
+		if (!finalPass.source.hasSameSources(source)) {
+			Program program = createProgram(source, finalPass.stageReadsFromAlt, finalPass.flippedAtLeastOnce,
+					shadowMapRendererSupplier);
+
+			finalPass.destroy();
+			finalPass.program = program;
+			replaced = 1;
+		}
+
+		finalPass.source = source;
+		finalPass.mipmappedBuffers = source.getDirectives().getMipmappedBuffers();
+
+		return replaced;
+	}
+
 	private static final class Pass {
+		ProgramSource source;
 		Program program;
 		ImmutableSet<Integer> stageReadsFromAlt;
+		ImmutableSet<Integer> flippedAtLeastOnce;
 		ImmutableSet<Integer> mipmappedBuffers;
 
 		private void destroy() {
@@ -249,14 +300,15 @@ public class FinalPassRenderer {
 	// TODO: Don't just copy this from DeferredWorldRenderingPipeline
 	private Program createProgram(ProgramSource source, ImmutableSet<Integer> flipped, ImmutableSet<Integer> flippedAtLeastOnceSnapshot,
 								  Supplier<ShadowMapRenderer> shadowMapRendererSupplier) {
-		String vertex = TriforcePatcher.patchComposite(source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX);
+		boolean frameUniformBlock = uniformCache.getFrameUniforms() != null && TriforcePatcher.canUseFrameUniformBlock(source);
+		String vertex = TriforcePatcher.patchComposite(source.getVertexSource().orElseThrow(RuntimeException::new), ShaderType.VERTEX, frameUniformBlock);
 
 		if (source.getGeometrySource().isPresent()) {
 			// TODO(21w10a): support geometry shaders
 			throw new RuntimeException("Geometry shaders are not supported yet.");
 		}
 
-		String fragment = TriforcePatcher.patchComposite(source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT);
+		String fragment = TriforcePatcher.patchComposite(source.getFragmentSource().orElseThrow(RuntimeException::new), ShaderType.FRAGMENT, frameUniformBlock);
 
 		Objects.requireNonNull(flipped);
 
@@ -272,7 +324,7 @@ public class FinalPassRenderer {
 
 		ProgramSamplers.CustomTextureSamplerInterceptor customTextureSamplerInterceptor = ProgramSamplers.customTextureSamplerInterceptor(builder, customTextureIds, flippedAtLeastOnceSnapshot);
 
-		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, FogMode.OFF);
+		CommonUniforms.addCommonUniforms(builder, source.getParent().getPack().getIdMap(), source.getParent().getPackDirectives(), updateNotifier, FogMode.OFF, customUniforms, uniformCache);
 		IrisSamplers.addRenderTargetSamplers(customTextureSamplerInterceptor, () -> flipped, renderTargets, true);
 		IrisImages.addRenderTargetImages(builder, () -> flipped, renderTargets);
 		IrisSamplers.addNoiseSampler(customTextureSamplerInterceptor, noiseTexture);
@@ -7,19 +7,12 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 import static net.coderbot.iris.shaderpack.DefineOptionParser.*;
 
 public class ConstOptionParser {
 
-	private static final Pattern CONST_BOOLEAN_PATTERN = Pattern.compile("const\\s+bool\\s+(?<name>\\w+)\\s*=\\s*(?<value>true|false)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
-
-	private static final Pattern CONST_FLOAT_PATTERN = Pattern.compile("const\\s+float\\s+(?<name>\\w+)\\s*=\\s*(?<value>-?[\\d.fF]+)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
-
-	private static final Pattern CONST_INT_PATTERN = Pattern.compile("const\\s+int\\s+(?<name>\\w+)\\s*=\\s*(?<value>-?\\d+)\\s*;\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
-
 	private static final Set<String> CONST_VARIABLE_NAMES = Util.make(new HashSet<>(), (set) -> {
 		set.add("shadowMapResolution");
 		set.add("shadowMapFov");
@@ -61,66 +54,51 @@ public class ConstOptionParser {
 
 
 	public static LineTransform processConstOptions(ShaderPackConfig config) {
-		return (index, line) -> {
-			String trimmedLine = line.trim();
+		return processConstOptions(config, name -> {});
+	}
 
-			Matcher booleanMatcher = CONST_BOOLEAN_PATTERN.matcher(trimmedLine);
-			Matcher floatMatcher = CONST_FLOAT_PATTERN.matcher(trimmedLine);
-			Matcher intMatcher = CONST_INT_PATTERN.matcher(trimmedLine);
+	/**
+	 * @param discovered called with the name of each option that is found and synced with the config
+	 */
+	public static LineTransform processConstOptions(ShaderPackConfig config, Consumer<String> discovered) {
+		OptionLineScanner scanner = new OptionLineScanner();
+		OptionRegistry registry = config.getRegistry();
 
-			if (!booleanMatcher.matches() && !floatMatcher.matches() && !intMatcher.matches()) {
+		return (index, line) -> {
+			OptionLineScanner.Kind kind = scanner.scan(line);
+
+			if (kind != OptionLineScanner.Kind.CONST_BOOLEAN && kind != OptionLineScanner.Kind.CONST_FLOAT
+					&& kind != OptionLineScanner.Kind.CONST_INT) {
 				return line;
 			}
 
-			if (booleanMatcher.matches()) {
-				String name = group(booleanMatcher, "name");
-				String value = group(booleanMatcher, "value");
-				String comment = group(booleanMatcher, "commentContent");
+			String name = scanner.getName();
 
-				if (name == null || value == null)
-					return line; //not sure how this is possible since the regex matches, but to be safe we will ignore it
+			if (!CONST_VARIABLE_NAMES.contains(name)) {
+				return line;
+			}
 
-				if (!CONST_VARIABLE_NAMES.contains(name)) {
-					return line;
-				}
+			String value = scanner.getValue();
+			String comment = scanner.getCommentContent();
 
+			if (kind == OptionLineScanner.Kind.CONST_BOOLEAN) {
 				Option<Boolean> booleanOption = createConstBooleanOption(name, value, comment, config);
+				discovered.accept(name);
 
-				return trimmedLine.replaceFirst(value, booleanOption.getValue().toString());
-			} else if (floatMatcher.matches()) {
-				String name = group(floatMatcher, "name");
-				String value = group(floatMatcher, "value");
-				String comment = group(floatMatcher, "commentContent");
-
-				if (name == null || value == null)
-					return line; //not sure how this is possible since the regex matches, but to be safe we will ignore it
-
-				if (!CONST_VARIABLE_NAMES.contains(name)) {
-					return line;
-				}
-
+				return scanner.replaceValue(Boolean.toString(registry.getBoolean(booleanOption.getId())));
+			} else if (kind == OptionLineScanner.Kind.CONST_FLOAT) {
 				Option<Float> floatOption = createFloatOption(name, comment, value, config);
 
 				if (floatOption != null) {
-					return trimmedLine.replaceFirst(value, floatOption.getValue().toString());
+					discovered.accept(name);
+					return scanner.replaceValue(Float.toString(registry.getFloat(floatOption.getId())));
 				}
-
-			} else if (intMatcher.matches()) {
-				String name = group(intMatcher, "name");
-				String value = group(intMatcher, "value");
-				String comment = group(intMatcher, "commentContent");
-
-				if (name == null || value == null)
-					return line; //not sure how this is possible since the regex matches, but to be safe we will ignore it
-
-				if (!CONST_VARIABLE_NAMES.contains(name)) {
-					return line;
-				}
-
+			} else {
 				Option<Integer> integerOption = createIntegerOption(name, comment, value, config);
 
 				if (integerOption != null) {
-					return trimmedLine.replaceFirst(value, integerOption.getValue().toString());
+					discovered.accept(name);
+					return scanner.replaceValue(Integer.toString(registry.getInt(integerOption.getId())));
 				}
 			}
 
@@ -6,22 +6,12 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class DefineOptionParser {
-	/*
-	 Regex for matching boolean options
-	  Match if or if not the line starts with anynumber of backslashes that are more than 2 ("//")
-	  Match 0 or more whitspace after the "//"
-	  Match the #define
-	  Match 1 whitespace after that
-	  Match any letter, number, or underscore name
-	  Match 0 or more whitespace after that
-	  Match any comments on the option after that
-	 */
-	private static final Pattern BOOLEAN_OPTION_PATTERN = Pattern.compile("(?<startingComment>//+)?\\s*(?<define>#define)\\s+(?<name>\\w+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
 	/*
 	  Regex for matching ifdef patterns for boolean options
 	  Match the ifdef or ifndef keyword
@@ -29,89 +19,51 @@ public class DefineOptionParser {
 	  match a word that is the name of the keyword
 	 */
 	private static final Pattern IFDEF_IFNDEF_PATTERN = Pattern.compile("(?<ifdef>#ifdef|#ifndef)\\s+(?<name>\\w+)");
-	/*
-	   Regex that matches for integer and float options
-	   Match 1 or more whitespace after #define
-	   match a word (name of the option). Put in parenthesis for grouping
-	   match 1 or more whitespace after the name
-	      match a negative if there
-	      match f or F float keyword
-	      match 0-9
-	      match a "." for floats
-	   match 1 or more of the char group
-	   match 0 or more whitespace
-	   match if there is a comment following the line or not
-	 */
-	private static final Pattern FLOAT_INTEGER_OPTION_PATTERN = Pattern.compile("(?<define>#define)\\s+(?<name>\\w+)\\s+(?<value>-?[\\d.fF]+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
-	/*
-	 Regex that matches for only integers and not floats
-	 Same as above but in the char class we remove the float specific checks
-		remove matching a "."
-		remove matching a "f" or a "F"
-	 */
-	private static final Pattern INTEGER_OPTION_PATTERN = Pattern.compile("(?<define>#define)\\s+(?<name>\\w+)\\s+(?<value>-?\\d+)\\s*(?<comment>(?<commentChar>//+)(?<commentContent>.*))?");
-
 
 	public static LineTransform processConfigOptions(ShaderPackConfig config) {
-		return (index, line) -> {
-			String trimmedLine = line.trim();
+		return processConfigOptions(config, name -> {});
+	}
+
+	/**
+	 * @param discovered called with the name of each option that is found and synced with the config
+	 */
+	public static LineTransform processConfigOptions(ShaderPackConfig config, Consumer<String> discovered) {
+		OptionLineScanner scanner = new OptionLineScanner();
+		OptionRegistry registry = config.getRegistry();
 
-			Matcher booleanMatcher = BOOLEAN_OPTION_PATTERN.matcher(trimmedLine);
-			Matcher numberMatcher = FLOAT_INTEGER_OPTION_PATTERN.matcher(trimmedLine);
+		return (index, line) -> {
+			OptionLineScanner.Kind kind = scanner.scan(line);
 
-			if (!booleanMatcher.matches() && !numberMatcher.matches()) {
+			if (kind != OptionLineScanner.Kind.DEFINE_BOOLEAN && kind != OptionLineScanner.Kind.DEFINE_NUMBER) {
 				return line;
 			}
 
-			if (booleanMatcher.matches()) {
+			if (scanner.nameStartsWith("MC_")) {
+				return line;
+			}
 
-				String name = group(booleanMatcher, "name");
-				String startingComment = group(booleanMatcher, "startingComment");
-				String trailingComment = group(booleanMatcher, "commentContent");
+			String name = scanner.getName();
+			String comment = scanner.getCommentContent();
 
-				if (name == null)
-					return line; //continue if the name is not apparent. Not sure how this is possible if the regex matches, but to be safe, let's ignore it
+			if (kind == OptionLineScanner.Kind.DEFINE_BOOLEAN) {
+				// Create a boolean option and sync it with the config
+				Option<Boolean> option = createBooleanOption(name, comment, scanner.isCommentedOut(), config);
+				discovered.accept(name);
 
+				return applyBooleanOption(registry.getBoolean(option.getId()), scanner);
+			} else if (!scanner.isIntegerValue()) { // If it is a float
+				Option<Float> floatOption = createFloatOption(name, comment, scanner.getValue(), config);
 
-				if (name.startsWith("MC_")) {
-					return line;
+				if (floatOption != null) {
+					discovered.accept(name);
+					return scanner.replaceValue(Float.toString(registry.getFloat(floatOption.getId())));
 				}
+			} else { // If it is a int option
+				Option<Integer> integerOption = createIntegerOption(name, comment, scanner.getValue(), config);
 
-
-				Option<Boolean> option = createBooleanOption(name, trailingComment, startingComment, config); // Create a boolean option and sync it with the config
-
-				return applyBooleanOption(option, trimmedLine, startingComment);
-			} else if (numberMatcher.matches()) { // Matches floats and int options
-				Matcher integerMatcher = INTEGER_OPTION_PATTERN.matcher(trimmedLine); // Check if it is explicitly integer
-				if (!integerMatcher.matches()) { // If it is a float
-					String name = group(numberMatcher, "name");
-					String value = group(numberMatcher, "value");
-					String comment = group(numberMatcher, "commentContent");
-
-					if (name == null || value == null) return line; // If null, continue
-
-					if (name.startsWith("MC_")) return line;
-
-					Option<Float> floatOption = createFloatOption(name, comment, value, config);
-
-					if (floatOption != null) {
-						return trimmedLine.replaceFirst(value, floatOption.getValue().toString());
-					}
-
-				} else { // If it is a int option
-					String name = group(integerMatcher, "name");
-					String value = group(integerMatcher, "value");
-					String comment = group(integerMatcher, "commentContent");
-
-					if (name == null || value == null) return line;
-
-					if (name.startsWith("MC_")) return line;
-
-					Option<Integer> integerOption = createIntegerOption(name, comment, value, config);
-
-					if (integerOption != null) {
-						return trimmedLine.replaceFirst(value, integerOption.getValue().toString());
-					}
+				if (integerOption != null) {
+					discovered.accept(name);
+					return scanner.replaceValue(Integer.toString(registry.getInt(integerOption.getId())));
 				}
 			}
 
@@ -139,30 +91,30 @@ public class DefineOptionParser {
 		return false;
 	}
 
-	private static String applyBooleanOption(Option<Boolean> option, String line, String startingComment) {
-		if (option.getValue() && startingComment != null) {
-			return line.substring(startingComment.length());
+	private static String applyBooleanOption(boolean value, OptionLineScanner scanner) {
+		if (value && scanner.isCommentedOut()) {
+			return scanner.getUncommentedLine();
 
 			// If the option is false but there is no comment at the beginning
 			// This indicates that the option in the config is false, but the line is true
-		} else if (!option.getValue() && startingComment == null) {
-			return "//" + line;
+		} else if (!value && !scanner.isCommentedOut()) {
+			return "//" + scanner.getTrimmedLine();
 		}
 
-		return line;
+		return scanner.getTrimmedLine();
 	}
 
 	/**
 	 * Creates an boolean option that is synced with a config based on members of a line
 	 *
-	 * @param name            name of option
-	 * @param comment         comment of option
-	 * @param startingComment the comment in front of "#define" to determine the boolean options default value
-	 * @param config          config instance to sync
+	 * @param name          name of option
+	 * @param comment       comment of option
+	 * @param commentedOut  whether there is a comment in front of "#define", which determines the default value
+	 * @param config        config instance to sync
 	 * @return a new option
 	 */
-	private static Option<Boolean> createBooleanOption(String name, String comment, String startingComment, ShaderPackConfig config) {
-		boolean defaultValue = startingComment == null; // If the starting comment is not present, then it is default on, otherwise it is off
+	private static Option<Boolean> createBooleanOption(String name, String comment, boolean commentedOut, ShaderPackConfig config) {
+		boolean defaultValue = !commentedOut; // If the starting comment is not present, then it is default on, otherwise it is off
 
 		Option<Boolean> booleanOption = new Option<>(comment, Arrays.asList(true, false), name, defaultValue, Boolean::parseBoolean);
 
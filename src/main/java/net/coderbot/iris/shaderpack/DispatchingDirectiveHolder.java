@@ -26,15 +26,24 @@ public class DispatchingDirectiveHolder implements DirectiveHolder {
 		vec4ConstVariables = new HashMap<>();
 	}
 
+	public void processDirectives(SourceDirectives directives) {
+		for (ConstDirectiveParser.ConstDirective directive : directives.getConstDirectives()) {
+			processDirective(directive);
+		}
+	}
+
 	public void processDirective(ConstDirectiveParser.ConstDirective directive) {
 		final ConstDirectiveParser.Type type = directive.getType();
 		final String key = directive.getKey();
-		final String value = directive.getValue();
 
+		// Values are only read out of the source once we know that something is listening for the directive, since
+		// most const declarations in a shader pack aren't directives at all.
 		if (type == ConstDirectiveParser.Type.BOOL) {
 			BooleanConsumer consumer = booleanConstVariables.get(key);
 
 			if (consumer != null) {
+				String value = directive.getValue();
+
 				if ("true".equals(value)) {
 					consumer.accept(true);
 				} else if ("false".equals(value)) {
@@ -60,7 +69,7 @@ public class DispatchingDirectiveHolder implements DirectiveHolder {
 			Consumer<String> stringConsumer = stringConstVariables.get(key);
 
 			if (stringConsumer != null) {
-				stringConsumer.accept(value);
+				stringConsumer.accept(directive.getValue());
 
 				return;
 			}
@@ -69,7 +78,7 @@ public class DispatchingDirectiveHolder implements DirectiveHolder {
 
 			if (intConsumer != null) {
 				try {
-					intConsumer.accept(Integer.parseInt(value));
+					intConsumer.accept(Integer.parseInt(directive.getValue()));
 				} catch (NumberFormatException e) {
 					Iris.logger.error("Failed to process " + directive, e);
 				}
@@ -90,7 +99,7 @@ public class DispatchingDirectiveHolder implements DirectiveHolder {
 
 			if (consumer != null) {
 				try {
-					consumer.accept(Float.parseFloat(value));
+					consumer.accept(Float.parseFloat(directive.getValue()));
 				} catch (NumberFormatException e) {
 					Iris.logger.error("Failed to process " + directive, e);
 				}
@@ -111,6 +120,8 @@ public class DispatchingDirectiveHolder implements DirectiveHolder {
 			Consumer<Vector4f> consumer = vec4ConstVariables.get(key);
 
 			if (consumer != null) {
+				String value = directive.getValue();
+
 				if (!value.startsWith("vec4")) {
 					Iris.logger.error("Failed to process " + directive + ": value was not a valid vec4 constructor");
 				}
@@ -11,6 +11,7 @@ import net.coderbot.iris.Iris;
  * Represents a config option
  * Stores all information about a config option
  * The instance of ShaderpackConfig should change tweak that to the value that is stored
+ * Once the option is registered with a config, its value is stored in the {@link OptionRegistry} of that config
  *
  * @param <T> the option type (boolean, int, float)
  */
@@ -20,7 +21,11 @@ public class Option<T> {
 	private final String name;
 	private final T defaultValue;
 	private final Function<String, T> deserializer;
+	private final OptionRegistry.Type type;
+	// Only used until the option is registered
 	private T value;
+	private OptionRegistry registry;
+	private int id = -1;
 
 	public Option(String comment, List<T> allowedValues, String name, T defaultValue, Function<String, T> parser) {
 		this.comment = comment == null ? "" : comment.trim();
@@ -35,6 +40,34 @@ public class Option<T> {
 		}
 		this.defaultValue = defaultValue;
 		this.deserializer = parser;
+		this.type = OptionRegistry.Type.of(defaultValue);
+	}
+
+	/**
+	 * Moves the value of this option into a registry. If another option with the same name and type was registered
+	 * before, this option takes over its value, otherwise the value is read from the properties if present.
+	 *
+	 * @param registry the registry to store the value in
+	 * @param properties the properties to load the value from
+	 */
+	void register(OptionRegistry registry, Properties properties) {
+		if (this.registry == registry) {
+			return;
+		}
+
+		int id = registry.intern(this.name);
+		boolean assigned = registry.isAssigned(id, type);
+
+		if (!assigned) {
+			registry.set(id, type, this.value);
+		}
+
+		this.registry = registry;
+		this.id = id;
+
+		if (!assigned && properties.containsKey(this.name)) {
+			load(properties);
+		}
 	}
 
 	/**
@@ -48,7 +81,7 @@ public class Option<T> {
 			properties.remove(this.name);
 			return;
 		}
-		properties.put(this.name, this.value.toString());
+		properties.put(this.name, getValue().toString());
 	}
 
 	/**
@@ -64,6 +97,16 @@ public class Option<T> {
 		return name;
 	}
 
+	/**
+	 * Returns the id of this option in the {@link OptionRegistry} that stores its value, or -1 if it hasn't been
+	 * registered yet
+	 *
+	 * @return the id of this option
+	 */
+	public int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the list of allowed values that {@link Option#value can be set to}
 	 * Please check if a value is in this list before calling {@link Option#setValue(Object)}
@@ -93,8 +136,13 @@ public class Option<T> {
 	 *
 	 * @return current value
 	 */
+	@SuppressWarnings("unchecked")
 	public T getValue() {
-		return value;
+		if (registry == null) {
+			return value;
+		}
+
+		return (T) registry.get(id, type);
 	}
 
 	/**
@@ -106,12 +154,17 @@ public class Option<T> {
 		if (!this.allowedValues.isEmpty()) {//if it's empty then we can set it to any value, else check if the value is inside the list
 			if (!this.allowedValues.contains(value)) { //if the value is not inside the list, notify the user
 				//TODO maybe throw an exception instead?
-				Iris.logger.error("Cannot set {} from option {} in a config option to {} when {} is not inside the config list (elements: {})", this.value, this.name, value, value, this.allowedValues);
+				Iris.logger.error("Cannot set {} from option {} in a config option to {} when {} is not inside the config list (elements: {})", getValue(), this.name, value, value, this.allowedValues);
 				Iris.logger.error("You currently have set {} to {}, please set it to something inside this list: {}", this.name, value, this.allowedValues);
 				return;
 			}
 		}
-		this.value = value;
+
+		if (registry == null) {
+			this.value = value;
+		} else {
+			registry.set(id, type, value);
+		}
 	}
 
 	/**
@@ -129,7 +182,7 @@ public class Option<T> {
 	 * @return if the option's value is the default.
 	 */
 	public boolean isDefaultValue() {
-		return this.value.equals(this.defaultValue);
+		return getValue().equals(this.defaultValue);
 	}
 
 	/**
@@ -149,7 +202,7 @@ public class Option<T> {
 			"comment='" + comment + '\'' +
 			", allowedValues=" + allowedValues +
 			", name='" + name + '\'' +
-			", value=" + value +
+			", value=" + getValue() +
 			", defaultValue=" + defaultValue +
 			", commentAsList=" + getComment() +
 			'}';
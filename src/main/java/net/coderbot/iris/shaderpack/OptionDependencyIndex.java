@@ -0,0 +1,143 @@
+package net.coderbot.iris.shaderpack;
+
+import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
+import net.coderbot.iris.shaderpack.include.FileNode;
+import net.coderbot.iris.shaderpack.include.IncludeGraph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps each shader pack option to the program source files whose preprocessed output may depend on its value.
+ *
+ * <p>A file depends on an option if the name of the option appears anywhere in it as an identifier. This covers the
+ * declaration of the option itself, #ifdef and #if checks, and plain uses of its value, as well as other macros that are
+ * defined in terms of the option. Since every token that ends up in a program comes from one of the files that it
+ * transitively includes, a program whose files never mention an option can't be affected by a change to that option.
+ * The index is deliberately conservative: mentions in comments and in inactive branches are counted as well.</p>
+ */
+public class OptionDependencyIndex {
+	private final Map<String, Set<AbsolutePackPath>> programsByOption;
+
+	/**
+	 * @param graph the include graph of the shader pack, either with or without option values applied
+	 * @param optionNames the names of all options declared by the shader pack
+	 * @param programPaths the starting files of all programs
+	 */
+	public OptionDependencyIndex(IncludeGraph graph, Collection<String> optionNames,
+								 Collection<AbsolutePackPath> programPaths) {
+		Set<String> names = new HashSet<>(optionNames);
+		Map<AbsolutePackPath, Set<String>> referencedByFile = new HashMap<>();
+
+		graph.getNodes().forEach((path, node) -> {
+			Set<String> referenced = findReferences(node.getLines(), names);
+
+			if (!referenced.isEmpty()) {
+				referencedByFile.put(path, referenced);
+			}
+		});
+
+		this.programsByOption = new HashMap<>();
+
+		for (AbsolutePackPath program : programPaths) {
+			for (AbsolutePackPath file : collectIncludedFiles(graph, program)) {
+				for (String option : referencedByFile.getOrDefault(file, Collections.emptySet())) {
+					programsByOption.computeIfAbsent(option, name -> new LinkedHashSet<>()).add(program);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the starting files of all programs that may be affected by a change to any of the given options.
+	 */
+	public Set<AbsolutePackPath> getAffectedPrograms(Collection<String> changedOptions) {
+		Set<AbsolutePackPath> affected = new LinkedHashSet<>();
+
+		for (String option : changedOptions) {
+			affected.addAll(programsByOption.getOrDefault(option, Collections.emptySet()));
+		}
+
+		return affected;
+	}
+
+	/**
+	 * Collects a file and every file that it transitively includes, ignoring cycles and missing files.
+	 */
+	private static Set<AbsolutePackPath> collectIncludedFiles(IncludeGraph graph, AbsolutePackPath start) {
+		Set<AbsolutePackPath> visited = new HashSet<>();
+		List<AbsolutePackPath> queue = new ArrayList<>();
+
+		visited.add(start);
+		queue.add(start);
+
+		while (!queue.isEmpty()) {
+			FileNode node = graph.getNodes().get(queue.remove(queue.size() - 1));
+
+			if (node == null) {
+				continue;
+			}
+
+			for (AbsolutePackPath include : node.getIncludes().values()) {
+				if (visited.add(include)) {
+					queue.add(include);
+				}
+			}
+		}
+
+		return visited;
+	}
+
+	private static Set<String> findReferences(List<String> lines, Set<String> names) {
+		Set<String> referenced = new HashSet<>();
+
+		for (String line : lines) {
+			int length = line.length();
+			int index = 0;
+
+			while (index < length) {
+				char c = line.charAt(index);
+
+				if (!isIdentifierStart(c)) {
+					// Skip over numbers as a whole, so that suffixes like the "f" in "1.0f" aren't taken as names
+					index = isDigit(c) ? skipWord(line, index) : index + 1;
+					continue;
+				}
+
+				int end = skipWord(line, index);
+				String word = line.substring(index, end);
+
+				if (names.contains(word)) {
+					referenced.add(word);
+				}
+
+				index = end;
+			}
+		}
+
+		return referenced;
+	}
+
+	private static int skipWord(String line, int index) {
+		while (index < line.length() && (isIdentifierStart(line.charAt(index)) || isDigit(line.charAt(index)))) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static boolean isIdentifierStart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
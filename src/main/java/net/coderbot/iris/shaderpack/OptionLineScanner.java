@@ -0,0 +1,362 @@
+package net.coderbot.iris.shaderpack;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Recognizes the lines of a shader source that declare shader pack options, in a single pass over the characters of
+ * each line and without using regular expressions.
+ *
+ * <p>Three kinds of option lines are recognized, with the same rules as the regular expressions that were previously
+ * used for this:</p>
+ * <ul>
+ *     <li>Boolean defines, like {@code #define NAME // comment} or {@code //#define NAME // comment}</li>
+ *     <li>Numeric defines, like {@code #define NAME 1.0 // [0.5 1.0 2.0]}</li>
+ *     <li>Constants, like {@code const int NAME = 1; // [1 2 3]}, {@code const float} and {@code const bool}</li>
+ * </ul>
+ *
+ * <p>Scanning a line only records the offsets of its parts, so nothing is allocated for the vast majority of lines that
+ * don't declare an option. A scanner holds the result of the last scanned line, so it must not be shared between
+ * threads.</p>
+ */
+public final class OptionLineScanner {
+	public enum Kind {
+		NONE,
+		DEFINE_BOOLEAN,
+		DEFINE_NUMBER,
+		CONST_BOOLEAN,
+		CONST_FLOAT,
+		CONST_INT
+	}
+
+	private String line = "";
+	private Kind kind = Kind.NONE;
+	private int trimStart;
+	private int trimEnd;
+	private int startingCommentEnd;
+	private int nameStart;
+	private int nameEnd;
+	private int valueStart;
+	private int valueEnd;
+	private int commentStart;
+
+	/**
+	 * Scans a single line, which must not contain any line terminators. Leading and trailing whitespace is ignored.
+	 */
+	public Kind scan(String line) {
+		this.line = line;
+		this.kind = Kind.NONE;
+		this.startingCommentEnd = -1;
+		this.valueStart = -1;
+		this.valueEnd = -1;
+		this.commentStart = -1;
+
+		// Same as String#trim
+		int start = 0;
+		int end = line.length();
+
+		while (start < end && line.charAt(start) <= ' ') {
+			start++;
+		}
+
+		while (end > start && line.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		this.trimStart = start;
+		this.trimEnd = end;
+
+		if (start == end) {
+			return kind;
+		}
+
+		char first = line.charAt(start);
+
+		if (first == '#' || first == '/') {
+			scanDefine(start, end);
+		} else if (first == 'c') {
+			scanConst(start, end);
+		}
+
+		return kind;
+	}
+
+	private void scanDefine(int index, int end) {
+		if (line.charAt(index) == '/') {
+			int slashesEnd = skipSlashes(index, end);
+
+			if (slashesEnd - index < 2) {
+				return;
+			}
+
+			startingCommentEnd = slashesEnd;
+			index = skipWhitespace(slashesEnd, end);
+		}
+
+		if (!line.startsWith("#define", index)) {
+			return;
+		}
+
+		index += "#define".length();
+
+		if (!scanName(index, end)) {
+			return;
+		}
+
+		int afterName = skipWhitespace(nameEnd, end);
+
+		if (scanTrailingComment(afterName, end)) {
+			kind = Kind.DEFINE_BOOLEAN;
+			return;
+		}
+
+		// Numeric options can't be commented out, and need whitespace between the name and the value.
+		if (startingCommentEnd != -1 || afterName == nameEnd) {
+			return;
+		}
+
+		int numberEnd = skipNumber(afterName, end);
+
+		if (numberEnd != afterName && scanTrailingComment(skipWhitespace(numberEnd, end), end)) {
+			valueStart = afterName;
+			valueEnd = numberEnd;
+			kind = Kind.DEFINE_NUMBER;
+		}
+	}
+
+	private void scanConst(int index, int end) {
+		if (!line.startsWith("const", index)) {
+			return;
+		}
+
+		int typeStart = skipWhitespace(index + "const".length(), end);
+
+		if (typeStart == index + "const".length()) {
+			return;
+		}
+
+		Kind type;
+		int typeEnd;
+
+		if (line.startsWith("bool", typeStart)) {
+			type = Kind.CONST_BOOLEAN;
+			typeEnd = typeStart + "bool".length();
+		} else if (line.startsWith("float", typeStart)) {
+			type = Kind.CONST_FLOAT;
+			typeEnd = typeStart + "float".length();
+		} else if (line.startsWith("int", typeStart)) {
+			type = Kind.CONST_INT;
+			typeEnd = typeStart + "int".length();
+		} else {
+			return;
+		}
+
+		if (!scanName(typeEnd, end)) {
+			return;
+		}
+
+		int equals = skipWhitespace(nameEnd, end);
+
+		if (equals == end || line.charAt(equals) != '=') {
+			return;
+		}
+
+		int start = skipWhitespace(equals + 1, end);
+		int stop;
+
+		if (type == Kind.CONST_BOOLEAN) {
+			if (line.startsWith("true", start)) {
+				stop = start + "true".length();
+			} else if (line.startsWith("false", start)) {
+				stop = start + "false".length();
+			} else {
+				return;
+			}
+		} else if (type == Kind.CONST_FLOAT) {
+			stop = skipNumber(start, end);
+		} else {
+			stop = skipInteger(start, end);
+		}
+
+		if (stop == start) {
+			return;
+		}
+
+		int semicolon = skipWhitespace(stop, end);
+
+		if (semicolon == end || line.charAt(semicolon) != ';') {
+			return;
+		}
+
+		if (scanTrailingComment(skipWhitespace(semicolon + 1, end), end)) {
+			valueStart = start;
+			valueEnd = stop;
+			kind = type;
+		}
+	}
+
+	/**
+	 * Scans at least one whitespace character followed by a name.
+	 */
+	private boolean scanName(int index, int end) {
+		int start = skipWhitespace(index, end);
+
+		if (start == index) {
+			return false;
+		}
+
+		int stop = start;
+
+		while (stop < end && isWordCharacter(line.charAt(stop))) {
+			stop++;
+		}
+
+		nameStart = start;
+		nameEnd = stop;
+
+		return stop != start;
+	}
+
+	/**
+	 * Determines whether the rest of the line is either empty or a single line comment, recording where the content
+	 * of the comment starts.
+	 */
+	private boolean scanTrailingComment(int index, int end) {
+		if (index == end) {
+			return true;
+		}
+
+		int slashesEnd = skipSlashes(index, end);
+
+		if (slashesEnd - index < 2) {
+			return false;
+		}
+
+		commentStart = slashesEnd;
+
+		return true;
+	}
+
+	private int skipWhitespace(int index, int end) {
+		while (index < end && isWhitespace(line.charAt(index))) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private int skipSlashes(int index, int end) {
+		while (index < end && line.charAt(index) == '/') {
+			index++;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Skips a loosely formatted number, which is an optional minus sign followed by digits, dots, and float suffixes.
+	 * Returns the given index if there is no number.
+	 */
+	private int skipNumber(int index, int end) {
+		int digits = index < end && line.charAt(index) == '-' ? index + 1 : index;
+		int stop = digits;
+
+		while (stop < end && isNumberCharacter(line.charAt(stop))) {
+			stop++;
+		}
+
+		return stop == digits ? index : stop;
+	}
+
+	private int skipInteger(int index, int end) {
+		int digits = index < end && line.charAt(index) == '-' ? index + 1 : index;
+		int stop = digits;
+
+		while (stop < end && isDigit(line.charAt(stop))) {
+			stop++;
+		}
+
+		return stop == digits ? index : stop;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getName() {
+		return line.substring(nameStart, nameEnd);
+	}
+
+	public boolean nameStartsWith(String prefix) {
+		return nameEnd - nameStart >= prefix.length() && line.startsWith(prefix, nameStart);
+	}
+
+	/**
+	 * Returns the value of a numeric define or a constant, or null for boolean defines.
+	 */
+	@Nullable
+	public String getValue() {
+		return valueStart != -1 ? line.substring(valueStart, valueEnd) : null;
+	}
+
+	/**
+	 * Determines whether the value of a numeric define or a constant is a plain integer.
+	 */
+	public boolean isIntegerValue() {
+		return valueStart != -1 && skipInteger(valueStart, valueEnd) == valueEnd;
+	}
+
+	/**
+	 * Returns the content of the trailing comment after the slashes, or null if there is no trailing comment.
+	 */
+	@Nullable
+	public String getCommentContent() {
+		return commentStart != -1 ? line.substring(commentStart, trimEnd) : null;
+	}
+
+	/**
+	 * Determines whether a boolean define is commented out, like {@code //#define NAME}.
+	 */
+	public boolean isCommentedOut() {
+		return startingCommentEnd != -1;
+	}
+
+	public String getTrimmedLine() {
+		return line.substring(trimStart, trimEnd);
+	}
+
+	/**
+	 * Returns the trimmed line without the comment in front of a commented out boolean define.
+	 */
+	public String getUncommentedLine() {
+		return line.substring(startingCommentEnd != -1 ? startingCommentEnd : trimStart, trimEnd);
+	}
+
+	/**
+	 * Returns the trimmed line with the value of the numeric define or constant replaced.
+	 */
+	public String replaceValue(String value) {
+		return new StringBuilder(trimEnd - trimStart + value.length())
+				.append(line, trimStart, valueStart)
+				.append(value)
+				.append(line, valueEnd, trimEnd)
+				.toString();
+	}
+
+	// Matches the \s character class of regular expressions
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	// Matches the \w character class of regular expressions
+	private static boolean isWordCharacter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isNumberCharacter(char c) {
+		return isDigit(c) || c == '.' || c == 'f' || c == 'F';
+	}
+}
@@ -0,0 +1,175 @@
+package net.coderbot.iris.shaderpack;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Stores the current values of the options of a shader pack in primitive arrays.
+ *
+ * <p>Each option name is interned to a small integer id the first time that it is registered, and that id indexes the
+ * stored values from then on, so reading or writing a value once the id is known is a plain array access. An id is
+ * shared by all options with the same name, and each id has a separate slot for every type of value, since a shader pack
+ * may declare options with the same name but different types in different files.</p>
+ *
+ * <p>Values are only converted to and from strings when the config is loaded from or saved to its file, see
+ * {@link ShaderPackConfig}. This class isn't thread safe.</p>
+ */
+public final class OptionRegistry {
+	public enum Type {
+		BOOLEAN,
+		INTEGER,
+		FLOAT;
+
+		static Type of(Object value) {
+			if (value instanceof Boolean) {
+				return BOOLEAN;
+			} else if (value instanceof Integer) {
+				return INTEGER;
+			} else if (value instanceof Float) {
+				return FLOAT;
+			}
+
+			throw new IllegalArgumentException("Unsupported option value type: " + value.getClass());
+		}
+	}
+
+	private final Object2IntMap<String> ids;
+	private final List<String> names;
+
+	private final BitSet booleanValues;
+	private int[] intValues;
+	private float[] floatValues;
+
+	// Tracks which of the slots of each id have been assigned a value
+	private final BitSet hasBoolean;
+	private final BitSet hasInt;
+	private final BitSet hasFloat;
+
+	public OptionRegistry() {
+		this.ids = new Object2IntOpenHashMap<>();
+		this.ids.defaultReturnValue(-1);
+		this.names = new ArrayList<>();
+
+		this.booleanValues = new BitSet();
+		this.intValues = new int[16];
+		this.floatValues = new float[16];
+
+		this.hasBoolean = new BitSet();
+		this.hasInt = new BitSet();
+		this.hasFloat = new BitSet();
+	}
+
+	/**
+	 * Returns the id of an option name, assigning the next free id if the name hasn't been seen before.
+	 */
+	public int intern(String name) {
+		int id = ids.getInt(name);
+
+		if (id != -1) {
+			return id;
+		}
+
+		id = names.size();
+		names.add(name);
+		ids.put(name, id);
+
+		if (id == intValues.length) {
+			intValues = Arrays.copyOf(intValues, id * 2);
+			floatValues = Arrays.copyOf(floatValues, id * 2);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Returns the id of an option name, or -1 if no option with that name has been registered.
+	 */
+	public int getId(String name) {
+		return ids.getInt(name);
+	}
+
+	public String getName(int id) {
+		return names.get(id);
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	public boolean isAssigned(int id, Type type) {
+		switch (type) {
+			case BOOLEAN:
+				return hasBoolean.get(id);
+			case INTEGER:
+				return hasInt.get(id);
+			case FLOAT:
+				return hasFloat.get(id);
+			default:
+				throw new IllegalArgumentException("Unknown option type " + type);
+		}
+	}
+
+	public boolean getBoolean(int id) {
+		return booleanValues.get(id);
+	}
+
+	public void setBoolean(int id, boolean value) {
+		booleanValues.set(id, value);
+		hasBoolean.set(id);
+	}
+
+	public int getInt(int id) {
+		return intValues[id];
+	}
+
+	public void setInt(int id, int value) {
+		intValues[id] = value;
+		hasInt.set(id);
+	}
+
+	public float getFloat(int id) {
+		return floatValues[id];
+	}
+
+	public void setFloat(int id, float value) {
+		floatValues[id] = value;
+		hasFloat.set(id);
+	}
+
+	/**
+	 * Reads a value as an object, for code that handles options of all types in the same way.
+	 */
+	Object get(int id, Type type) {
+		switch (type) {
+			case BOOLEAN:
+				return getBoolean(id);
+			case INTEGER:
+				return getInt(id);
+			case FLOAT:
+				return getFloat(id);
+			default:
+				throw new IllegalArgumentException("Unknown option type " + type);
+		}
+	}
+
+	void set(int id, Type type, Object value) {
+		switch (type) {
+			case BOOLEAN:
+				setBoolean(id, (Boolean) value);
+				break;
+			case INTEGER:
+				setInt(id, (Integer) value);
+				break;
+			case FLOAT:
+				setFloat(id, (Float) value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option type " + type);
+		}
+	}
+}
@@ -6,7 +6,9 @@ import it.unimi.dsi.fastutil.objects.Object2BooleanMaps;
 import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import net.coderbot.iris.Iris;
+import net.coderbot.iris.uniforms.custom.CustomUniformDeclarations;
 
+import java.util.Objects;
 import java.util.Set;
 
 public class PackDirectives {
@@ -22,6 +24,7 @@ public class PackDirectives {
 	private boolean particlesBeforeDeferred;
 	private OptionalBoolean shadowCulling;
 	private Object2ObjectMap<String, Object2BooleanMap<String>> explicitFlips = new Object2ObjectOpenHashMap<>();
+	private CustomUniformDeclarations customUniforms = new CustomUniformDeclarations();
 
 	private final PackRenderTargetDirectives renderTargetDirectives;
 	private final PackShadowDirectives shadowDirectives;
@@ -43,6 +46,7 @@ public class PackDirectives {
 		separateAo = properties.getSeparateAo().orElse(false);
 		oldLighting = properties.getOldLighting().orElse(false);
 		explicitFlips = properties.getExplicitFlips();
+		customUniforms = properties.getCustomUniforms();
 		shadowCulling = properties.getShadowCulling();
 		particlesBeforeDeferred = properties.getParticlesBeforeDeferred().orElse(false);
 	}
@@ -53,6 +57,7 @@ public class PackDirectives {
 		separateAo = directives.separateAo;
 		oldLighting = directives.oldLighting;
 		explicitFlips = directives.explicitFlips;
+		customUniforms = directives.customUniforms;
 		shadowCulling = directives.shadowCulling;
 		particlesBeforeDeferred = directives.particlesBeforeDeferred;
 	}
@@ -156,4 +161,50 @@ public class PackDirectives {
 
 		return explicitFlips.build();
 	}
+
+	public CustomUniformDeclarations getCustomUniforms() {
+		return customUniforms;
+	}
+
+	/**
+	 * Compares every directive that affects how the pipeline is set up outside of individual programs. The flip
+	 * directives and custom uniforms are compared by identity, since they come straight from shaders.properties, which
+	 * is shared between a pack and the same pack with different options.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		PackDirectives that = (PackDirectives) o;
+
+		return noiseTextureResolution == that.noiseTextureResolution
+				&& Float.compare(sunPathRotation, that.sunPathRotation) == 0
+				&& Float.compare(ambientOcclusionLevel, that.ambientOcclusionLevel) == 0
+				&& areCloudsEnabled == that.areCloudsEnabled
+				&& underwaterOverlay == that.underwaterOverlay
+				&& vignette == that.vignette
+				&& rainDepth == that.rainDepth
+				&& separateAo == that.separateAo
+				&& oldLighting == that.oldLighting
+				&& particlesBeforeDeferred == that.particlesBeforeDeferred
+				&& shadowCulling == that.shadowCulling
+				&& explicitFlips == that.explicitFlips
+				&& customUniforms == that.customUniforms
+				&& renderTargetDirectives.equals(that.renderTargetDirectives)
+				&& shadowDirectives.equals(that.shadowDirectives);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(noiseTextureResolution, sunPathRotation, ambientOcclusionLevel, areCloudsEnabled,
+				underwaterOverlay, vignette, rainDepth, separateAo, oldLighting, particlesBeforeDeferred, shadowCulling,
+				System.identityHashCode(explicitFlips), System.identityHashCode(customUniforms), renderTargetDirectives,
+				shadowDirectives);
+	}
 }
@@ -12,6 +12,7 @@ import net.coderbot.iris.vendored.joml.Vector4f;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -126,6 +127,24 @@ public class PackRenderTargetDirectives {
 				clearColor -> settings.clearColor = clearColor);
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		return renderTargetSettings.equals(((PackRenderTargetDirectives) o).renderTargetSettings);
+	}
+
+	@Override
+	public int hashCode() {
+		return renderTargetSettings.hashCode();
+	}
+
 	public static final class RenderTargetSettings {
 		private InternalTextureFormat requestedFormat;
 		private boolean clear;
@@ -157,5 +176,27 @@ public class PackRenderTargetDirectives {
 					", clearColor=" + clearColor +
 					'}';
 		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			RenderTargetSettings that = (RenderTargetSettings) o;
+
+			return clear == that.clear
+					&& requestedFormat == that.requestedFormat
+					&& Objects.equals(clearColor, that.clearColor);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(requestedFormat, clear, clearColor);
+		}
 	}
 }
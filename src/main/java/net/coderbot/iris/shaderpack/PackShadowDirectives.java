@@ -2,6 +2,8 @@ package net.coderbot.iris.shaderpack;
 
 import com.google.common.collect.ImmutableList;
 
+import java.util.Objects;
+
 public class PackShadowDirectives {
 	// Bump this up if you want more shadow color buffers!
 	// This is currently set at 2 for ShadersMod / OptiFine parity but can theoretically be bumped up to 8.
@@ -230,6 +232,34 @@ public class PackShadowDirectives {
 				'}';
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		PackShadowDirectives that = (PackShadowDirectives) o;
+
+		return resolution == that.resolution
+				&& Float.compare(distance, that.distance) == 0
+				&& Float.compare(distanceRenderMul, that.distanceRenderMul) == 0
+				&& explicitRenderDistance == that.explicitRenderDistance
+				&& Float.compare(intervalSize, that.intervalSize) == 0
+				&& Objects.equals(fov, that.fov)
+				&& depthSamplingSettings.equals(that.depthSamplingSettings)
+				&& colorSamplingSettings.equals(that.colorSamplingSettings);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(resolution, fov, distance, distanceRenderMul, explicitRenderDistance, intervalSize,
+				depthSamplingSettings, colorSamplingSettings);
+	}
+
 	public static class SamplingSettings {
 		/**
 		 * Whether mipmaps should be generated before sampling. Disabled by default.
@@ -270,6 +300,26 @@ public class PackShadowDirectives {
 					", nearest=" + nearest +
 					'}';
 		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			SamplingSettings that = (SamplingSettings) o;
+
+			return mipmap == that.mipmap && nearest == that.nearest;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mipmap, nearest);
+		}
 	}
 
 	public static class DepthSamplingSettings extends SamplingSettings {
@@ -295,5 +345,15 @@ public class PackShadowDirectives {
 					", hardwareFiltering=" + hardwareFiltering +
 					'}';
 		}
+
+		@Override
+		public boolean equals(Object o) {
+			return super.equals(o) && hardwareFiltering == ((DepthSamplingSettings) o).hardwareFiltering;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * super.hashCode() + Boolean.hashCode(hardwareFiltering);
+		}
 	}
 }
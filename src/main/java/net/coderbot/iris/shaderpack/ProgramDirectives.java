@@ -38,8 +38,9 @@ public class ProgramDirectives {
 		// undefined data to be written to colortex7.
 		//
 		// TODO: Figure out how to infer the DRAWBUFFERS directive when it is missing.
-		Optional<CommentDirective> optionalDrawbuffersDirective = findDrawbuffersDirective(source.getFragmentSource());
-		Optional<CommentDirective> optionalRendertargetsDirective = findRendertargetsDirective(source.getFragmentSource());
+		Optional<SourceDirectives> fragmentDirectives = source.getFragmentDirectives();
+		Optional<CommentDirective> optionalDrawbuffersDirective = findDrawbuffersDirective(fragmentDirectives);
+		Optional<CommentDirective> optionalRendertargetsDirective = findRendertargetsDirective(fragmentDirectives);
 
 		Optional<CommentDirective> optionalCommentDirective = getAppliedDirective(optionalDrawbuffersDirective, optionalRendertargetsDirective);
 		drawBuffers = optionalCommentDirective.map(commentDirective -> {
@@ -86,21 +87,17 @@ public class ProgramDirectives {
 			}
 		});
 
-		source.getFragmentSource().map(ConstDirectiveParser::findDirectives).ifPresent(directives -> {
-			for (ConstDirectiveParser.ConstDirective directive : directives) {
-				directiveHolder.processDirective(directive);
-			}
-		});
+		fragmentDirectives.ifPresent(directiveHolder::processDirectives);
 
 		this.mipmappedBuffers = ImmutableSet.copyOf(mipmappedBuffers);
 	}
 
-	private static Optional<CommentDirective> findDrawbuffersDirective(Optional<String> stageSource) {
-		return stageSource.flatMap(fragment -> CommentDirectiveParser.findDirective(fragment, CommentDirective.Type.DRAWBUFFERS));
+	private static Optional<CommentDirective> findDrawbuffersDirective(Optional<SourceDirectives> stageDirectives) {
+		return stageDirectives.flatMap(fragment -> fragment.getCommentDirective(CommentDirective.Type.DRAWBUFFERS));
 	}
 
-	private static Optional<CommentDirective> findRendertargetsDirective(Optional<String> stageSource) {
-		return stageSource.flatMap(fragment -> CommentDirectiveParser.findDirective(fragment, CommentDirective.Type.RENDERTARGETS));
+	private static Optional<CommentDirective> findRendertargetsDirective(Optional<SourceDirectives> stageDirectives) {
+		return stageDirectives.flatMap(fragment -> fragment.getCommentDirective(CommentDirective.Type.RENDERTARGETS));
 	}
 
 	private static int[] parseDigits(char[] directiveChars) {
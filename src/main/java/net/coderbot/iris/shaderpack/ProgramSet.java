@@ -9,7 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ProgramSet {
 	private final PackDirectives packDirectives;
@@ -46,10 +46,22 @@ public class ProgramSet {
 
 	private final ShaderPack pack;
 
-	public ProgramSet(AbsolutePackPath directory, Function<AbsolutePackPath, String> sourceProvider,
+	private final ShaderSourceLoader sourceLoader;
+	private final List<AbsolutePackPath> fragmentPaths;
+	private final List<AbsolutePackPath> sourcePaths;
+	private boolean directivesLocated;
+
+	/**
+	 * Creates the program set for a directory of the shader pack. Only programs with at least one source file present
+	 * in the given loader are created, and no source is preprocessed until it is first requested.
+	 */
+	public ProgramSet(AbsolutePackPath directory, ShaderSourceLoader sourceProvider,
 					  ShaderProperties shaderProperties, ShaderPack pack) {
 		this.packDirectives = new PackDirectives(PackRenderTargetDirectives.BASELINE_SUPPORTED_RENDER_TARGETS, shaderProperties);
 		this.pack = pack;
+		this.sourceLoader = sourceProvider;
+		this.fragmentPaths = new ArrayList<>();
+		this.sourcePaths = new ArrayList<>();
 
 		// Note: Ensure that blending is properly overridden during the shadow pass. By default, blending is disabled
 		//       in the shadow pass. Shader packs expect this for colored shadows from stained glass and nether portals
@@ -91,25 +103,97 @@ public class ProgramSet {
 
 		this.composite = readProgramArray(directory, sourceProvider, "composite", shaderProperties);
 		this.compositeFinal = readProgramSource(directory, sourceProvider, "final", this, shaderProperties);
-
-		locateDirectives();
 	}
 
-	private ProgramSource[] readProgramArray(AbsolutePackPath directory,
-											 Function<AbsolutePackPath, String> sourceProvider, String name,
-											 ShaderProperties shaderProperties) {
+	private ProgramSource[] readProgramArray(AbsolutePackPath directory, ShaderSourceLoader sourceProvider,
+											 String name, ShaderProperties shaderProperties) {
 		ProgramSource[] programs = new ProgramSource[99];
 
-		for (int i = 0; i < programs.length; i++) {
-			String suffix = i == 0 ? "" : Integer.toString(i);
+		// Only look at the files that are actually present instead of probing every possible program name.
+		for (AbsolutePackPath path : sourceProvider.getLoadedPaths()) {
+			int index = getProgramArrayIndex(directory, name, path);
+
+			if (index >= 0 && programs[index] == null) {
+				String suffix = index == 0 ? "" : Integer.toString(index);
 
-			programs[i] = readProgramSource(directory, sourceProvider, name + suffix, this, shaderProperties);
+				programs[index] = readProgramSource(directory, sourceProvider, name + suffix, this, shaderProperties);
+			}
 		}
 
 		return programs;
 	}
 
+	/**
+	 * Returns the index within a program array of the given source file, or -1 if the file isn't part of the array.
+	 * For example, "/composite.fsh" has the index 0 and "/composite12.vsh" has the index 12 in the composite array.
+	 */
+	private static int getProgramArrayIndex(AbsolutePackPath directory, String name, AbsolutePackPath path) {
+		String directoryString = directory.getPathString();
+		String pathString = path.getPathString();
+		int nameStart = directoryString.endsWith("/") ? directoryString.length() : directoryString.length() + 1;
+
+		if (pathString.length() < nameStart + name.length() + 4 || !pathString.startsWith(directoryString)
+				|| pathString.charAt(nameStart - 1) != '/' || !pathString.startsWith(name, nameStart)) {
+			return -1;
+		}
+
+		int extensionStart = pathString.length() - 4;
+
+		if (!pathString.endsWith(".vsh") && !pathString.endsWith(".gsh") && !pathString.endsWith(".fsh")) {
+			return -1;
+		}
+
+		int digitsStart = nameStart + name.length();
+
+		if (digitsStart == extensionStart) {
+			return 0;
+		}
+
+		// Program names never have leading zeroes, and arrays have at most 99 entries
+		if (extensionStart - digitsStart > 2 || pathString.charAt(digitsStart) == '0') {
+			return -1;
+		}
+
+		int index = 0;
+
+		for (int i = digitsStart; i < extensionStart; i++) {
+			char c = pathString.charAt(i);
+
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+
+			index = index * 10 + (c - '0');
+		}
+
+		return index;
+	}
+
 	private void locateDirectives() {
+		List<ProgramSource> programs = getAllPrograms();
+
+		// Every fragment shader is needed to find the pack directives, so preprocess them all at once.
+		sourceLoader.preload(fragmentPaths);
+		pack.onDirectivesLocated();
+
+		DispatchingDirectiveHolder packDirectiveHolder = new DispatchingDirectiveHolder();
+
+		packDirectives.acceptDirectivesFrom(packDirectiveHolder);
+
+		for (ProgramSource source : programs) {
+			if (source == null) {
+				continue;
+			}
+
+			source.getFragmentDirectives().ifPresent(packDirectiveHolder::processDirectives);
+		}
+
+		packDirectives.getRenderTargetDirectives().getRenderTargetSettings().forEach((index, settings) -> {
+			Iris.logger.debug("Render target settings for colortex" + index + ": " + settings);
+		});
+	}
+
+	private List<ProgramSource> getAllPrograms() {
 		List<ProgramSource> programs = new ArrayList<>();
 
 		programs.add(shadow);
@@ -129,25 +213,32 @@ public class ProgramSet {
 		programs.addAll(Arrays.asList(composite));
 		programs.add(compositeFinal);
 
-		DispatchingDirectiveHolder packDirectiveHolder = new DispatchingDirectiveHolder();
+		return programs;
+	}
 
-		packDirectives.acceptDirectivesFrom(packDirectiveHolder);
+	/**
+	 * Determines whether every program of the other set has exactly the same sources as the corresponding program of
+	 * this set. Such program sets are interchangeable, which is common for dimension overrides that only include the
+	 * base programs.
+	 */
+	public boolean hasSameSources(ProgramSet other) {
+		List<ProgramSource> programs = getAllPrograms();
+		List<ProgramSource> otherPrograms = other.getAllPrograms();
 
-		for (ProgramSource source : programs) {
-			if (source == null) {
-				continue;
-			}
+		for (int i = 0; i < programs.size(); i++) {
+			ProgramSource program = programs.get(i);
+			ProgramSource otherProgram = otherPrograms.get(i);
 
-			source.getFragmentSource().map(ConstDirectiveParser::findDirectives).ifPresent(directives -> {
-				for (ConstDirectiveParser.ConstDirective directive : directives) {
-					packDirectiveHolder.processDirective(directive);
+			if (program == null || otherProgram == null) {
+				if (program != otherProgram) {
+					return false;
 				}
-			});
+			} else if (!program.hasSameSources(otherProgram)) {
+				return false;
+			}
 		}
 
-		packDirectives.getRenderTargetDirectives().getRenderTargetSettings().forEach((index, settings) -> {
-			Iris.logger.debug("Render target settings for colortex" + index + ": " + settings);
-		});
+		return true;
 	}
 
 	public Optional<ProgramSource> getShadow() {
@@ -273,7 +364,13 @@ public class ProgramSet {
 		return compositeFinal.requireValid();
 	}
 
-	public PackDirectives getPackDirectives() {
+	public synchronized PackDirectives getPackDirectives() {
+		// Pack directives are located lazily, since doing so requires preprocessing every fragment shader.
+		if (!directivesLocated) {
+			directivesLocated = true;
+			locateDirectives();
+		}
+
 		return packDirectives;
 	}
 
@@ -281,24 +378,54 @@ public class ProgramSet {
 		return pack;
 	}
 
-	private static ProgramSource readProgramSource(AbsolutePackPath directory,
-												   Function<AbsolutePackPath, String> sourceProvider, String program,
-												   ProgramSet programSet, ShaderProperties properties) {
+	/**
+	 * Does all of the work needed to create a pipeline from this program set that doesn't require OpenGL ahead of
+	 * time: every source is preprocessed, and the pack directives and program directives are parsed. This is safe to
+	 * call from a background thread once the shader constants have been resolved on the render thread.
+	 *
+	 * <p>Everything runs on the calling thread, so that a low priority background thread doesn't start any
+	 * threads of normal priority that would compete with the game.</p>
+	 */
+	public void preloadSources() {
+		sourceLoader.preload(sourcePaths, false);
+		getPackDirectives();
+
+		for (ProgramSource source : getAllPrograms()) {
+			if (source != null && source.isValid()) {
+				source.getDirectives();
+			}
+		}
+	}
+
+	private static ProgramSource readProgramSource(AbsolutePackPath directory, ShaderSourceLoader sourceProvider,
+												   String program, ProgramSet programSet, ShaderProperties properties) {
 		return readProgramSource(directory, sourceProvider, program, programSet, properties, null);
 	}
 
-	private static ProgramSource readProgramSource(AbsolutePackPath directory,
-												   Function<AbsolutePackPath, String> sourceProvider, String program,
-												   ProgramSet programSet, ShaderProperties properties,
+	private static ProgramSource readProgramSource(AbsolutePackPath directory, ShaderSourceLoader sourceProvider,
+												   String program, ProgramSet programSet, ShaderProperties properties,
 												   BlendModeOverride defaultBlendModeOverride) {
 		AbsolutePackPath vertexPath = directory.resolve(program + ".vsh");
-		String vertexSource = sourceProvider.apply(vertexPath);
+		Supplier<String> vertexSource = sourceProvider.getSource(vertexPath);
 
 		AbsolutePackPath geometryPath = directory.resolve(program + ".gsh");
-		String geometrySource = sourceProvider.apply(geometryPath);
+		Supplier<String> geometrySource = sourceProvider.getSource(geometryPath);
 
 		AbsolutePackPath fragmentPath = directory.resolve(program + ".fsh");
-		String fragmentSource = sourceProvider.apply(fragmentPath);
+		Supplier<String> fragmentSource = sourceProvider.getSource(fragmentPath);
+
+		if (vertexSource != null) {
+			programSet.sourcePaths.add(vertexPath);
+		}
+
+		if (geometrySource != null) {
+			programSet.sourcePaths.add(geometryPath);
+		}
+
+		if (fragmentSource != null) {
+			programSet.fragmentPaths.add(fragmentPath);
+			programSet.sourcePaths.add(fragmentPath);
+		}
 
 		return new ProgramSource(program, vertexSource, geometrySource, fragmentSource, programSet, properties,
 				defaultBlendModeOverride);
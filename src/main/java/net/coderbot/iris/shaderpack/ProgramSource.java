@@ -1,26 +1,48 @@
 package net.coderbot.iris.shaderpack;
 
+import com.google.common.base.Suppliers;
 import net.coderbot.iris.gl.blending.BlendModeOverride;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * The sources of a single shader program. Each stage is only preprocessed the first time that its source is
+ * requested, and the directives of the program are likewise only parsed the first time they are requested.
+ */
 public class ProgramSource {
 	private final String name;
-	private final String vertexSource;
-	private final String geometrySource;
-	private final String fragmentSource;
-	private final ProgramDirectives directives;
+	@Nullable
+	private final Supplier<String> vertexSource;
+	@Nullable
+	private final Supplier<String> geometrySource;
+	@Nullable
+	private final Supplier<String> fragmentSource;
+	private final Supplier<Optional<SourceDirectives>> fragmentDirectives;
+	private final Supplier<ProgramDirectives> directives;
 	private final ProgramSet parent;
 
 	public ProgramSource(String name, String vertexSource, String geometrySource, String fragmentSource,
 						 ProgramSet parent, ShaderProperties properties, BlendModeOverride defaultBlendModeOverride) {
+		this(name, constant(vertexSource), constant(geometrySource), constant(fragmentSource), parent, properties,
+				defaultBlendModeOverride);
+	}
+
+	/**
+	 * @param vertexSource supplies the vertex shader source, or null if the program has no vertex shader
+	 */
+	public ProgramSource(String name, @Nullable Supplier<String> vertexSource, @Nullable Supplier<String> geometrySource,
+						 @Nullable Supplier<String> fragmentSource, ProgramSet parent, ShaderProperties properties,
+						 BlendModeOverride defaultBlendModeOverride) {
 		this.name = name;
 		this.vertexSource = vertexSource;
 		this.geometrySource = geometrySource;
 		this.fragmentSource = fragmentSource;
 		this.parent = parent;
-		this.directives = new ProgramDirectives(this, properties,
-				PackRenderTargetDirectives.BASELINE_SUPPORTED_RENDER_TARGETS, defaultBlendModeOverride);
+		this.fragmentDirectives = Suppliers.memoize(() -> resolve(fragmentSource).map(SourceDirectives::lex));
+		this.directives = Suppliers.memoize(() -> new ProgramDirectives(this, properties,
+				PackRenderTargetDirectives.BASELINE_SUPPORTED_RENDER_TARGETS, defaultBlendModeOverride));
 	}
 
 	public String getName() {
@@ -28,19 +50,34 @@ public class ProgramSource {
 	}
 
 	public Optional<String> getVertexSource() {
-		return Optional.ofNullable(vertexSource);
+		return resolve(vertexSource);
 	}
 
 	public Optional<String> getGeometrySource() {
-		return Optional.ofNullable(geometrySource);
+		return resolve(geometrySource);
 	}
 
 	public Optional<String> getFragmentSource() {
-		return Optional.ofNullable(fragmentSource);
+		return resolve(fragmentSource);
+	}
+
+	/**
+	 * Returns the directives of the fragment shader, which is only scanned for directives once no matter how many times
+	 * they are looked up.
+	 */
+	Optional<SourceDirectives> getFragmentDirectives() {
+		return fragmentDirectives.get();
+	}
+
+	/**
+	 * Returns whether this program has a geometry shader, without preprocessing it.
+	 */
+	public boolean hasGeometrySource() {
+		return geometrySource != null;
 	}
 
 	public ProgramDirectives getDirectives() {
-		return this.directives;
+		return this.directives.get();
 	}
 
 	public ProgramSet getParent() {
@@ -51,6 +88,15 @@ public class ProgramSource {
 		return vertexSource != null && fragmentSource != null;
 	}
 
+	/**
+	 * Determines whether the other program has the same name and exactly the same source suppliers as this program,
+	 * meaning that both programs will always produce identical sources.
+	 */
+	public boolean hasSameSources(@Nullable ProgramSource other) {
+		return other != null && name.equals(other.name) && vertexSource == other.vertexSource
+				&& geometrySource == other.geometrySource && fragmentSource == other.fragmentSource;
+	}
+
 	public Optional<ProgramSource> requireValid() {
 		if (this.isValid()) {
 			return Optional.of(this);
@@ -58,4 +104,13 @@ public class ProgramSource {
 			return Optional.empty();
 		}
 	}
+
+	@Nullable
+	private static Supplier<String> constant(@Nullable String source) {
+		return source != null ? () -> source : null;
+	}
+
+	private static Optional<String> resolve(@Nullable Supplier<String> source) {
+		return source != null ? Optional.ofNullable(source.get()) : Optional.empty();
+	}
 }
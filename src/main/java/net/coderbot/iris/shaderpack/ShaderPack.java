@@ -25,23 +25,22 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.common.collect.ImmutableList;
 import net.coderbot.iris.Iris;
 import net.coderbot.iris.gl.program.ProgramBuilder;
-import net.coderbot.iris.gl.shader.GlShader;
-import net.coderbot.iris.gl.shader.ShaderConstants;
 import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
 import net.coderbot.iris.shaderpack.include.IncludeGraph;
-import net.coderbot.iris.shaderpack.include.IncludeProcessor;
 import net.coderbot.iris.shaderpack.include.ShaderPackSourceNames;
-import net.coderbot.iris.shaderpack.preprocessor.JcppProcessor;
-import net.coderbot.iris.shaderpack.transform.line.LineTransform;
-import net.coderbot.iris.shaderpack.transform.line.VersionDirectiveNormalizer;
 import org.apache.logging.log4j.Level;
 import org.jetbrains.annotations.Nullable;
 
@@ -57,10 +56,22 @@ public class ShaderPack {
 	private final IdMap idMap;
 	private final LanguageMap languageMap;
 	private final ShaderPackConfig config;
+	private final ShaderPackOptions options;
 	private final ShaderProperties shaderProperties;
 	private final Object2ObjectMap<TextureStage, Object2ObjectMap<String, CustomTextureData>> customTextureDataMap = new Object2ObjectOpenHashMap<>();
 	private final CustomTextureData customNoiseTexture;
 
+	// Retained so that option changes can be applied without reading the shader pack from the disk again
+	private final IncludeGraph sourceGraph;
+	private final List<AbsolutePackPath> programSourcePaths;
+	private final ShaderSourceLoader loader;
+	private final boolean hasWorld0;
+	private final boolean hasNether;
+	private final boolean hasEnd;
+	@Nullable
+	private OptionDependencyIndex optionDependencies;
+	private final AtomicBoolean sourceCacheMaintained = new AtomicBoolean();
+
 	/**
 	 * Reads a shader pack from the disk.
 	 *
@@ -87,68 +98,38 @@ public class ShaderPack {
 		ShaderPackSourceNames.findPresentSources(starts, root, AbsolutePackPath.fromAbsolutePath("/"),
 				potentialFileNames);
 
-		boolean hasWorld0 = ShaderPackSourceNames.findPresentSources(starts, root,
+		this.hasWorld0 = ShaderPackSourceNames.findPresentSources(starts, root,
 				AbsolutePackPath.fromAbsolutePath("/world0"), potentialFileNames);
 
-		boolean hasNether = ShaderPackSourceNames.findPresentSources(starts, root,
+		this.hasNether = ShaderPackSourceNames.findPresentSources(starts, root,
 				AbsolutePackPath.fromAbsolutePath("/world-1"), potentialFileNames);
 
-		boolean hasEnd = ShaderPackSourceNames.findPresentSources(starts, root,
+		this.hasEnd = ShaderPackSourceNames.findPresentSources(starts, root,
 				AbsolutePackPath.fromAbsolutePath("/world1"), potentialFileNames);
 
-		IncludeGraph graph = new IncludeGraph(root, starts.build());
-
-		// TODO: Discover shader options
-		// TODO: Merge shader options
-		// TODO: Apply shader options
-
-		IncludeProcessor includeProcessor = new IncludeProcessor(graph);
-
-		Function<AbsolutePackPath, String> sourceProvider = (path) -> {
-			ImmutableList<String> lines = includeProcessor.getIncludedFile(path);
-
-			if (lines == null) {
-				return null;
-			}
-
-			// Normalize version directives.
-			lines = LineTransform.apply(lines, VersionDirectiveNormalizer.INSTANCE);
-
-			// Replace option constants
-			try {
-				lines = LineTransform.apply(lines, DefineOptionParser.processConfigOptions(config));
-				lines = LineTransform.apply(lines, ConstOptionParser.processConstOptions(config));
-			} catch (Exception e) {
-				Iris.logger.error("Error while processing config options for file {}", path);
-				Iris.logger.error(e.getMessage());
-			}
+		boolean parallel = Iris.getIrisConfig() != null && Iris.getIrisConfig().isParallelShaderPackLoading();
 
-			StringBuilder builder = new StringBuilder();
+		ImmutableList<AbsolutePackPath> startPaths = starts.build();
+		this.sourceGraph = new IncludeGraph(root, startPaths, parallel);
+		this.programSourcePaths = findProgramSourcePaths(startPaths);
 
-			for (String line : lines) {
-				builder.append(line);
-				builder.append('\n');
-			}
+		// Discover and apply shader options once per file, before any includes are expanded
+		this.options = new ShaderPackOptions(sourceGraph, config);
 
-			// Apply shader environment defines / constants
-			// TODO: Write our own code pathways for this
-			ShaderConstants constants = ProgramBuilder.MACRO_CONSTANTS;
-			String source = GlShader.processShader(builder.toString(), constants);
+		// NB: MACRO_CONSTANTS queries OpenGL when it is first initialized. It is only accessed once the first source
+		//     is preprocessed, which happens on the render thread when a pipeline is first created.
+		ShaderSourceCache cache = Iris.getIrisConfig() != null ? ShaderSourceCache.createDefault() : null;
+		this.loader = new ShaderSourceLoader(options.getAppliedGraph(), () -> ProgramBuilder.MACRO_CONSTANTS, cache,
+				parallel);
 
-			// Apply GLSL preprocessor to source
-			source = JcppProcessor.glslPreprocessSource(source);
+		loader.expandAll(programSourcePaths);
 
-			return source;
-		};
+		ProgramSet[] programSets = createProgramSets();
 
-		this.base = new ProgramSet(AbsolutePackPath.fromAbsolutePath("/"), sourceProvider, shaderProperties, this);
-
-		this.overworld = loadOverrides(hasWorld0, AbsolutePackPath.fromAbsolutePath("/world0"), sourceProvider,
-				shaderProperties, this);
-		this.nether = loadOverrides(hasNether, AbsolutePackPath.fromAbsolutePath("/world-1"), sourceProvider,
-				shaderProperties, this);
-		this.end = loadOverrides(hasEnd, AbsolutePackPath.fromAbsolutePath("/world1"), sourceProvider,
-				shaderProperties, this);
+		this.base = programSets[0];
+		this.overworld = programSets[1];
+		this.nether = programSets[2];
+		this.end = programSets[3];
 
 		this.idMap = new IdMap(root);
 		this.languageMap = new LanguageMap(root.resolve("lang"));
@@ -178,8 +159,148 @@ public class ShaderPack {
 		});
 	}
 
+	/**
+	 * Creates a copy of a shader pack with new option values applied, reusing everything that doesn't depend on them.
+	 */
+	private ShaderPack(ShaderPack previous, ShaderPackOptions options, ShaderSourceLoader loader) {
+		this.idMap = previous.idMap;
+		this.languageMap = previous.languageMap;
+		this.config = previous.config;
+		this.shaderProperties = previous.shaderProperties;
+		this.customTextureDataMap.putAll(previous.customTextureDataMap);
+		this.customNoiseTexture = previous.customNoiseTexture;
+
+		this.sourceGraph = previous.sourceGraph;
+		this.programSourcePaths = previous.programSourcePaths;
+		this.hasWorld0 = previous.hasWorld0;
+		this.hasNether = previous.hasNether;
+		this.hasEnd = previous.hasEnd;
+		this.optionDependencies = previous.optionDependencies;
+
+		this.options = options;
+		this.loader = loader;
+
+		ProgramSet[] programSets = createProgramSets();
+
+		this.base = programSets[0];
+		this.overworld = programSets[1];
+		this.nether = programSets[2];
+		this.end = programSets[3];
+	}
+
+	/**
+	 * Called by the program sets once they have preprocessed the sources needed to locate their directives. Only the
+	 * first call maintains the persistent source cache, so that it is done once per load instead of once per program
+	 * set.
+	 */
+	void onDirectivesLocated() {
+		if (sourceCacheMaintained.compareAndSet(false, true)) {
+			loader.maintainCache();
+		}
+	}
+
+	/**
+	 * Creates the program sets of the base directory and of each dimension override directory, in that order. None of
+	 * the sources are preprocessed yet.
+	 */
+	private ProgramSet[] createProgramSets() {
+		ProgramSet base = new ProgramSet(AbsolutePackPath.fromAbsolutePath("/"), loader, shaderProperties, this);
+
+		ProgramSet overworld = loadOverrides(hasWorld0, AbsolutePackPath.fromAbsolutePath("/world0"), loader,
+				shaderProperties, this);
+		ProgramSet nether = loadOverrides(hasNether, AbsolutePackPath.fromAbsolutePath("/world-1"), loader,
+				shaderProperties, this);
+		ProgramSet end = loadOverrides(hasEnd, AbsolutePackPath.fromAbsolutePath("/world1"), loader,
+				shaderProperties, this);
+
+		// Dimensions whose overrides turn out to be identical share a single program set, which also lets them share a
+		// single pipeline. See PipelineManager.
+		overworld = deduplicate(overworld, base);
+		nether = deduplicate(nether, base, overworld);
+		end = deduplicate(end, base, overworld, nether);
+
+		return new ProgramSet[] { base, overworld, nether, end };
+	}
+
+	/**
+	 * Applies the current values of the given options, which must already be stored in the config of this shader
+	 * pack, without reading the shader pack from the disk again.
+	 *
+	 * <p>Only the programs that may depend on one of the changed options are expanded and preprocessed again, all other
+	 * programs keep their preprocessed sources. See {@link OptionDependencyIndex}.</p>
+	 *
+	 * @return a new shader pack with the option values applied, or this shader pack if none of its programs are
+	 *         affected by the changed options
+	 */
+	public ShaderPack withChangedOptions(Collection<String> changedOptions) {
+		if (config == null) {
+			return this;
+		}
+
+		Set<AbsolutePackPath> affected = getOptionDependencies().getAffectedPrograms(changedOptions);
+
+		if (affected.isEmpty()) {
+			return this;
+		}
+
+		Iris.logger.info("Reloading {} of {} shader program files after changing {} options", affected.size(),
+				programSourcePaths.size(), changedOptions.size());
+
+		ShaderPackOptions options = new ShaderPackOptions(sourceGraph, config);
+
+		return new ShaderPack(this, options, loader.withChangedSources(options.getAppliedGraph(), affected));
+	}
+
+	private synchronized OptionDependencyIndex getOptionDependencies() {
+		// Only built once an option actually changes, since most shader pack loads never need it
+		if (optionDependencies == null) {
+			Set<String> optionNames = new HashSet<>();
+			options.getOptionsByFile().values().forEach(optionNames::addAll);
+
+			optionDependencies = new OptionDependencyIndex(sourceGraph, optionNames, programSourcePaths);
+		}
+
+		return optionDependencies;
+	}
+
+	/**
+	 * Selects the starting files that can be requested by a {@link ProgramSet}, excluding compute shaders.
+	 */
+	private static List<AbsolutePackPath> findProgramSourcePaths(ImmutableList<AbsolutePackPath> startPaths) {
+		List<AbsolutePackPath> paths = new ArrayList<>();
+
+		for (AbsolutePackPath path : startPaths) {
+			String pathString = path.getPathString();
+
+			if (pathString.endsWith(".vsh") || pathString.endsWith(".gsh") || pathString.endsWith(".fsh")) {
+				paths.add(path);
+			}
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Returns the first of the candidates with exactly the same sources as the given program set, or the program set
+	 * itself if there is no such candidate.
+	 */
 	@Nullable
-	private static ProgramSet loadOverrides(boolean has, AbsolutePackPath path, Function<AbsolutePackPath, String> sourceProvider,
+	private static ProgramSet deduplicate(@Nullable ProgramSet programSet, ProgramSet... candidates) {
+		if (programSet == null) {
+			return null;
+		}
+
+		for (ProgramSet candidate : candidates) {
+			if (candidate != null && candidate.hasSameSources(programSet)) {
+				return candidate;
+			}
+		}
+
+		return programSet;
+	}
+
+	@Nullable
+	private static ProgramSet loadOverrides(boolean has, AbsolutePackPath path, ShaderSourceLoader sourceProvider,
 											ShaderProperties shaderProperties, ShaderPack pack) {
 		if (has) {
 			return new ProgramSet(path, sourceProvider, shaderProperties, pack);
@@ -334,6 +455,13 @@ public class ShaderPack {
 		return config;
 	}
 
+	/**
+	 * Returns the options declared by each file of this shader pack.
+	 */
+	public ShaderPackOptions getOptions() {
+		return options;
+	}
+
 	public LanguageMap getLanguageMap() {
 		return languageMap;
 	}
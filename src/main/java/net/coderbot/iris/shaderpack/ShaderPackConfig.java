@@ -1,8 +1,10 @@
 package net.coderbot.iris.shaderpack;
 
 import net.coderbot.iris.Iris;
+import net.coderbot.iris.config.ConfigPersistence;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -18,6 +20,7 @@ public class ShaderPackConfig {
 	private final Map<String, Option<Boolean>> booleanOptions = new HashMap<>();
 	private final Map<String, Option<Float>> floatOptions = new HashMap<>();
 	private final Map<String, Option<Integer>> integerOptions = new HashMap<>();
+	private final OptionRegistry registry = new OptionRegistry();
 
 	public ShaderPackConfig(String name) {
 		//optifine uses txt files, so we should do the same
@@ -26,10 +29,21 @@ public class ShaderPackConfig {
 		comment = "This file stores the shaderpack configuration for the shaderpack " + name;
 	}
 
+	/**
+	 * Returns the properties that this config is stored as. Option values are only written to these properties when
+	 * the config is saved, use {@link #getRegistry()} to access the current values.
+	 */
 	public Properties getConfigProperties() {
 		return configProperties;
 	}
 
+	/**
+	 * Returns the registry that stores the current values of all options of this config.
+	 */
+	public OptionRegistry getRegistry() {
+		return registry;
+	}
+
 	// These 3 methods below should be used by the gui to get the available options and then use them
 	public Iterable<Option<Boolean>> getBooleanOptions() {
 		return booleanOptions.values();
@@ -117,17 +131,14 @@ public class ShaderPackConfig {
 	}
 
 	/**
-	 * Process a new option and adds it to the shader properties to be serialized
+	 * Process a new option and stores its value in the registry, reading it from the properties if needed
 	 *
 	 * @param option the option to process
 	 * @param <T>    the type of the Option
 	 * @return a modified option that has read it's value
 	 */
 	public <T> Option<T> processOption(Option<T> option) {
-		if (configProperties.containsKey(option.getName())) {
-			option.load(configProperties);
-		}
-		option.save(configProperties);
+		option.register(registry, configProperties);
 		return option;
 	}
 
@@ -137,19 +148,29 @@ public class ShaderPackConfig {
 	 * @throws IOException file exception
 	 */
 	public void load() throws IOException {
+		// Make sure that no previous save is still pending, which might also be the save that creates the file
+		Iris.getConfigPersistence().flush();
+
 		if (!Files.exists(shaderPackConfigPath)) {
 			return;
 		}
-		configProperties.load(Files.newInputStream(shaderPackConfigPath));
+
+		try (InputStream stream = Files.newInputStream(shaderPackConfigPath)) {
+			configProperties.load(stream);
+		}
 	}
 
 	/**
-	 * Saves the configProperties
+	 * Saves the configProperties. The file is written in the background, see {@link ConfigPersistence}.
 	 *
 	 * @throws IOException file exceptions
 	 */
 	public void save() throws IOException {
-		configProperties.store(Files.newOutputStream(shaderPackConfigPath), comment);
+		booleanOptions.values().forEach(option -> option.save(configProperties));
+		integerOptions.values().forEach(option -> option.save(configProperties));
+		floatOptions.values().forEach(option -> option.save(configProperties));
+
+		Iris.getConfigPersistence().save(shaderPackConfigPath, configProperties, comment);
 	}
 
 }
@@ -0,0 +1,108 @@
+package net.coderbot.iris.shaderpack;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.coderbot.iris.Iris;
+import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
+import net.coderbot.iris.shaderpack.include.IncludeGraph;
+import net.coderbot.iris.shaderpack.transform.line.LineTransform;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Discovers the options declared by the files of a shader pack, and applies their configured values.
+ *
+ * <p>This runs once for each file of the include graph, before any #include directives are expanded. A settings file
+ * that is included by many programs is therefore only scanned once, and each of its options is only registered with
+ * the {@link ShaderPackConfig} once. Files are visited in the order of the include graph and lines in file order, so
+ * the order in which options are registered doesn't depend on which programs are present.</p>
+ */
+public class ShaderPackOptions {
+	private final IncludeGraph appliedGraph;
+	private final ImmutableMap<AbsolutePackPath, ImmutableList<String>> optionsByFile;
+
+	/**
+	 * @param config the config to sync options with, or null to leave the files unchanged
+	 */
+	public ShaderPackOptions(IncludeGraph graph, @Nullable ShaderPackConfig config) {
+		if (config == null) {
+			this.appliedGraph = graph;
+			this.optionsByFile = ImmutableMap.of();
+
+			return;
+		}
+
+		Map<AbsolutePackPath, Set<String>> discovered = new LinkedHashMap<>();
+
+		this.appliedGraph = graph.map(path -> {
+			Set<String> declared = new LinkedHashSet<>();
+			discovered.put(path, declared);
+
+			return new OptionTransform(path, DefineOptionParser.processConfigOptions(config, declared::add),
+					ConstOptionParser.processConstOptions(config, declared::add));
+		});
+
+		ImmutableMap.Builder<AbsolutePackPath, ImmutableList<String>> optionsByFile = ImmutableMap.builder();
+
+		discovered.forEach((path, declared) -> {
+			if (!declared.isEmpty()) {
+				optionsByFile.put(path, ImmutableList.copyOf(declared));
+			}
+		});
+
+		this.optionsByFile = optionsByFile.build();
+	}
+
+	/**
+	 * Returns the include graph with the configured option values applied to every file.
+	 */
+	public IncludeGraph getAppliedGraph() {
+		return appliedGraph;
+	}
+
+	/**
+	 * Returns the names of the options declared by each file, in the order they are declared. Files that don't declare
+	 * any options are omitted.
+	 */
+	public ImmutableMap<AbsolutePackPath, ImmutableList<String>> getOptionsByFile() {
+		return optionsByFile;
+	}
+
+	public ImmutableList<String> getOptionsDeclaredIn(AbsolutePackPath path) {
+		return optionsByFile.getOrDefault(path, ImmutableList.of());
+	}
+
+	/**
+	 * Applies both kinds of options to a single file, leaving lines unchanged if they can't be processed.
+	 */
+	private static class OptionTransform implements LineTransform {
+		private final AbsolutePackPath path;
+		private final LineTransform defines;
+		private final LineTransform constants;
+		private boolean failed;
+
+		OptionTransform(AbsolutePackPath path, LineTransform defines, LineTransform constants) {
+			this.path = path;
+			this.defines = defines;
+			this.constants = constants;
+		}
+
+		@Override
+		public String transform(int index, String line) {
+			try {
+				return constants.transform(index, defines.transform(index, line));
+			} catch (RuntimeException e) {
+				if (!failed) {
+					failed = true;
+					Iris.logger.error("Error while processing config options for file {}", path, e);
+				}
+
+				return line;
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ import net.coderbot.iris.gl.blending.BlendMode;
 import net.coderbot.iris.gl.blending.BlendModeFunction;
 import net.coderbot.iris.gl.blending.BlendModeOverride;
 import net.coderbot.iris.shaderpack.texture.TextureStage;
+import net.coderbot.iris.uniforms.custom.CustomUniformDeclarations;
 
 import java.util.Optional;
 import java.util.Properties;
@@ -57,7 +58,7 @@ public class ShaderProperties {
 	// TODO: private final Map<String, List<String>> subScreenOptions = new HashMap<>();
 	// TODO: private Integer mainScreenColumnCount;
 	// TODO: private final Map<String, Integer> subScreenColumnCount = new HashMap<>();
-	// TODO: Parse custom uniforms / variables
+	private final CustomUniformDeclarations customUniforms = new CustomUniformDeclarations();
 	private final Object2ObjectMap<String, AlphaTest> alphaTestOverrides = new Object2ObjectOpenHashMap<>();
 	private final Object2FloatMap<String> viewportScaleOverrides = new Object2FloatOpenHashMap<>();
 	private final Object2ObjectMap<String, BlendModeOverride> blendModeOverrides = new Object2ObjectOpenHashMap<>();
@@ -110,7 +111,9 @@ public class ShaderProperties {
 			handleBooleanDirective(key, value, "particles.before.deferred", bool -> particlesBeforeDeferred = bool);
 
 			// TODO: Min optifine versions, shader options layout / appearance / profiles
-			// TODO: Custom uniforms
+
+			handlePassDirective("uniform.", key, value, declaration -> customUniforms.add(true, declaration, value));
+			handlePassDirective("variable.", key, value, declaration -> customUniforms.add(false, declaration, value));
 
 			handlePassDirective("scale.", key, value, pass -> {
 				float scale;
@@ -407,4 +410,8 @@ public class ShaderProperties {
 	public Object2ObjectMap<String, Object2BooleanMap<String>> getExplicitFlips() {
 		return explicitFlips;
 	}
+
+	public CustomUniformDeclarations getCustomUniforms() {
+		return customUniforms;
+	}
 }
@@ -0,0 +1,266 @@
+package net.coderbot.iris.shaderpack;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.coderbot.iris.Iris;
+import net.coderbot.iris.gl.shader.ShaderConstants;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent on-disk cache of preprocessed shader sources.
+ *
+ * <p>Entries are keyed by a hash of the source after include expansion and option application, together with the
+ * environment defines and the Iris version. The expanded source already captures the contents of every file in the
+ * include graph that contributes to it as well as the applied option values, so any change to the pack files, the
+ * shader pack config, or the driver environment results in a different key.</p>
+ *
+ * <p>The cache is bounded by the total size of its entries. Reading an entry refreshes its modification time, and
+ * the least recently used entries are deleted first once the cache grows past its limit.</p>
+ *
+ * <p>Each entry begins with a header holding the length and the checksum of the source that follows it, so that
+ * entries which were truncated or otherwise damaged are detected, discarded and treated as missing.</p>
+ */
+public class ShaderSourceCache {
+	private static final long MAX_SIZE_BYTES = 32L * 1024L * 1024L;
+	private static final String EXTENSION = ".glsl";
+	private static final String HEADER_PREFIX = "#iris_cache ";
+
+	private final Path directory;
+	private final long maxSizeBytes;
+
+	// Entries may be looked up from multiple preprocessing threads at once
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	public ShaderSourceCache(Path directory) {
+		this(directory, MAX_SIZE_BYTES);
+	}
+
+	public ShaderSourceCache(Path directory, long maxSizeBytes) {
+		this.directory = directory;
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	public static ShaderSourceCache createDefault() {
+		return new ShaderSourceCache(Iris.getShaderpacksDirectory().resolve(".iris_cache"));
+	}
+
+	public String computeKey(String expandedSource, ShaderConstants constants) {
+		Hasher hasher = Hashing.sha256().newHasher();
+
+		hasher.putString(Iris.getVersion(), StandardCharsets.UTF_8);
+		hasher.putByte((byte) 0);
+
+		for (String define : constants.getDefineStrings()) {
+			hasher.putString(define, StandardCharsets.UTF_8);
+			hasher.putByte((byte) '\n');
+		}
+
+		hasher.putByte((byte) 0);
+		hasher.putString(expandedSource, StandardCharsets.UTF_8);
+
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Looks up a previously stored preprocessed source.
+	 *
+	 * @return the cached source, or null if there is no entry for the key or the entry could not be read
+	 */
+	@Nullable
+	public String get(String key) {
+		Path entry = directory.resolve(key + EXTENSION);
+
+		try {
+			String source = decode(Files.readAllBytes(entry));
+
+			if (source == null) {
+				Iris.logger.warn("Discarding corrupted cached shader source " + entry);
+				Files.deleteIfExists(entry);
+				misses.incrementAndGet();
+
+				return null;
+			}
+
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+
+			hits.incrementAndGet();
+
+			return source;
+		} catch (NoSuchFileException e) {
+			misses.incrementAndGet();
+
+			return null;
+		} catch (IOException e) {
+			Iris.logger.warn("Failed to read cached shader source " + entry, e);
+			misses.incrementAndGet();
+
+			return null;
+		}
+	}
+
+	public void put(String key, String source) {
+		Path entry = directory.resolve(key + EXTENSION);
+		// Identical sources may be written from two threads at once, so each thread needs its own temporary file.
+		Path temporary = directory.resolve(key + EXTENSION + "." + Thread.currentThread().getId() + ".tmp");
+
+		try {
+			Files.createDirectories(directory);
+			Files.write(temporary, encode(source));
+
+			try {
+				Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			Iris.logger.warn("Failed to write cached shader source " + entry, e);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the total size of the cache is within its limit.
+	 */
+	public void evict() {
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		List<Path> entries = new ArrayList<>();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(entries::add);
+		} catch (IOException e) {
+			Iris.logger.warn("Failed to list the shader source cache at " + directory, e);
+			return;
+		}
+
+		long totalSize = 0;
+		List<CacheEntry> cacheEntries = new ArrayList<>(entries.size());
+
+		for (Path entry : entries) {
+			try {
+				long size = Files.size(entry);
+				cacheEntries.add(new CacheEntry(entry, size, Files.getLastModifiedTime(entry).toMillis()));
+				totalSize += size;
+			} catch (IOException e) {
+				// The entry was probably deleted concurrently, just skip it.
+			}
+		}
+
+		if (totalSize <= maxSizeBytes) {
+			return;
+		}
+
+		cacheEntries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+
+		for (CacheEntry entry : cacheEntries) {
+			if (totalSize <= maxSizeBytes) {
+				break;
+			}
+
+			try {
+				Files.deleteIfExists(entry.path);
+				totalSize -= entry.size;
+			} catch (IOException e) {
+				Iris.logger.warn("Failed to evict cached shader source " + entry.path, e);
+			}
+		}
+	}
+
+	private static byte[] encode(String source) {
+		byte[] content = source.getBytes(StandardCharsets.UTF_8);
+		byte[] header = (HEADER_PREFIX + content.length + " " + Long.toHexString(checksum(content, 0, content.length))
+				+ "\n").getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = Arrays.copyOf(header, header.length + content.length);
+
+		System.arraycopy(content, 0, bytes, header.length, content.length);
+
+		return bytes;
+	}
+
+	/**
+	 * Returns the source stored in an entry, or null if the header is missing or doesn't match the stored source.
+	 */
+	@Nullable
+	private static String decode(byte[] bytes) {
+		int headerEnd = 0;
+
+		while (headerEnd < bytes.length && bytes[headerEnd] != '\n') {
+			headerEnd++;
+		}
+
+		if (headerEnd == bytes.length) {
+			return null;
+		}
+
+		String header = new String(bytes, 0, headerEnd, StandardCharsets.UTF_8);
+
+		if (!header.startsWith(HEADER_PREFIX)) {
+			return null;
+		}
+
+		String[] parts = header.substring(HEADER_PREFIX.length()).split(" ");
+		int start = headerEnd + 1;
+		int length = bytes.length - start;
+
+		try {
+			if (parts.length != 2 || Integer.parseInt(parts[0]) != length
+					|| Long.parseLong(parts[1], 16) != checksum(bytes, start, length)) {
+				return null;
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		return new String(bytes, start, length, StandardCharsets.UTF_8);
+	}
+
+	private static long checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+
+		return crc.getValue();
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public int getMisses() {
+		return misses.get();
+	}
+
+	public void resetStatistics() {
+		hits.set(0);
+		misses.set(0);
+	}
+
+	private static class CacheEntry {
+		private final Path path;
+		private final long size;
+		private final long lastUsed;
+
+		CacheEntry(Path path, long size, long lastUsed) {
+			this.path = path;
+			this.size = size;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
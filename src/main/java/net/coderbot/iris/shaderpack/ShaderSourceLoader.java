@@ -0,0 +1,436 @@
+package net.coderbot.iris.shaderpack;
+
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.coderbot.iris.Iris;
+import net.coderbot.iris.gl.shader.ShaderConstants;
+import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
+import net.coderbot.iris.shaderpack.include.ExpandedFile;
+import net.coderbot.iris.shaderpack.include.FileNode;
+import net.coderbot.iris.shaderpack.include.IncludeGraph;
+import net.coderbot.iris.shaderpack.include.IncludeProcessor;
+import net.coderbot.iris.shaderpack.preprocessor.GlslPreprocessor;
+import net.coderbot.iris.shaderpack.preprocessor.SharedPrefixCache;
+import net.coderbot.iris.shaderpack.transform.line.LineTransform;
+import net.coderbot.iris.shaderpack.transform.line.VersionDirectiveNormalizer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Turns the program source files of a shader pack into the final preprocessed source code that is handed to the
+ * driver.
+ *
+ * <p>Loading happens in two phases. The first phase expands #include directives of an include graph that already has
+ * the shader pack options applied (see {@link ShaderPackOptions}), and normalizes version directives. It runs eagerly
+ * for every source file, on the calling thread, in a fixed order. The second phase (environment defines and the GLSL
+ * preprocessor) is a pure function of the output of the first phase, and is by far the more expensive of the two, so
+ * it is deferred until a source is first requested. Sources that are known to be needed together can be preloaded
+ * concurrently on a fork-join pool. Both modes produce identical output.</p>
+ *
+ * <p>Programs usually begin by including the same settings file, so the state of the preprocessor after each include
+ * that is shared by multiple programs is captured and reused by the other programs with an identical prefix, see
+ * {@link SharedPrefixCache}.</p>
+ */
+public class ShaderSourceLoader {
+	private final IncludeGraph graph;
+	private final Supplier<ShaderConstants> constants;
+	@Nullable
+	private final ShaderSourceCache cache;
+	private final boolean parallel;
+	private final Map<AbsolutePackPath, LazySource> sources;
+
+	// Created on first use, since the environment defines can only be queried once OpenGL is available
+	@Nullable
+	private ShaderConstants resolvedConstants;
+	@Nullable
+	private SharedPrefixCache prefixCache;
+
+	/**
+	 * @param constants provides the environment defines to apply. It is only queried once the first source is
+	 *                  preprocessed, and always from the thread requesting that source or calling {@link #preload}.
+	 * @param cache a persistent cache of preprocessed sources, or null to always run the preprocessor
+	 * @param parallel whether {@link #preload} may run the GLSL preprocessor on multiple threads at once
+	 */
+	public ShaderSourceLoader(IncludeGraph graph, Supplier<ShaderConstants> constants,
+							  @Nullable ShaderSourceCache cache, boolean parallel) {
+		this.graph = graph;
+		this.constants = constants;
+		this.cache = cache;
+		this.parallel = parallel;
+		this.sources = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Expands the includes of each of the given source files. Files that are not present in the include graph are
+	 * skipped.
+	 *
+	 * @param paths the source files to load
+	 */
+	public void expandAll(List<AbsolutePackPath> paths) {
+		IncludeProcessor includeProcessor = new IncludeProcessor(graph);
+		Object2IntMap<AbsolutePackPath> includeCounts = countDirectIncludes(paths);
+
+		// Sources are content-addressed: files that expand to exactly the same text, which is common for dimension
+		// overrides that just include the base programs, share a single source that is only preprocessed once.
+		Map<String, LazySource> sourcesByContent = new HashMap<>();
+
+		for (AbsolutePackPath path : paths) {
+			ExpandedSource expanded = expand(includeProcessor, path, includeCounts);
+
+			if (expanded != null) {
+				sources.put(path, sourcesByContent.computeIfAbsent(expanded.source, content -> new LazySource(this, expanded)));
+			}
+		}
+	}
+
+	/**
+	 * Creates a loader for an include graph in which only the given source files have changed, for example after the
+	 * values of some options were changed. The changed files are expanded again, while all other files that have
+	 * already been preprocessed keep their preprocessed output. The environment defines are reused as well, but the new
+	 * loader starts with an empty shared prefix cache, so that the snapshots of every previous set of option values
+	 * aren't kept around.
+	 *
+	 * @param graph the new include graph, with the same files as the include graph of this loader
+	 * @param changedPaths the source files whose expanded text may differ in the new include graph
+	 */
+	public ShaderSourceLoader withChangedSources(IncludeGraph graph, Set<AbsolutePackPath> changedPaths) {
+		ShaderSourceLoader loader = new ShaderSourceLoader(graph, constants, cache, parallel);
+
+		synchronized (this) {
+			loader.resolvedConstants = resolvedConstants;
+		}
+
+		List<AbsolutePackPath> paths = new ArrayList<>(sources.keySet());
+		IncludeProcessor includeProcessor = new IncludeProcessor(graph);
+		Object2IntMap<AbsolutePackPath> includeCounts = loader.countDirectIncludes(paths);
+		Map<String, LazySource> sourcesByContent = new HashMap<>();
+
+		for (AbsolutePackPath path : paths) {
+			LazySource previous = sources.get(path);
+
+			// Only sources that are already preprocessed are kept, so that all pending work belongs to the new loader.
+			if (!changedPaths.contains(path) && previous.isDone()) {
+				loader.sources.put(path, previous);
+				continue;
+			}
+
+			ExpandedSource expanded = loader.expand(includeProcessor, path, includeCounts);
+
+			if (expanded != null) {
+				loader.sources.put(path, sourcesByContent.computeIfAbsent(expanded.source,
+						content -> new LazySource(loader, expanded)));
+			}
+		}
+
+		return loader;
+	}
+
+	/**
+	 * Returns the paths of all source files that were found by {@link #expandAll}, in the order they were expanded.
+	 */
+	public Set<AbsolutePackPath> getLoadedPaths() {
+		return Collections.unmodifiableSet(sources.keySet());
+	}
+
+	/**
+	 * Returns a supplier of the preprocessed source code of the given file, which runs the preprocessor the first time
+	 * that it is called. Returns null if the file was not loaded.
+	 *
+	 * <p>Files with identical expanded sources return the same supplier instance, so comparing suppliers by identity
+	 * is enough to tell whether two files will produce the same preprocessed source.</p>
+	 */
+	@Nullable
+	public Supplier<String> getSource(AbsolutePackPath path) {
+		return sources.get(path);
+	}
+
+	/**
+	 * Preprocesses the given sources ahead of time, concurrently if enabled. Sources that have already been
+	 * preprocessed or that were not loaded are skipped.
+	 */
+	public void preload(Collection<AbsolutePackPath> paths) {
+		preload(paths, true);
+	}
+
+	/**
+	 * Preprocesses the given sources ahead of time, like {@link #preload(Collection)}.
+	 *
+	 * @param allowParallel whether the sources may be preprocessed on multiple threads at once, if enabled. Background
+	 *                      work that shouldn't compete with the game for CPU time passes false, which preprocesses
+	 *                      everything on the calling thread instead.
+	 */
+	public void preload(Collection<AbsolutePackPath> paths, boolean allowParallel) {
+		// Identity-based, since several paths may share the same source
+		Set<LazySource> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (AbsolutePackPath path : paths) {
+			LazySource source = sources.get(path);
+
+			if (source != null && !source.isDone()) {
+				pending.add(source);
+			}
+		}
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		// Make sure that the environment defines are queried on this thread, not on a worker thread.
+		getPrefixCache();
+
+		LazySource[] toProcess = pending.toArray(new LazySource[0]);
+
+		if (parallel && allowParallel && toProcess.length > 1) {
+			// The common pool already uses one thread less than there are processors, and keeps its threads around
+			// between loads instead of starting new ones every time.
+			ForkJoinPool.commonPool().invoke(new PreprocessTask(toProcess, 0, toProcess.length));
+		} else {
+			for (LazySource source : toProcess) {
+				source.get();
+			}
+		}
+
+		SharedPrefixCache prefixCache = getPrefixCache();
+
+		Iris.logger.debug("Reused {} characters of preprocessed shared includes across {} snapshots",
+				prefixCache.getReusedCharacters(), prefixCache.getSnapshotCount());
+
+		// None of the snapshots can be reused once every source has been preprocessed.
+		if (sources.values().stream().allMatch(LazySource::isDone)) {
+			synchronized (this) {
+				this.prefixCache = null;
+			}
+		}
+	}
+
+	/**
+	 * Logs how many sources were found in the persistent cache since the last call, and deletes the least recently
+	 * used entries of the cache if it grew past its limit. This lists the whole cache directory, so it should only be
+	 * done once per load of a shader pack.
+	 */
+	public void maintainCache() {
+		if (cache == null) {
+			return;
+		}
+
+		Iris.logger.info("Shader source cache: {} hits, {} misses", cache.getHits(), cache.getMisses());
+		cache.resetStatistics();
+		cache.evict();
+	}
+
+	private synchronized ShaderConstants getConstants() {
+		if (resolvedConstants == null) {
+			resolvedConstants = constants.get();
+		}
+
+		return resolvedConstants;
+	}
+
+	/**
+	 * Returns the shared prefix cache, creating it with the environment defines already applied to the initial state
+	 * if needed.
+	 */
+	private synchronized SharedPrefixCache getPrefixCache() {
+		if (prefixCache == null) {
+			GlslPreprocessor initial = new GlslPreprocessor();
+
+			for (String define : getConstants().getDefineStrings()) {
+				if (define.startsWith("#define ")) {
+					initial.define(define.substring("#define ".length()));
+				}
+			}
+
+			prefixCache = new SharedPrefixCache(initial.snapshot());
+		}
+
+		return prefixCache;
+	}
+
+	private String preprocess(ExpandedSource expanded) {
+		SharedPrefixCache prefixCache = getPrefixCache();
+		String cacheKey = null;
+
+		// Sources that are found in the cache skip the preprocessor entirely.
+		if (cache != null) {
+			cacheKey = cache.computeKey(expanded.source, getConstants());
+			String cached = cache.get(cacheKey);
+
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		String processed = prefixCache.preprocess(expanded.source.toCharArray(), expanded.boundaries);
+
+		if (cache != null) {
+			cache.put(cacheKey, processed);
+		}
+
+		return processed;
+	}
+
+	/**
+	 * Counts how many of the given source files directly include each file, so that prefix snapshots are only kept
+	 * for includes that can actually be shared.
+	 */
+	private Object2IntMap<AbsolutePackPath> countDirectIncludes(List<AbsolutePackPath> paths) {
+		Object2IntMap<AbsolutePackPath> counts = new Object2IntOpenHashMap<>();
+
+		for (AbsolutePackPath path : paths) {
+			FileNode node = graph.getNodes().get(path);
+
+			if (node == null) {
+				continue;
+			}
+
+			for (AbsolutePackPath include : node.getIncludes().values()) {
+				counts.put(include, counts.getInt(include) + 1);
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Expands the includes of a single source file.
+	 *
+	 * @return the expanded source, or null if the file does not exist
+	 */
+	@Nullable
+	private ExpandedSource expand(IncludeProcessor includeProcessor, AbsolutePackPath path,
+								  Object2IntMap<AbsolutePackPath> includeCounts) {
+		ExpandedFile expanded = includeProcessor.getExpandedFile(path);
+
+		if (expanded == null) {
+			return null;
+		}
+
+		ImmutableList<String> lines = expanded.toImmutableList();
+
+		// Normalize version directives.
+		lines = LineTransform.apply(lines, VersionDirectiveNormalizer.INSTANCE);
+
+		// The line transform above never adds or removes lines, so the expanded line numbers still apply. Includes are
+		// stored in line order, so the boundaries come out sorted.
+		IntList boundaryLines = new IntArrayList();
+
+		graph.getNodes().get(path).getIncludes().forEach((line, include) -> {
+			if (includeCounts.getInt(include) > 1) {
+				boundaryLines.add(expanded.getIncludeEnd(line));
+			}
+		});
+
+		StringBuilder builder = new StringBuilder();
+		int[] boundaries = new int[boundaryLines.size()];
+		int nextBoundary = 0;
+
+		for (int i = 0; i < lines.size(); i++) {
+			builder.append(lines.get(i));
+			builder.append('\n');
+
+			while (nextBoundary < boundaries.length && boundaryLines.getInt(nextBoundary) == i + 1) {
+				boundaries[nextBoundary++] = builder.length();
+			}
+		}
+
+		return new ExpandedSource(builder.toString(), Arrays.copyOf(boundaries, nextBoundary));
+	}
+
+	private static class ExpandedSource {
+		private final String source;
+		private final int[] boundaries;
+
+		ExpandedSource(String source, int[] boundaries) {
+			this.source = source;
+			this.boundaries = boundaries;
+		}
+	}
+
+	/**
+	 * A source file that is preprocessed the first time it is requested.
+	 */
+	private static class LazySource implements Supplier<String> {
+		// Only needed until the source is preprocessed. Sources that are kept by a later loader must not keep the
+		// loader that created them alive, along with its shared prefix cache.
+		@Nullable
+		private ShaderSourceLoader loader;
+		@Nullable
+		private ExpandedSource expanded;
+		@Nullable
+		private volatile String preprocessed;
+
+		LazySource(ShaderSourceLoader loader, ExpandedSource expanded) {
+			this.loader = loader;
+			this.expanded = expanded;
+		}
+
+		boolean isDone() {
+			return preprocessed != null;
+		}
+
+		@Override
+		public String get() {
+			String result = preprocessed;
+
+			if (result == null) {
+				synchronized (this) {
+					result = preprocessed;
+
+					if (result == null) {
+						result = loader.preprocess(expanded);
+						preprocessed = result;
+						// The expanded source and the loader are no longer needed
+						expanded = null;
+						loader = null;
+					}
+				}
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Preprocesses a range of sources, splitting the range in half until each task only has a single source left to
+	 * process.
+	 */
+	private static class PreprocessTask extends RecursiveAction {
+		private final LazySource[] sources;
+		private final int start;
+		private final int end;
+
+		PreprocessTask(LazySource[] sources, int start, int end) {
+			this.sources = sources;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start == 1) {
+				sources[start].get();
+				return;
+			}
+
+			int middle = (start + end) >>> 1;
+
+			invokeAll(new PreprocessTask(sources, start, middle), new PreprocessTask(sources, middle, end));
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package net.coderbot.iris.shaderpack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The const and comment directives of a single shader source, found in a single pass over its characters.
+ *
+ * <p>Const directives are recognized line by line, with the same rules as {@link ConstDirectiveParser}. Comment
+ * directives follow the rules of {@link CommentDirectiveParser}: only the last occurrence of each type of comment
+ * directive in the whole source counts, and it is only validated once it is requested.</p>
+ *
+ * <p>The values of the directives are kept as offsets into the source, and are only copied out of the source when
+ * they are actually read.</p>
+ */
+public final class SourceDirectives {
+	private static final CommentDirective.Type[] COMMENT_TYPES = CommentDirective.Type.values();
+	private static final String COMMENT_SUFFIX = "*/";
+
+	private final String source;
+	private final List<ConstDirectiveParser.ConstDirective> constDirectives;
+	// The offset of the last occurrence of the "TYPE:" prefix of each comment directive type, or -1
+	private final int[] lastCommentPrefixes;
+
+	private SourceDirectives(String source, List<ConstDirectiveParser.ConstDirective> constDirectives,
+							 int[] lastCommentPrefixes) {
+		this.source = source;
+		this.constDirectives = constDirectives;
+		this.lastCommentPrefixes = lastCommentPrefixes;
+	}
+
+	public static SourceDirectives lex(String source) {
+		List<ConstDirectiveParser.ConstDirective> constDirectives = new ArrayList<>();
+		int[] lastCommentPrefixes = new int[COMMENT_TYPES.length];
+		Arrays.fill(lastCommentPrefixes, -1);
+
+		int length = source.length();
+		int lineStart = 0;
+
+		for (int i = 0; i <= length; i++) {
+			char c = i < length ? source.charAt(i) : '\n';
+
+			if (isLineTerminator(c)) {
+				ConstDirectiveParser.ConstDirective directive = lexConstDirective(source, lineStart, i);
+
+				if (directive != null) {
+					constDirectives.add(directive);
+				}
+
+				lineStart = i + 1;
+				continue;
+			}
+
+			for (int type = 0; type < COMMENT_TYPES.length; type++) {
+				String name = COMMENT_TYPES[type].name();
+
+				if (c == name.charAt(0) && source.startsWith(name, i) && i + name.length() < length
+						&& source.charAt(i + name.length()) == ':') {
+					lastCommentPrefixes[type] = i;
+				}
+			}
+		}
+
+		return new SourceDirectives(source, constDirectives, lastCommentPrefixes);
+	}
+
+	public List<ConstDirectiveParser.ConstDirective> getConstDirectives() {
+		return Collections.unmodifiableList(constDirectives);
+	}
+
+	/**
+	 * Returns the last directive of the given type, if it is well formed.
+	 */
+	public Optional<CommentDirective> getCommentDirective(CommentDirective.Type type) {
+		int prefixStart = lastCommentPrefixes[type.ordinal()];
+
+		if (prefixStart == -1) {
+			return Optional.empty();
+		}
+
+		// Reject a match if it doesn't actually start with a comment marker
+		int before = prefixStart;
+
+		while (before > 0 && source.charAt(before - 1) <= ' ') {
+			before--;
+		}
+
+		if (before < 2 || !source.startsWith("/*", before - 2)) {
+			return Optional.empty();
+		}
+
+		int valueStart = prefixStart + type.name().length() + 1;
+		int suffix = source.indexOf(COMMENT_SUFFIX, valueStart);
+
+		// If there isn't a proper suffix, this directive is malformed and should be discarded.
+		if (suffix == -1) {
+			return Optional.empty();
+		}
+
+		return Optional.of(new CommentDirective(type, trimmed(source, valueStart, suffix), prefixStart));
+	}
+
+	/**
+	 * Recognizes a const directive on a single line, see {@link ConstDirectiveParser#findDirectiveInLine}.
+	 */
+	static ConstDirectiveParser.ConstDirective lexConstDirective(String source, int start, int end) {
+		// Trim any surrounding whitespace (such as indentation) from the line, the same way as String#trim.
+		while (start < end && source.charAt(start) <= ' ') {
+			start++;
+		}
+
+		while (end > start && source.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		// A valid declaration must have a trimmed line starting with const, followed by at least one whitespace
+		// character
+		if (!source.startsWith("const", start)) {
+			return null;
+		}
+
+		int index = start + "const".length();
+
+		if (index >= end || !Character.isWhitespace(source.charAt(index))) {
+			return null;
+		}
+
+		while (index < end && source.charAt(index) <= ' ') {
+			index++;
+		}
+
+		ConstDirectiveParser.Type type;
+
+		if (source.startsWith("int", index)) {
+			type = ConstDirectiveParser.Type.INT;
+			index += "int".length();
+		} else if (source.startsWith("float", index)) {
+			type = ConstDirectiveParser.Type.FLOAT;
+			index += "float".length();
+		} else if (source.startsWith("vec4", index)) {
+			type = ConstDirectiveParser.Type.VEC4;
+			index += "vec4".length();
+		} else if (source.startsWith("bool", index)) {
+			type = ConstDirectiveParser.Type.BOOL;
+			index += "bool".length();
+		} else {
+			return null;
+		}
+
+		// There must be at least one whitespace character between the type keyword and the key
+		if (index >= end || !Character.isWhitespace(source.charAt(index))) {
+			return null;
+		}
+
+		int equals = indexOf(source, '=', index, end);
+
+		if (equals == -1) {
+			return null;
+		}
+
+		String key = trimmed(source, index, equals);
+
+		if (!isWord(key)) {
+			return null;
+		}
+
+		int semicolon = indexOf(source, ';', equals + 1, end);
+
+		if (semicolon == -1) {
+			return null;
+		}
+
+		int valueStart = equals + 1;
+		int valueEnd = semicolon;
+
+		while (valueStart < valueEnd && source.charAt(valueStart) <= ' ') {
+			valueStart++;
+		}
+
+		while (valueEnd > valueStart && source.charAt(valueEnd - 1) <= ' ') {
+			valueEnd--;
+		}
+
+		return new ConstDirectiveParser.ConstDirective(type, key, source, valueStart, valueEnd);
+	}
+
+	private static int indexOf(String source, char c, int start, int end) {
+		int index = source.indexOf(c, start);
+
+		return index < end ? index : -1;
+	}
+
+	private static String trimmed(String source, int start, int end) {
+		while (start < end && source.charAt(start) <= ' ') {
+			start++;
+		}
+
+		while (end > start && source.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		return source.substring(start, end);
+	}
+
+	private static boolean isWord(String text) {
+		if (text.isEmpty()) {
+			return false;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			char character = text.charAt(i);
+
+			if (!Character.isDigit(character) && !Character.isAlphabetic(character) && character != '_') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Matches the \R sequence of regular expressions, treating \r\n as two line terminators, which only adds an empty line
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u000B' || c == '\u000C' || c == '\u0085' || c == '\u2028'
+				|| c == '\u2029';
+	}
+}
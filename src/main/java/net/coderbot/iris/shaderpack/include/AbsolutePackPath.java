@@ -45,6 +45,10 @@ public class AbsolutePackPath {
 		return fromAbsolutePath(merged);
 	}
 
+	public String getPathString() {
+		return path;
+	}
+
 	public Path resolved(Path root) {
 		if (path.equals("/")) {
 			return root;
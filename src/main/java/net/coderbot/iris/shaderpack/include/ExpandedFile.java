@@ -0,0 +1,188 @@
+package net.coderbot.iris.shaderpack.include;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A source file with all of its #include directives expanded.
+ *
+ * <p>The expanded file is stored as a rope: a sequence of slices, each referring to a range of lines of a single
+ * {@link FileNode}. Expanding a file that includes another one only copies references to the slices of the included
+ * file, never the lines themselves, and the slices double as a compact map from each line of the expanded file back
+ * to the file and line that it originally came from.</p>
+ */
+public final class ExpandedFile {
+	private final AbsolutePackPath path;
+	private final Slice[] slices;
+	/**
+	 * The index of the first expanded line of each slice, with an extra entry at the end holding the total line count.
+	 */
+	private final int[] offsets;
+	/**
+	 * For each #include directive in the root file (in order), the index of the root line containing the directive
+	 * and the index of the first expanded line after the included content.
+	 */
+	private final int[] includeLines;
+	private final int[] includeEnds;
+
+	ExpandedFile(AbsolutePackPath path, Slice[] slices, int[] includeLines, int[] includeEnds) {
+		this.path = path;
+		this.slices = slices;
+		this.offsets = new int[slices.length + 1];
+		this.includeLines = includeLines;
+		this.includeEnds = includeEnds;
+
+		for (int i = 0; i < slices.length; i++) {
+			offsets[i + 1] = offsets[i] + slices[i].size();
+		}
+	}
+
+	public AbsolutePackPath getPath() {
+		return path;
+	}
+
+	public int getLineCount() {
+		return offsets[slices.length];
+	}
+
+	public String getLine(int index) {
+		int slice = findSlice(index);
+
+		return slices[slice].getLine(index - offsets[slice]);
+	}
+
+	/**
+	 * Returns a read-only view of the expanded lines, backed by this rope.
+	 */
+	public List<String> asList() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return getLine(index);
+			}
+
+			@Override
+			public int size() {
+				return getLineCount();
+			}
+		};
+	}
+
+	/**
+	 * Copies the expanded lines into a flat list.
+	 */
+	public ImmutableList<String> toImmutableList() {
+		ImmutableList.Builder<String> builder = ImmutableList.builderWithExpectedSize(getLineCount());
+
+		for (Slice slice : slices) {
+			for (int i = 0; i < slice.size(); i++) {
+				builder.add(slice.getLine(i));
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Maps a line of the expanded file back to the file and line that it originally came from.
+	 *
+	 * @param index a zero-based line index in the expanded file
+	 */
+	public LineOrigin getOrigin(int index) {
+		int slice = findSlice(index);
+
+		return new LineOrigin(slices[slice].path, slices[slice].firstOriginLine + index - offsets[slice]);
+	}
+
+	/**
+	 * Returns the index of the first expanded line following the content included by the #include directive on the
+	 * given line of the root file, or -1 if that line does not contain an #include directive.
+	 */
+	public int getIncludeEnd(int rootLine) {
+		int index = Arrays.binarySearch(includeLines, rootLine);
+
+		return index >= 0 ? includeEnds[index] : -1;
+	}
+
+	Slice[] getSlices() {
+		return slices;
+	}
+
+	private int findSlice(int index) {
+		if (index < 0 || index >= getLineCount()) {
+			throw new IndexOutOfBoundsException("Line " + index + " is out of bounds for " + path
+					+ " with " + getLineCount() + " expanded lines");
+		}
+
+		int low = 0;
+		int high = slices.length - 1;
+
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if (offsets[middle] <= index) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * A range of lines from a single source file.
+	 */
+	static final class Slice {
+		private final AbsolutePackPath path;
+		private final List<String> lines;
+		private final int start;
+		private final int end;
+		private final int firstOriginLine;
+
+		Slice(AbsolutePackPath path, List<String> lines, int start, int end, int firstOriginLine) {
+			this.path = path;
+			this.lines = lines;
+			this.start = start;
+			this.end = end;
+			this.firstOriginLine = firstOriginLine;
+		}
+
+		int size() {
+			return end - start;
+		}
+
+		String getLine(int index) {
+			return lines.get(start + index);
+		}
+	}
+
+	/**
+	 * The file and zero-based line index that a line of an expanded file came from.
+	 */
+	public static final class LineOrigin {
+		private final AbsolutePackPath path;
+		private final int line;
+
+		LineOrigin(AbsolutePackPath path, int line) {
+			this.path = path;
+			this.line = line;
+		}
+
+		public AbsolutePackPath getPath() {
+			return path;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		@Override
+		public String toString() {
+			return path.getPathString() + ":" + (line + 1);
+		}
+	}
+}
@@ -4,16 +4,17 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import net.coderbot.iris.shaderpack.transform.line.LineTransform;
 
+import java.util.List;
 import java.util.Objects;
 
 public class FileNode {
 	private final AbsolutePackPath path;
-	private final ImmutableList<String> lines;
+	private final List<String> lines;
 	private final ImmutableMap<Integer, AbsolutePackPath> includes;
 
 	// NB: The caller is responsible for ensuring that the includes map
 	//     is in sync with the lines list.
-	private FileNode(AbsolutePackPath path, ImmutableList<String> lines,
+	private FileNode(AbsolutePackPath path, List<String> lines,
 					 ImmutableMap<Integer, AbsolutePackPath> includes) {
 		this.path = path;
 		this.lines = lines;
@@ -24,17 +25,39 @@ public class FileNode {
 		this.path = path;
 		this.lines = lines;
 
-		AbsolutePackPath currentDirectory = path.parent().orElseThrow(
-				() -> new IllegalArgumentException("Not a valid shader file name: " + path));
+		ImmutableMap.Builder<Integer, AbsolutePackPath> foundIncludes = ImmutableMap.builder();
+		AbsolutePackPath currentDirectory = getDirectory(path);
+
+		for (int i = 0; i < lines.size(); i++) {
+			findInclude(foundIncludes, currentDirectory, i, lines.get(i));
+		}
+
+		this.includes = foundIncludes.build();
+	}
+
+	/**
+	 * Creates a file node from lines that are decoded lazily. Only lines that could be #include directives are decoded
+	 * while searching for includes.
+	 */
+	public FileNode(AbsolutePackPath path, SourceLines lines) {
+		this.path = path;
+		this.lines = lines;
+
+		ImmutableMap.Builder<Integer, AbsolutePackPath> foundIncludes = ImmutableMap.builder();
+		AbsolutePackPath currentDirectory = getDirectory(path);
 
-		this.includes = findIncludes(currentDirectory, lines);
+		for (int i : lines.getIncludeCandidates()) {
+			findInclude(foundIncludes, currentDirectory, i, lines.get(i));
+		}
+
+		this.includes = foundIncludes.build();
 	}
 
 	public AbsolutePackPath getPath() {
 		return path;
 	}
 
-	public ImmutableList<String> getLines() {
+	public List<String> getLines() {
 		return lines;
 	}
 
@@ -43,6 +66,18 @@ public class FileNode {
 	}
 
 	public FileNode map(LineTransform transform) {
+		if (lines instanceof SourceLines) {
+			SourceLines newLines = ((SourceLines) lines).map(transform);
+
+			for (int index : includes.keySet()) {
+				if (!Objects.equals(lines.get(index), newLines.get(index))) {
+					throw new IllegalStateException("Attempted to modify an #include line in LineTransform.");
+				}
+			}
+
+			return new FileNode(path, newLines, includes);
+		}
+
 		ImmutableList.Builder<String> newLines = ImmutableList.builder();
 		int index = 0;
 
@@ -62,37 +97,36 @@ public class FileNode {
 		return new FileNode(path, newLines.build(), includes);
 	}
 
-	private static ImmutableMap<Integer, AbsolutePackPath> findIncludes(AbsolutePackPath currentDirectory,
-																		ImmutableList<String> lines) {
-		ImmutableMap.Builder<Integer, AbsolutePackPath> foundIncludes = ImmutableMap.builder();
-
-		for (int i = 0; i < lines.size(); i++) {
-			String line = lines.get(i).trim();
+	private static AbsolutePackPath getDirectory(AbsolutePackPath path) {
+		return path.parent().orElseThrow(
+				() -> new IllegalArgumentException("Not a valid shader file name: " + path));
+	}
 
-			if (!line.startsWith("#include")) {
-				continue;
-			}
+	private static void findInclude(ImmutableMap.Builder<Integer, AbsolutePackPath> foundIncludes,
+									AbsolutePackPath currentDirectory, int index, String rawLine) {
+		String line = rawLine.trim();
 
-			// Remove the "#include " part so that we just have the file path
-			String target = line.substring("#include ".length()).trim();
-
-			// Remove quotes if they're present
-			// All include directives should have quotes, but I'm not sure whether they're required to.
-			// TODO: Check if quotes are required, and don't permit mismatched quotes
-			// TODO: This shouldn't be accepted:
-			//       #include "test.glsl
-			//       #include test.glsl"
-			if (target.startsWith("\"")) {
-				target = target.substring(1);
-			}
+		if (!line.startsWith("#include")) {
+			return;
+		}
 
-			if (target.endsWith("\"")) {
-				target = target.substring(0, target.length() - 1);
-			}
+		// Remove the "#include " part so that we just have the file path
+		String target = line.substring("#include ".length()).trim();
+
+		// Remove quotes if they're present
+		// All include directives should have quotes, but I'm not sure whether they're required to.
+		// TODO: Check if quotes are required, and don't permit mismatched quotes
+		// TODO: This shouldn't be accepted:
+		//       #include "test.glsl
+		//       #include test.glsl"
+		if (target.startsWith("\"")) {
+			target = target.substring(1);
+		}
 
-			foundIncludes.put(i, currentDirectory.resolve(target));
+		if (target.endsWith("\"")) {
+			target = target.substring(0, target.length() - 1);
 		}
 
-		return foundIncludes.build();
+		foundIncludes.put(index, currentDirectory.resolve(target));
 	}
 }
@@ -1,20 +1,26 @@
 package net.coderbot.iris.shaderpack.include;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.coderbot.iris.shaderpack.transform.line.LineTransform;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 
 /**
@@ -54,6 +60,8 @@ import java.util.function.Function;
  */
 // TODO: Write tests for this code
 public class IncludeGraph {
+	private static final int MAX_IO_THREADS = 4;
+
 	private final ImmutableMap<AbsolutePackPath, FileNode> nodes;
 	private final ImmutableMap<AbsolutePackPath, IOException> failures;
 
@@ -64,26 +72,46 @@ public class IncludeGraph {
 	}
 
 	public IncludeGraph(Path root, ImmutableList<AbsolutePackPath> startingPaths) {
+		this(root, startingPaths, false);
+	}
+
+	/**
+	 * @param concurrent whether files should be read on a small pool of I/O threads. This helps when reading is
+	 *                   latency bound, such as for packs stored inside zip files or on slow drives. The resulting graph
+	 *                   is identical either way.
+	 */
+	public IncludeGraph(Path root, ImmutableList<AbsolutePackPath> startingPaths, boolean concurrent) {
 		Map<AbsolutePackPath, FileNode> nodes = new HashMap<>();
 		Map<AbsolutePackPath, IOException> failures = new HashMap<>();
 
+		if (concurrent) {
+			discoverConcurrently(root, startingPaths, nodes, failures);
+		} else {
+			discover(root, startingPaths, nodes, failures);
+		}
+
+		// Sort the nodes so that the iteration order of the graph doesn't depend on the order files were read in.
+		this.nodes = sortByPath(nodes);
+		this.failures = sortByPath(failures);
+	}
+
+	private static void discover(Path root, ImmutableList<AbsolutePackPath> startingPaths,
+								 Map<AbsolutePackPath, FileNode> nodes, Map<AbsolutePackPath, IOException> failures) {
 		List<AbsolutePackPath> queue = new ArrayList<>(startingPaths);
 		Set<AbsolutePackPath> seen = new HashSet<>(startingPaths);
 
 		while (!queue.isEmpty()) {
 			AbsolutePackPath next = queue.remove(queue.size() - 1);
 
-			String source;
+			SourceLines lines;
 
 			try {
-				source = readFile(next.resolved(root));
+				lines = SourceLines.read(next.resolved(root));
 			} catch (IOException e) {
 				failures.put(next, e);
 				continue;
 			}
 
-			ImmutableList<String> lines = ImmutableList.copyOf(source.split("\\R"));
-
 			FileNode node = new FileNode(next, lines);
 			nodes.put(next, node);
 
@@ -96,9 +124,75 @@ public class IncludeGraph {
 				}
 			}
 		}
+	}
+
+	/**
+	 * Reads and parses files on a bounded pool of I/O threads. The calling thread collects the results as they
+	 * complete, and uses the seen set to make sure that each newly discovered include is only read once.
+	 */
+	private static void discoverConcurrently(Path root, ImmutableList<AbsolutePackPath> startingPaths,
+											 Map<AbsolutePackPath, FileNode> nodes,
+											 Map<AbsolutePackPath, IOException> failures) {
+		int threads = Math.max(1, Math.min(MAX_IO_THREADS, Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+				.setNameFormat("Iris Shader Pack Reader %d").setDaemon(true).build());
+
+		try {
+			CompletionService<ReadResult> completion = new ExecutorCompletionService<>(executor);
+			Set<AbsolutePackPath> seen = new HashSet<>(startingPaths);
+			int pending = 0;
+
+			for (AbsolutePackPath path : startingPaths) {
+				completion.submit(() -> ReadResult.read(root, path));
+				pending += 1;
+			}
+
+			while (pending > 0) {
+				ReadResult result = takeResult(completion);
+				pending -= 1;
+
+				if (result.failure != null) {
+					failures.put(result.path, result.failure);
+					continue;
+				}
+
+				nodes.put(result.path, result.node);
+
+				for (AbsolutePackPath included : result.node.getIncludes().values()) {
+					if (seen.add(included)) {
+						completion.submit(() -> ReadResult.read(root, included));
+						pending += 1;
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 
-		this.nodes = ImmutableMap.copyOf(nodes);
-		this.failures = ImmutableMap.copyOf(failures);
+	private static ReadResult takeResult(CompletionService<ReadResult> completion) {
+		try {
+			return completion.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading shader pack files", e);
+		} catch (ExecutionException e) {
+			Throwables.throwIfUnchecked(e.getCause());
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static <T> ImmutableMap<AbsolutePackPath, T> sortByPath(Map<AbsolutePackPath, T> map) {
+		List<AbsolutePackPath> paths = new ArrayList<>(map.keySet());
+		paths.sort(Comparator.comparing(AbsolutePackPath::getPathString));
+
+		ImmutableMap.Builder<AbsolutePackPath, T> sorted = ImmutableMap.builder();
+
+		for (AbsolutePackPath path : paths) {
+			sorted.put(path, map.get(path));
+		}
+
+		return sorted.build();
 	}
 
 	public ImmutableMap<AbsolutePackPath, FileNode> getNodes() {
@@ -119,7 +213,23 @@ public class IncludeGraph {
 		return failures;
 	}
 
-	private static String readFile(Path path) throws IOException {
-		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	private static class ReadResult {
+		private final AbsolutePackPath path;
+		private final FileNode node;
+		private final IOException failure;
+
+		private ReadResult(AbsolutePackPath path, FileNode node, IOException failure) {
+			this.path = path;
+			this.node = node;
+			this.failure = failure;
+		}
+
+		static ReadResult read(Path root, AbsolutePackPath path) {
+			try {
+				return new ReadResult(path, new FileNode(path, SourceLines.read(path.resolved(root))), null);
+			} catch (IOException e) {
+				return new ReadResult(path, null, e);
+			}
+		}
 	}
 }
@@ -2,58 +2,219 @@ package net.coderbot.iris.shaderpack.include;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.coderbot.iris.Iris;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
-// TODO: Write tests for this code
+/**
+ * Expands #include directives using the files loaded into an {@link IncludeGraph}.
+ *
+ * <p>Expansion is iterative, using an explicit stack of the files currently being expanded, so arbitrarily deep
+ * include chains cannot overflow the call stack. An #include directive that refers to a file that is already on the
+ * stack would recurse forever, so it is reported and replaced with an empty line instead.</p>
+ */
 public class IncludeProcessor {
+	private static final ImmutableList<String> EMPTY_LINE = ImmutableList.of("");
+
 	private final IncludeGraph graph;
-	private final Map<AbsolutePackPath, ImmutableList<String>> cache;
+	private final Map<AbsolutePackPath, ExpandedFile> cache;
+	/**
+	 * Expansions of files that were only ever expanded as part of another file. Unlike the entries of the main cache,
+	 * these don't record the positions of their own #include directives.
+	 */
+	private final Map<AbsolutePackPath, ExpandedFile> nestedCache;
 
 	public IncludeProcessor(IncludeGraph graph) {
 		this.graph = graph;
 		this.cache = new HashMap<>();
+		this.nestedCache = new HashMap<>();
 	}
 
-	// TODO: Actual error handling
-
 	public ImmutableList<String> getIncludedFile(AbsolutePackPath path) {
-		ImmutableList<String> lines = cache.get(path);
+		ExpandedFile expanded = getExpandedFile(path);
+
+		return expanded != null ? expanded.toImmutableList() : null;
+	}
 
-		if (lines == null) {
-			lines = process(path);
-			cache.put(path, lines);
+	/**
+	 * Expands the includes of the given file.
+	 *
+	 * @return the expanded file, or null if the file is not present in the include graph
+	 * @throws NullPointerException if the file includes a file that is not present in the include graph
+	 */
+	public ExpandedFile getExpandedFile(AbsolutePackPath path) {
+		ExpandedFile expanded = cache.get(path);
+
+		if (expanded == null) {
+			expanded = process(path);
+
+			if (expanded != null) {
+				cache.put(path, expanded);
+			}
 		}
 
-		return lines;
+		return expanded;
 	}
 
-	private ImmutableList<String> process(AbsolutePackPath path) {
-		FileNode fileNode = graph.getNodes().get(path);
+	private ExpandedFile process(AbsolutePackPath path) {
+		FileNode root = graph.getNodes().get(path);
 
-		if (fileNode == null) {
+		if (root == null) {
 			return null;
 		}
 
-		ImmutableList.Builder<String> builder = ImmutableList.builder();
+		List<ExpandedFile.Slice> slices = new ArrayList<>();
+		IntArrayList includeLines = new IntArrayList();
+		IntArrayList includeEnds = new IntArrayList();
+		int lineCount = 0;
+
+		Deque<Frame> stack = new ArrayDeque<>();
+		Set<AbsolutePackPath> onStack = new HashSet<>();
+
+		stack.push(new Frame(root, 0));
+		onStack.add(path);
+
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			List<String> lines = frame.node.getLines();
+			ImmutableMap<Integer, AbsolutePackPath> includes = frame.node.getIncludes();
+
+			// Copy the run of lines up to the next #include directive as a single slice
+			int runStart = frame.line;
+
+			while (frame.line < lines.size() && !includes.containsKey(frame.line)) {
+				frame.line += 1;
+			}
+
+			if (frame.line > runStart) {
+				slices.add(new ExpandedFile.Slice(frame.node.getPath(), lines, runStart, frame.line, runStart));
+				lineCount += frame.line - runStart;
+			}
+
+			if (frame.line == lines.size()) {
+				stack.pop();
+				onStack.remove(frame.node.getPath());
+
+				if (!frame.cyclic && frame.node != root) {
+					// This file was fully expanded, so other files including it can reuse its slices.
+					cacheSlices(frame.node.getPath(), slices.subList(frame.sliceStart, slices.size()));
+				}
+
+				if (!stack.isEmpty()) {
+					stack.peek().cyclic |= frame.cyclic;
+				}
+
+				if (stack.size() == 1) {
+					includeEnds.add(lineCount);
+				}
+
+				continue;
+			}
+
+			int includeLine = frame.line;
+			AbsolutePackPath include = includes.get(includeLine);
+			frame.line += 1;
+
+			if (stack.size() == 1) {
+				includeLines.add(includeLine);
+			}
+
+			if (onStack.contains(include)) {
+				reportCycle(stack, include);
+
+				slices.add(new ExpandedFile.Slice(frame.node.getPath(), EMPTY_LINE, 0, 1, includeLine));
+				lineCount += 1;
+				frame.cyclic = true;
 
-		ImmutableList<String> lines = fileNode.getLines();
-		ImmutableMap<Integer, AbsolutePackPath> includes = fileNode.getIncludes();
+				if (stack.size() == 1) {
+					includeEnds.add(lineCount);
+				}
 
-		for (int i = 0; i < lines.size(); i++) {
-			AbsolutePackPath include = includes.get(i);
+				continue;
+			}
+
+			ExpandedFile cached = cache.get(include);
+
+			if (cached == null) {
+				cached = nestedCache.get(include);
+			}
+
+			if (cached != null) {
+				for (ExpandedFile.Slice slice : cached.getSlices()) {
+					slices.add(slice);
+				}
+
+				lineCount += cached.getLineCount();
+
+				if (stack.size() == 1) {
+					includeEnds.add(lineCount);
+				}
 
-			if (include != null) {
-				// TODO: Don't recurse like this, and check for cycles
+				continue;
+			}
+
+			FileNode included = graph.getNodes().get(include);
+
+			if (included == null) {
 				// TODO: Better diagnostics
-				builder.addAll(Objects.requireNonNull(getIncludedFile(include)));
-			} else {
-				builder.add(lines.get(i));
+				throw new NullPointerException("Included file " + include.getPathString() + " (from "
+						+ frame.node.getPath().getPathString() + ":" + (includeLine + 1) + ") is not loaded");
+			}
+
+			stack.push(new Frame(included, slices.size()));
+			onStack.add(include);
+		}
+
+		return new ExpandedFile(path, slices.toArray(new ExpandedFile.Slice[0]), includeLines.toIntArray(),
+				includeEnds.toIntArray());
+	}
+
+	private void cacheSlices(AbsolutePackPath path, List<ExpandedFile.Slice> slices) {
+		nestedCache.put(path, new ExpandedFile(path, slices.toArray(new ExpandedFile.Slice[0]), new int[0], new int[0]));
+	}
+
+	private static void reportCycle(Deque<Frame> stack, AbsolutePackPath include) {
+		List<String> chain = new ArrayList<>();
+		boolean inCycle = false;
+
+		// The stack iterates from the top down, so walk it in reverse to print the chain in include order.
+		for (Frame frame : (Iterable<Frame>) stack::descendingIterator) {
+			if (frame.node.getPath().equals(include)) {
+				inCycle = true;
+			}
+
+			if (inCycle) {
+				chain.add(frame.node.getPath().getPathString());
 			}
 		}
 
-		return builder.build();
+		chain.add(include.getPathString());
+
+		Iris.logger.error("Ignoring cyclic #include: {}", String.join(" -> ", chain));
+	}
+
+	private static class Frame {
+		private final FileNode node;
+		/**
+		 * The index in the slice list of the first slice produced by this file.
+		 */
+		private final int sliceStart;
+		private int line;
+		private boolean cyclic;
+
+		Frame(FileNode node, int sliceStart) {
+			this.node = node;
+			this.sliceStart = sliceStart;
+			this.line = 0;
+			this.cyclic = false;
+		}
 	}
 }
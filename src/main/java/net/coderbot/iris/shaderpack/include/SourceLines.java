@@ -0,0 +1,215 @@
+package net.coderbot.iris.shaderpack.include;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.coderbot.iris.shaderpack.transform.line.LineTransform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The lines of a UTF-8 source file, backed directly by the bytes of the file.
+ *
+ * <p>Line boundaries are found by scanning the raw bytes once, and each line is only decoded into a String the first
+ * time that it is requested. Lines that start with an #include directive are also found during the scan, so that
+ * finding the includes of a file only requires decoding those lines.</p>
+ *
+ * <p>Lines are split the same way as {@code String.split("\\R")}: any Unicode line break sequence ends a line, and
+ * trailing empty lines are dropped.</p>
+ */
+public final class SourceLines extends AbstractList<String> implements RandomAccess {
+	private static final byte[] INCLUDE = "#include".getBytes(StandardCharsets.US_ASCII);
+
+	private final byte[] content;
+	private final int[] lineStarts;
+	private final int[] lineEnds;
+	private final int[] includeCandidates;
+	/**
+	 * Lines that have already been decoded, or that were replaced by a line transform. Racy initialization is fine
+	 * here, since decoding the same line twice produces an equal string.
+	 */
+	private final String[] decoded;
+
+	private SourceLines(byte[] content, int[] lineStarts, int[] lineEnds, int[] includeCandidates, String[] decoded) {
+		this.content = content;
+		this.lineStarts = lineStarts;
+		this.lineEnds = lineEnds;
+		this.includeCandidates = includeCandidates;
+		this.decoded = decoded;
+	}
+
+	/**
+	 * Reads a file into a byte array of exactly the right size using a byte channel, which works for both the default
+	 * file system and the zip file system used for zipped shader packs.
+	 */
+	public static SourceLines read(Path path) throws IOException {
+		try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE - 8) {
+				throw new IOException("File is too large to be a shader source file: " + path);
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					break;
+				}
+			}
+
+			return scan(buffer.array(), buffer.position());
+		}
+	}
+
+	public static SourceLines scan(byte[] content, int length) {
+		IntArrayList starts = new IntArrayList();
+		IntArrayList ends = new IntArrayList();
+		IntArrayList includes = new IntArrayList();
+
+		int lineStart = 0;
+		int lastNonEmptyLine = -1;
+		boolean foundBreak = false;
+		int i = 0;
+
+		while (i <= length) {
+			int breakLength = i < length ? lineBreakLength(content, i, length) : 0;
+
+			if (breakLength == 0 && i < length) {
+				i += 1;
+				continue;
+			}
+
+			// Either a line break or the end of the file
+			if (i == length && foundBreak && lineStart == length) {
+				break;
+			}
+
+			starts.add(lineStart);
+			ends.add(i);
+
+			if (i > lineStart) {
+				lastNonEmptyLine = starts.size() - 1;
+			}
+
+			if (startsWithInclude(content, lineStart, i)) {
+				includes.add(starts.size() - 1);
+			}
+
+			if (i == length) {
+				break;
+			}
+
+			foundBreak = true;
+			i += breakLength;
+			lineStart = i;
+		}
+
+		// Match String.split, which drops trailing empty strings, but only if at least one line break was found.
+		int lineCount = foundBreak ? lastNonEmptyLine + 1 : starts.size();
+
+		return new SourceLines(content, Arrays.copyOf(starts.elements(), lineCount),
+				Arrays.copyOf(ends.elements(), lineCount), includes.toIntArray(), new String[lineCount]);
+	}
+
+	@Override
+	public String get(int index) {
+		String line = decoded[index];
+
+		if (line == null) {
+			line = new String(content, lineStarts[index], lineEnds[index] - lineStarts[index], StandardCharsets.UTF_8);
+			decoded[index] = line;
+		}
+
+		return line;
+	}
+
+	@Override
+	public int size() {
+		return lineStarts.length;
+	}
+
+	/**
+	 * Returns the indices of lines that start with "#include" after leading whitespace, in ascending order.
+	 */
+	public int[] getIncludeCandidates() {
+		return includeCandidates;
+	}
+
+	/**
+	 * Applies a line transform, sharing the underlying bytes with this object. Only lines that are actually changed by
+	 * the transform are stored as new strings.
+	 */
+	public SourceLines map(LineTransform transform) {
+		String[] newDecoded = new String[decoded.length];
+
+		for (int i = 0; i < decoded.length; i++) {
+			String line = get(i);
+			String transformed = transform.transform(i, line);
+
+			if (!line.equals(transformed)) {
+				newDecoded[i] = transformed;
+			} else {
+				// Keep the replacement made by an earlier transform, instead of falling back to the original bytes
+				newDecoded[i] = decoded[i];
+			}
+		}
+
+		return new SourceLines(content, lineStarts, lineEnds, includeCandidates, newDecoded);
+	}
+
+	/**
+	 * Returns the length of the line break sequence at the given position, or 0 if there is none. This matches the
+	 * characters accepted by the \R regular expression construct.
+	 */
+	private static int lineBreakLength(byte[] content, int i, int length) {
+		byte b = content[i];
+
+		switch (b) {
+			case '\r':
+				return (i + 1 < length && content[i + 1] == '\n') ? 2 : 1;
+			case '\n':
+			case 0x0B:
+			case 0x0C:
+				return 1;
+			case (byte) 0xC2:
+				// U+0085 NEXT LINE
+				return (i + 1 < length && content[i + 1] == (byte) 0x85) ? 2 : 0;
+			case (byte) 0xE2:
+				// U+2028 LINE SEPARATOR and U+2029 PARAGRAPH SEPARATOR
+				if (i + 2 < length && content[i + 1] == (byte) 0x80
+						&& (content[i + 2] == (byte) 0xA8 || content[i + 2] == (byte) 0xA9)) {
+					return 3;
+				}
+
+				return 0;
+			default:
+				return 0;
+		}
+	}
+
+	private static boolean startsWithInclude(byte[] content, int start, int end) {
+		// Same as String.trim(), which removes all characters up to and including the space character
+		while (start < end && (content[start] & 0xFF) <= ' ') {
+			start++;
+		}
+
+		if (end - start < INCLUDE.length) {
+			return false;
+		}
+
+		for (int i = 0; i < INCLUDE.length; i++) {
+			if (content[start + i] != INCLUDE[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
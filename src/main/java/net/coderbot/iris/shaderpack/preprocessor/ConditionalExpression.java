@@ -0,0 +1,295 @@
+package net.coderbot.iris.shaderpack.preprocessor;
+
+/**
+ * Evaluates the controlling expression of an #if or #elif directive after all macros and defined() operators have
+ * been replaced. Like JCPP, all arithmetic is done on 64-bit integers, floating point literals are truncated, and any
+ * remaining identifiers evaluate to zero.
+ */
+final class ConditionalExpression {
+	private final char[] text;
+	private int pos;
+	/**
+	 * False while parsing an operand that the result doesn't depend on, such as the right side of {@code 0 && ...}.
+	 * Such operands still have to be valid, but they aren't computed, so that they can't fail with a division by zero.
+	 */
+	private boolean evaluate;
+
+	private ConditionalExpression(char[] text) {
+		this.text = text;
+		this.pos = 0;
+		this.evaluate = true;
+	}
+
+	static long evaluate(char[] text) {
+		ConditionalExpression expression = new ConditionalExpression(text);
+		long value = expression.ternary();
+
+		expression.skipWhitespace();
+
+		if (expression.pos < text.length) {
+			throw new IllegalArgumentException("Unexpected character '" + text[expression.pos] + "' in #if expression: "
+					+ new String(text));
+		}
+
+		return value;
+	}
+
+	private long ternary() {
+		long condition = binary(0);
+
+		if (accept('?')) {
+			boolean outerEvaluate = evaluate;
+
+			evaluate = outerEvaluate && condition != 0;
+			long ifTrue = ternary();
+			expect(':');
+			evaluate = outerEvaluate && condition == 0;
+			long ifFalse = ternary();
+			evaluate = outerEvaluate;
+
+			return condition != 0 ? ifTrue : ifFalse;
+		}
+
+		return condition;
+	}
+
+	// Operator precedence, from loosest to tightest binding:
+	// 0: ||, 1: &&, 2: |, 3: ^, 4: &, 5: == !=, 6: < > <= >=, 7: << >>, 8: + -, 9: * / %
+	private long binary(int level) {
+		if (level > 9) {
+			return unary();
+		}
+
+		long left = binary(level + 1);
+
+		while (true) {
+			skipWhitespace();
+			int operator = peekOperator(level);
+
+			if (operator == NONE) {
+				return left;
+			}
+
+			boolean outerEvaluate = evaluate;
+
+			if ((operator == OR && left != 0) || (operator == AND && left == 0)) {
+				// The result is already known, so the right side is only parsed
+				evaluate = false;
+			}
+
+			long right = binary(level + 1);
+			evaluate = outerEvaluate;
+
+			left = apply(operator, left, right);
+		}
+	}
+
+	private static final int NONE = 0;
+	private static final int OR = 1, AND = 2, BIT_OR = 3, BIT_XOR = 4, BIT_AND = 5, EQ = 6, NE = 7, LT = 8, GT = 9,
+			LE = 10, GE = 11, SHL = 12, SHR = 13, ADD = 14, SUB = 15, MUL = 16, DIV = 17, MOD = 18;
+
+	/**
+	 * Consumes a binary operator belonging to the given precedence level if one is next in the input.
+	 */
+	private int peekOperator(int level) {
+		char c = peek(0);
+		char n = peek(1);
+
+		switch (level) {
+			case 0:
+				return c == '|' && n == '|' ? consume(2, OR) : NONE;
+			case 1:
+				return c == '&' && n == '&' ? consume(2, AND) : NONE;
+			case 2:
+				return c == '|' && n != '|' ? consume(1, BIT_OR) : NONE;
+			case 3:
+				return c == '^' ? consume(1, BIT_XOR) : NONE;
+			case 4:
+				return c == '&' && n != '&' ? consume(1, BIT_AND) : NONE;
+			case 5:
+				if (c == '=' && n == '=') return consume(2, EQ);
+				if (c == '!' && n == '=') return consume(2, NE);
+				return NONE;
+			case 6:
+				if (c == '<' && n == '=') return consume(2, LE);
+				if (c == '>' && n == '=') return consume(2, GE);
+				if (c == '<' && n != '<') return consume(1, LT);
+				if (c == '>' && n != '>') return consume(1, GT);
+				return NONE;
+			case 7:
+				if (c == '<' && n == '<') return consume(2, SHL);
+				if (c == '>' && n == '>') return consume(2, SHR);
+				return NONE;
+			case 8:
+				if (c == '+') return consume(1, ADD);
+				if (c == '-') return consume(1, SUB);
+				return NONE;
+			case 9:
+				if (c == '*') return consume(1, MUL);
+				if (c == '/') return consume(1, DIV);
+				if (c == '%') return consume(1, MOD);
+				return NONE;
+			default:
+				return NONE;
+		}
+	}
+
+	private int consume(int length, int operator) {
+		pos += length;
+		return operator;
+	}
+
+	private long apply(int operator, long left, long right) {
+		if (!evaluate) {
+			return 0;
+		}
+
+		switch (operator) {
+			case OR: return (left != 0 || right != 0) ? 1 : 0;
+			case AND: return (left != 0 && right != 0) ? 1 : 0;
+			case BIT_OR: return left | right;
+			case BIT_XOR: return left ^ right;
+			case BIT_AND: return left & right;
+			case EQ: return left == right ? 1 : 0;
+			case NE: return left != right ? 1 : 0;
+			case LT: return left < right ? 1 : 0;
+			case GT: return left > right ? 1 : 0;
+			case LE: return left <= right ? 1 : 0;
+			case GE: return left >= right ? 1 : 0;
+			case SHL: return left << right;
+			case SHR: return left >> right;
+			case ADD: return left + right;
+			case SUB: return left - right;
+			case MUL: return left * right;
+			case DIV:
+				if (right == 0) throw new ArithmeticException("Division by zero in #if expression");
+				return left / right;
+			case MOD:
+				if (right == 0) throw new ArithmeticException("Division by zero in #if expression");
+				return left % right;
+			default:
+				throw new IllegalStateException("Unknown operator " + operator);
+		}
+	}
+
+	private long unary() {
+		skipWhitespace();
+
+		if (accept('!')) {
+			return unary() == 0 ? 1 : 0;
+		} else if (accept('-')) {
+			return -unary();
+		} else if (accept('+')) {
+			return unary();
+		} else if (accept('~')) {
+			return ~unary();
+		}
+
+		return primary();
+	}
+
+	private long primary() {
+		skipWhitespace();
+
+		if (accept('(')) {
+			long value = ternary();
+			expect(')');
+
+			return value;
+		}
+
+		char c = peek(0);
+
+		if (isDigit(c) || (c == '.' && isDigit(peek(1)))) {
+			return number();
+		}
+
+		if (GlslPreprocessor.isIdentifierStart(c)) {
+			// Any identifier that survives macro expansion evaluates to zero.
+			while (pos < text.length && GlslPreprocessor.isIdentifierPart(text[pos])) {
+				pos++;
+			}
+
+			return 0;
+		}
+
+		throw new IllegalArgumentException("Unexpected " + (pos < text.length ? "character '" + c + "'" : "end")
+				+ " in #if expression: " + new String(text));
+	}
+
+	private long number() {
+		int start = pos;
+
+		while (pos < text.length && (GlslPreprocessor.isIdentifierPart(text[pos]) || text[pos] == '.')) {
+			pos++;
+		}
+
+		String literal = new String(text, start, pos - start);
+		String digits = literal;
+
+		while (!digits.isEmpty() && "uUlL".indexOf(digits.charAt(digits.length() - 1)) >= 0) {
+			digits = digits.substring(0, digits.length() - 1);
+		}
+
+		try {
+			if (digits.startsWith("0x") || digits.startsWith("0X")) {
+				return Long.parseLong(digits.substring(2), 16);
+			} else if (digits.length() > 1 && digits.charAt(0) == '0' && isAllDigits(digits)) {
+				return Long.parseLong(digits, 8);
+			} else if (isAllDigits(digits)) {
+				return Long.parseLong(digits);
+			} else {
+				// Floating point literals are truncated.
+				if (digits.endsWith("f") || digits.endsWith("F")) {
+					digits = digits.substring(0, digits.length() - 1);
+				}
+
+				return (long) Double.parseDouble(digits);
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number " + literal + " in #if expression", e);
+		}
+	}
+
+	private static boolean isAllDigits(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (!isDigit(string.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private boolean accept(char c) {
+		skipWhitespace();
+
+		if (pos < text.length && text[pos] == c) {
+			pos++;
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw new IllegalArgumentException("Expected '" + c + "' in #if expression: " + new String(text));
+		}
+	}
+
+	private char peek(int offset) {
+		int index = pos + offset;
+		return index < text.length ? text[index] : '\0';
+	}
+
+	private void skipWhitespace() {
+		while (pos < text.length && Character.isWhitespace(text[pos])) {
+			pos++;
+		}
+	}
+}
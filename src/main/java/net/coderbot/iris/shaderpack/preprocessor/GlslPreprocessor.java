@@ -0,0 +1,955 @@
+package net.coderbot.iris.shaderpack.preprocessor;
+
+import net.coderbot.iris.Iris;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A GLSL preprocessor written specifically for shader pack sources, replacing the previous JCPP-based implementation
+ * in {@link JcppProcessor}.
+ *
+ * <p>The preprocessor works directly on the character array of the source code. Text that doesn't contain any macro
+ * invocations is copied directly into the output without being split into tokens, and only macro expansions allocate
+ * intermediate strings. It supports object-like and function-like macros (including token pasting and variadic
+ * macros), #undef, and conditional compilation with #if / #ifdef / #ifndef / #elif / #else / #endif.</p>
+ *
+ * <p>#version and #extension directives are collected while preprocessing and hoisted to the top of the output, so
+ * that shader packs written on lenient drivers allowing #extension directives anywhere in the file still work on
+ * strict drivers like Mesa. Only directives in active conditional blocks are hoisted.</p>
+ *
+ * <p>Comments outside of directives are preserved, and each line of the input produces exactly one line in the
+ * output (directives and inactive lines become empty lines), so line numbers reported by the driver still match the
+ * input, offset by the number of hoisted directives.</p>
+ */
+public class GlslPreprocessor {
+	private final MacroTable macros;
+	private final StringBuilder output;
+	private final StringBuilder hoisted;
+
+	/**
+	 * Names of the macros that are currently being expanded, which must not be expanded again.
+	 */
+	private final List<String> expanding;
+
+	// Conditional compilation state
+	private boolean active;
+	private boolean[] parentActive;
+	private boolean[] branchTaken;
+	private int depth;
+
+	private char[] text;
+	private int length;
+	private int pos;
+	private int line;
+
+	public GlslPreprocessor() {
+		this.macros = new MacroTable();
+		this.output = new StringBuilder();
+		this.hoisted = new StringBuilder();
+		this.expanding = new ArrayList<>();
+		this.active = true;
+		this.parentActive = new boolean[8];
+		this.branchTaken = new boolean[8];
+		this.depth = 0;
+		this.line = 1;
+	}
+
+	/**
+	 * Creates a preprocessor that continues from a previously captured state.
+	 */
+	public GlslPreprocessor(Snapshot snapshot) {
+		this.macros = snapshot.macros.copy();
+		this.output = new StringBuilder(snapshot.output);
+		this.hoisted = new StringBuilder(snapshot.hoisted);
+		this.expanding = new ArrayList<>();
+		this.active = snapshot.active;
+		this.parentActive = Arrays.copyOf(snapshot.parentActive, Math.max(8, snapshot.parentActive.length));
+		this.branchTaken = Arrays.copyOf(snapshot.branchTaken, Math.max(8, snapshot.branchTaken.length));
+		this.depth = snapshot.depth;
+		this.line = snapshot.line;
+	}
+
+	/**
+	 * Preprocesses a complete GLSL source file.
+	 */
+	public static String preprocess(String source) {
+		GlslPreprocessor preprocessor = new GlslPreprocessor();
+		preprocessor.process(source.toCharArray());
+
+		return preprocessor.finish();
+	}
+
+	/**
+	 * Preprocesses the given text, appending the result to the output. Macros and conditional state carry over from
+	 * previous calls.
+	 */
+	public void process(char[] source) {
+		process(source, 0, source.length);
+	}
+
+	/**
+	 * Preprocesses a region of the given text. The region must start at the beginning of a line.
+	 */
+	public void process(char[] source, int start, int end) {
+		this.text = source;
+		this.length = end;
+		this.pos = start;
+
+		boolean lineStart = true;
+
+		while (pos < length) {
+			if (lineStart) {
+				int lineBegin = pos;
+				skipHorizontalWhitespace();
+
+				if (pos < length && text[pos] == '#') {
+					pos++;
+					handleDirective();
+					continue;
+				}
+
+				pos = lineBegin;
+			}
+
+			if (active) {
+				pos = scan(output, text, pos, length, true);
+			} else {
+				skipInactiveLine();
+			}
+
+			lineStart = true;
+		}
+
+		this.text = null;
+	}
+
+	/**
+	 * Returns the preprocessed source, with the hoisted #version and #extension directives placed at the top.
+	 */
+	public String finish() {
+		if (depth > 0) {
+			warn("Unterminated conditional directive at end of file");
+		}
+
+		return hoisted.toString() + output + "\n";
+	}
+
+	public boolean isDefined(String name) {
+		return macros.contains(name);
+	}
+
+	/**
+	 * Defines a macro as if by a #define directive, without producing any output.
+	 *
+	 * @param definition the text following "#define", for example "MC_VERSION 11802"
+	 */
+	public void define(String definition) {
+		define(definition.trim(), line);
+	}
+
+	/**
+	 * Captures the current state of the preprocessor, so that other sources starting with the same text that has been
+	 * processed so far can skip processing that text again.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	// Directives
+
+	private void handleDirective() {
+		skipHorizontalWhitespace();
+
+		int nameStart = pos;
+
+		while (pos < length && isIdentifierPart(text[pos])) {
+			pos++;
+		}
+
+		String name = new String(text, nameStart, pos - nameStart);
+		int directiveLine = line;
+
+		// Read the rest of the logical line, including line continuations, but excluding comments.
+		StringBuilder argumentsBuilder = new StringBuilder();
+		int newlines = readDirectiveLine(argumentsBuilder);
+		String arguments = argumentsBuilder.toString().trim();
+
+		switch (name) {
+			case "if":
+				pushConditional(active && evaluateCondition(arguments, directiveLine));
+				break;
+			case "ifdef":
+				pushConditional(active && macros.contains(firstIdentifier(arguments)));
+				break;
+			case "ifndef":
+				pushConditional(active && !macros.contains(firstIdentifier(arguments)));
+				break;
+			case "elif":
+				if (depth == 0) {
+					warn(directiveLine, "#elif without #if");
+				} else if (parentActive[depth - 1] && !branchTaken[depth - 1]) {
+					active = evaluateCondition(arguments, directiveLine);
+					branchTaken[depth - 1] = active;
+				} else {
+					active = false;
+				}
+				break;
+			case "else":
+				if (depth == 0) {
+					warn(directiveLine, "#else without #if");
+				} else {
+					active = parentActive[depth - 1] && !branchTaken[depth - 1];
+					branchTaken[depth - 1] = true;
+				}
+				break;
+			case "endif":
+				if (depth == 0) {
+					warn(directiveLine, "#endif without #if");
+				} else {
+					depth -= 1;
+					active = parentActive[depth];
+				}
+				break;
+			default:
+				if (active) {
+					handleActiveDirective(name, arguments, directiveLine);
+				}
+				break;
+		}
+
+		for (int i = 0; i < newlines; i++) {
+			output.append('\n');
+		}
+	}
+
+	private void handleActiveDirective(String name, String arguments, int directiveLine) {
+		switch (name) {
+			case "define":
+				define(arguments, directiveLine);
+				break;
+			case "undef":
+				macros.remove(firstIdentifier(arguments));
+				break;
+			case "version":
+				hoisted.append("#version ").append(arguments).append('\n');
+				break;
+			case "extension":
+				hoisted.append("#extension ").append(arguments).append('\n');
+				break;
+			case "pragma":
+			case "line":
+				// These are meaningful to the GLSL compiler, so pass them through unmodified.
+				output.append('#').append(name).append(' ').append(arguments);
+				break;
+			case "error":
+				warn(directiveLine, "#error " + arguments);
+				break;
+			case "warning":
+				warn(directiveLine, "#warning " + arguments);
+				break;
+			case "":
+				// The null directive, a line consisting of only "#"
+				break;
+			default:
+				warn(directiveLine, "Unknown preprocessor directive #" + name);
+				break;
+		}
+	}
+
+	private void define(String arguments, int directiveLine) {
+		char[] chars = arguments.toCharArray();
+		int index = 0;
+
+		if (chars.length == 0 || !isIdentifierStart(chars[0])) {
+			warn(directiveLine, "Invalid macro name in #define " + arguments);
+			return;
+		}
+
+		while (index < chars.length && isIdentifierPart(chars[index])) {
+			index++;
+		}
+
+		String name = arguments.substring(0, index);
+		String[] parameters = null;
+		boolean variadic = false;
+
+		// A macro is only function-like if the opening parenthesis immediately follows the name.
+		if (index < chars.length && chars[index] == '(') {
+			int close = arguments.indexOf(')', index);
+
+			if (close == -1) {
+				warn(directiveLine, "Missing ')' in parameter list of macro " + name);
+				return;
+			}
+
+			String parameterList = arguments.substring(index + 1, close).trim();
+			List<String> parameterNames = new ArrayList<>();
+
+			if (!parameterList.isEmpty()) {
+				for (String parameter : parameterList.split(",")) {
+					parameter = parameter.trim();
+
+					if (parameter.equals("...")) {
+						variadic = true;
+					} else {
+						parameterNames.add(parameter);
+					}
+				}
+			}
+
+			parameters = parameterNames.toArray(new String[0]);
+			index = close + 1;
+		}
+
+		char[] body = arguments.substring(index).trim().toCharArray();
+
+		if (parameters == null) {
+			// Token pasting in object-like macros doesn't depend on any arguments, so it can be done right away.
+			body = paste(body);
+		}
+
+		macros.put(new Macro(name, parameters, variadic, body));
+	}
+
+	private void pushConditional(boolean condition) {
+		if (depth == parentActive.length) {
+			parentActive = Arrays.copyOf(parentActive, depth * 2);
+			branchTaken = Arrays.copyOf(branchTaken, depth * 2);
+		}
+
+		parentActive[depth] = active;
+		branchTaken[depth] = condition;
+		depth += 1;
+
+		active = condition;
+	}
+
+	private boolean evaluateCondition(String expression, int directiveLine) {
+		char[] chars = expression.toCharArray();
+		StringBuilder replaced = new StringBuilder(chars.length);
+		int index = 0;
+
+		// defined() must be evaluated before any macros are expanded.
+		while (index < chars.length) {
+			char c = chars[index];
+
+			if (!isIdentifierStart(c)) {
+				replaced.append(c);
+				index++;
+				continue;
+			}
+
+			int start = index;
+
+			while (index < chars.length && isIdentifierPart(chars[index])) {
+				index++;
+			}
+
+			if (!regionEquals(chars, start, index, "defined")) {
+				replaced.append(chars, start, index - start);
+				continue;
+			}
+
+			index = skipWhitespace(chars, index, chars.length);
+			boolean parenthesized = index < chars.length && chars[index] == '(';
+
+			if (parenthesized) {
+				index = skipWhitespace(chars, index + 1, chars.length);
+			}
+
+			int nameStart = index;
+
+			while (index < chars.length && isIdentifierPart(chars[index])) {
+				index++;
+			}
+
+			String name = new String(chars, nameStart, index - nameStart);
+
+			if (parenthesized) {
+				index = skipWhitespace(chars, index, chars.length);
+
+				if (index < chars.length && chars[index] == ')') {
+					index++;
+				}
+			}
+
+			replaced.append(macros.contains(name) ? " 1 " : " 0 ");
+		}
+
+		char[] withoutDefined = new char[replaced.length()];
+		replaced.getChars(0, withoutDefined.length, withoutDefined, 0);
+
+		StringBuilder expanded = new StringBuilder();
+		scan(expanded, withoutDefined, 0, withoutDefined.length, false);
+
+		char[] expandedChars = new char[expanded.length()];
+		expanded.getChars(0, expandedChars.length, expandedChars, 0);
+
+		try {
+			return ConditionalExpression.evaluate(expandedChars) != 0;
+		} catch (IllegalArgumentException | ArithmeticException e) {
+			warn(directiveLine, e.getMessage());
+			return false;
+		}
+	}
+
+	// Text scanning and macro expansion
+
+	/**
+	 * Copies text from the given region into the output, expanding any macros that are encountered.
+	 *
+	 * @param topLevel true if the text is the source file itself. In that case, scanning stops after the first newline
+	 *                 that isn't part of a comment, and line numbers are tracked.
+	 * @return the index after the last character that was scanned
+	 */
+	private int scan(StringBuilder out, char[] source, int start, int end, boolean topLevel) {
+		int index = start;
+
+		while (index < end) {
+			char c = source[index];
+
+			if (c == '\n') {
+				out.append('\n');
+				index++;
+
+				if (topLevel) {
+					line++;
+					return index;
+				}
+
+				continue;
+			}
+
+			if (c == '/' && index + 1 < end) {
+				char next = source[index + 1];
+
+				if (next == '/') {
+					int commentEnd = index;
+
+					while (commentEnd < end && source[commentEnd] != '\n') {
+						commentEnd++;
+					}
+
+					out.append(source, index, commentEnd - index);
+					index = commentEnd;
+					continue;
+				} else if (next == '*') {
+					int commentEnd = findBlockCommentEnd(source, index + 2, end);
+
+					out.append(source, index, commentEnd - index);
+
+					if (topLevel) {
+						line += countNewlines(source, index, commentEnd);
+					}
+
+					index = commentEnd;
+					continue;
+				}
+			}
+
+			if (isDigit(c) || (c == '.' && index + 1 < end && isDigit(source[index + 1]))) {
+				int numberEnd = skipNumber(source, index, end);
+				out.append(source, index, numberEnd - index);
+				index = numberEnd;
+				continue;
+			}
+
+			if (!isIdentifierStart(c)) {
+				out.append(c);
+				index++;
+				continue;
+			}
+
+			int identifierEnd = index + 1;
+
+			while (identifierEnd < end && isIdentifierPart(source[identifierEnd])) {
+				identifierEnd++;
+			}
+
+			Macro macro = macros.isEmpty() ? null : macros.get(source, index, identifierEnd);
+
+			if (macro == null || expanding.contains(macro.name)) {
+				out.append(source, index, identifierEnd - index);
+				index = identifierEnd;
+				continue;
+			}
+
+			if (!macro.isFunctionLike()) {
+				expanding.add(macro.name);
+				scan(out, macro.body, 0, macro.body.length, false);
+				expanding.remove(expanding.size() - 1);
+
+				index = identifierEnd;
+				continue;
+			}
+
+			List<String> arguments = new ArrayList<>();
+			int invocationEnd = parseArguments(source, identifierEnd, end, arguments);
+
+			if (invocationEnd == -1) {
+				// A function-like macro name that isn't followed by an argument list isn't an invocation.
+				out.append(source, index, identifierEnd - index);
+				index = identifierEnd;
+				continue;
+			}
+
+			int parameterCount = macro.parameters.length + (macro.variadic ? 1 : 0);
+
+			if (parameterCount == 0 && arguments.size() == 1 && arguments.get(0).isEmpty()) {
+				arguments.clear();
+			}
+
+			if (macro.variadic && arguments.size() > parameterCount) {
+				// Merge all trailing arguments into __VA_ARGS__
+				List<String> variadicArguments = arguments.subList(parameterCount - 1, arguments.size());
+				String merged = String.join(",", variadicArguments);
+				variadicArguments.clear();
+				arguments.add(merged);
+			} else if (macro.variadic && arguments.size() == parameterCount - 1) {
+				arguments.add("");
+			}
+
+			if (arguments.size() != parameterCount) {
+				if (topLevel) {
+					warn(line, "Macro " + macro.name + " expects " + parameterCount + " arguments, but "
+							+ arguments.size() + " were given");
+				}
+
+				out.append(source, index, identifierEnd - index);
+				index = identifierEnd;
+				continue;
+			}
+
+			char[] substituted = substitute(macro, arguments);
+
+			expanding.add(macro.name);
+			scan(out, substituted, 0, substituted.length, false);
+			expanding.remove(expanding.size() - 1);
+
+			// Keep line numbers in sync if the argument list spanned multiple lines.
+			int newlines = countNewlines(source, identifierEnd, invocationEnd);
+
+			for (int i = 0; i < newlines; i++) {
+				out.append('\n');
+			}
+
+			if (topLevel) {
+				line += newlines;
+			}
+
+			index = invocationEnd;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Replaces the parameters in the body of a function-like macro with the corresponding arguments. Arguments are
+	 * fully macro-expanded before substitution, except when they are an operand of the ## operator.
+	 */
+	private char[] substitute(Macro macro, List<String> arguments) {
+		char[] body = macro.body;
+		StringBuilder result = new StringBuilder(body.length + 16);
+		String[] expandedArguments = new String[arguments.size()];
+		int index = 0;
+
+		while (index < body.length) {
+			char c = body[index];
+
+			if (c == '#' && index + 1 < body.length && body[index + 1] == '#') {
+				// Token pasting: remove the operator and any surrounding whitespace.
+				while (result.length() > 0 && Character.isWhitespace(result.charAt(result.length() - 1))) {
+					result.setLength(result.length() - 1);
+				}
+
+				index = skipWhitespace(body, index + 2, body.length);
+				continue;
+			}
+
+			if (isDigit(c)) {
+				int numberEnd = skipNumber(body, index, body.length);
+				result.append(body, index, numberEnd - index);
+				index = numberEnd;
+				continue;
+			}
+
+			if (!isIdentifierStart(c)) {
+				result.append(c);
+				index++;
+				continue;
+			}
+
+			int identifierEnd = index + 1;
+
+			while (identifierEnd < body.length && isIdentifierPart(body[identifierEnd])) {
+				identifierEnd++;
+			}
+
+			int parameter = macro.indexOfParameter(body, index, identifierEnd);
+
+			if (parameter == -1) {
+				result.append(body, index, identifierEnd - index);
+			} else if (isPasteOperand(body, index, identifierEnd)) {
+				result.append(arguments.get(parameter));
+			} else {
+				if (expandedArguments[parameter] == null) {
+					char[] argument = arguments.get(parameter).toCharArray();
+					StringBuilder expanded = new StringBuilder(argument.length);
+					scan(expanded, argument, 0, argument.length, false);
+					expandedArguments[parameter] = expanded.toString();
+				}
+
+				result.append(expandedArguments[parameter]);
+			}
+
+			index = identifierEnd;
+		}
+
+		char[] substituted = new char[result.length()];
+		result.getChars(0, substituted.length, substituted, 0);
+
+		return substituted;
+	}
+
+	private static boolean isPasteOperand(char[] body, int start, int end) {
+		int before = start - 1;
+
+		while (before >= 0 && Character.isWhitespace(body[before])) {
+			before--;
+		}
+
+		if (before >= 1 && body[before] == '#' && body[before - 1] == '#') {
+			return true;
+		}
+
+		int after = skipWhitespace(body, end, body.length);
+
+		return after + 1 < body.length && body[after] == '#' && body[after + 1] == '#';
+	}
+
+	private static char[] paste(char[] body) {
+		if (new String(body).indexOf("##") == -1) {
+			return body;
+		}
+
+		StringBuilder result = new StringBuilder(body.length);
+		int index = 0;
+
+		while (index < body.length) {
+			if (body[index] == '#' && index + 1 < body.length && body[index + 1] == '#') {
+				while (result.length() > 0 && Character.isWhitespace(result.charAt(result.length() - 1))) {
+					result.setLength(result.length() - 1);
+				}
+
+				index = skipWhitespace(body, index + 2, body.length);
+				continue;
+			}
+
+			result.append(body[index]);
+			index++;
+		}
+
+		return result.toString().toCharArray();
+	}
+
+	/**
+	 * Parses the argument list of a function-like macro invocation.
+	 *
+	 * @return the index after the closing parenthesis, or -1 if the macro name isn't followed by an argument list.
+	 */
+	private static int parseArguments(char[] source, int start, int end, List<String> arguments) {
+		int index = start;
+
+		// Skip whitespace and comments between the macro name and the opening parenthesis
+		while (index < end) {
+			char c = source[index];
+
+			if (Character.isWhitespace(c)) {
+				index++;
+			} else if (c == '/' && index + 1 < end && source[index + 1] == '*') {
+				index = findBlockCommentEnd(source, index + 2, end);
+			} else if (c == '/' && index + 1 < end && source[index + 1] == '/') {
+				while (index < end && source[index] != '\n') {
+					index++;
+				}
+			} else {
+				break;
+			}
+		}
+
+		if (index >= end || source[index] != '(') {
+			return -1;
+		}
+
+		index++;
+
+		StringBuilder argument = new StringBuilder();
+		int nesting = 0;
+
+		while (index < end) {
+			char c = source[index];
+
+			if (c == '/' && index + 1 < end && source[index + 1] == '*') {
+				index = findBlockCommentEnd(source, index + 2, end);
+				argument.append(' ');
+				continue;
+			} else if (c == '/' && index + 1 < end && source[index + 1] == '/') {
+				while (index < end && source[index] != '\n') {
+					index++;
+				}
+
+				continue;
+			}
+
+			if (c == '(') {
+				nesting++;
+			} else if (c == ')') {
+				if (nesting == 0) {
+					arguments.add(argument.toString().trim());
+					return index + 1;
+				}
+
+				nesting--;
+			} else if (c == ',' && nesting == 0) {
+				arguments.add(argument.toString().trim());
+				argument.setLength(0);
+				index++;
+				continue;
+			}
+
+			argument.append(c == '\n' ? ' ' : c);
+			index++;
+		}
+
+		// Unterminated argument list
+		arguments.clear();
+		return -1;
+	}
+
+	// Line handling
+
+	/**
+	 * Reads the remainder of a directive line, joining line continuations and replacing comments with spaces.
+	 *
+	 * @return the number of lines that were consumed
+	 */
+	private int readDirectiveLine(StringBuilder builder) {
+		int newlines = 0;
+
+		while (pos < length) {
+			char c = text[pos];
+
+			if (c == '\n') {
+				pos++;
+				newlines++;
+				break;
+			} else if (c == '\\' && isLineContinuation(pos)) {
+				pos = skipLineContinuation(pos);
+				newlines++;
+			} else if (c == '/' && pos + 1 < length && text[pos + 1] == '/') {
+				while (pos < length && text[pos] != '\n') {
+					pos++;
+				}
+			} else if (c == '/' && pos + 1 < length && text[pos + 1] == '*') {
+				int commentEnd = findBlockCommentEnd(text, pos + 2, length);
+				newlines += countNewlines(text, pos, commentEnd);
+				pos = commentEnd;
+				builder.append(' ');
+			} else {
+				builder.append(c);
+				pos++;
+			}
+		}
+
+		line += newlines;
+
+		return newlines;
+	}
+
+	private boolean isLineContinuation(int index) {
+		int next = index + 1;
+
+		if (next < length && text[next] == '\r') {
+			next++;
+		}
+
+		return next < length && text[next] == '\n';
+	}
+
+	private int skipLineContinuation(int index) {
+		int next = index + 1;
+
+		if (text[next] == '\r') {
+			next++;
+		}
+
+		return next + 1;
+	}
+
+	/**
+	 * Skips over a line in an inactive conditional block. Comments still need to be recognized so that directives
+	 * inside of block comments are ignored.
+	 */
+	private void skipInactiveLine() {
+		while (pos < length) {
+			char c = text[pos];
+
+			if (c == '\n') {
+				output.append('\n');
+				pos++;
+				line++;
+				return;
+			} else if (c == '/' && pos + 1 < length && text[pos + 1] == '*') {
+				int commentEnd = findBlockCommentEnd(text, pos + 2, length);
+				int newlines = countNewlines(text, pos, commentEnd);
+
+				for (int i = 0; i < newlines; i++) {
+					output.append('\n');
+				}
+
+				line += newlines;
+				pos = commentEnd;
+			} else if (c == '/' && pos + 1 < length && text[pos + 1] == '/') {
+				while (pos < length && text[pos] != '\n') {
+					pos++;
+				}
+			} else {
+				pos++;
+			}
+		}
+	}
+
+	private void skipHorizontalWhitespace() {
+		while (pos < length && (text[pos] == ' ' || text[pos] == '\t' || text[pos] == '\r' || text[pos] == '\f')) {
+			pos++;
+		}
+	}
+
+	private void warn(String message) {
+		Iris.logger.warn("[GLSL preprocessor] " + message);
+	}
+
+	private void warn(int line, String message) {
+		Iris.logger.warn("[GLSL preprocessor] Line " + line + ": " + message);
+	}
+
+	// Character utilities
+
+	private static int findBlockCommentEnd(char[] source, int start, int end) {
+		for (int index = start; index + 1 < end; index++) {
+			if (source[index] == '*' && source[index + 1] == '/') {
+				return index + 2;
+			}
+		}
+
+		return end;
+	}
+
+	private static int skipNumber(char[] source, int start, int end) {
+		int index = start;
+
+		while (index < end) {
+			char c = source[index];
+
+			if (isIdentifierPart(c) || c == '.') {
+				index++;
+			} else if ((c == '+' || c == '-') && (source[index - 1] == 'e' || source[index - 1] == 'E')) {
+				// Exponent sign, like 1.0e-5
+				index++;
+			} else {
+				break;
+			}
+		}
+
+		return index;
+	}
+
+	private static int skipWhitespace(char[] source, int start, int end) {
+		int index = start;
+
+		while (index < end && Character.isWhitespace(source[index])) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static int countNewlines(char[] source, int start, int end) {
+		int count = 0;
+
+		for (int index = start; index < end; index++) {
+			if (source[index] == '\n') {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static String firstIdentifier(String arguments) {
+		int end = 0;
+
+		while (end < arguments.length() && isIdentifierPart(arguments.charAt(end))) {
+			end++;
+		}
+
+		return arguments.substring(0, end);
+	}
+
+	static boolean regionEquals(char[] source, int start, int end, String string) {
+		if (end - start != string.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < string.length(); i++) {
+			if (source[start + i] != string.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	static boolean isIdentifierStart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	static boolean isIdentifierPart(char c) {
+		return isIdentifierStart(c) || isDigit(c);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * An immutable copy of the state of a preprocessor at a line boundary.
+	 */
+	public static final class Snapshot {
+		private final MacroTable macros;
+		private final String output;
+		private final String hoisted;
+		private final boolean active;
+		private final boolean[] parentActive;
+		private final boolean[] branchTaken;
+		private final int depth;
+		private final int line;
+
+		private Snapshot(GlslPreprocessor preprocessor) {
+			this.macros = preprocessor.macros.copy();
+			this.output = preprocessor.output.toString();
+			this.hoisted = preprocessor.hoisted.toString();
+			this.active = preprocessor.active;
+			this.parentActive = Arrays.copyOf(preprocessor.parentActive, preprocessor.depth);
+			this.branchTaken = Arrays.copyOf(preprocessor.branchTaken, preprocessor.depth);
+			this.depth = preprocessor.depth;
+			this.line = preprocessor.line;
+		}
+
+		public int getMacroCount() {
+			return macros.size();
+		}
+	}
+}
@@ -5,6 +5,10 @@ import org.anarres.cpp.Preprocessor;
 import org.anarres.cpp.StringLexerSource;
 import org.anarres.cpp.Token;
 
+/**
+ * The original JCPP-based GLSL preprocessor. Shader pack loading now uses {@link GlslPreprocessor} instead, this is
+ * kept as the reference implementation that the new preprocessor is tested against.
+ */
 public class JcppProcessor {
 	// Derived from GlShader from Canvas, licenced under LGPL
 	public static String glslPreprocessSource(String source) {
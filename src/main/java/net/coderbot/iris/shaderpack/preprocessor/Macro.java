@@ -0,0 +1,46 @@
+package net.coderbot.iris.shaderpack.preprocessor;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single macro defined with a #define directive.
+ */
+final class Macro {
+	final String name;
+	/**
+	 * The names of the parameters of a function-like macro, or null if this is an object-like macro.
+	 */
+	@Nullable
+	final String[] parameters;
+	final boolean variadic;
+	final char[] body;
+
+	Macro(String name, @Nullable String[] parameters, boolean variadic, char[] body) {
+		this.name = name;
+		this.parameters = parameters;
+		this.variadic = variadic;
+		this.body = body;
+	}
+
+	boolean isFunctionLike() {
+		return parameters != null;
+	}
+
+	int indexOfParameter(char[] text, int start, int end) {
+		if (parameters == null) {
+			return -1;
+		}
+
+		for (int i = 0; i < parameters.length; i++) {
+			if (GlslPreprocessor.regionEquals(text, start, end, parameters[i])) {
+				return i;
+			}
+		}
+
+		if (variadic && GlslPreprocessor.regionEquals(text, start, end, "__VA_ARGS__")) {
+			return parameters.length;
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,150 @@
+package net.coderbot.iris.shaderpack.preprocessor;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table of macros that can be queried directly with a region of a character array, so that
+ * looking up an identifier in the source doesn't require allocating a String for it.
+ */
+final class MacroTable {
+	private String[] keys;
+	private Macro[] values;
+	private int size;
+
+	MacroTable() {
+		this.keys = new String[64];
+		this.values = new Macro[64];
+		this.size = 0;
+	}
+
+	private MacroTable(MacroTable other) {
+		this.keys = Arrays.copyOf(other.keys, other.keys.length);
+		this.values = Arrays.copyOf(other.values, other.values.length);
+		this.size = other.size;
+	}
+
+	MacroTable copy() {
+		return new MacroTable(this);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	Macro get(char[] source, int start, int end) {
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source[i];
+		}
+
+		int mask = keys.length - 1;
+
+		for (int slot = mix(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+			if (GlslPreprocessor.regionEquals(source, start, end, keys[slot])) {
+				return values[slot];
+			}
+		}
+
+		return null;
+	}
+
+	Macro get(String name) {
+		int slot = find(name);
+
+		return slot == -1 ? null : values[slot];
+	}
+
+	boolean contains(String name) {
+		return find(name) != -1;
+	}
+
+	void put(Macro macro) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+
+		int mask = keys.length - 1;
+		int slot = mix(macro.name.hashCode()) & mask;
+
+		while (keys[slot] != null) {
+			if (keys[slot].equals(macro.name)) {
+				values[slot] = macro;
+				return;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = macro.name;
+		values[slot] = macro;
+		size += 1;
+	}
+
+	void remove(String name) {
+		int slot = find(name);
+
+		if (slot == -1) {
+			return;
+		}
+
+		int mask = keys.length - 1;
+
+		keys[slot] = null;
+		values[slot] = null;
+		size -= 1;
+
+		// Shift back any following entries in the same probe sequence so that lookups don't stop at the gap.
+		int next = (slot + 1) & mask;
+
+		while (keys[next] != null) {
+			int home = mix(keys[next].hashCode()) & mask;
+			boolean movable = (next > slot) ? (home <= slot || home > next) : (home <= slot && home > next);
+
+			if (movable) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				keys[next] = null;
+				values[next] = null;
+				slot = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+	}
+
+	private int find(String name) {
+		int mask = keys.length - 1;
+
+		for (int slot = mix(name.hashCode()) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+			if (keys[slot].equals(name)) {
+				return slot;
+			}
+		}
+
+		return -1;
+	}
+
+	private void resize(int capacity) {
+		String[] oldKeys = keys;
+		Macro[] oldValues = values;
+
+		keys = new String[capacity];
+		values = new Macro[capacity];
+		size = 0;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				put(oldValues[i]);
+			}
+		}
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,154 @@
+package net.coderbot.iris.shaderpack.preprocessor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares preprocessor state between sources that begin with identical text.
+ *
+ * <p>Most shader packs include a single large settings file containing hundreds of #define directives at the top of
+ * every program. Instead of processing that text once per program, the state of the preprocessor is captured at
+ * the end of each shared include, and other sources with an identical prefix resume from that state.</p>
+ *
+ * <p>This class is safe to use from multiple threads at once.</p>
+ */
+public class SharedPrefixCache {
+	private final GlslPreprocessor.Snapshot initialState;
+	private final Map<PrefixKey, GlslPreprocessor.Snapshot> snapshots;
+	private final AtomicLong reusedCharacters;
+
+	/**
+	 * @param initialState the state that every source starts from, usually containing the predefined macros
+	 */
+	public SharedPrefixCache(GlslPreprocessor.Snapshot initialState) {
+		this.initialState = initialState;
+		this.snapshots = new ConcurrentHashMap<>();
+		this.reusedCharacters = new AtomicLong();
+	}
+
+	/**
+	 * Preprocesses a source file, reusing the state from a previously processed source with the longest matching
+	 * prefix if possible.
+	 *
+	 * @param source the source to preprocess
+	 * @param boundaries ascending offsets into the source, each at the start of a line, at which the state of the
+	 *                   preprocessor may be shared with other sources
+	 */
+	public String preprocess(char[] source, int[] boundaries) {
+		int[] hashes = hashPrefixes(source, boundaries);
+
+		GlslPreprocessor preprocessor = null;
+		int position = 0;
+		int nextBoundary = 0;
+
+		for (int i = boundaries.length - 1; i >= 0; i--) {
+			GlslPreprocessor.Snapshot snapshot = snapshots.get(new PrefixKey(source, boundaries[i], hashes[i]));
+
+			if (snapshot != null) {
+				preprocessor = new GlslPreprocessor(snapshot);
+				position = boundaries[i];
+				nextBoundary = i + 1;
+				reusedCharacters.addAndGet(position);
+
+				break;
+			}
+		}
+
+		if (preprocessor == null) {
+			preprocessor = new GlslPreprocessor(initialState);
+		}
+
+		for (int i = nextBoundary; i < boundaries.length; i++) {
+			if (boundaries[i] <= position) {
+				continue;
+			}
+
+			preprocessor.process(source, position, boundaries[i]);
+			position = boundaries[i];
+
+			PrefixKey key = new PrefixKey(source, position, hashes[i]);
+
+			if (!snapshots.containsKey(key)) {
+				snapshots.putIfAbsent(key.copy(), preprocessor.snapshot());
+			}
+		}
+
+		preprocessor.process(source, position, source.length);
+
+		return preprocessor.finish();
+	}
+
+	/**
+	 * Returns the total number of characters that did not need to be preprocessed because a shared prefix was reused.
+	 */
+	public long getReusedCharacters() {
+		return reusedCharacters.get();
+	}
+
+	public int getSnapshotCount() {
+		return snapshots.size();
+	}
+
+	private static int[] hashPrefixes(char[] source, int[] boundaries) {
+		int[] hashes = new int[boundaries.length];
+		int hash = 0;
+		int index = 0;
+
+		for (int i = 0; i < boundaries.length; i++) {
+			for (; index < boundaries[i]; index++) {
+				hash = 31 * hash + source[index];
+			}
+
+			hashes[i] = hash;
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * Identifies a prefix of a source. Keys used for lookups refer to the whole source that is being preprocessed,
+	 * while stored keys only hold a copy of the prefix itself, so that the cache doesn't keep every source alive.
+	 */
+	private static final class PrefixKey {
+		private final char[] source;
+		private final int length;
+		private final int hash;
+
+		PrefixKey(char[] source, int length, int hash) {
+			this.source = source;
+			this.length = length;
+			this.hash = hash;
+		}
+
+		PrefixKey copy() {
+			return new PrefixKey(Arrays.copyOf(source, length), length, hash);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof PrefixKey)) return false;
+
+			PrefixKey other = (PrefixKey) o;
+
+			if (length != other.length || hash != other.hash) {
+				return false;
+			}
+
+			for (int i = 0; i < length; i++) {
+				if (source[i] != other.source[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package net.coderbot.iris.shaderpack.transform;
 
+import net.coderbot.iris.shaderpack.transform.token.TokenPatcher;
+
 public class BuiltinUniformReplacementTransformer {
 	private String normalizedLightmapCoords;
 
-	private static final String NORMALIZED_PLACEHOLDER = "iris_NormalizedLightmapCoords";
+	private static final String LIGHTMAP_TEXTURE_MATRIX = "iris_LightmapTextureMatrix";
 
 	public BuiltinUniformReplacementTransformer() {
 		// TODO: I don't think that this is the same as vanilla!
@@ -19,54 +21,54 @@ public class BuiltinUniformReplacementTransformer {
 		this.normalizedLightmapCoords = customNormalizedLightmapCoordsExpression;
 	}
 
-	public void apply(Transformations transformations) {
+	/**
+	 * Registers the replacements with the patcher. Since replacements are matched token by token, whitespace and
+	 * comments within the patterns don't matter, and the replacements are never applied to their own output.
+	 */
+	public void apply(TokenPatcher patcher) {
 		// gl_MultiTexCoord1 and gl_MultiTexCoord2 are both aliases of the lightmap coords
-		if (transformations.contains(NORMALIZED_PLACEHOLDER)) {
-			// Bail out! Not sure what to do here.
-			throw new AssertionError();
-		}
-
-		applyCommonCases(transformations, "gl_MultiTexCoord1");
-		applyCommonCases(transformations, "gl_MultiTexCoord2");
-		applyFallbackCases(transformations);
+		applyCommonCases(patcher, "gl_MultiTexCoord1");
+		applyCommonCases(patcher, "gl_MultiTexCoord2");
+		applyFallbackCases(patcher);
+	}
 
-		transformations.replaceExact(NORMALIZED_PLACEHOLDER, normalizedLightmapCoords);
+	/**
+	 * If there are references to the fallback lightmap texture matrix, then make it available to the shader program.
+	 * This must be called after the replacements of the patcher have been applied.
+	 */
+	public void injectUniforms(Transformations transformations, TokenPatcher patcher) {
+		if (patcher.hasEmitted(LIGHTMAP_TEXTURE_MATRIX)) {
+			transformations.injectLine(
+				Transformations.InjectionPoint.BEFORE_CODE,
+				"uniform mat4 " + LIGHTMAP_TEXTURE_MATRIX + ";"
+			);
+		}
 	}
 
-	private void applyCommonCases(Transformations transformations, String coordName) {
+	private void applyCommonCases(TokenPatcher patcher, String coordName) {
 		// Replace basic common operations
 		//
 		// These cases are simple and they show up a lot.
 		// They are all different ways of obtaining the normalized lightmap coordinates
 
-		transformations.replaceExact(
-			"(gl_TextureMatrix[1]*" + coordName + ").st",
-			NORMALIZED_PLACEHOLDER
-		);
-
-		transformations.replaceExact(
+		patcher.replaceSequence(
 			"(gl_TextureMatrix[1] * " + coordName + ").st",
-			NORMALIZED_PLACEHOLDER
+			normalizedLightmapCoords
 		);
 
-		transformations.replaceExact(
+		patcher.replaceSequence(
 			"(gl_TextureMatrix[1] * " + coordName + ").xy",
-			NORMALIZED_PLACEHOLDER
+			normalizedLightmapCoords
 		);
 
-		transformations.replaceExact(
-			"(gl_TextureMatrix[1] * " + coordName + ").xy",
-			NORMALIZED_PLACEHOLDER
-		);
-
-		transformations.replaceExact(
+		patcher.replaceSequence(
 			"(gl_TextureMatrix[1] * " + coordName + ").s",
-			NORMALIZED_PLACEHOLDER + ".s"
+			normalizedLightmapCoords + ".s"
 		);
 
-		transformations.replaceExact(
+		patcher.replaceSequence(
 			"gl_TextureMatrix[1] * " + coordName,
-			"vec4(" + NORMALIZED_PLACEHOLDER + ", 0.0, 1.0)"
+			"vec4(" + normalizedLightmapCoords + ", 0.0, 1.0)"
 		);
 
 		// NB: Technically this isn't a correct transformation (it changes the values slightly), however the shader code
@@ -74,30 +76,22 @@ public class BuiltinUniformReplacementTransformer {
 		// transformation like gl_TextureMatrix[1] would. Therefore, I think this is acceptable.
 		//
 		// This code shows up in Sildur's shaderpacks.
-		transformations.replaceExact(
+		patcher.replaceSequence(
 			coordName + ".xy/255.0",
-			NORMALIZED_PLACEHOLDER
+			normalizedLightmapCoords
 		);
 	}
 
-	private void applyFallbackCases(Transformations transformations) {
-		transformations.replaceExact("gl_TextureMatrix[1]", "iris_LightmapTextureMatrix");
-		transformations.replaceExact(
+	private void applyFallbackCases(TokenPatcher patcher) {
+		patcher.replaceSequence("gl_TextureMatrix[1]", LIGHTMAP_TEXTURE_MATRIX);
+		patcher.replaceIdentifier(
 			"gl_MultiTexCoord1",
-			"vec4(" + NORMALIZED_PLACEHOLDER + " * 255.0, 0.0, 1.0)"
+			"vec4(" + normalizedLightmapCoords + " * 255.0, 0.0, 1.0)"
 		);
 
-		transformations.replaceExact(
+		patcher.replaceIdentifier(
 				"gl_MultiTexCoord2",
-				"vec4(" + NORMALIZED_PLACEHOLDER + " * 255.0, 0.0, 1.0)"
+				"vec4(" + normalizedLightmapCoords + " * 255.0, 0.0, 1.0)"
 		);
-
-		// If there are references to the fallback lightmap texture matrix, then make it available to the shader program.
-		if (transformations.contains("iris_LightmapTextureMatrix")) {
-			transformations.injectLine(
-				Transformations.InjectionPoint.BEFORE_CODE,
-				"uniform mat4 iris_LightmapTextureMatrix;"
-			);
-		}
 	}
 }
@@ -1,11 +1,18 @@
 package net.coderbot.iris.shaderpack.transform;
 
+/**
+ * Applies transformations to a shader source.
+ *
+ * <p>The lines injected by the transformations are appended to builders, and the transformed source is only assembled
+ * once {@link #toString()} is called. The patcher works on the tokens of the body instead of searching and replacing
+ * text, see {@link #getBody()} and {@link #setBody(String)}.</p>
+ */
 public class StringTransformations implements Transformations {
 	private String prefix;
-	private String extensions;
-	private StringBuilder injections;
+	private final StringBuilder extensions;
+	private final StringBuilder injections;
 	private String body;
-	private StringBuilder suffix;
+	private final StringBuilder suffix;
 
 	public StringTransformations(String base) {
 		int versionStringStart = base.indexOf("#version");
@@ -20,44 +27,42 @@ public class StringTransformations implements Transformations {
 		int splitPoint = base.indexOf("\n") + 1;
 
 		this.prefix = prefix + base.substring(0, splitPoint);
-		this.extensions = "";
+		this.extensions = new StringBuilder();
 		this.injections = new StringBuilder();
-		this.body = base.substring(splitPoint);
 		this.suffix = new StringBuilder("\n");
 
-		if (!body.contains("#extension")) {
-			// Don't try to hoist #extension lines if there are none.
-			return;
-		}
+		String body = base.substring(splitPoint);
 
-		// We need to avoid injecting non-preprocessor code fragments before #extension
-		// declarations. Luckily, JCPP hoists #extension directives to be right after #version
-		// directives.
-		StringBuilder extensions = new StringBuilder();
-		StringBuilder body = new StringBuilder();
+		if (body.contains("#extension")) {
+			// We need to avoid injecting non-preprocessor code fragments before #extension
+			// declarations. Luckily, JCPP hoists #extension directives to be right after #version
+			// directives.
+			StringBuilder hoistedBody = new StringBuilder();
 
-		boolean inBody = false;
+			boolean inBody = false;
 
-		for (String line : this.body.split("\\R")) {
-			String trimmedLine = line.trim();
+			for (String line : body.split("\\R")) {
+				String trimmedLine = line.trim();
 
-			if (!trimmedLine.isEmpty()
-					&& !trimmedLine.startsWith("#extension")
-					&& !trimmedLine.startsWith("//")) {
-				inBody = true;
-			}
+				if (!trimmedLine.isEmpty()
+						&& !trimmedLine.startsWith("#extension")
+						&& !trimmedLine.startsWith("//")) {
+					inBody = true;
+				}
 
-			if (inBody) {
-				body.append(line);
-				body.append('\n');
-			} else {
-				extensions.append(line);
-				extensions.append('\n');
+				if (inBody) {
+					hoistedBody.append(line);
+					hoistedBody.append('\n');
+				} else {
+					extensions.append(line);
+					extensions.append('\n');
+				}
 			}
+
+			body = hoistedBody.toString();
 		}
 
-		this.extensions = extensions.toString();
-		this.body = body.toString();
+		this.body = body;
 	}
 
 	@Override
@@ -77,8 +82,7 @@ public class StringTransformations implements Transformations {
 
 	@Override
 	public void define(String key, String value) {
-		// TODO: This isn't super efficient, but oh well.
-		extensions = extensions + "#define " + key + " " + value + "\n";
+		extensions.append("#define ").append(key).append(' ').append(value).append('\n');
 	}
 
 	@Override
@@ -87,8 +91,8 @@ public class StringTransformations implements Transformations {
 			injections.append(line);
 			injections.append('\n');
 		} else if (at == InjectionPoint.DEFINES) {
-			// TODO: This isn't super efficient, but oh well.
-			extensions = extensions + line + "\n";
+			extensions.append(line);
+			extensions.append('\n');
 		} else if (at == InjectionPoint.END) {
 			suffix.append(line);
 			suffix.append('\n');
@@ -106,14 +110,43 @@ public class StringTransformations implements Transformations {
 		}
 
 		prefix = prefix.replace(from, to);
-		extensions = extensions.replace(from, to);
-		injections = new StringBuilder(injections.toString().replace(from, to));
+		replaceIn(extensions, from, to);
+		replaceIn(injections, from, to);
 		body = body.replace(from, to);
-		suffix = new StringBuilder(suffix.toString().replace(from, to));
+		replaceIn(suffix, from, to);
 	}
 
 	@Override
 	public String toString() {
-		return prefix + extensions + injections + body + suffix;
+		int length = prefix.length() + extensions.length() + injections.length() + body.length() + suffix.length();
+
+		return new StringBuilder(length).append(prefix).append(extensions).append(injections).append(body)
+				.append(suffix).toString();
+	}
+
+	private static void replaceIn(StringBuilder builder, String from, String to) {
+		// The injected parts of the source are small, but there is no need to copy them unless they actually change.
+		if (builder.indexOf(from) == -1) {
+			return;
+		}
+
+		String replaced = builder.toString().replace(from, to);
+		builder.setLength(0);
+		builder.append(replaced);
+	}
+
+	/**
+	 * Returns the body of the source: everything after the #version line and any #extension lines that follow it,
+	 * without any injected lines.
+	 */
+	public String getBody() {
+		return body;
+	}
+
+	/**
+	 * Replaces the body of the source, keeping everything that has been injected so far.
+	 */
+	public void setBody(String body) {
+		this.body = body;
 	}
 }
@@ -0,0 +1,228 @@
+package net.coderbot.iris.shaderpack.transform.token;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A GLSL source split into tokens.
+ *
+ * <p>This is a lightweight tokenizer that only tells apart what shader patching needs to tell apart: identifiers,
+ * numbers, comments, whitespace, and single symbol characters. Multi-character operators are split into one token per
+ * character, which is fine for matching since patterns are tokenized in the same way. Preprocessor directives are not
+ * treated specially, since patching only ever sees preprocessed sources.</p>
+ *
+ * <p>Tokens are stored as offsets into the source, so tokenizing doesn't allocate anything per token.</p>
+ */
+public final class GlslTokens {
+	public enum Type {
+		IDENTIFIER,
+		NUMBER,
+		SYMBOL,
+		WHITESPACE,
+		COMMENT
+	}
+
+	private static final Type[] TYPES = Type.values();
+
+	private final String source;
+	// Token i spans from starts[i] to starts[i + 1]
+	private final int[] starts;
+	private final byte[] types;
+	private final int count;
+
+	private Set<String> identifiers;
+
+	private GlslTokens(String source, int[] starts, byte[] types, int count) {
+		this.source = source;
+		this.starts = starts;
+		this.types = types;
+		this.count = count;
+	}
+
+	public static GlslTokens tokenize(String source) {
+		int length = source.length();
+		// A rough guess to avoid most resizing, typical sources average a bit over four characters per token.
+		int[] starts = new int[length / 4 + 2];
+		byte[] types = new byte[starts.length];
+		int count = 0;
+		int index = 0;
+
+		while (index < length) {
+			if (count + 1 >= starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+				types = Arrays.copyOf(types, starts.length);
+			}
+
+			int start = index;
+			char c = source.charAt(index);
+			Type type;
+
+			if (c <= ' ') {
+				type = Type.WHITESPACE;
+
+				do {
+					index++;
+				} while (index < length && source.charAt(index) <= ' ');
+			} else if (c == '/' && index + 1 < length && source.charAt(index + 1) == '/') {
+				type = Type.COMMENT;
+				index = endOfLine(source, index);
+			} else if (c == '/' && index + 1 < length && source.charAt(index + 1) == '*') {
+				type = Type.COMMENT;
+				int end = source.indexOf("*/", index + 2);
+				index = end == -1 ? length : end + 2;
+			} else if (isIdentifierStart(c)) {
+				type = Type.IDENTIFIER;
+
+				do {
+					index++;
+				} while (index < length && isIdentifierPart(source.charAt(index)));
+			} else if (isDigit(c) || (c == '.' && index + 1 < length && isDigit(source.charAt(index + 1)))) {
+				type = Type.NUMBER;
+				index = endOfNumber(source, index);
+			} else {
+				type = Type.SYMBOL;
+				index++;
+			}
+
+			starts[count] = start;
+			types[count] = (byte) type.ordinal();
+			count++;
+		}
+
+		starts[count] = length;
+
+		return new GlslTokens(source, starts, types, count);
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public Type getType(int token) {
+		return TYPES[types[token]];
+	}
+
+	/**
+	 * Returns whether a token is whitespace or a comment, which is insignificant for matching.
+	 */
+	public boolean isTrivia(int token) {
+		return types[token] == Type.WHITESPACE.ordinal() || types[token] == Type.COMMENT.ordinal();
+	}
+
+	public int getStart(int token) {
+		return starts[token];
+	}
+
+	public int getEnd(int token) {
+		return starts[token + 1];
+	}
+
+	public int getLength(int token) {
+		return starts[token + 1] - starts[token];
+	}
+
+	public char getFirstChar(int token) {
+		return source.charAt(starts[token]);
+	}
+
+	public String getText(int token) {
+		return source.substring(starts[token], starts[token + 1]);
+	}
+
+	/**
+	 * Compares the text of a token without copying it out of the source.
+	 */
+	public boolean textEquals(int token, String text) {
+		return getLength(token) == text.length() && source.startsWith(text, starts[token]);
+	}
+
+	/**
+	 * Returns whether the given identifier is referenced by the source, outside of comments and without matching
+	 * parts of longer identifiers.
+	 */
+	public boolean containsIdentifier(String identifier) {
+		return getIdentifiers().contains(identifier);
+	}
+
+	/**
+	 * Returns whether the source references any identifier that starts with the given prefix, outside of comments.
+	 */
+	public boolean containsIdentifierStartingWith(String prefix) {
+		for (String identifier : getIdentifiers()) {
+			if (identifier.startsWith(prefix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private Set<String> getIdentifiers() {
+		if (identifiers == null) {
+			identifiers = new HashSet<>();
+
+			for (int token = 0; token < count; token++) {
+				if (types[token] == Type.IDENTIFIER.ordinal()) {
+					identifiers.add(getText(token));
+				}
+			}
+		}
+
+		return identifiers;
+	}
+
+	private static int endOfLine(String source, int index) {
+		while (index < source.length() && source.charAt(index) != '\n' && source.charAt(index) != '\r') {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static int endOfNumber(String source, int index) {
+		// Covers integers, hexadecimal and octal literals, floats with exponents, and suffixes like u, f and lf.
+		while (index < source.length()) {
+			char c = source.charAt(index);
+
+			if (isIdentifierPart(c) || c == '.') {
+				index++;
+			} else if ((c == '+' || c == '-') && (source.charAt(index - 1) == 'e' || source.charAt(index - 1) == 'E')
+					&& !isHexLiteral(source, index)) {
+				index++;
+			} else {
+				break;
+			}
+		}
+
+		return index;
+	}
+
+	private static boolean isHexLiteral(String source, int index) {
+		// Walk back to the start of the number to check for a 0x prefix, in which case e is a digit
+		int start = index;
+
+		while (start > 0 && (isIdentifierPart(source.charAt(start - 1)) || source.charAt(start - 1) == '.')) {
+			start--;
+		}
+
+		return start + 1 < source.length() && source.charAt(start) == '0'
+				&& (source.charAt(start + 1) == 'x' || source.charAt(start + 1) == 'X');
+	}
+
+	static boolean isIdentifierStart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+	}
+
+	static boolean isIdentifierPart(char c) {
+		return isIdentifierStart(c) || isDigit(c);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
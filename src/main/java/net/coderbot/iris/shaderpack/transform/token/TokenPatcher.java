@@ -0,0 +1,199 @@
+package net.coderbot.iris.shaderpack.transform.token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces identifiers and sequences of tokens in a GLSL source, applying every registered replacement in a single
+ * pass over its tokens once {@link #apply()} is called.
+ *
+ * <p>Unlike plain text replacement, this never matches inside comments or inside longer identifiers, and whitespace
+ * and comments between the tokens of a pattern don't matter: the pattern {@code (gl_TextureMatrix[1]*gl_MultiTexCoord1).st}
+ * also matches {@code ( gl_TextureMatrix[1] * gl_MultiTexCoord1 ).st}.</p>
+ *
+ * <p>Replacements are not applied recursively, the replacement text is always emitted as is. When more than one
+ * replacement could match at the same position, the one that was registered first is used, and matching continues
+ * after the end of the matched tokens, so an earlier and longer pattern takes priority over a later pattern that it
+ * contains.</p>
+ */
+public class TokenPatcher {
+	private final GlslTokens tokens;
+	// Keyed by the text of the first token of each pattern, in registration order
+	private final Map<String, List<Replacement>> replacements;
+	// Used to rule out most tokens before looking them up, without copying their text out of the source
+	private final boolean[] firstChars;
+	private long lengths;
+
+	private final Set<String> emitted;
+	private boolean applied;
+
+	public TokenPatcher(GlslTokens tokens) {
+		this.tokens = tokens;
+		this.replacements = new HashMap<>();
+		this.firstChars = new boolean[128];
+		this.emitted = new HashSet<>();
+	}
+
+	public GlslTokens getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Replaces every reference to an identifier.
+	 */
+	public void replaceIdentifier(String identifier, String replacement) {
+		GlslTokens pattern = GlslTokens.tokenize(identifier);
+
+		if (pattern.size() != 1 || pattern.getType(0) != GlslTokens.Type.IDENTIFIER) {
+			throw new IllegalArgumentException("Not an identifier: " + identifier);
+		}
+
+		replaceSequence(identifier, replacement);
+	}
+
+	/**
+	 * Replaces every occurrence of a sequence of tokens, ignoring any whitespace or comments between them.
+	 */
+	public void replaceSequence(String pattern, String replacement) {
+		if (applied) {
+			throw new IllegalStateException("Replacements have already been applied");
+		}
+
+		GlslTokens patternTokens = GlslTokens.tokenize(pattern);
+		List<String> texts = new ArrayList<>();
+
+		for (int token = 0; token < patternTokens.size(); token++) {
+			if (!patternTokens.isTrivia(token)) {
+				texts.add(patternTokens.getText(token));
+			}
+		}
+
+		if (texts.isEmpty()) {
+			throw new IllegalArgumentException("Cannot replace a pattern without any tokens: \"" + pattern + "\"");
+		}
+
+		String first = texts.get(0);
+
+		if (first.charAt(0) >= firstChars.length || first.length() >= Long.SIZE) {
+			throw new IllegalArgumentException("Unsupported pattern: \"" + pattern + "\"");
+		}
+
+		replacements.computeIfAbsent(first, key -> new ArrayList<>())
+				.add(new Replacement(texts.toArray(new String[0]), replacement));
+
+		firstChars[first.charAt(0)] = true;
+		lengths |= 1L << first.length();
+	}
+
+	/**
+	 * Applies all registered replacements, and returns the patched source. This can only be done once.
+	 */
+	public String apply() {
+		if (applied) {
+			throw new IllegalStateException("Replacements have already been applied");
+		}
+
+		applied = true;
+
+		String source = tokens.getSource();
+		StringBuilder patched = new StringBuilder(source.length() + source.length() / 8);
+		// The start of the original text that hasn't been copied into the patched source yet
+		int copyFrom = 0;
+		int token = 0;
+
+		while (token < tokens.size()) {
+			if (tokens.isTrivia(token) || !mightMatch(token)) {
+				token++;
+				continue;
+			}
+
+			List<Replacement> candidates = replacements.get(tokens.getText(token));
+			int end = -1;
+
+			if (candidates != null) {
+				for (Replacement candidate : candidates) {
+					end = candidate.match(tokens, token);
+
+					if (end != -1) {
+						patched.append(source, copyFrom, tokens.getStart(token));
+						patched.append(candidate.replacement);
+						copyFrom = tokens.getStart(end);
+
+						emitted.addAll(candidate.identifiers);
+						break;
+					}
+				}
+			}
+
+			token = end != -1 ? end : token + 1;
+		}
+
+		patched.append(source, copyFrom, source.length());
+
+		return patched.toString();
+	}
+
+	/**
+	 * Returns whether applying the replacements introduced a reference to the given identifier.
+	 */
+	public boolean hasEmitted(String identifier) {
+		if (!applied) {
+			throw new IllegalStateException("Replacements haven't been applied yet");
+		}
+
+		return emitted.contains(identifier);
+	}
+
+	private boolean mightMatch(int token) {
+		char first = tokens.getFirstChar(token);
+		int length = tokens.getLength(token);
+
+		return first < firstChars.length && firstChars[first] && length < Long.SIZE && (lengths & (1L << length)) != 0;
+	}
+
+	private static class Replacement {
+		private final String[] pattern;
+		private final String replacement;
+		private final List<String> identifiers;
+
+		Replacement(String[] pattern, String replacement) {
+			this.pattern = pattern;
+			this.replacement = replacement;
+			this.identifiers = new ArrayList<>();
+
+			GlslTokens tokens = GlslTokens.tokenize(replacement);
+
+			for (int token = 0; token < tokens.size(); token++) {
+				if (tokens.getType(token) == GlslTokens.Type.IDENTIFIER) {
+					identifiers.add(tokens.getText(token));
+				}
+			}
+		}
+
+		/**
+		 * Matches the pattern against the tokens starting at the given token, and returns the index of the token after
+		 * the match, or -1 if the pattern doesn't match.
+		 */
+		int match(GlslTokens tokens, int start) {
+			int token = start;
+
+			for (String text : pattern) {
+				while (token < tokens.size() && tokens.isTrivia(token)) {
+					token++;
+				}
+
+				if (token == tokens.size() || !tokens.textEquals(token, text)) {
+					return -1;
+				}
+
+				token++;
+			}
+
+			return token;
+		}
+	}
+}
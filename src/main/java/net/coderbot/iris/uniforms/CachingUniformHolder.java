@@ -0,0 +1,230 @@
+package net.coderbot.iris.uniforms;
+
+import com.mojang.math.Matrix4f;
+import net.coderbot.iris.gl.uniform.DynamicUniformHolder;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+import net.coderbot.iris.gl.uniform.UniformBlockPacker;
+import net.coderbot.iris.gl.uniform.UniformBuffer;
+import net.coderbot.iris.gl.uniform.UniformHolder;
+import net.coderbot.iris.gl.uniform.UniformType;
+import net.coderbot.iris.gl.uniform.UniformUpdateFrequency;
+import net.coderbot.iris.gl.uniform.ValueUpdateNotifier;
+import net.coderbot.iris.vendored.joml.Vector2f;
+import net.coderbot.iris.vendored.joml.Vector2i;
+import net.coderbot.iris.vendored.joml.Vector3d;
+import net.coderbot.iris.vendored.joml.Vector3f;
+import net.coderbot.iris.vendored.joml.Vector4f;
+import net.coderbot.iris.vendored.joml.Vector4i;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registers uniforms with another holder, with their values shared through a {@link FrameUniformCache}. Members of the
+ * {@link FrameUniformBlock} are also provided to its uniform buffer, if the cache has one.
+ */
+class CachingUniformHolder implements DynamicUniformHolder {
+	private final FrameUniformCache cache;
+	private final DynamicUniformHolder uniforms;
+	@Nullable
+	private final UniformBlockPacker frameUniforms;
+
+	CachingUniformHolder(FrameUniformCache cache, DynamicUniformHolder uniforms) {
+		this.cache = cache;
+		this.uniforms = uniforms;
+		this.frameUniforms = cache.getFrameUniformPacker();
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, FloatSupplier value) {
+		FloatSupplier cached = cache.cacheFloat(updateFrequency, name, value);
+		uniforms.uniform1f(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addFloat(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, IntSupplier value) {
+		return uniform1f(updateFrequency, name, (FloatSupplier) () -> (float) value.getAsInt());
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, DoubleSupplier value) {
+		return uniform1f(updateFrequency, name, (FloatSupplier) () -> (float) value.getAsDouble());
+	}
+
+	@Override
+	public UniformHolder uniform1i(UniformUpdateFrequency updateFrequency, String name, IntSupplier value) {
+		IntSupplier cached = cache.cacheInt(updateFrequency, name, value);
+		uniforms.uniform1i(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addInt(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1b(UniformUpdateFrequency updateFrequency, String name, BooleanSupplier value) {
+		uniforms.uniform1b(updateFrequency, name, cache.cacheBoolean(updateFrequency, name, value));
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform2f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector2f> value) {
+		Supplier<Vector2f> cached = cache.cacheObject(updateFrequency, "vec2", name, value);
+		uniforms.uniform2f(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addVec2(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform2i(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector2i> value) {
+		uniforms.uniform2i(updateFrequency, name, cache.cacheObject(updateFrequency, "vec2i", name, value));
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform3f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector3f> value) {
+		Supplier<Vector3f> cached = cache.cacheObject(updateFrequency, "vec3", name, value);
+		uniforms.uniform3f(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addVec3(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformTruncated3f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector4f> value) {
+		Supplier<Vector4f> cached = cache.cacheObject(updateFrequency, "vec3t", name, value);
+		uniforms.uniformTruncated3f(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addTruncatedVec3(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform3d(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector3d> value) {
+		Supplier<Vector3d> cached = cache.cacheObject(updateFrequency, "vec3d", name, value);
+		uniforms.uniform3d(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addVec3d(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform4f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector4f> value) {
+		Supplier<Vector4f> cached = cache.cacheObject(updateFrequency, "vec4", name, value);
+		uniforms.uniform4f(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addVec4(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformMatrix(UniformUpdateFrequency updateFrequency, String name, Supplier<Matrix4f> value) {
+		uniforms.uniformMatrix(updateFrequency, name, cache.cacheObject(updateFrequency, "mat4", name, value));
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformJomlMatrix(UniformUpdateFrequency updateFrequency, String name, Supplier<net.coderbot.iris.vendored.joml.Matrix4f> value) {
+		Supplier<net.coderbot.iris.vendored.joml.Matrix4f> cached = cache.cacheObject(updateFrequency, "jomlMat4", name, value);
+		uniforms.uniformJomlMatrix(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addMatrix(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformMatrixFromArray(UniformUpdateFrequency updateFrequency, String name, Supplier<float[]> value) {
+		Supplier<float[]> cached = cache.cacheObject(updateFrequency, "mat4array", name, value);
+		uniforms.uniformMatrixFromArray(updateFrequency, name, cached);
+
+		if (frameUniforms != null) {
+			frameUniforms.addMatrixFromArray(name, cached);
+		}
+
+		return this;
+	}
+
+	@Override
+	public UniformHolder externallyManagedUniform(String name, UniformType type) {
+		uniforms.externallyManagedUniform(name, type);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, FloatSupplier value, ValueUpdateNotifier notifier) {
+		uniforms.uniform1f(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, IntSupplier value, ValueUpdateNotifier notifier) {
+		uniforms.uniform1f(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, DoubleSupplier value, ValueUpdateNotifier notifier) {
+		uniforms.uniform1f(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1i(String name, IntSupplier value, ValueUpdateNotifier notifier) {
+		uniforms.uniform1i(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform2i(String name, Supplier<Vector2i> value, ValueUpdateNotifier notifier) {
+		uniforms.uniform2i(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform4f(String name, Supplier<Vector4f> value, ValueUpdateNotifier notifier) {
+		uniforms.uniform4f(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform4i(String name, Supplier<Vector4i> value, ValueUpdateNotifier notifier) {
+		uniforms.uniform4i(name, value, notifier);
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniformBlock(UniformBuffer buffer) {
+		uniforms.uniformBlock(buffer);
+		return this;
+	}
+}
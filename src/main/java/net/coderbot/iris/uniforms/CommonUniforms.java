@@ -14,6 +14,7 @@ import net.coderbot.iris.pipeline.newshader.FogMode;
 import net.coderbot.iris.samplers.TextureAtlasTracker;
 import net.coderbot.iris.shaderpack.IdMap;
 import net.coderbot.iris.shaderpack.PackDirectives;
+import net.coderbot.iris.uniforms.custom.CustomUniforms;
 import net.coderbot.iris.uniforms.transforms.SmoothedFloat;
 import net.coderbot.iris.uniforms.transforms.SmoothedVec2f;
 import net.coderbot.iris.vendored.joml.Vector2f;
@@ -49,7 +50,27 @@ public final class CommonUniforms {
 	}
 
 	// Needs to use a LocationalUniformHolder as we need it for the common uniforms
-	public static void addCommonUniforms(DynamicUniformHolder uniforms, IdMap idMap, PackDirectives directives, FrameUpdateNotifier updateNotifier, FogMode fogMode) {
+	public static void addCommonUniforms(DynamicUniformHolder uniforms, IdMap idMap, PackDirectives directives, FrameUpdateNotifier updateNotifier, FogMode fogMode, CustomUniforms customUniforms, FrameUniformCache uniformCache) {
+		DynamicUniformHolder cached = uniformCache.wrap(uniforms);
+
+		if (uniformCache.getFrameUniforms() != null) {
+			uniforms.uniformBlock(uniformCache.getFrameUniforms());
+		}
+
+		addBuiltinUniforms(cached, uniforms, idMap, directives, updateNotifier, fogMode);
+		customUniforms.addUniforms(cached);
+	}
+
+	/**
+	 * Adds every uniform except for the custom uniforms of the shader pack, which can read these uniforms themselves.
+	 */
+	public static void addBuiltinUniforms(DynamicUniformHolder uniforms, IdMap idMap, PackDirectives directives, FrameUpdateNotifier updateNotifier, FogMode fogMode) {
+		addBuiltinUniforms(uniforms, uniforms, idMap, directives, updateNotifier, fogMode);
+	}
+
+	// The values of uniforms registered with the shared holder may be shared between all programs, while the fog
+	// uniforms read the current render state and can therefore differ between programs even within the same frame.
+	private static void addBuiltinUniforms(DynamicUniformHolder uniforms, DynamicUniformHolder perProgram, IdMap idMap, PackDirectives directives, FrameUpdateNotifier updateNotifier, FogMode fogMode) {
 		CameraUniforms.addCameraUniforms(uniforms, updateNotifier);
 		ViewportUniforms.addViewportUniforms(uniforms);
 		WorldTimeUniforms.addWorldTimeUniforms(uniforms);
@@ -58,9 +79,8 @@ public final class CommonUniforms {
 		IdMapUniforms.addIdMapUniforms(uniforms, idMap);
 		IrisExclusiveUniforms.addIrisExclusiveUniforms(uniforms);
 		MatrixUniforms.addMatrixUniforms(uniforms, directives);
-		HardcodedCustomUniforms.addHardcodedCustomUniforms(uniforms, updateNotifier);
-		FogUniforms.addFogUniforms(uniforms, fogMode);
-		IrisInternalUniforms.addFogUniforms(uniforms);
+		FogUniforms.addFogUniforms(perProgram, fogMode);
+		IrisInternalUniforms.addFogUniforms(perProgram);
 
 		uniforms.uniform4f("entityColor", () -> {
 			if (EntityColorRenderStateShard.currentHurt) {
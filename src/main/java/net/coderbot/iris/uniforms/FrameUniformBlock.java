@@ -0,0 +1,57 @@
+package net.coderbot.iris.uniforms;
+
+import net.coderbot.iris.gl.uniform.Std140Layout;
+
+import static net.coderbot.iris.gl.uniform.Std140Layout.Type.FLOAT;
+import static net.coderbot.iris.gl.uniform.Std140Layout.Type.INT;
+import static net.coderbot.iris.gl.uniform.Std140Layout.Type.MAT4;
+import static net.coderbot.iris.gl.uniform.Std140Layout.Type.VEC3;
+
+/**
+ * The uniform block that the standard per-frame built-in uniforms are moved into when uniform buffers are enabled.
+ *
+ * <p>All of these uniforms have the same value in every program for the whole frame, so instead of every program
+ * uploading each of them separately, they are packed into a single buffer once per frame which every program reads
+ * from. Shader packs keep declaring them as plain uniforms, the patcher replaces those declarations with the block.</p>
+ */
+public final class FrameUniformBlock {
+	public static final String NAME = "iris_FrameUniforms";
+
+	/**
+	 * The uniform buffer binding point of the block. Vanilla doesn't use uniform buffers at all, and other mods tend to
+	 * use the lowest binding points, so a high binding point that every OpenGL 3.2 implementation supports is used.
+	 */
+	public static final int BINDING = 31;
+
+	// Each vec3 is followed by a scalar, which fills the padding that would otherwise follow the vec3.
+	public static final Std140Layout LAYOUT = Std140Layout.builder()
+			.add(MAT4, "gbufferModelView")
+			.add(MAT4, "gbufferModelViewInverse")
+			.add(MAT4, "gbufferPreviousModelView")
+			.add(MAT4, "gbufferProjection")
+			.add(MAT4, "gbufferProjectionInverse")
+			.add(MAT4, "gbufferPreviousProjection")
+			.add(MAT4, "shadowModelView")
+			.add(MAT4, "shadowModelViewInverse")
+			.add(MAT4, "shadowProjection")
+			.add(MAT4, "shadowProjectionInverse")
+			.add(VEC3, "cameraPosition")
+			.add(FLOAT, "far")
+			.add(VEC3, "previousCameraPosition")
+			.add(FLOAT, "frameTime")
+			.add(VEC3, "sunPosition")
+			.add(FLOAT, "sunAngle")
+			.add(VEC3, "moonPosition")
+			.add(FLOAT, "shadowAngle")
+			.add(VEC3, "shadowLightPosition")
+			.add(FLOAT, "frameTimeCounter")
+			.add(VEC3, "upPosition")
+			.add(FLOAT, "aspectRatio")
+			.add(FLOAT, "viewWidth")
+			.add(FLOAT, "viewHeight")
+			.add(INT, "frameCounter")
+			.build();
+
+	private FrameUniformBlock() {
+	}
+}
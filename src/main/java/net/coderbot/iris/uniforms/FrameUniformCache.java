@@ -0,0 +1,250 @@
+package net.coderbot.iris.uniforms;
+
+import net.coderbot.iris.gl.uniform.DynamicUniformHolder;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+import net.coderbot.iris.gl.uniform.UniformBlockPacker;
+import net.coderbot.iris.gl.uniform.UniformBuffer;
+import net.coderbot.iris.gl.uniform.UniformUpdateFrequency;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Shares the values of built-in uniforms between all programs of a pipeline.
+ *
+ * <p>Every program has its own uniform objects, which used to call their suppliers again whenever the program was first
+ * used in a frame. Since most built-in uniforms have the same value for every program, such as the camera position or
+ * the inverse of the projection matrix, the same value would be computed for every program that uses it. Suppliers
+ * registered through this cache are instead computed at most once per frame or tick, with every program reading the
+ * shared value and still only uploading it when it differs from the value that the program last uploaded.</p>
+ *
+ * <p>Values are shared by name, so only uniforms whose value doesn't depend on the program or on the render state may be
+ * registered through this cache. Uniforms updated once or through a {@link net.coderbot.iris.gl.uniform.ValueUpdateNotifier}
+ * are passed through unchanged.</p>
+ *
+ * <p>Optionally, the members of the {@link FrameUniformBlock} can also be provided through a uniform buffer, which is
+ * packed and uploaded once per frame. Their values are still registered as plain uniforms as well, for programs that
+ * keep declaring some of them as plain uniforms.</p>
+ */
+public class FrameUniformCache {
+	private final IntSupplier frameCounter;
+	private final LongSupplier tickCounter;
+
+	private final Map<String, CachedFloat> floats = new HashMap<>();
+	private final Map<String, CachedInt> ints = new HashMap<>();
+	private final Map<String, CachedBoolean> booleans = new HashMap<>();
+	private final Map<String, CachedObject<?>> objects = new HashMap<>();
+
+	@Nullable
+	private final UniformBuffer frameUniforms;
+
+	private int computeCount;
+
+	public FrameUniformCache() {
+		this(false);
+	}
+
+	/**
+	 * @param useUniformBuffer whether to create a uniform buffer for the {@link FrameUniformBlock}, which must only be
+	 *                         done on the render thread
+	 */
+	public FrameUniformCache(boolean useUniformBuffer) {
+		this.frameCounter = SystemTimeUniforms.COUNTER;
+		this.tickCounter = () -> Objects.requireNonNull(Minecraft.getInstance().level).getGameTime();
+		this.frameUniforms = useUniformBuffer
+				? new UniformBuffer(FrameUniformBlock.NAME, FrameUniformBlock.BINDING,
+						new UniformBlockPacker(FrameUniformBlock.LAYOUT), frameCounter)
+				: null;
+	}
+
+	public FrameUniformCache(IntSupplier frameCounter, LongSupplier tickCounter) {
+		this.frameCounter = frameCounter;
+		this.tickCounter = tickCounter;
+		this.frameUniforms = null;
+	}
+
+	/**
+	 * Returns a uniform holder that registers the values of uniforms through this cache, and everything else directly
+	 * with the given holder.
+	 */
+	public DynamicUniformHolder wrap(DynamicUniformHolder uniforms) {
+		return new CachingUniformHolder(this, uniforms);
+	}
+
+	public FloatSupplier cacheFloat(UniformUpdateFrequency updateFrequency, String name, FloatSupplier value) {
+		if (updateFrequency == UniformUpdateFrequency.ONCE) {
+			return value;
+		}
+
+		CachedFloat cached = floats.computeIfAbsent(name, key -> new CachedFloat(updateFrequency, value));
+
+		return () -> {
+			if (isOutdated(cached)) {
+				cached.value = cached.supplier.getAsFloat();
+			}
+
+			return cached.value;
+		};
+	}
+
+	public IntSupplier cacheInt(UniformUpdateFrequency updateFrequency, String name, IntSupplier value) {
+		if (updateFrequency == UniformUpdateFrequency.ONCE) {
+			return value;
+		}
+
+		CachedInt cached = ints.computeIfAbsent(name, key -> new CachedInt(updateFrequency, value));
+
+		return () -> {
+			if (isOutdated(cached)) {
+				cached.value = cached.supplier.getAsInt();
+			}
+
+			return cached.value;
+		};
+	}
+
+	public BooleanSupplier cacheBoolean(UniformUpdateFrequency updateFrequency, String name, BooleanSupplier value) {
+		if (updateFrequency == UniformUpdateFrequency.ONCE) {
+			return value;
+		}
+
+		CachedBoolean cached = booleans.computeIfAbsent(name, key -> new CachedBoolean(updateFrequency, value));
+
+		return () -> {
+			if (isOutdated(cached)) {
+				cached.value = cached.supplier.getAsBoolean();
+			}
+
+			return cached.value;
+		};
+	}
+
+	/**
+	 * Caches a vector or matrix value. Matrix, vec3 and vec4 uniforms copy the values that they're given, so their
+	 * suppliers may keep returning the same object. Other uniforms hold on to the object that they were given to tell
+	 * whether the value changed, so their suppliers must not modify objects that they returned earlier.
+	 *
+	 * @param kind distinguishes uniforms of different types with the same name, such as a {@code vec3} and a
+	 *             {@code vec3d}
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Supplier<T> cacheObject(UniformUpdateFrequency updateFrequency, String kind, String name, Supplier<T> value) {
+		if (updateFrequency == UniformUpdateFrequency.ONCE) {
+			return value;
+		}
+
+		CachedObject<T> cached = (CachedObject<T>) objects.computeIfAbsent(kind + " " + name,
+				key -> new CachedObject<>(updateFrequency, value));
+
+		return () -> {
+			if (isOutdated(cached)) {
+				cached.value = cached.supplier.get();
+			}
+
+			return cached.value;
+		};
+	}
+
+	private boolean isOutdated(CachedValue cached) {
+		long stamp = cached.updateFrequency == UniformUpdateFrequency.PER_TICK
+				? tickCounter.getAsLong()
+				: frameCounter.getAsInt();
+
+		if (cached.hasValue && cached.stamp == stamp) {
+			return false;
+		}
+
+		cached.hasValue = true;
+		cached.stamp = stamp;
+		computeCount++;
+
+		return true;
+	}
+
+	/**
+	 * Returns the uniform buffer backing the {@link FrameUniformBlock}, or null if the members of that block are only
+	 * provided as plain uniforms. Shaders must only be patched to use the block if this isn't null.
+	 */
+	@Nullable
+	public UniformBuffer getFrameUniforms() {
+		return frameUniforms;
+	}
+
+	/**
+	 * Returns the packer of the {@link FrameUniformBlock}, or null if there's no uniform buffer for it.
+	 */
+	@Nullable
+	UniformBlockPacker getFrameUniformPacker() {
+		return frameUniforms != null ? frameUniforms.getPacker() : null;
+	}
+
+	public void destroy() {
+		if (frameUniforms != null) {
+			frameUniforms.destroy();
+		}
+	}
+
+	/**
+	 * Returns how many times a value had to be computed, for debugging purposes.
+	 */
+	public int getComputeCount() {
+		return computeCount;
+	}
+
+	private abstract static class CachedValue {
+		final UniformUpdateFrequency updateFrequency;
+		boolean hasValue;
+		long stamp;
+
+		CachedValue(UniformUpdateFrequency updateFrequency) {
+			this.updateFrequency = updateFrequency;
+		}
+	}
+
+	private static class CachedFloat extends CachedValue {
+		final FloatSupplier supplier;
+		float value;
+
+		CachedFloat(UniformUpdateFrequency updateFrequency, FloatSupplier supplier) {
+			super(updateFrequency);
+			this.supplier = supplier;
+		}
+	}
+
+	private static class CachedInt extends CachedValue {
+		final IntSupplier supplier;
+		int value;
+
+		CachedInt(UniformUpdateFrequency updateFrequency, IntSupplier supplier) {
+			super(updateFrequency);
+			this.supplier = supplier;
+		}
+	}
+
+	private static class CachedBoolean extends CachedValue {
+		final BooleanSupplier supplier;
+		boolean value;
+
+		CachedBoolean(UniformUpdateFrequency updateFrequency, BooleanSupplier supplier) {
+			super(updateFrequency);
+			this.supplier = supplier;
+		}
+	}
+
+	private static class CachedObject<T> extends CachedValue {
+		final Supplier<T> supplier;
+		T value;
+
+		CachedObject(UniformUpdateFrequency updateFrequency, Supplier<T> supplier) {
+			super(updateFrequency);
+			this.supplier = supplier;
+		}
+	}
+}
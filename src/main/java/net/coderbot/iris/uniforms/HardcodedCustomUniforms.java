@@ -10,8 +10,8 @@ import net.minecraft.world.level.Level;
 
 // These expressions are copied directly from BSL
 //
-// TODO: Remove once custom uniforms are actually supported, this is just a temporary thing to get BSL & Complementary
-// mostly working under Iris.
+// Only used for shader packs that don't declare any custom uniforms in shaders.properties, since a lot of shader packs
+// that are based on BSL & Complementary rely on these without declaring them.
 public class HardcodedCustomUniforms {
 	public static void addHardcodedCustomUniforms(UniformHolder holder, FrameUpdateNotifier updateNotifier) {
 		holder.uniform1f(UniformUpdateFrequency.PER_FRAME, "timeAngle", HardcodedCustomUniforms::getTimeAngle);
@@ -11,6 +11,9 @@ import net.coderbot.iris.gl.uniform.UniformHolder;
 import net.coderbot.iris.pipeline.ShadowRenderer;
 import net.coderbot.iris.shaderpack.PackDirectives;
 import net.coderbot.iris.shadow.ShadowMatrices;
+import net.coderbot.iris.uniforms.transforms.ConvertedMatrix;
+import net.coderbot.iris.uniforms.transforms.InvertedMatrix;
+import net.coderbot.iris.uniforms.transforms.PreviousMatrix;
 
 public final class MatrixUniforms {
 	private MatrixUniforms() {
@@ -21,92 +24,54 @@ public final class MatrixUniforms {
 		// TODO: In some cases, gbufferProjectionInverse takes on a value much different than OptiFine...
 		// We need to audit Mojang's linear algebra.
 		addMatrix(uniforms, "Projection", CapturedRenderingState.INSTANCE::getGbufferProjection);
-		addShadowMatrix(uniforms, "ModelView", () ->
-				ShadowRenderer.createShadowModelView(directives.getSunPathRotation(), directives.getShadowDirectives().getIntervalSize()).last().pose().copy());
-		addShadowArrayMatrix(uniforms, "Projection", () -> ShadowMatrices.createOrthoMatrix(directives.getShadowDirectives().getDistance()));
+		addShadowMatrix(uniforms, "ModelView", new ShadowModelView(directives));
+		addShadowArrayMatrix(uniforms, "Projection", ShadowMatrices.createOrthoMatrix(directives.getShadowDirectives().getDistance()));
 	}
 
 	private static void addMatrix(UniformHolder uniforms, String name, Supplier<Matrix4f> supplier) {
+		ConvertedMatrix matrix = new ConvertedMatrix(supplier);
+
 		uniforms
-				.uniformMatrix(PER_FRAME, "gbuffer" + name, supplier)
-				.uniformJomlMatrix(PER_FRAME, "gbuffer" + name + "Inverse", new Inverted(supplier))
-				.uniformMatrix(PER_FRAME, "gbufferPrevious" + name, new Previous(supplier));
+				.uniformJomlMatrix(PER_FRAME, "gbuffer" + name, matrix)
+				.uniformJomlMatrix(PER_FRAME, "gbuffer" + name + "Inverse", new InvertedMatrix(matrix))
+				.uniformJomlMatrix(PER_FRAME, "gbufferPrevious" + name, new PreviousMatrix(matrix));
 	}
 
 	private static void addShadowMatrix(UniformHolder uniforms, String name, Supplier<Matrix4f> supplier) {
-		uniforms
-				.uniformMatrix(PER_FRAME, "shadow" + name, supplier)
-				.uniformJomlMatrix(PER_FRAME, "shadow" + name + "Inverse", new Inverted(supplier));
-	}
+		ConvertedMatrix matrix = new ConvertedMatrix(supplier);
 
-	private static void addShadowArrayMatrix(UniformHolder uniforms, String name, Supplier<float[]> supplier) {
 		uniforms
-				.uniformMatrixFromArray(PER_FRAME, "shadow" + name, supplier)
-				.uniformJomlMatrix(PER_FRAME, "shadow" + name + "Inverse", new InvertedArrayMatrix(supplier));
-	}
-
-	private static class Inverted implements Supplier<net.coderbot.iris.vendored.joml.Matrix4f> {
-		private final Supplier<Matrix4f> parent;
-
-		Inverted(Supplier<Matrix4f> parent) {
-			this.parent = parent;
-		}
-
-		@Override
-		public net.coderbot.iris.vendored.joml.Matrix4f get() {
-			// PERF: Don't copy + allocate this matrix every time?
-			Matrix4f copy = parent.get().copy();
-
-			FloatBuffer buffer = FloatBuffer.allocate(16);
-
-			copy.store(buffer);
-			buffer.rewind();
-
-			net.coderbot.iris.vendored.joml.Matrix4f matrix4f = new net.coderbot.iris.vendored.joml.Matrix4f(buffer);
-			matrix4f.invert();
-
-			return matrix4f;
-		}
+				.uniformJomlMatrix(PER_FRAME, "shadow" + name, matrix)
+				.uniformJomlMatrix(PER_FRAME, "shadow" + name + "Inverse", new InvertedMatrix(matrix));
 	}
 
-	private static class InvertedArrayMatrix implements Supplier<net.coderbot.iris.vendored.joml.Matrix4f> {
-		private final Supplier<float[]> parent;
+	private static void addShadowArrayMatrix(UniformHolder uniforms, String name, float[] values) {
+		// The shadow projection only depends on the pack directives, so it never changes
+		net.coderbot.iris.vendored.joml.Matrix4f matrix =
+				new net.coderbot.iris.vendored.joml.Matrix4f().set(FloatBuffer.wrap(values));
 
-		InvertedArrayMatrix(Supplier<float[]> parent) {
-			this.parent = parent;
-		}
-
-		@Override
-		public net.coderbot.iris.vendored.joml.Matrix4f get() {
-			FloatBuffer buffer = FloatBuffer.allocate(16);
-			buffer.put(parent.get());
-			buffer.rewind();
-
-			net.coderbot.iris.vendored.joml.Matrix4f matrix4f = new net.coderbot.iris.vendored.joml.Matrix4f(buffer);
-			matrix4f.invert();
-
-			return matrix4f;
-		}
+		uniforms
+				.uniformMatrixFromArray(PER_FRAME, "shadow" + name, () -> values)
+				.uniformJomlMatrix(PER_FRAME, "shadow" + name + "Inverse", new InvertedMatrix(() -> matrix));
 	}
 
-	private static class Previous implements Supplier<Matrix4f> {
-		private final Supplier<Matrix4f> parent;
-		private Matrix4f previous;
+	/**
+	 * Creates the shadow model view matrix in the same matrix every time, rather than in a new matrix stack.
+	 */
+	private static class ShadowModelView implements Supplier<Matrix4f> {
+		private final PackDirectives directives;
+		private final Matrix4f modelView = new Matrix4f();
 
-		Previous(Supplier<Matrix4f> parent) {
-			this.parent = parent;
-			this.previous = new Matrix4f();
+		ShadowModelView(PackDirectives directives) {
+			this.directives = directives;
 		}
 
 		@Override
 		public Matrix4f get() {
-			// PERF: Don't copy + allocate these matrices every time?
-			Matrix4f copy = parent.get().copy();
-			Matrix4f previous = this.previous.copy();
-
-			this.previous = copy;
+			ShadowRenderer.createShadowModelView(directives.getSunPathRotation(),
+					directives.getShadowDirectives().getIntervalSize(), modelView);
 
-			return previous;
+			return modelView;
 		}
 	}
 }
@@ -0,0 +1,243 @@
+package net.coderbot.iris.uniforms.custom;
+
+import com.mojang.math.Matrix4f;
+import net.coderbot.iris.gl.uniform.DynamicUniformHolder;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+import net.coderbot.iris.gl.uniform.UniformBuffer;
+import net.coderbot.iris.gl.uniform.UniformHolder;
+import net.coderbot.iris.gl.uniform.UniformType;
+import net.coderbot.iris.gl.uniform.UniformUpdateFrequency;
+import net.coderbot.iris.gl.uniform.ValueUpdateNotifier;
+import net.coderbot.iris.vendored.joml.Vector2f;
+import net.coderbot.iris.vendored.joml.Vector2i;
+import net.coderbot.iris.vendored.joml.Vector3d;
+import net.coderbot.iris.vendored.joml.Vector3f;
+import net.coderbot.iris.vendored.joml.Vector4f;
+import net.coderbot.iris.vendored.joml.Vector4i;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Collects the built-in uniforms so that custom uniform expressions can read them by name, as {@code frameTimeCounter}
+ * or {@code cameraPosition.y}.
+ *
+ * <p>Matrices aren't available to expressions, and neither are uniforms that depend on the render state, since their
+ * values aren't meaningful once per frame. Vector uniforms are read at most once per frame, after
+ * {@link #invalidate()} has been called.</p>
+ */
+public class BuiltinUniformCapture implements DynamicUniformHolder {
+	private final Map<String, FloatSupplier> floats = new HashMap<>();
+	private final Map<String, BooleanSupplier> booleans = new HashMap<>();
+	private final List<CachedVector> vectors = new ArrayList<>();
+
+	public Map<String, FloatSupplier> getFloats() {
+		return floats;
+	}
+
+	public Map<String, BooleanSupplier> getBooleans() {
+		return booleans;
+	}
+
+	/**
+	 * Marks the values of every vector uniform as outdated, to be called at the start of every frame.
+	 */
+	public void invalidate() {
+		for (CachedVector vector : vectors) {
+			vector.valid = false;
+		}
+	}
+
+	private void addVector(String name, int componentCount, Consumer<float[]> reader) {
+		CachedVector vector = new CachedVector(reader);
+
+		vectors.add(vector);
+
+		for (int i = 0; i < componentCount; i++) {
+			int component = i;
+
+			floats.put(CustomUniformType.getComponentName(name, i), () -> vector.get(component));
+		}
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, FloatSupplier value) {
+		floats.put(name, value);
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, IntSupplier value) {
+		floats.put(name, () -> (float) value.getAsInt());
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1f(UniformUpdateFrequency updateFrequency, String name, DoubleSupplier value) {
+		floats.put(name, () -> (float) value.getAsDouble());
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1i(UniformUpdateFrequency updateFrequency, String name, IntSupplier value) {
+		floats.put(name, () -> (float) value.getAsInt());
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform1b(UniformUpdateFrequency updateFrequency, String name, BooleanSupplier value) {
+		booleans.put(name, value);
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform2f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector2f> value) {
+		addVector(name, 2, out -> {
+			Vector2f vector = value.get();
+			out[0] = vector.x;
+			out[1] = vector.y;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform2i(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector2i> value) {
+		addVector(name, 2, out -> {
+			Vector2i vector = value.get();
+			out[0] = vector.x;
+			out[1] = vector.y;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform3f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector3f> value) {
+		addVector(name, 3, out -> {
+			Vector3f vector = value.get();
+			out[0] = vector.x;
+			out[1] = vector.y;
+			out[2] = vector.z;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformTruncated3f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector4f> value) {
+		addVector(name, 3, out -> {
+			Vector4f vector = value.get();
+			out[0] = vector.x;
+			out[1] = vector.y;
+			out[2] = vector.z;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform3d(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector3d> value) {
+		addVector(name, 3, out -> {
+			Vector3d vector = value.get();
+			out[0] = (float) vector.x;
+			out[1] = (float) vector.y;
+			out[2] = (float) vector.z;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniform4f(UniformUpdateFrequency updateFrequency, String name, Supplier<Vector4f> value) {
+		addVector(name, 4, out -> {
+			Vector4f vector = value.get();
+			out[0] = vector.x;
+			out[1] = vector.y;
+			out[2] = vector.z;
+			out[3] = vector.w;
+		});
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformMatrix(UniformUpdateFrequency updateFrequency, String name, Supplier<Matrix4f> value) {
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformJomlMatrix(UniformUpdateFrequency updateFrequency, String name, Supplier<net.coderbot.iris.vendored.joml.Matrix4f> value) {
+		return this;
+	}
+
+	@Override
+	public UniformHolder uniformMatrixFromArray(UniformUpdateFrequency updateFrequency, String name, Supplier<float[]> value) {
+		return this;
+	}
+
+	@Override
+	public UniformHolder externallyManagedUniform(String name, UniformType type) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, FloatSupplier value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, IntSupplier value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1f(String name, DoubleSupplier value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform1i(String name, IntSupplier value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform2i(String name, Supplier<Vector2i> value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform4f(String name, Supplier<Vector4f> value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniform4i(String name, Supplier<Vector4i> value, ValueUpdateNotifier notifier) {
+		return this;
+	}
+
+	@Override
+	public DynamicUniformHolder uniformBlock(UniformBuffer buffer) {
+		return this;
+	}
+
+	private static class CachedVector {
+		private final Consumer<float[]> reader;
+		private final float[] components = new float[4];
+		private boolean valid;
+
+		CachedVector(Consumer<float[]> reader) {
+			this.reader = reader;
+		}
+
+		float get(int component) {
+			if (!valid) {
+				reader.accept(components);
+				valid = true;
+			}
+
+			return components[component];
+		}
+	}
+}
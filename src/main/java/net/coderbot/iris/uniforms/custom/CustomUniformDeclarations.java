@@ -0,0 +1,108 @@
+package net.coderbot.iris.uniforms.custom;
+
+import kroppeb.stareval.element.ExpressionElement;
+import kroppeb.stareval.eval.StandardOperators;
+import kroppeb.stareval.exception.ParseException;
+import kroppeb.stareval.parser.Parser;
+import net.coderbot.iris.Iris;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The custom uniforms and variables declared by a shader pack, with their expressions already parsed.
+ *
+ * <p>Custom uniforms are declared as {@code uniform.<type>.<name>=<expression>} and are made available to every
+ * program that declares them, while custom variables are declared as {@code variable.<type>.<name>=<expression>} and
+ * can only be used from other expressions.</p>
+ */
+public class CustomUniformDeclarations {
+	private final List<Declaration> declarations = new ArrayList<>();
+
+	/**
+	 * Parses a declaration, given the part of its key after the {@code uniform.} or {@code variable.} prefix. Invalid
+	 * declarations are logged and skipped.
+	 */
+	public void add(boolean isUniform, String key, String expression) {
+		String kind = isUniform ? "uniform" : "variable";
+		int typeEnd = key.indexOf('.');
+
+		if (typeEnd == -1 || typeEnd == key.length() - 1) {
+			Iris.logger.error("Invalid custom " + kind + " declaration " + kind + "." + key + ", expected " + kind + ".<type>.<name>");
+			return;
+		}
+
+		String typeName = key.substring(0, typeEnd);
+		String name = key.substring(typeEnd + 1);
+		Optional<CustomUniformType> type = CustomUniformType.fromName(typeName);
+
+		if (!type.isPresent()) {
+			Iris.logger.error("Unknown type " + typeName + " for custom " + kind + " " + name);
+			return;
+		}
+
+		ExpressionElement parsed;
+
+		try {
+			parsed = Parser.parse(expression, StandardOperators.OPTIONS);
+		} catch (ParseException e) {
+			Iris.logger.error("Unable to parse the expression of custom " + kind + " " + name + ": " + expression, e);
+			return;
+		}
+
+		for (Declaration declaration : declarations) {
+			if (declaration.getName().equals(name)) {
+				Iris.logger.warn("Custom " + kind + " " + name + " is declared more than once, ignoring " + kind + "." + key);
+				return;
+			}
+		}
+
+		declarations.add(new Declaration(isUniform, type.get(), name, expression, parsed));
+	}
+
+	public List<Declaration> getDeclarations() {
+		return Collections.unmodifiableList(declarations);
+	}
+
+	public boolean isEmpty() {
+		return declarations.isEmpty();
+	}
+
+	public static class Declaration {
+		private final boolean isUniform;
+		private final CustomUniformType type;
+		private final String name;
+		private final String source;
+		private final ExpressionElement expression;
+
+		Declaration(boolean isUniform, CustomUniformType type, String name, String source, ExpressionElement expression) {
+			this.isUniform = isUniform;
+			this.type = type;
+			this.name = name;
+			this.source = source;
+			this.expression = expression;
+		}
+
+		public boolean isUniform() {
+			return isUniform;
+		}
+
+		public CustomUniformType getType() {
+			return type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getSource() {
+			return source;
+		}
+
+		public ExpressionElement getExpression() {
+			return expression;
+		}
+	}
+}
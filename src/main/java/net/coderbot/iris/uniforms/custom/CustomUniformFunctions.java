@@ -0,0 +1,80 @@
+package net.coderbot.iris.uniforms.custom;
+
+import kroppeb.stareval.eval.ExpressionFunction;
+import kroppeb.stareval.eval.FunctionTable;
+import kroppeb.stareval.eval.StandardFunctions;
+import kroppeb.stareval.eval.Type;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+
+/**
+ * The functions available to custom uniform expressions, which are the standard functions along with {@code smooth}.
+ */
+public final class CustomUniformFunctions {
+	private CustomUniformFunctions() {
+		// no construction allowed
+	}
+
+	/**
+	 * Creates the function table, with {@code smooth} using the given source of frame times in seconds.
+	 */
+	public static FunctionTable create(FloatSupplier frameTime) {
+		Type f = Type.FLOAT;
+
+		return new FunctionTable.Builder()
+				.addAll(StandardFunctions.TABLE)
+				// smooth(value), smooth(value, fadeTime), smooth(value, fadeUpTime, fadeDownTime) and
+				// smooth(id, value, fadeUpTime, fadeDownTime). Every call has its own state, so the id is only accepted
+				// for compatibility with OptiFine.
+				.addImpure("smooth", f, () -> new Smooth(frameTime, 0), f)
+				.addImpure("smooth", f, () -> new Smooth(frameTime, 0), f, f)
+				.addImpure("smooth", f, () -> new Smooth(frameTime, 0), f, f, f)
+				.addImpure("smooth", f, () -> new Smooth(frameTime, 1), f, f, f, f)
+				.build();
+	}
+
+	/**
+	 * Exponentially smooths a value over time, taking the given fade time in seconds to get about two thirds of the
+	 * way to a new value.
+	 */
+	private static class Smooth implements ExpressionFunction {
+		private static final float DEFAULT_FADE_TIME = 1.0f;
+
+		private final FloatSupplier frameTime;
+		private final int offset;
+		private float accumulator;
+		private boolean hasInitialValue;
+
+		Smooth(FloatSupplier frameTime, int offset) {
+			this.frameTime = frameTime;
+			this.offset = offset;
+		}
+
+		@Override
+		public float evaluate(float[] registers, int first, int count) {
+			float value = registers[first + offset];
+
+			if (!hasInitialValue) {
+				accumulator = value;
+				hasInitialValue = true;
+
+				return value;
+			}
+
+			int parameters = count - offset;
+			float fadeUpTime = parameters > 1 ? registers[first + offset + 1] : DEFAULT_FADE_TIME;
+			float fadeDownTime = parameters > 2 ? registers[first + offset + 2] : fadeUpTime;
+			float fadeTime = value > accumulator ? fadeUpTime : fadeDownTime;
+
+			if (fadeTime <= 0.0f) {
+				accumulator = value;
+			} else {
+				// α = 1 - e^(-𝚫t/τ)
+				float smoothingFactor = 1.0f - (float) Math.exp(-frameTime.getAsFloat() / fadeTime);
+
+				accumulator += (value - accumulator) * smoothingFactor;
+			}
+
+			return accumulator;
+		}
+	}
+}
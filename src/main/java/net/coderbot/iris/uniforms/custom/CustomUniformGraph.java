@@ -0,0 +1,461 @@
+package net.coderbot.iris.uniforms.custom;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import kroppeb.stareval.element.ExpressionElement;
+import kroppeb.stareval.element.tree.FunctionCall;
+import kroppeb.stareval.eval.CompiledExpression;
+import kroppeb.stareval.eval.ExpressionCompiler;
+import kroppeb.stareval.eval.FunctionTable;
+import kroppeb.stareval.eval.Type;
+import kroppeb.stareval.eval.VariableTable;
+import kroppeb.stareval.exception.ResolutionException;
+import net.coderbot.iris.Iris;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Evaluates the custom uniforms and variables of a shader pack.
+ *
+ * <p>Every declaration is compiled once, and the declarations form a dependency graph together with the built-in
+ * uniforms that they read. Every update, the built-in uniforms that are used are read once, and the declarations are
+ * then evaluated in dependency order into a flat array of values. A declaration is only evaluated again if one of its
+ * inputs changed since the last update, or if it calls an impure function like {@code smooth} or {@code random}.
+ * Variables that no uniform depends on are never evaluated at all.</p>
+ *
+ * <p>Updating doesn't allocate anything. Declarations with cyclic dependencies, or whose expressions fail to compile,
+ * are logged and dropped along with everything that depends on them.</p>
+ */
+public class CustomUniformGraph {
+	// In dependency order, so every node is evaluated after its dependencies
+	private final Node[] nodes;
+	private final float[] values;
+	private final boolean[] changed;
+
+	private final FloatSupplier[] builtins;
+	private final float[] builtinValues;
+	private final boolean[] builtinChanged;
+	// The indices of the built-in values that are actually used, and therefore need to be read every update
+	private final int[] usedBuiltins;
+
+	private final List<Uniform> uniforms;
+	private boolean hasUpdated;
+
+	public CustomUniformGraph(CustomUniformDeclarations declarations, Map<String, FloatSupplier> builtinFloats,
+							  Map<String, BooleanSupplier> builtinBooleans, FunctionTable functions) {
+		List<CustomUniformDeclarations.Declaration> all = declarations.getDeclarations();
+
+		// Give every declaration its slots in the value array, and every component of it a name that other
+		// expressions can refer to
+		int[] slots = new int[all.size()];
+		Object2IntMap<String> declarationsByVariable = new Object2IntOpenHashMap<>();
+		int valueCount = 0;
+
+		declarationsByVariable.defaultReturnValue(-1);
+
+		for (int i = 0; i < all.size(); i++) {
+			CustomUniformDeclarations.Declaration declaration = all.get(i);
+
+			slots[i] = valueCount;
+			valueCount += declaration.getType().getComponentCount();
+
+			if (declaration.getType().isVector()) {
+				for (int component = 0; component < declaration.getType().getComponentCount(); component++) {
+					declarationsByVariable.put(CustomUniformType.getComponentName(declaration.getName(), component), i);
+				}
+			} else {
+				declarationsByVariable.put(declaration.getName(), i);
+			}
+		}
+
+		this.values = new float[valueCount];
+
+		List<FloatSupplier> builtins = new ArrayList<>();
+		Object2IntMap<String> builtinsByVariable = new Object2IntOpenHashMap<>();
+		VariableTable variables = createVariables(all, slots, builtinFloats, builtinBooleans, builtins, builtinsByVariable);
+
+		this.builtins = builtins.toArray(new FloatSupplier[0]);
+		this.builtinValues = new float[this.builtins.length];
+		this.builtinChanged = new boolean[this.builtins.length];
+
+		// Compile everything, and find out what every declaration depends on
+		CompiledExpression[][] compiled = new CompiledExpression[all.size()][];
+		IntList[] dependencies = new IntList[all.size()];
+
+		for (int i = 0; i < all.size(); i++) {
+			CustomUniformDeclarations.Declaration declaration = all.get(i);
+
+			try {
+				compiled[i] = compile(declaration, functions, variables);
+			} catch (ResolutionException e) {
+				Iris.logger.error("Unable to compile custom " + describe(declaration) + ": " + e.getMessage());
+				continue;
+			}
+
+			dependencies[i] = new IntArrayList();
+
+			for (CompiledExpression expression : compiled[i]) {
+				for (String variable : expression.getVariableNames()) {
+					int dependency = declarationsByVariable.getInt(variable);
+
+					if (dependency != -1 && !dependencies[i].contains(dependency)) {
+						dependencies[i].add(dependency);
+					}
+				}
+			}
+		}
+
+		int[] order = sort(all, compiled, dependencies);
+		boolean[] live = findLive(all, order, dependencies);
+
+		// Build the nodes in dependency order, leaving out everything that doesn't need to be evaluated
+		int[] nodeIndices = new int[all.size()];
+		List<Node> nodes = new ArrayList<>();
+		List<Uniform> uniforms = new ArrayList<>();
+		IntList usedBuiltins = new IntArrayList();
+
+		for (int i : order) {
+			if (!live[i]) {
+				continue;
+			}
+
+			CustomUniformDeclarations.Declaration declaration = all.get(i);
+			IntList nodeInputs = new IntArrayList();
+			IntList builtinInputs = new IntArrayList();
+			boolean pure = true;
+
+			for (int dependency : dependencies[i]) {
+				nodeInputs.add(nodeIndices[dependency]);
+			}
+
+			for (CompiledExpression expression : compiled[i]) {
+				pure &= expression.isPure();
+
+				for (String variable : expression.getVariableNames()) {
+					int builtin = builtinsByVariable.getInt(variable);
+
+					if (builtin != -1 && !builtinInputs.contains(builtin)) {
+						builtinInputs.add(builtin);
+
+						if (!usedBuiltins.contains(builtin)) {
+							usedBuiltins.add(builtin);
+						}
+					}
+				}
+			}
+
+			nodeIndices[i] = nodes.size();
+			nodes.add(new Node(compiled[i], slots[i], nodeInputs.toIntArray(), builtinInputs.toIntArray(), !pure));
+
+			if (declaration.isUniform()) {
+				uniforms.add(new Uniform(declaration.getName(), declaration.getType(), slots[i]));
+			}
+		}
+
+		this.nodes = nodes.toArray(new Node[0]);
+		this.changed = new boolean[this.nodes.length];
+		this.usedBuiltins = usedBuiltins.toIntArray();
+		this.uniforms = Collections.unmodifiableList(uniforms);
+	}
+
+	private VariableTable createVariables(List<CustomUniformDeclarations.Declaration> all, int[] slots,
+										  Map<String, FloatSupplier> builtinFloats,
+										  Map<String, BooleanSupplier> builtinBooleans, List<FloatSupplier> builtins,
+										  Object2IntMap<String> builtinsByVariable) {
+		VariableTable.Builder variables = new VariableTable.Builder();
+		float[] values = this.values;
+
+		builtinsByVariable.defaultReturnValue(-1);
+
+		for (int i = 0; i < all.size(); i++) {
+			CustomUniformDeclarations.Declaration declaration = all.get(i);
+			CustomUniformType type = declaration.getType();
+
+			for (int component = 0; component < type.getComponentCount(); component++) {
+				int slot = slots[i] + component;
+				String name = type.isVector()
+						? CustomUniformType.getComponentName(declaration.getName(), component)
+						: declaration.getName();
+
+				if (type == CustomUniformType.BOOL) {
+					variables.addBoolean(name, () -> values[slot] != 0.0f);
+				} else {
+					variables.addFloat(name, () -> values[slot]);
+				}
+			}
+		}
+
+		// Custom declarations take priority over built-in uniforms with the same name. Expressions read the built-in
+		// values that were read at the start of the update, rather than reading them again.
+		builtinFloats.forEach((name, supplier) -> {
+			if (!builtinsByVariable.containsKey(name) && !containsDeclaration(all, name)) {
+				int index = builtins.size();
+
+				builtins.add(supplier);
+				builtinsByVariable.put(name, index);
+				variables.addFloat(name, () -> this.builtinValues[index]);
+			}
+		});
+
+		builtinBooleans.forEach((name, supplier) -> {
+			if (!builtinsByVariable.containsKey(name) && !containsDeclaration(all, name)) {
+				int index = builtins.size();
+
+				builtins.add(() -> supplier.getAsBoolean() ? 1.0f : 0.0f);
+				builtinsByVariable.put(name, index);
+				variables.addBoolean(name, () -> this.builtinValues[index] != 0.0f);
+			}
+		});
+
+		return variables.build();
+	}
+
+	private static boolean containsDeclaration(List<CustomUniformDeclarations.Declaration> all, String variable) {
+		for (CustomUniformDeclarations.Declaration declaration : all) {
+			String name = declaration.getName();
+
+			if (variable.equals(name) || (declaration.getType().isVector() && variable.startsWith(name)
+					&& variable.length() == name.length() + 2 && variable.charAt(name.length()) == '.')) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static CompiledExpression[] compile(CustomUniformDeclarations.Declaration declaration,
+												FunctionTable functions, VariableTable variables)
+			throws ResolutionException {
+		CustomUniformType type = declaration.getType();
+		List<ExpressionElement> components = new ArrayList<>();
+
+		if (type.isVector()) {
+			ExpressionElement expression = declaration.getExpression();
+
+			// Vectors are declared with a constructor, of which every component is compiled separately
+			if (!(expression instanceof FunctionCall) || !((FunctionCall) expression).getId().equals(type.getName())
+					|| ((FunctionCall) expression).getArgs().size() != type.getComponentCount()) {
+				throw new ResolutionException("Expected " + type.getName() + "(...) with " + type.getComponentCount()
+						+ " components");
+			}
+
+			components.addAll(((FunctionCall) expression).getArgs());
+		} else {
+			components.add(declaration.getExpression());
+		}
+
+		CompiledExpression[] compiled = new CompiledExpression[components.size()];
+
+		for (int i = 0; i < compiled.length; i++) {
+			compiled[i] = ExpressionCompiler.compile(components.get(i), functions, variables);
+
+			if (compiled[i].getType() != type.getComponentType()) {
+				throw new ResolutionException("Expected a value of type " + type.getComponentType() + ", but got "
+						+ compiled[i].getType());
+			}
+		}
+
+		return compiled;
+	}
+
+	/**
+	 * Sorts the declarations that compiled successfully so that every declaration comes after its dependencies,
+	 * leaving out declarations that are part of a cycle or that depend on a declaration that failed to compile.
+	 */
+	private static int[] sort(List<CustomUniformDeclarations.Declaration> all, CompiledExpression[][] compiled,
+							  IntList[] dependencies) {
+		// 0 = not visited, 1 = being visited, 2 = sorted, 3 = dropped
+		byte[] states = new byte[all.size()];
+		IntList order = new IntArrayList();
+
+		for (int i = 0; i < all.size(); i++) {
+			visit(i, all, compiled, dependencies, states, order);
+		}
+
+		return order.toIntArray();
+	}
+
+	private static boolean visit(int index, List<CustomUniformDeclarations.Declaration> all,
+								 CompiledExpression[][] compiled, IntList[] dependencies, byte[] states, IntList order) {
+		if (states[index] == 2) {
+			return true;
+		} else if (states[index] == 3) {
+			return false;
+		} else if (states[index] == 1) {
+			Iris.logger.error("Custom " + describe(all.get(index)) + " is part of a dependency cycle");
+			return false;
+		}
+
+		if (compiled[index] == null) {
+			states[index] = 3;
+			return false;
+		}
+
+		states[index] = 1;
+
+		for (int dependency : dependencies[index]) {
+			if (!visit(dependency, all, compiled, dependencies, states, order)) {
+				Iris.logger.error("Custom " + describe(all.get(index)) + " depends on "
+						+ all.get(dependency).getName() + ", which isn't available");
+				states[index] = 3;
+				return false;
+			}
+		}
+
+		states[index] = 2;
+		order.add(index);
+
+		return true;
+	}
+
+	/**
+	 * Finds the declarations that need to be evaluated, which are the uniforms and everything that they depend on.
+	 */
+	private static boolean[] findLive(List<CustomUniformDeclarations.Declaration> all, int[] order,
+									  IntList[] dependencies) {
+		boolean[] live = new boolean[all.size()];
+
+		for (int i = order.length - 1; i >= 0; i--) {
+			int index = order[i];
+
+			if (all.get(index).isUniform()) {
+				live[index] = true;
+			}
+
+			if (live[index]) {
+				for (int dependency : dependencies[index]) {
+					live[dependency] = true;
+				}
+			}
+		}
+
+		return live;
+	}
+
+	private static String describe(CustomUniformDeclarations.Declaration declaration) {
+		return (declaration.isUniform() ? "uniform " : "variable ") + declaration.getName()
+				+ " = " + declaration.getSource();
+	}
+
+	/**
+	 * Reads the built-in values, and evaluates every declaration whose inputs changed since the last update.
+	 */
+	public void update() {
+		for (int builtin : usedBuiltins) {
+			float value = builtins[builtin].getAsFloat();
+
+			builtinChanged[builtin] = !hasUpdated || Float.floatToIntBits(value) != Float.floatToIntBits(builtinValues[builtin]);
+			builtinValues[builtin] = value;
+		}
+
+		for (int i = 0; i < nodes.length; i++) {
+			Node node = nodes[i];
+
+			if (hasUpdated && !node.alwaysEvaluate && !hasChangedInputs(node)) {
+				changed[i] = false;
+				continue;
+			}
+
+			boolean nodeChanged = false;
+
+			for (int component = 0; component < node.components.length; component++) {
+				CompiledExpression expression = node.components[component];
+				float value = expression.getType() == Type.BOOLEAN
+						? (expression.evaluateBoolean() ? 1.0f : 0.0f)
+						: expression.evaluateFloat();
+				int slot = node.slot + component;
+
+				nodeChanged |= Float.floatToIntBits(value) != Float.floatToIntBits(values[slot]);
+				values[slot] = value;
+			}
+
+			changed[i] = nodeChanged || !hasUpdated;
+		}
+
+		hasUpdated = true;
+	}
+
+	private boolean hasChangedInputs(Node node) {
+		for (int builtin : node.builtinInputs) {
+			if (builtinChanged[builtin]) {
+				return true;
+			}
+		}
+
+		for (int input : node.nodeInputs) {
+			if (changed[input]) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public float getValue(int slot) {
+		return values[slot];
+	}
+
+	/**
+	 * Returns the uniforms that programs should be given, which excludes uniforms that failed to compile.
+	 */
+	public List<Uniform> getUniforms() {
+		return uniforms;
+	}
+
+	/**
+	 * Returns the number of declarations that are evaluated, for debugging purposes.
+	 */
+	public int getEvaluatedCount() {
+		return nodes.length;
+	}
+
+	public static class Uniform {
+		private final String name;
+		private final CustomUniformType type;
+		private final int slot;
+
+		Uniform(String name, CustomUniformType type, int slot) {
+			this.name = name;
+			this.type = type;
+			this.slot = slot;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public CustomUniformType getType() {
+			return type;
+		}
+
+		/**
+		 * Returns the index of the first component of this uniform, to be passed to {@link #getValue(int)}.
+		 */
+		public int getSlot() {
+			return slot;
+		}
+	}
+
+	private static class Node {
+		private final CompiledExpression[] components;
+		private final int slot;
+		private final int[] nodeInputs;
+		private final int[] builtinInputs;
+		private final boolean alwaysEvaluate;
+
+		Node(CompiledExpression[] components, int slot, int[] nodeInputs, int[] builtinInputs, boolean alwaysEvaluate) {
+			this.components = components;
+			this.slot = slot;
+			this.nodeInputs = nodeInputs;
+			this.builtinInputs = builtinInputs;
+			this.alwaysEvaluate = alwaysEvaluate;
+		}
+	}
+}
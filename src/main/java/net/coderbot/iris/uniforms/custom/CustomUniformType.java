@@ -0,0 +1,66 @@
+package net.coderbot.iris.uniforms.custom;
+
+import kroppeb.stareval.eval.Type;
+
+import java.util.Optional;
+
+/**
+ * The types that custom uniforms and variables can be declared with in shaders.properties.
+ */
+public enum CustomUniformType {
+	FLOAT("float", 1, Type.FLOAT),
+	INT("int", 1, Type.FLOAT),
+	BOOL("bool", 1, Type.BOOLEAN),
+	VEC2("vec2", 2, Type.FLOAT),
+	VEC3("vec3", 3, Type.FLOAT),
+	VEC4("vec4", 4, Type.FLOAT);
+
+	private static final String[] COMPONENTS = { "x", "y", "z", "w" };
+
+	private final String name;
+	private final int componentCount;
+	private final Type componentType;
+
+	CustomUniformType(String name, int componentCount, Type componentType) {
+		this.name = name;
+		this.componentCount = componentCount;
+		this.componentType = componentType;
+	}
+
+	public static Optional<CustomUniformType> fromName(String name) {
+		for (CustomUniformType type : values()) {
+			if (type.name.equals(name)) {
+				return Optional.of(type);
+			}
+		}
+
+		return Optional.empty();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	/**
+	 * Returns the type that expressions for each component must evaluate to. Integers are evaluated as floats and
+	 * truncated afterwards.
+	 */
+	public Type getComponentType() {
+		return componentType;
+	}
+
+	public boolean isVector() {
+		return componentCount > 1;
+	}
+
+	/**
+	 * Returns the name that expressions use to refer to a component of a vector, such as {@code sunVector.x}.
+	 */
+	public static String getComponentName(String name, int component) {
+		return name + "." + COMPONENTS[component];
+	}
+}
@@ -0,0 +1,92 @@
+package net.coderbot.iris.uniforms.custom;
+
+import net.coderbot.iris.gl.uniform.UniformHolder;
+import net.coderbot.iris.pipeline.newshader.FogMode;
+import net.coderbot.iris.shaderpack.IdMap;
+import net.coderbot.iris.shaderpack.PackDirectives;
+import net.coderbot.iris.uniforms.CommonUniforms;
+import net.coderbot.iris.uniforms.FrameUpdateNotifier;
+import net.coderbot.iris.uniforms.HardcodedCustomUniforms;
+import net.coderbot.iris.uniforms.SystemTimeUniforms;
+import net.coderbot.iris.vendored.joml.Vector2f;
+import net.coderbot.iris.vendored.joml.Vector3f;
+import net.coderbot.iris.vendored.joml.Vector4f;
+
+import static net.coderbot.iris.gl.uniform.UniformUpdateFrequency.PER_FRAME;
+
+/**
+ * The custom uniforms of a pipeline, which are evaluated once at the start of every frame and then given to every
+ * program that uses them.
+ */
+public class CustomUniforms {
+	private final CustomUniformGraph graph;
+	private final FrameUpdateNotifier updateNotifier;
+
+	private CustomUniforms(CustomUniformGraph graph, FrameUpdateNotifier updateNotifier) {
+		this.graph = graph;
+		this.updateNotifier = updateNotifier;
+	}
+
+	public static CustomUniforms create(IdMap idMap, PackDirectives directives, FrameUpdateNotifier updateNotifier) {
+		CustomUniformDeclarations declarations = directives.getCustomUniforms();
+
+		if (declarations.isEmpty()) {
+			return new CustomUniforms(null, updateNotifier);
+		}
+
+		BuiltinUniformCapture capture = new BuiltinUniformCapture();
+		CommonUniforms.addBuiltinUniforms(capture, idMap, directives, updateNotifier, FogMode.ENABLED);
+
+		CustomUniformGraph graph = new CustomUniformGraph(declarations, capture.getFloats(), capture.getBooleans(),
+				CustomUniformFunctions.create(SystemTimeUniforms.TIMER::getLastFrameTime));
+
+		updateNotifier.addListener(() -> {
+			capture.invalidate();
+			graph.update();
+		});
+
+		return new CustomUniforms(graph, updateNotifier);
+	}
+
+	/**
+	 * Adds the custom uniforms to a program. Shader packs that don't declare any custom uniforms get the custom
+	 * uniforms of BSL instead, which a lot of shader packs rely on without declaring them.
+	 */
+	public void addUniforms(UniformHolder uniforms) {
+		if (graph == null) {
+			HardcodedCustomUniforms.addHardcodedCustomUniforms(uniforms, updateNotifier);
+			return;
+		}
+
+		for (CustomUniformGraph.Uniform uniform : graph.getUniforms()) {
+			String name = uniform.getName();
+			int slot = uniform.getSlot();
+
+			switch (uniform.getType()) {
+				case FLOAT:
+					uniforms.uniform1f(PER_FRAME, name, () -> graph.getValue(slot));
+					break;
+				case INT:
+					uniforms.uniform1i(PER_FRAME, name, () -> (int) graph.getValue(slot));
+					break;
+				case BOOL:
+					uniforms.uniform1b(PER_FRAME, name, () -> graph.getValue(slot) != 0.0f);
+					break;
+				case VEC2:
+					Vector2f vec2 = new Vector2f();
+					uniforms.uniform2f(PER_FRAME, name, () -> vec2.set(graph.getValue(slot), graph.getValue(slot + 1)));
+					break;
+				case VEC3:
+					Vector3f vec3 = new Vector3f();
+					uniforms.uniform3f(PER_FRAME, name, () -> vec3.set(graph.getValue(slot), graph.getValue(slot + 1),
+							graph.getValue(slot + 2)));
+					break;
+				case VEC4:
+					Vector4f vec4 = new Vector4f();
+					uniforms.uniform4f(PER_FRAME, name, () -> vec4.set(graph.getValue(slot), graph.getValue(slot + 1),
+							graph.getValue(slot + 2), graph.getValue(slot + 3)));
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package net.coderbot.iris.uniforms.transforms;
+
+import net.coderbot.iris.vendored.joml.Matrix4f;
+
+import java.nio.FloatBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Copies the values of a Mojang matrix into a JOML matrix, reusing the same JOML matrix every time.
+ *
+ * <p>Like {@link InvertedMatrix}, the uniform that uses the returned matrix must copy its value rather than holding on
+ * to it.</p>
+ */
+public class ConvertedMatrix implements Supplier<Matrix4f> {
+	private final Supplier<com.mojang.math.Matrix4f> parent;
+	private final float[] values = new float[16];
+	private final FloatBuffer buffer = FloatBuffer.wrap(values);
+	private final Matrix4f converted = new Matrix4f();
+
+	public ConvertedMatrix(Supplier<com.mojang.math.Matrix4f> parent) {
+		this.parent = parent;
+	}
+
+	@Override
+	public Matrix4f get() {
+		parent.get().store(buffer);
+		buffer.rewind();
+
+		return converted.set(buffer);
+	}
+}
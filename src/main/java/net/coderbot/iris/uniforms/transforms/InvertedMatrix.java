@@ -0,0 +1,37 @@
+package net.coderbot.iris.uniforms.transforms;
+
+import net.coderbot.iris.vendored.joml.Matrix4f;
+
+import java.util.function.Supplier;
+
+/**
+ * Supplies the inverse of another matrix, only inverting it again when the values of that matrix have changed.
+ *
+ * <p>The same matrix object is returned every time, and is modified when the inverse changes, so the uniform that uses
+ * it must copy its value rather than holding on to it.</p>
+ */
+public class InvertedMatrix implements Supplier<Matrix4f> {
+	private final Supplier<Matrix4f> parent;
+	private final Matrix4f source;
+	private final Matrix4f inverse;
+	private boolean hasInverse;
+
+	public InvertedMatrix(Supplier<Matrix4f> parent) {
+		this.parent = parent;
+		this.source = new Matrix4f();
+		this.inverse = new Matrix4f();
+	}
+
+	@Override
+	public Matrix4f get() {
+		Matrix4f current = parent.get();
+
+		if (!hasInverse || !source.equals(current)) {
+			source.set(current);
+			inverse.set(current).invert();
+			hasInverse = true;
+		}
+
+		return inverse;
+	}
+}
@@ -0,0 +1,32 @@
+package net.coderbot.iris.uniforms.transforms;
+
+import net.coderbot.iris.vendored.joml.Matrix4f;
+
+import java.util.function.Supplier;
+
+/**
+ * Supplies the value that another matrix had the previous time that this supplier was called, which is the previous
+ * frame as long as it's called once per frame. Before that, the previous value is a zero matrix.
+ *
+ * <p>The values are double-buffered between two matrices that are reused, so the matrix that is returned is modified
+ * by the next call and must be copied by the uniform that uses it.</p>
+ */
+public class PreviousMatrix implements Supplier<Matrix4f> {
+	private final Supplier<Matrix4f> parent;
+	private final Matrix4f previous;
+	private final Matrix4f current;
+
+	public PreviousMatrix(Supplier<Matrix4f> parent) {
+		this.parent = parent;
+		this.previous = new Matrix4f().zero();
+		this.current = new Matrix4f().zero();
+	}
+
+	@Override
+	public Matrix4f get() {
+		previous.set(current);
+		current.set(parent.get());
+
+		return previous;
+	}
+}
@@ -253,6 +253,7 @@ public class IrisChunkProgramOverrides {
     public void deleteShaders() {
         for (GlProgram<?> program : this.programs.values()) {
             if (program != null) {
+                program.getInterface().destroy();
                 program.delete();
             }
         }
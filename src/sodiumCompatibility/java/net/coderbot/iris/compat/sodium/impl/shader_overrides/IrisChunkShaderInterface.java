@@ -68,6 +68,10 @@ public class IrisChunkShaderInterface {
 		irisProgramImages.update();
 	}
 
+	public void destroy() {
+		irisProgramUniforms.destroy();
+	}
+
 	public void restore() {
 		if (blendModeOverride != null) {
 			BlendModeOverride.restore();
@@ -0,0 +1,87 @@
+package kroppeb.stareval.eval;
+
+import kroppeb.stareval.exception.ParseException;
+import kroppeb.stareval.exception.ResolutionException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpressionCompilerTest {
+	private float x = 0.25f;
+	private int reads = 0;
+	private boolean day = true;
+
+	private final VariableTable variables = new VariableTable.Builder()
+			.addFloat("x", () -> {
+				this.reads++;
+				return this.x;
+			})
+			.addFloat("cameraPosition.y", () -> 64.0f)
+			.addBoolean("day", () -> this.day)
+			.build();
+
+	private CompiledExpression compile(String expression) throws ParseException {
+		return ExpressionCompiler.compile(expression, StandardFunctions.TABLE, this.variables);
+	}
+
+	@Test
+	void testFoldsConstants() throws ParseException {
+		CompiledExpression expression = compile("max(sin(pi / 2) * 2, 1) + 3 % 2");
+
+		assertTrue(expression.isConstant());
+		assertEquals(3.0f, expression.evaluateFloat());
+
+		assertTrue(compile("if(1 < 2 && !false, 4, x)").isConstant());
+	}
+
+	@Test
+	void testEvaluatesVariables() throws ParseException {
+		CompiledExpression expression = compile("clamp(1.0 - (abs(abs(x - 0.5) - 0.25) - 0.23) * 100.0, 0.0, 1.0) + cameraPosition.y");
+
+		assertFalse(expression.isConstant());
+		assertEquals(1.0f + 64.0f, expression.evaluateFloat());
+
+		this.x = 0.5f;
+		assertEquals(64.0f, expression.evaluateFloat());
+	}
+
+	@Test
+	void testReadsVariablesOnce() throws ParseException {
+		CompiledExpression expression = compile("x * x + x");
+
+		assertEquals(0.25f * 0.25f + 0.25f, expression.evaluateFloat());
+		assertEquals(1, this.reads);
+	}
+
+	@Test
+	void testBooleans() throws ParseException {
+		CompiledExpression expression = compile("if(day && x > 0.1, 1, !day, 2, 3)");
+
+		assertEquals(Type.FLOAT, expression.getType());
+		assertEquals(1.0f, expression.evaluateFloat());
+
+		this.day = false;
+		assertEquals(2.0f, expression.evaluateFloat());
+
+		this.day = true;
+		this.x = 0.0f;
+		assertEquals(3.0f, expression.evaluateFloat());
+
+		CompiledExpression condition = compile("in(x, 1, 0) || between(x, 2, 3)");
+
+		assertEquals(Type.BOOLEAN, condition.getType());
+		assertTrue(condition.evaluateBoolean());
+	}
+
+	@Test
+	void testRejectsInvalidExpressions() {
+		assertThrows(ResolutionException.class, () -> compile("y + 1"));
+		assertThrows(ResolutionException.class, () -> compile("sin(1, 2)"));
+		assertThrows(ResolutionException.class, () -> compile("day + 1"));
+		assertThrows(ResolutionException.class, () -> compile("if(x, 1, 2)"));
+		assertThrows(ResolutionException.class, () -> compile("if(true, 1, day)"));
+	}
+}
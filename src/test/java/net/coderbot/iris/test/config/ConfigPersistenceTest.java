@@ -0,0 +1,101 @@
+package net.coderbot.iris.test.config;
+
+import net.coderbot.iris.config.ConfigPersistence;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class ConfigPersistenceTest {
+	@TempDir
+	Path root;
+
+	@Test
+	void testCoalescesRapidSaves() throws IOException {
+		// Long enough that the saves below always end up in the same pending write
+		ConfigPersistence persistence = new ConfigPersistence(60_000);
+		Path path = root.resolve("pack.txt");
+		Properties properties = new Properties();
+
+		for (int i = 0; i < 50; i++) {
+			properties.setProperty("OPTION", Integer.toString(i));
+			persistence.save(path, properties, "comment");
+		}
+
+		Assertions.assertFalse(Files.exists(path));
+
+		persistence.flush();
+
+		Assertions.assertEquals(1, persistence.getWriteCount());
+		Assertions.assertEquals("49", load(path).getProperty("OPTION"));
+
+		// Nothing is pending anymore, so flushing again doesn't write
+		persistence.flush();
+		Assertions.assertEquals(1, persistence.getWriteCount());
+	}
+
+	@Test
+	void testSavesSnapshot() throws IOException {
+		ConfigPersistence persistence = new ConfigPersistence(60_000);
+		Path path = root.resolve("pack.txt");
+		Properties properties = new Properties();
+
+		properties.setProperty("OPTION", "saved");
+		persistence.save(path, properties, null);
+		properties.setProperty("OPTION", "modified after saving");
+
+		persistence.flush();
+
+		Assertions.assertEquals("saved", load(path).getProperty("OPTION"));
+	}
+
+	@Test
+	void testInterruptedWriteKeepsPreviousContents() throws IOException {
+		ConfigPersistence persistence = new ConfigPersistence(0);
+		Path path = root.resolve("pack.txt");
+
+		Properties previous = new Properties();
+		previous.setProperty("OPTION", "previous");
+		persistence.save(path, previous, null);
+		persistence.flush();
+
+		// Simulate a crash part way through writing the next version, which leaves a truncated temporary file behind.
+		Properties next = new Properties();
+		next.setProperty("OPTION", "next");
+		byte[] serialized = serialize(next);
+		Files.write(root.resolve("pack.txt.tmp"), Arrays.copyOf(serialized, serialized.length / 2));
+
+		Assertions.assertEquals("previous", load(path).getProperty("OPTION"));
+
+		// The leftover temporary file doesn't get in the way of the next write
+		persistence.save(path, next, null);
+		persistence.flush();
+
+		Assertions.assertEquals("next", load(path).getProperty("OPTION"));
+		Assertions.assertFalse(Files.exists(root.resolve("pack.txt.tmp")));
+	}
+
+	private static byte[] serialize(Properties properties) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		properties.store(output, null);
+
+		return output.toByteArray();
+	}
+
+	private static Properties load(Path path) throws IOException {
+		Properties properties = new Properties();
+
+		try (InputStream stream = Files.newInputStream(path)) {
+			properties.load(stream);
+		}
+
+		return properties;
+	}
+}
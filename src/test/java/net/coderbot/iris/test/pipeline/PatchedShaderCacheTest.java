@@ -0,0 +1,56 @@
+package net.coderbot.iris.test.pipeline;
+
+import net.coderbot.iris.gl.blending.AlphaTest;
+import net.coderbot.iris.gl.blending.AlphaTestFunction;
+import net.coderbot.iris.gl.blending.BlendModeOverride;
+import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.pipeline.newshader.PatchedShaderCache;
+import net.coderbot.iris.pipeline.newshader.ShaderAttributeInputs;
+import net.coderbot.iris.shaderpack.ProgramSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PatchedShaderCacheTest {
+	private static final String VERTEX = "#version 120\n\nvoid main() {\n\tgl_Position = ftransform();\n}\n";
+	private static final String FRAGMENT = "#version 120\n\nvoid main() {\n\tgl_FragData[0] = vec4(1.0);\n}\n";
+
+	private static ProgramSource createSource() {
+		return new ProgramSource("gbuffers_entities", VERTEX, null, FRAGMENT, null, null, BlendModeOverride.OFF);
+	}
+
+	@Test
+	void testReusesEqualPatches() {
+		PatchedShaderCache cache = new PatchedShaderCache(false);
+		ProgramSource source = createSource();
+
+		String first = cache.patchVanilla(source, ShaderType.FRAGMENT, new AlphaTest(AlphaTestFunction.GREATER, 0.1f),
+				true, new ShaderAttributeInputs(true, true, true, true, true));
+		// Equal, but not identical alpha tests and inputs, like those of different shader keys
+		String second = cache.patchVanilla(source, ShaderType.FRAGMENT, new AlphaTest(AlphaTestFunction.GREATER, 0.1f),
+				true, new ShaderAttributeInputs(true, true, true, true, true));
+
+		Assertions.assertSame(first, second);
+		Assertions.assertEquals(1, cache.getHits());
+		Assertions.assertEquals(1, cache.size());
+	}
+
+	@Test
+	void testPatchesAgainWhenParametersDiffer() {
+		PatchedShaderCache cache = new PatchedShaderCache(false);
+		ProgramSource source = createSource();
+		AlphaTest alpha = new AlphaTest(AlphaTestFunction.GREATER, 0.1f);
+		ShaderAttributeInputs inputs = new ShaderAttributeInputs(true, true, true, true, true);
+
+		cache.patchVanilla(source, ShaderType.FRAGMENT, alpha, true, inputs);
+		cache.patchVanilla(source, ShaderType.FRAGMENT, new AlphaTest(AlphaTestFunction.GREATER, 0.5f), true, inputs);
+		cache.patchVanilla(source, ShaderType.FRAGMENT, AlphaTest.ALWAYS, true, inputs);
+		cache.patchVanilla(source, ShaderType.FRAGMENT, alpha, true, new ShaderAttributeInputs(true, true, false, true, true));
+		cache.patchVanilla(source, ShaderType.FRAGMENT, alpha, false, inputs);
+		cache.patchVanilla(source, ShaderType.VERTEX, alpha, true, inputs);
+		// Programs are compared by identity, not by their sources
+		cache.patchVanilla(createSource(), ShaderType.FRAGMENT, alpha, true, inputs);
+
+		Assertions.assertEquals(0, cache.getHits());
+		Assertions.assertEquals(7, cache.size());
+	}
+}
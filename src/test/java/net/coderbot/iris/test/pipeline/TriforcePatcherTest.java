@@ -0,0 +1,57 @@
+package net.coderbot.iris.test.pipeline;
+
+import net.coderbot.iris.gl.shader.ShaderType;
+import net.coderbot.iris.pipeline.newshader.TriforcePatcher;
+import net.coderbot.iris.uniforms.FrameUniformBlock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TriforcePatcherTest {
+	private static final String VERTEX = "#version 120\n\nuniform float far;\n\nvarying float depth;\n\nvoid main() {\n" +
+			"\tgl_Position = ftransform();\n\tdepth = gl_Position.z / far;\n}\n";
+
+	@Test
+	void testMovesUniformsIntoBlock() {
+		String fragment = "#version 120\n\nuniform vec3 cameraPosition;\nuniform float far;\n\nvoid main() {\n" +
+				"\tgl_FragData[0] = vec4(cameraPosition / far, 1.0);\n}\n";
+
+		Assertions.assertTrue(TriforcePatcher.canUseFrameUniformBlock(VERTEX, null, fragment));
+
+		String patched = TriforcePatcher.patchComposite(fragment, ShaderType.FRAGMENT, true);
+
+		Assertions.assertTrue(patched.contains("uniform " + FrameUniformBlock.NAME));
+		Assertions.assertFalse(patched.contains("uniform vec3 cameraPosition;"));
+		Assertions.assertFalse(patched.contains("uniform float far;"));
+	}
+
+	@Test
+	void testKeepsOtherUniformsOfDeclaration() {
+		String fragment = "#version 120\n\nuniform float viewWidth, foo;\n\nvoid main() {\n" +
+				"\tgl_FragData[0] = vec4(foo / viewWidth);\n}\n";
+
+		Assertions.assertTrue(TriforcePatcher.canUseFrameUniformBlock(VERTEX, null, fragment));
+
+		String patched = TriforcePatcher.patchComposite(fragment, ShaderType.FRAGMENT, true);
+
+		Assertions.assertTrue(patched.contains("uniform " + FrameUniformBlock.NAME));
+		Assertions.assertTrue(patched.contains("uniform float foo;"));
+		Assertions.assertFalse(patched.contains("uniform float viewWidth"));
+	}
+
+	@Test
+	void testRejectsProgramIfAnyShaderCannotUseBlock() {
+		// far is declared as a different type, so it can't be moved into the block in this shader, and the vertex
+		// shader of the same program mustn't move its declaration of far either
+		String fragment = "#version 120\n\nuniform int far;\n\nvoid main() {\n" +
+				"\tgl_FragData[0] = vec4(float(far));\n}\n";
+
+		Assertions.assertTrue(TriforcePatcher.canUseFrameUniformBlock(VERTEX));
+		Assertions.assertFalse(TriforcePatcher.canUseFrameUniformBlock(fragment));
+		Assertions.assertFalse(TriforcePatcher.canUseFrameUniformBlock(VERTEX, null, fragment));
+
+		String patched = TriforcePatcher.patchComposite(VERTEX, ShaderType.VERTEX, false);
+
+		Assertions.assertFalse(patched.contains(FrameUniformBlock.NAME));
+		Assertions.assertTrue(patched.contains("uniform float far;"));
+	}
+}
@@ -0,0 +1,148 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.preprocessor.GlslPreprocessor;
+import net.coderbot.iris.shaderpack.preprocessor.JcppProcessor;
+import net.coderbot.iris.shaderpack.preprocessor.SharedPrefixCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class GlslPreprocessorTest {
+	private static final Pattern TOKEN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*|[0-9][A-Za-z0-9_.]*|\\S");
+
+	@ParameterizedTest
+	@ValueSource(strings = { "settings.glsl", "composite.fsh", "gbuffers_terrain.vsh", "deferred.fsh" })
+	void testConformsToJcpp(String name) throws IOException {
+		String source = readResource("/glsl/" + name);
+
+		Assertions.assertEquals(tokenize(JcppProcessor.glslPreprocessSource(source)),
+				tokenize(GlslPreprocessor.preprocess(source)));
+	}
+
+	@Test
+	void testConditionalExpressions() {
+		String source = "#define A 3\n#define B (A * 2)\n#if B == 6 && !defined(C) && (A << 1) > 5\npass\n#else\nfail\n#endif\n";
+
+		Assertions.assertEquals(tokenize("pass"), tokenize(GlslPreprocessor.preprocess(source)));
+	}
+
+	@Test
+	void testShortCircuitEvaluation() {
+		// The operands that the result doesn't depend on must not be computed, or they would divide by zero
+		String source = "#define X 0\n#if X == 0 || 100 / X > 2\na\n#endif\n#if X != 0 && 100 % X == 1\nfail\n#else\nb\n#endif\n"
+				+ "#if (X ? 100 / X : 1) && (X == 0 ? 1 : 1 / X)\nc\n#endif\n";
+
+		Assertions.assertEquals(tokenize("a b c"), tokenize(GlslPreprocessor.preprocess(source)));
+	}
+
+	@Test
+	void testFunctionLikeMacros() {
+		String source = "#define sqr(x) ((x) * (x))\n#define ADD(a, b) (a + b)\nfloat y = ADD(sqr(x), ADD(1, 2));\n";
+
+		Assertions.assertEquals(tokenize("float y = (((x) * (x)) + (1 + 2));"),
+				tokenize(GlslPreprocessor.preprocess(source)));
+	}
+
+	@Test
+	void testSelfReferentialMacro() {
+		String source = "#define color color * 2.0\ncolor;\n";
+
+		Assertions.assertEquals(tokenize("color * 2.0;"), tokenize(GlslPreprocessor.preprocess(source)));
+	}
+
+	@Test
+	void testHoistsVersionAndActiveExtensions() {
+		String source = "// header\n#version 330 compatibility\n#ifdef MISSING\n#extension GL_A : enable\n#endif\n"
+				+ "void main() {}\n#extension GL_B : require\n";
+
+		String result = GlslPreprocessor.preprocess(source);
+
+		Assertions.assertTrue(result.startsWith("#version 330 compatibility\n#extension GL_B : require\n"), result);
+		Assertions.assertFalse(result.contains("GL_A"), result);
+	}
+
+	@Test
+	void testPreservesLineNumbers() {
+		String source = "#version 120\n#define X 1\n#if X\na\n#else\nb\n#endif\nc\n";
+		String[] lines = GlslPreprocessor.preprocess(source).split("\n", -1);
+
+		// One hoisted line followed by one output line per input line
+		Assertions.assertEquals("a", lines[4].trim());
+		Assertions.assertEquals("c", lines[8].trim());
+	}
+
+	@Test
+	void testSharedPrefixMatchesFullPreprocessing() throws IOException {
+		String settings = readResource("/glsl/settings.glsl");
+		String[] programs = {
+				settings + "#ifdef SHADOW_FILTER\nfiltered\n#endif\nint x = SHADOW_SAMPLES;\n",
+				settings + "#if !defined(TAA)\nno taa\n#else\ntaa\n#endif\n"
+		};
+
+		SharedPrefixCache cache = new SharedPrefixCache(new GlslPreprocessor().snapshot());
+
+		for (String program : programs) {
+			Assertions.assertEquals(GlslPreprocessor.preprocess(program),
+					cache.preprocess(program.toCharArray(), new int[] { settings.length() }));
+		}
+
+		Assertions.assertEquals(settings.length(), cache.getReusedCharacters());
+	}
+
+	@Test
+	void testSharedPrefixDoesNotKeepSources() throws IOException {
+		String settings = readResource("/glsl/settings.glsl");
+		String first = settings + "int x = SHADOW_SAMPLES;\n";
+		String second = settings + "int y = SHADOW_SAMPLES;\n";
+
+		SharedPrefixCache cache = new SharedPrefixCache(new GlslPreprocessor().snapshot());
+		char[] source = first.toCharArray();
+
+		cache.preprocess(source, new int[] { settings.length() });
+
+		// The prefix is still found once the array of the first source is reused for something else
+		Arrays.fill(source, ' ');
+
+		Assertions.assertEquals(GlslPreprocessor.preprocess(second),
+				cache.preprocess(second.toCharArray(), new int[] { settings.length() }));
+		Assertions.assertEquals(settings.length(), cache.getReusedCharacters());
+	}
+
+	private static List<String> tokenize(String source) {
+		List<String> tokens = new ArrayList<>();
+		Matcher matcher = TOKEN.matcher(source);
+
+		while (matcher.find()) {
+			tokens.add(matcher.group());
+		}
+
+		return tokens;
+	}
+
+	private static String readResource(String path) throws IOException {
+		try (InputStream stream = GlslPreprocessorTest.class.getResourceAsStream(path)) {
+			Assertions.assertNotNull(stream, "Missing test resource " + path);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+
+			while ((read = stream.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package net.coderbot.iris.test.shaderpack;
+
+import com.google.common.collect.ImmutableList;
+import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
+import net.coderbot.iris.shaderpack.include.ExpandedFile;
+import net.coderbot.iris.shaderpack.include.IncludeGraph;
+import net.coderbot.iris.shaderpack.include.IncludeProcessor;
+import net.coderbot.iris.shaderpack.include.SourceLines;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class IncludeProcessorTest {
+	private static final AbsolutePackPath MAIN = AbsolutePackPath.fromAbsolutePath("/main.fsh");
+	private static final AbsolutePackPath SETTINGS = AbsolutePackPath.fromAbsolutePath("/lib/settings.glsl");
+	private static final AbsolutePackPath COMMON = AbsolutePackPath.fromAbsolutePath("/lib/common.glsl");
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testExpandsNestedIncludesWithOrigins() throws IOException {
+		write("main.fsh", "#version 120\n#include \"/lib/common.glsl\"\nvoid main() {}");
+		write("lib/common.glsl", "#include \"settings.glsl\"\nfloat common;");
+		write("lib/settings.glsl", "#define A\n#define B");
+
+		ExpandedFile expanded = process().getExpandedFile(MAIN);
+
+		Assertions.assertEquals(ImmutableList.of("#version 120", "#define A", "#define B", "float common;",
+				"void main() {}"), expanded.toImmutableList());
+
+		Assertions.assertEquals(MAIN, expanded.getOrigin(0).getPath());
+		Assertions.assertEquals(SETTINGS, expanded.getOrigin(2).getPath());
+		Assertions.assertEquals(1, expanded.getOrigin(2).getLine());
+		Assertions.assertEquals(COMMON, expanded.getOrigin(3).getPath());
+		Assertions.assertEquals(1, expanded.getOrigin(3).getLine());
+		Assertions.assertEquals(2, expanded.getOrigin(4).getLine());
+
+		Assertions.assertEquals(4, expanded.getIncludeEnd(1));
+		Assertions.assertEquals(-1, expanded.getIncludeEnd(0));
+	}
+
+	@Test
+	void testIgnoresCyclicIncludes() throws IOException {
+		write("main.fsh", "#include \"/lib/common.glsl\"\nvoid main() {}");
+		write("lib/common.glsl", "#include \"settings.glsl\"\nfloat common;");
+		write("lib/settings.glsl", "#define A\n#include \"common.glsl\"\n#include \"settings.glsl\"");
+
+		ExpandedFile expanded = process().getExpandedFile(MAIN);
+
+		Assertions.assertEquals(ImmutableList.of("#define A", "", "", "float common;", "void main() {}"),
+				expanded.toImmutableList());
+
+		Assertions.assertEquals(SETTINGS, expanded.getOrigin(1).getPath());
+		Assertions.assertEquals(2, expanded.getOrigin(2).getLine());
+	}
+
+	@Test
+	void testDeepIncludeChain() throws IOException {
+		int depth = 5000;
+
+		write("main.fsh", "#include \"/lib/0.glsl\"");
+
+		for (int i = 0; i < depth; i++) {
+			write("lib/" + i + ".glsl", i + 1 < depth ? "#include \"" + (i + 1) + ".glsl\"\nline " + i : "last");
+		}
+
+		ExpandedFile expanded = process().getExpandedFile(MAIN);
+
+		Assertions.assertEquals(depth, expanded.getLineCount());
+		Assertions.assertEquals("last", expanded.getLine(0));
+		Assertions.assertEquals("line 0", expanded.getLine(depth - 1));
+	}
+
+	@Test
+	void testConcurrentDiscoveryMatchesSerial() throws IOException {
+		write("main.fsh", "#include \"/lib/common.glsl\"\n#include \"/lib/missing.glsl\"");
+		write("lib/common.glsl", "#include \"settings.glsl\"\n#include \"common.glsl\"");
+		write("lib/settings.glsl", "#define A");
+
+		IncludeGraph serial = new IncludeGraph(root, ImmutableList.of(MAIN), false);
+		IncludeGraph concurrent = new IncludeGraph(root, ImmutableList.of(MAIN), true);
+
+		Assertions.assertEquals(ImmutableList.copyOf(serial.getNodes().keySet()),
+				ImmutableList.copyOf(concurrent.getNodes().keySet()));
+		Assertions.assertEquals(serial.getFailures().keySet(), concurrent.getFailures().keySet());
+		Assertions.assertEquals(1, concurrent.getFailures().size());
+
+		serial.getNodes().forEach((path, node) -> {
+			Assertions.assertEquals(node.getLines(), concurrent.getNodes().get(path).getLines());
+			Assertions.assertEquals(node.getIncludes(), concurrent.getNodes().get(path).getIncludes());
+		});
+	}
+
+	@Test
+	void testSourceLinesMatchStringSplit() {
+		String[] sources = { "", "\n", "a", "a\r\nb\rc\n", "a\n\n\nb\n\n", " \t#include \"x.glsl\"\u2028caf\u00e9" };
+
+		for (String source : sources) {
+			byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+			SourceLines lines = SourceLines.scan(bytes, bytes.length);
+
+			Assertions.assertEquals(Arrays.asList(source.split("\\R")), new ArrayList<>(lines));
+		}
+
+		byte[] include = " \t#include \"x.glsl\"\nfloat x;".getBytes(StandardCharsets.UTF_8);
+		Assertions.assertArrayEquals(new int[] { 0 }, SourceLines.scan(include, include.length).getIncludeCandidates());
+	}
+
+	@Test
+	void testChainedMapKeepsEarlierTransforms() {
+		byte[] bytes = "a\nb\nc".getBytes(StandardCharsets.UTF_8);
+		SourceLines lines = SourceLines.scan(bytes, bytes.length)
+				.map((index, line) -> index == 0 ? "first" : line)
+				.map((index, line) -> index == 1 ? "second" : line);
+
+		Assertions.assertEquals(Arrays.asList("first", "second", "c"), new ArrayList<>(lines));
+	}
+
+	private IncludeProcessor process() {
+		return new IncludeProcessor(new IncludeGraph(root, ImmutableList.of(MAIN)));
+	}
+
+	private void write(String name, String contents) throws IOException {
+		Path path = root.resolve(name);
+		Files.createDirectories(path.getParent());
+		Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
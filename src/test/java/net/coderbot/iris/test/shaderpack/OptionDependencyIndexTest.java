@@ -0,0 +1,65 @@
+package net.coderbot.iris.test.shaderpack;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.coderbot.iris.shaderpack.OptionDependencyIndex;
+import net.coderbot.iris.shaderpack.include.AbsolutePackPath;
+import net.coderbot.iris.shaderpack.include.IncludeGraph;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+public class OptionDependencyIndexTest {
+	private static final AbsolutePackPath COMPOSITE = AbsolutePackPath.fromAbsolutePath("/composite.fsh");
+	private static final AbsolutePackPath TERRAIN = AbsolutePackPath.fromAbsolutePath("/gbuffers_terrain.fsh");
+	private static final AbsolutePackPath FINAL = AbsolutePackPath.fromAbsolutePath("/final.fsh");
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testFindsProgramsThroughIncludes() throws IOException {
+		write("lib/settings.glsl", "#define SHADOWS\n//#define BLOOM\n#define EXPOSURE 1.0 // [0.5 1.0]");
+		write("lib/shadows.glsl", "#ifdef SHADOWS\nfloat shadow;\n#endif");
+		write("lib/post.glsl", "#if defined BLOOM && EXPOSURE > 0.5f\n#endif");
+		write("composite.fsh", "#include \"/lib/settings.glsl\"\n#include \"/lib/post.glsl\"\nvoid main() {}");
+		write("gbuffers_terrain.fsh", "#include \"/lib/shadows.glsl\"\nvoid main() {}");
+		write("final.fsh", "void main() { float SHADOWS_STRENGTH; }");
+
+		OptionDependencyIndex index = createIndex();
+
+		// The settings file declares every option, so every program including it depends on all of them.
+		Assertions.assertEquals(ImmutableSet.of(COMPOSITE, TERRAIN), index.getAffectedPrograms(ImmutableList.of("SHADOWS")));
+		Assertions.assertEquals(ImmutableSet.of(COMPOSITE), index.getAffectedPrograms(ImmutableList.of("BLOOM")));
+		Assertions.assertEquals(ImmutableSet.of(COMPOSITE), index.getAffectedPrograms(ImmutableList.of("EXPOSURE")));
+		Assertions.assertEquals(Collections.emptySet(), index.getAffectedPrograms(ImmutableList.of("UNUSED")));
+	}
+
+	@Test
+	void testIgnoresPartialIdentifiers() throws IOException {
+		write("composite.fsh", "void main() {}");
+		write("gbuffers_terrain.fsh", "#define SHADOWS_2 2\nfloat x = 1.0SHADOWS;");
+		write("final.fsh", "#if 0\nSHADOWS\n#endif");
+
+		Assertions.assertEquals(ImmutableSet.of(FINAL), createIndex().getAffectedPrograms(ImmutableList.of("SHADOWS")));
+	}
+
+	private OptionDependencyIndex createIndex() {
+		ImmutableList<AbsolutePackPath> programs = ImmutableList.of(COMPOSITE, TERRAIN, FINAL);
+		IncludeGraph graph = new IncludeGraph(root, programs);
+
+		return new OptionDependencyIndex(graph, ImmutableList.of("SHADOWS", "BLOOM", "EXPOSURE", "UNUSED"), programs);
+	}
+
+	private void write(String path, String content) throws IOException {
+		Path file = root.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
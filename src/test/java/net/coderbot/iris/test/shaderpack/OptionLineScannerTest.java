@@ -0,0 +1,65 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.OptionLineScanner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OptionLineScannerTest {
+	private final OptionLineScanner scanner = new OptionLineScanner();
+
+	@Test
+	void testBooleanDefines() {
+		Assertions.assertEquals(OptionLineScanner.Kind.DEFINE_BOOLEAN, scanner.scan("  #define SHADOWS // Enables shadows\t"));
+		Assertions.assertEquals("SHADOWS", scanner.getName());
+		Assertions.assertEquals(" Enables shadows", scanner.getCommentContent());
+		Assertions.assertFalse(scanner.isCommentedOut());
+		Assertions.assertNull(scanner.getValue());
+
+		Assertions.assertEquals(OptionLineScanner.Kind.DEFINE_BOOLEAN, scanner.scan("/// #define BLOOM"));
+		Assertions.assertTrue(scanner.isCommentedOut());
+		Assertions.assertNull(scanner.getCommentContent());
+		Assertions.assertEquals(" #define BLOOM", scanner.getUncommentedLine());
+	}
+
+	@Test
+	void testNumericDefines() {
+		Assertions.assertEquals(OptionLineScanner.Kind.DEFINE_NUMBER, scanner.scan("#define OPTION_10 1 // [0 1 2]"));
+		Assertions.assertEquals("1", scanner.getValue());
+		Assertions.assertTrue(scanner.isIntegerValue());
+		Assertions.assertEquals(" [0 1 2]", scanner.getCommentContent());
+
+		// Only the value is replaced, even though the name contains the same text.
+		Assertions.assertEquals("#define OPTION_10 2 // [0 1 2]", scanner.replaceValue("2"));
+
+		Assertions.assertEquals(OptionLineScanner.Kind.DEFINE_NUMBER, scanner.scan("#define EXPOSURE -1.5f//x"));
+		Assertions.assertEquals("-1.5f", scanner.getValue());
+		Assertions.assertFalse(scanner.isIntegerValue());
+	}
+
+	@Test
+	void testConstants() {
+		Assertions.assertEquals(OptionLineScanner.Kind.CONST_INT,
+				scanner.scan("const int shadowMapResolution = 2048; // [1024 2048 4096]"));
+		Assertions.assertEquals("shadowMapResolution", scanner.getName());
+		Assertions.assertEquals("const int shadowMapResolution = 4096; // [1024 2048 4096]", scanner.replaceValue("4096"));
+
+		Assertions.assertEquals(OptionLineScanner.Kind.CONST_FLOAT, scanner.scan("const float sunPathRotation=-40.0;"));
+		Assertions.assertEquals("-40.0", scanner.getValue());
+
+		Assertions.assertEquals(OptionLineScanner.Kind.CONST_BOOLEAN, scanner.scan("const bool shadowHardwareFiltering = true;"));
+		Assertions.assertEquals("true", scanner.getValue());
+	}
+
+	@Test
+	void testNonOptions() {
+		String[] lines = {
+				"", "#define", "#define sqr(x) ((x) * (x))", "//#define A 1", "#define A B", "/#define A",
+				"#ifdef SHADOWS", "const int x = 1.0;", "const bool x = truex;", "const int x = 1; float y;",
+				"const vec3 x = vec3(1.0);", "constant int x = 1;", "color *= 2.0;"
+		};
+
+		for (String line : lines) {
+			Assertions.assertEquals(OptionLineScanner.Kind.NONE, scanner.scan(line), line);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.OptionRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OptionRegistryTest {
+	@Test
+	void testInternsNames() {
+		OptionRegistry registry = new OptionRegistry();
+
+		for (int i = 0; i < 100; i++) {
+			Assertions.assertEquals(i, registry.intern("OPTION_" + i));
+		}
+
+		Assertions.assertEquals(42, registry.intern("OPTION_42"));
+		Assertions.assertEquals(42, registry.getId("OPTION_42"));
+		Assertions.assertEquals("OPTION_42", registry.getName(42));
+		Assertions.assertEquals(-1, registry.getId("MISSING"));
+		Assertions.assertEquals(100, registry.size());
+	}
+
+	@Test
+	void testStoresEachTypeSeparately() {
+		OptionRegistry registry = new OptionRegistry();
+		int id = registry.intern("SHARED");
+
+		Assertions.assertFalse(registry.isAssigned(id, OptionRegistry.Type.INTEGER));
+
+		registry.setInt(id, 4);
+		registry.setFloat(id, 0.5f);
+
+		Assertions.assertTrue(registry.isAssigned(id, OptionRegistry.Type.INTEGER));
+		Assertions.assertTrue(registry.isAssigned(id, OptionRegistry.Type.FLOAT));
+		Assertions.assertFalse(registry.isAssigned(id, OptionRegistry.Type.BOOLEAN));
+		Assertions.assertEquals(4, registry.getInt(id));
+		Assertions.assertEquals(0.5f, registry.getFloat(id));
+
+		registry.setBoolean(id, true);
+		Assertions.assertTrue(registry.getBoolean(id));
+		registry.setBoolean(id, false);
+		Assertions.assertFalse(registry.getBoolean(id));
+		Assertions.assertTrue(registry.isAssigned(id, OptionRegistry.Type.BOOLEAN));
+	}
+}
@@ -0,0 +1,99 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.gl.shader.ShaderConstants;
+import net.coderbot.iris.shaderpack.ShaderSourceCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public class ShaderSourceCacheTest {
+	private static final String SOURCE = "#version 120\n\nvoid main() {\n\tgl_FragData[0] = vec4(1.0);\n}\n";
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testKeyChangesWithSourceAndDefines() {
+		ShaderSourceCache cache = new ShaderSourceCache(root);
+		ShaderConstants constants = ShaderConstants.builder().define("MC_VERSION", "11801").build();
+		String key = cache.computeKey(SOURCE, constants);
+
+		Assertions.assertEquals(key, cache.computeKey(SOURCE, ShaderConstants.builder().define("MC_VERSION", "11801").build()));
+		Assertions.assertNotEquals(key, cache.computeKey(SOURCE + "\n", constants));
+		Assertions.assertNotEquals(key, cache.computeKey(SOURCE, ShaderConstants.builder().define("MC_VERSION", "11802").build()));
+		Assertions.assertNotEquals(key, cache.computeKey(SOURCE, ShaderConstants.builder().define("MC_VERSION", "11801")
+				.define("MC_GL_VENDOR_NVIDIA").build()));
+	}
+
+	@Test
+	void testRoundTrip() {
+		ShaderSourceCache cache = new ShaderSourceCache(root);
+		String key = cache.computeKey(SOURCE, ShaderConstants.builder().build());
+
+		Assertions.assertNull(cache.get(key));
+
+		cache.put(key, SOURCE);
+
+		Assertions.assertEquals(SOURCE, cache.get(key));
+		Assertions.assertEquals(1, cache.getHits());
+		Assertions.assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsedEntries() throws IOException {
+		String[] keys = { "oldest", "middle", "newest" };
+
+		ShaderSourceCache writer = new ShaderSourceCache(root);
+
+		for (int i = 0; i < keys.length; i++) {
+			writer.put(keys[i], SOURCE);
+			Files.setLastModifiedTime(entry(keys[i]), FileTime.fromMillis(1_000_000L * (i + 1)));
+		}
+
+		long entrySize = Files.size(entry("oldest"));
+
+		// Only room for two of the three entries
+		new ShaderSourceCache(root, entrySize * 2).evict();
+
+		Assertions.assertFalse(Files.exists(entry("oldest")));
+		Assertions.assertTrue(Files.exists(entry("middle")));
+		Assertions.assertTrue(Files.exists(entry("newest")));
+	}
+
+	@Test
+	void testCorruptEntriesAreMisses() throws IOException {
+		ShaderSourceCache cache = new ShaderSourceCache(root);
+
+		cache.put("truncated", SOURCE);
+		byte[] bytes = Files.readAllBytes(entry("truncated"));
+		Files.write(entry("truncated"), Arrays.copyOf(bytes, bytes.length - 4));
+
+		cache.put("damaged", SOURCE);
+		bytes = Files.readAllBytes(entry("damaged"));
+		bytes[bytes.length - 2] = 'x';
+		Files.write(entry("damaged"), bytes);
+
+		// An entry without any header at all
+		Files.write(entry("headerless"), SOURCE.getBytes(StandardCharsets.UTF_8));
+
+		Assertions.assertNull(cache.get("truncated"));
+		Assertions.assertNull(cache.get("damaged"));
+		Assertions.assertNull(cache.get("headerless"));
+		Assertions.assertEquals(0, cache.getHits());
+		Assertions.assertEquals(3, cache.getMisses());
+
+		// Corrupt entries are removed, so that they can be written again
+		Assertions.assertFalse(Files.exists(entry("truncated")));
+	}
+
+	private Path entry(String key) {
+		return root.resolve(key + ".glsl");
+	}
+}
@@ -0,0 +1,57 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.CommentDirective;
+import net.coderbot.iris.shaderpack.ConstDirectiveParser;
+import net.coderbot.iris.shaderpack.SourceDirectives;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class SourceDirectivesTest {
+	private static final String SOURCE = "#version 120\n"
+			+ "const int shadowMapResolution = 2048; // [1024 2048]\r\n"
+			+ "\tconst vec4 fogColor = vec4(1.0, 0.5, 0.25, 1.0);\n"
+			+ "constant int notADirective = 1;\n"
+			+ "const float missingSemicolon = 1.0\n"
+			+ "/* DRAWBUFFERS:01 */\n"
+			+ "void main() {}\n"
+			+ "/* RENDERTARGETS: 0,2 */\n"
+			+ "/* DRAWBUFFERS:157 */";
+
+	@Test
+	void testFindsConstDirectives() {
+		List<ConstDirectiveParser.ConstDirective> directives = SourceDirectives.lex(SOURCE).getConstDirectives();
+
+		Assertions.assertEquals(2, directives.size());
+
+		Assertions.assertEquals(ConstDirectiveParser.Type.INT, directives.get(0).getType());
+		Assertions.assertEquals("shadowMapResolution", directives.get(0).getKey());
+		Assertions.assertEquals("2048", directives.get(0).getValue());
+
+		Assertions.assertEquals(ConstDirectiveParser.Type.VEC4, directives.get(1).getType());
+		Assertions.assertEquals("fogColor", directives.get(1).getKey());
+		Assertions.assertEquals("vec4(1.0, 0.5, 0.25, 1.0)", directives.get(1).getValue());
+	}
+
+	@Test
+	void testUsesLastCommentDirective() {
+		SourceDirectives directives = SourceDirectives.lex(SOURCE);
+
+		Optional<CommentDirective> drawBuffers = directives.getCommentDirective(CommentDirective.Type.DRAWBUFFERS);
+		Assertions.assertEquals("157", drawBuffers.map(CommentDirective::getDirective).orElse(null));
+		Assertions.assertEquals(SOURCE.lastIndexOf("DRAWBUFFERS:"), drawBuffers.get().getLocation());
+
+		Assertions.assertEquals("0,2", directives.getCommentDirective(CommentDirective.Type.RENDERTARGETS)
+				.map(CommentDirective::getDirective).orElse(null));
+	}
+
+	@Test
+	void testRejectsMalformedCommentDirectives() {
+		Assertions.assertFalse(SourceDirectives.lex("// DRAWBUFFERS:0 */")
+				.getCommentDirective(CommentDirective.Type.DRAWBUFFERS).isPresent());
+		Assertions.assertFalse(SourceDirectives.lex("/* DRAWBUFFERS:0")
+				.getCommentDirective(CommentDirective.Type.DRAWBUFFERS).isPresent());
+	}
+}
@@ -0,0 +1,33 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.transform.StringTransformations;
+import net.coderbot.iris.shaderpack.transform.Transformations;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StringTransformationsTest {
+	private static final String SOURCE = "// Header\n#version 120\n"
+			+ "#extension GL_EXT_gpu_shader4 : enable\n"
+			+ "varying vec2 lmcoord;\n"
+			+ "void main() {\n"
+			+ "\tlmcoord = (gl_TextureMatrix[1] * gl_MultiTexCoord1).xy; // domain\n"
+			+ "\tgl_Position = gl_TextureMatrix [0] * ftransform();\n"
+			+ "}";
+
+	@Test
+	void testAssemblesParts() {
+		StringTransformations transformations = new StringTransformations(SOURCE);
+
+		transformations.define("A", "1");
+		transformations.injectLine(Transformations.InjectionPoint.DEFINES, "#define B 2");
+		transformations.injectLine(Transformations.InjectionPoint.BEFORE_CODE, "uniform float x;");
+		transformations.injectLine(Transformations.InjectionPoint.END, "void end() {}");
+
+		Assertions.assertEquals("// Header\n#version 120\n"
+				+ "#extension GL_EXT_gpu_shader4 : enable\n"
+				+ "#define A 1\n#define B 2\n"
+				+ "uniform float x;\n"
+				+ SOURCE.substring(SOURCE.indexOf("varying")) + "\n"
+				+ "\nvoid end() {}\n", transformations.toString());
+	}
+}
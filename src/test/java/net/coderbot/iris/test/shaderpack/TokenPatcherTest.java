@@ -0,0 +1,67 @@
+package net.coderbot.iris.test.shaderpack;
+
+import net.coderbot.iris.shaderpack.transform.BuiltinUniformReplacementTransformer;
+import net.coderbot.iris.shaderpack.transform.token.GlslTokens;
+import net.coderbot.iris.shaderpack.transform.token.TokenPatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TokenPatcherTest {
+	@Test
+	void testTokensRoundTrip() {
+		String source = "float x = 0x1E+2 + 1.5e-3f; /* gl_FragColor */ // main\nvoid main() {}";
+		GlslTokens tokens = GlslTokens.tokenize(source);
+		StringBuilder rebuilt = new StringBuilder();
+
+		for (int token = 0; token < tokens.size(); token++) {
+			rebuilt.append(tokens.getText(token));
+		}
+
+		Assertions.assertEquals(source, rebuilt.toString());
+		Assertions.assertTrue(tokens.containsIdentifier("main"));
+		Assertions.assertFalse(tokens.containsIdentifier("gl_FragColor"));
+		Assertions.assertFalse(tokens.containsIdentifier("E"));
+	}
+
+	@Test
+	void testReplacesOnlyIdentifiers() {
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize("void main() { domain(); } // main"));
+
+		patcher.replaceIdentifier("main", "irisMain");
+
+		Assertions.assertEquals("void irisMain() { domain(); } // main", patcher.apply());
+	}
+
+	@Test
+	void testIgnoresWhitespaceBetweenTokens() {
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize("a = gl_TextureMatrix [0]*b; c = gl_TextureMatrix[ 0 ];"));
+
+		patcher.replaceSequence("gl_TextureMatrix[0]", "mat4(1.0)");
+
+		Assertions.assertEquals("a = mat4(1.0)*b; c = mat4(1.0);", patcher.apply());
+	}
+
+	@Test
+	void testLightmapReplacements() {
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize(
+				"lm = (gl_TextureMatrix[1]*gl_MultiTexCoord1).st;\n"
+						+ "s = (gl_TextureMatrix[1] * gl_MultiTexCoord2).s;\n"
+						+ "raw = gl_MultiTexCoord1;\n"));
+		BuiltinUniformReplacementTransformer transformer = new BuiltinUniformReplacementTransformer("uv");
+
+		transformer.apply(patcher);
+
+		Assertions.assertEquals("lm = uv;\ns = uv.s;\nraw = vec4(uv * 255.0, 0.0, 1.0);\n", patcher.apply());
+		Assertions.assertFalse(patcher.hasEmitted("iris_LightmapTextureMatrix"));
+	}
+
+	@Test
+	void testFallsBackToLightmapTextureMatrix() {
+		TokenPatcher patcher = new TokenPatcher(GlslTokens.tokenize("m = gl_TextureMatrix[1];"));
+
+		new BuiltinUniformReplacementTransformer("uv").apply(patcher);
+
+		Assertions.assertEquals("m = iris_LightmapTextureMatrix;", patcher.apply());
+		Assertions.assertTrue(patcher.hasEmitted("iris_LightmapTextureMatrix"));
+	}
+}
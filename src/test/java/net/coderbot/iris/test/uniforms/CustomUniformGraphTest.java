@@ -0,0 +1,134 @@
+package net.coderbot.iris.test.uniforms;
+
+import kroppeb.stareval.eval.FunctionTable;
+import kroppeb.stareval.eval.StandardFunctions;
+import kroppeb.stareval.eval.Type;
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+import net.coderbot.iris.uniforms.custom.CustomUniformDeclarations;
+import net.coderbot.iris.uniforms.custom.CustomUniformGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CustomUniformGraphTest {
+	private float worldTime = 6000.0f;
+	private int calls = 0;
+
+	private final Map<String, FloatSupplier> builtins = new HashMap<>();
+	private final FunctionTable functions = new FunctionTable.Builder()
+			.addAll(StandardFunctions.TABLE)
+			.add("counted", Type.FLOAT, (r, i, n) -> {
+				calls++;
+				return r[i];
+			}, Type.FLOAT)
+			.build();
+
+	public CustomUniformGraphTest() {
+		builtins.put("worldTime", () -> worldTime);
+		builtins.put("cameraPosition.y", () -> 64.0f);
+	}
+
+	private CustomUniformGraph create(CustomUniformDeclarations declarations) {
+		return new CustomUniformGraph(declarations, builtins, Collections.emptyMap(), functions);
+	}
+
+	private static float get(CustomUniformGraph graph, String name, int component) {
+		for (CustomUniformGraph.Uniform uniform : graph.getUniforms()) {
+			if (uniform.getName().equals(name)) {
+				return graph.getValue(uniform.getSlot() + component);
+			}
+		}
+
+		throw new AssertionError("No uniform named " + name);
+	}
+
+	@Test
+	void testDependencyOrder() {
+		CustomUniformDeclarations declarations = new CustomUniformDeclarations();
+
+		// Declared before the variables that it depends on
+		declarations.add(true, "float.timeBrightness", "max(sin(timeAngle * 2 * pi), 0)");
+		declarations.add(false, "float.timeAngle", "dayTime / 24000");
+		declarations.add(false, "float.dayTime", "worldTime");
+
+		CustomUniformGraph graph = create(declarations);
+		graph.update();
+
+		assertEquals(1.0f, get(graph, "timeBrightness", 0), 0.0001f);
+		assertEquals(3, graph.getEvaluatedCount());
+	}
+
+	@Test
+	void testCyclesAreDropped() {
+		CustomUniformDeclarations declarations = new CustomUniformDeclarations();
+
+		declarations.add(true, "float.a", "b + 1");
+		declarations.add(true, "float.b", "a + 1");
+		declarations.add(true, "float.c", "b * 2");
+		declarations.add(true, "float.d", "worldTime * 2");
+
+		CustomUniformGraph graph = create(declarations);
+		graph.update();
+
+		List<CustomUniformGraph.Uniform> uniforms = graph.getUniforms();
+
+		assertEquals(1, uniforms.size());
+		assertEquals(12000.0f, get(graph, "d", 0));
+	}
+
+	@Test
+	void testVectors() {
+		CustomUniformDeclarations declarations = new CustomUniformDeclarations();
+
+		declarations.add(false, "vec2.offset", "vec2(1, cameraPosition.y)");
+		declarations.add(true, "vec3.position", "vec3(offset.x, offset.y * 2, if(offset.y > 0, 1, 0))");
+		declarations.add(true, "bool.high", "position.y > 100");
+
+		CustomUniformGraph graph = create(declarations);
+		graph.update();
+
+		assertEquals(1.0f, get(graph, "position", 0));
+		assertEquals(128.0f, get(graph, "position", 1));
+		assertEquals(1.0f, get(graph, "position", 2));
+		assertEquals(1.0f, get(graph, "high", 0));
+	}
+
+	@Test
+	void testUnusedVariablesAreNotEvaluated() {
+		CustomUniformDeclarations declarations = new CustomUniformDeclarations();
+
+		declarations.add(false, "float.unused", "counted(worldTime)");
+		declarations.add(true, "float.used", "worldTime");
+
+		CustomUniformGraph graph = create(declarations);
+		graph.update();
+
+		assertEquals(0, calls);
+		assertEquals(1, graph.getEvaluatedCount());
+	}
+
+	@Test
+	void testUnchangedInputsAreNotEvaluated() {
+		CustomUniformDeclarations declarations = new CustomUniformDeclarations();
+
+		declarations.add(false, "float.angle", "counted(worldTime / 24000)");
+		declarations.add(true, "float.brightness", "counted(angle * 2)");
+
+		CustomUniformGraph graph = create(declarations);
+		graph.update();
+		assertEquals(2, calls);
+
+		graph.update();
+		assertEquals(2, calls);
+
+		worldTime = 12000.0f;
+		graph.update();
+		assertEquals(4, calls);
+		assertEquals(1.0f, get(graph, "brightness", 0));
+	}
+}
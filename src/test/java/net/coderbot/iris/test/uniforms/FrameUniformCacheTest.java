@@ -0,0 +1,69 @@
+package net.coderbot.iris.test.uniforms;
+
+import net.coderbot.iris.gl.uniform.FloatSupplier;
+import net.coderbot.iris.gl.uniform.UniformUpdateFrequency;
+import net.coderbot.iris.uniforms.FrameUniformCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class FrameUniformCacheTest {
+	private int frame = 0;
+	private long tick = 0;
+	private int computed = 0;
+
+	private final FrameUniformCache cache = new FrameUniformCache(() -> frame, () -> tick);
+
+	@Test
+	void testComputedOncePerFrame() {
+		// Every program registers its own supplier, but they all share the value of the first one
+		FloatSupplier first = cache.cacheFloat(UniformUpdateFrequency.PER_FRAME, "frameTime", () -> ++computed);
+		FloatSupplier second = cache.cacheFloat(UniformUpdateFrequency.PER_FRAME, "frameTime", () -> ++computed);
+
+		assertEquals(1.0f, first.getAsFloat());
+		assertEquals(1.0f, second.getAsFloat());
+		assertEquals(1.0f, first.getAsFloat());
+		assertEquals(1, computed);
+
+		frame++;
+
+		assertEquals(2.0f, second.getAsFloat());
+		assertEquals(2.0f, first.getAsFloat());
+		assertEquals(2, computed);
+	}
+
+	@Test
+	void testComputedOncePerTick() {
+		IntSupplier worldTime = cache.cacheInt(UniformUpdateFrequency.PER_TICK, "worldTime", () -> ++computed);
+
+		assertEquals(1, worldTime.getAsInt());
+
+		frame++;
+		assertEquals(1, worldTime.getAsInt());
+
+		tick++;
+		assertEquals(2, worldTime.getAsInt());
+	}
+
+	@Test
+	void testObjectsAreShared() {
+		Supplier<float[]> first = cache.cacheObject(UniformUpdateFrequency.PER_FRAME, "mat4", "gbufferProjection", () -> new float[16]);
+		Supplier<float[]> second = cache.cacheObject(UniformUpdateFrequency.PER_FRAME, "mat4", "gbufferProjection", () -> new float[16]);
+		Supplier<float[]> otherKind = cache.cacheObject(UniformUpdateFrequency.PER_FRAME, "vec4", "gbufferProjection", () -> new float[4]);
+
+		assertSame(first.get(), second.get());
+		assertEquals(4, otherKind.get().length);
+		assertEquals(2, cache.getComputeCount());
+	}
+
+	@Test
+	void testOnceIsNotCached() {
+		FloatSupplier near = () -> 0.05f;
+
+		assertSame(near, cache.cacheFloat(UniformUpdateFrequency.ONCE, "near", near));
+	}
+}
@@ -0,0 +1,152 @@
+package net.coderbot.iris.test.uniforms;
+
+import net.coderbot.iris.uniforms.transforms.ConvertedMatrix;
+import net.coderbot.iris.uniforms.transforms.InvertedMatrix;
+import net.coderbot.iris.uniforms.transforms.PreviousMatrix;
+import net.coderbot.iris.vendored.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MatrixTransformsTest {
+	private final Matrix4f source = new Matrix4f().perspective(1.2f, 16.0f / 9.0f, 0.05f, 256.0f);
+	private int reads = 0;
+
+	private Matrix4f read() {
+		reads++;
+		return source;
+	}
+
+	@Test
+	void testInverseIsReusedUntilTheSourceChanges() {
+		InvertedMatrix inverted = new InvertedMatrix(this::read);
+
+		Matrix4f inverse = inverted.get();
+		assertTrue(new Matrix4f(source).mul(inverse).equals(new Matrix4f(), 0.0001f));
+
+		Matrix4f expected = new Matrix4f(inverse);
+		assertSame(inverse, inverted.get());
+		assertEquals(expected, inverted.get());
+
+		source.translate(1.0f, 2.0f, 3.0f);
+
+		assertSame(inverse, inverted.get());
+		assertTrue(new Matrix4f(source).mul(inverse).equals(new Matrix4f(), 0.0001f));
+	}
+
+	@Test
+	void testPreviousLagsOneCallBehind() {
+		PreviousMatrix previous = new PreviousMatrix(this::read);
+		Matrix4f first = new Matrix4f(source);
+
+		assertEquals(new Matrix4f().zero(), previous.get());
+
+		source.translate(1.0f, 0.0f, 0.0f);
+		assertEquals(first, previous.get());
+
+		Matrix4f second = new Matrix4f(source);
+		assertEquals(second, previous.get());
+	}
+
+	@Test
+	void testConvertedMatchesTheMojangMatrix() {
+		com.mojang.math.Matrix4f mojang = com.mojang.math.Matrix4f.perspective(70.0, 16.0f / 9.0f, 0.05f, 256.0f);
+		ConvertedMatrix converted = new ConvertedMatrix(() -> mojang);
+
+		float[] values = new float[16];
+		mojang.store(FloatBuffer.wrap(values));
+
+		Matrix4f result = converted.get();
+		assertEquals(new Matrix4f().set(FloatBuffer.wrap(values)), result);
+
+		mojang.multiply(com.mojang.math.Matrix4f.createTranslateMatrix(1.0f, 2.0f, 3.0f));
+		mojang.store(FloatBuffer.wrap(values));
+
+		assertSame(result, converted.get());
+		assertEquals(new Matrix4f().set(FloatBuffer.wrap(values)), result);
+	}
+
+	@Test
+	void testNoAllocationInSteadyState() {
+		InvertedMatrix inverted = new InvertedMatrix(this::read);
+		PreviousMatrix previous = new PreviousMatrix(this::read);
+
+		// Let the JIT settle, and make sure that everything that is lazily allocated has been allocated
+		simulateFrames(inverted, previous, 20_000);
+
+		long allocated = measureAllocations(() -> simulateFrames(inverted, previous, 10_000));
+
+		// Allocating even a single object per frame would allocate hundreds of kilobytes here, so allow a small amount
+		// for the measurement itself.
+		assertTrue(allocated < 1024, "Allocated " + allocated + " bytes in 10000 frames");
+	}
+
+	@Test
+	void testNoAllocationInSteadyStateWhenConverted() {
+		// The same chain of transforms that MatrixUniforms creates for the gbuffer matrices
+		com.mojang.math.Matrix4f mojang = com.mojang.math.Matrix4f.perspective(70.0, 16.0f / 9.0f, 0.05f, 256.0f);
+		com.mojang.math.Matrix4f step = com.mojang.math.Matrix4f.createTranslateMatrix(0.01f, 0.0f, 0.0f);
+		ConvertedMatrix converted = new ConvertedMatrix(() -> mojang);
+		InvertedMatrix inverted = new InvertedMatrix(converted);
+		PreviousMatrix previous = new PreviousMatrix(converted);
+
+		simulateConvertedFrames(mojang, step, converted, inverted, previous, 20_000);
+
+		long allocated = measureAllocations(() -> simulateConvertedFrames(mojang, step, converted, inverted, previous, 10_000));
+
+		assertTrue(allocated < 1024, "Allocated " + allocated + " bytes in 10000 frames");
+	}
+
+	/**
+	 * Returns the number of bytes that the current thread allocated while running the given task. Skips the test if the
+	 * JVM can't measure that.
+	 */
+	private static long measureAllocations(Runnable task) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Measuring allocations isn't supported by this JVM");
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+				"Measuring allocations isn't enabled in this JVM");
+
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		task.run();
+
+		return threads.getThreadAllocatedBytes(thread) - before;
+	}
+
+	private static void simulateConvertedFrames(com.mojang.math.Matrix4f mojang, com.mojang.math.Matrix4f step,
+												ConvertedMatrix converted, InvertedMatrix inverted,
+												PreviousMatrix previous, int frames) {
+		for (int i = 0; i < frames; i++) {
+			if (i % 3 == 0) {
+				mojang.multiply(step);
+			}
+
+			// Every uniform of the chain reads the converted matrix once per frame
+			converted.get();
+			inverted.get();
+			previous.get();
+		}
+	}
+
+	private void simulateFrames(InvertedMatrix inverted, PreviousMatrix previous, int frames) {
+		for (int i = 0; i < frames; i++) {
+			// The camera moves on some frames and stays still on others
+			if (i % 3 == 0) {
+				source.rotateY(0.01f);
+			}
+
+			inverted.get();
+			previous.get();
+		}
+	}
+}
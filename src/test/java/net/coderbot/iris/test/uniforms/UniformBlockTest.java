@@ -0,0 +1,132 @@
+package net.coderbot.iris.test.uniforms;
+
+import net.coderbot.iris.gl.uniform.Std140Layout;
+import net.coderbot.iris.gl.uniform.UniformBlockPacker;
+import net.coderbot.iris.uniforms.FrameUniformBlock;
+import net.coderbot.iris.vendored.joml.Matrix4f;
+import net.coderbot.iris.vendored.joml.Vector2f;
+import net.coderbot.iris.vendored.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UniformBlockTest {
+	@Test
+	void testStd140Offsets() {
+		Std140Layout layout = Std140Layout.builder()
+				.add(Std140Layout.Type.FLOAT, "a")
+				.add(Std140Layout.Type.VEC3, "b")
+				.add(Std140Layout.Type.FLOAT, "c")
+				.add(Std140Layout.Type.VEC2, "d")
+				.add(Std140Layout.Type.INT, "e")
+				.add(Std140Layout.Type.VEC2, "f")
+				.add(Std140Layout.Type.MAT4, "g")
+				.add(Std140Layout.Type.FLOAT, "h")
+				.build();
+
+		assertEquals(0, layout.getMember("a").getOffset());
+		// vec3 is aligned to 16 bytes, but a scalar may use the 4 bytes after it
+		assertEquals(16, layout.getMember("b").getOffset());
+		assertEquals(28, layout.getMember("c").getOffset());
+		assertEquals(32, layout.getMember("d").getOffset());
+		assertEquals(40, layout.getMember("e").getOffset());
+		// vec2 is aligned to 8 bytes
+		assertEquals(48, layout.getMember("f").getOffset());
+		assertEquals(64, layout.getMember("g").getOffset());
+		assertEquals(128, layout.getMember("h").getOffset());
+		// The size is rounded up to a multiple of 16 bytes
+		assertEquals(144, layout.getSize());
+	}
+
+	@Test
+	void testFrameUniformLayoutHasNoGaps() {
+		Std140Layout layout = FrameUniformBlock.LAYOUT;
+		int used = 0;
+
+		for (Std140Layout.Member member : layout.getMembers()) {
+			used += member.getType().getSize();
+		}
+
+		// Ten matrices, six vec3s each followed by a scalar, and then three scalars
+		assertEquals(10 * 64 + 6 * 16 + 3 * 4, used);
+		assertEquals(752, layout.getSize());
+	}
+
+	@Test
+	void testPacksValuesAtTheirOffsets() {
+		Std140Layout layout = Std140Layout.builder()
+				.add(Std140Layout.Type.MAT4, "matrix")
+				.add(Std140Layout.Type.VEC3, "position")
+				.add(Std140Layout.Type.INT, "counter")
+				.add(Std140Layout.Type.VEC2, "size")
+				.build();
+
+		UniformBlockPacker packer = new UniformBlockPacker(layout);
+		Matrix4f matrix = new Matrix4f().translation(1.0f, 2.0f, 3.0f);
+		Vector3d position = new Vector3d(4.0, 5.0, 6.0);
+		int[] counter = {7};
+
+		assertTrue(packer.addMatrix("matrix", () -> matrix));
+		assertTrue(packer.addVec3d("position", () -> position));
+		assertTrue(packer.addInt("counter", () -> counter[0]));
+		assertTrue(packer.addVec2("size", () -> new Vector2f(8.0f, 9.0f)));
+
+		ByteBuffer buffer = packer.pack();
+
+		assertEquals(0, buffer.position());
+		assertEquals(layout.getSize(), buffer.remaining());
+		// Column-major, so the translation is in the fourth column
+		assertEquals(1.0f, buffer.getFloat(12 * 4));
+		assertEquals(2.0f, buffer.getFloat(13 * 4));
+		assertEquals(3.0f, buffer.getFloat(14 * 4));
+		assertEquals(1.0f, buffer.getFloat(15 * 4));
+		assertEquals(4.0f, buffer.getFloat(64));
+		assertEquals(5.0f, buffer.getFloat(68));
+		assertEquals(6.0f, buffer.getFloat(72));
+		assertEquals(7, buffer.getInt(76));
+		assertEquals(8.0f, buffer.getFloat(80));
+		assertEquals(9.0f, buffer.getFloat(84));
+
+		// Values are read again every time that the buffer is packed
+		counter[0] = 10;
+		position.set(0.5, 0.25, 0.125);
+		buffer = packer.pack();
+
+		assertEquals(10, buffer.getInt(76));
+		assertEquals(0.5f, buffer.getFloat(64));
+		assertEquals(0.125f, buffer.getFloat(72));
+	}
+
+	@Test
+	void testOnlyTheFirstMatchingValueIsUsed() {
+		UniformBlockPacker packer = new UniformBlockPacker(FrameUniformBlock.LAYOUT);
+		int offset = FrameUniformBlock.LAYOUT.getMember("frameTimeCounter").getOffset();
+
+		assertFalse(packer.addInt("frameTimeCounter", () -> 1));
+		assertFalse(packer.addFloat("worldTime", () -> 2.0f));
+		assertFalse(packer.isProvided("frameTimeCounter"));
+
+		assertTrue(packer.addFloat("frameTimeCounter", () -> 3.0f));
+		assertFalse(packer.addFloat("frameTimeCounter", () -> 4.0f));
+		assertTrue(packer.isProvided("frameTimeCounter"));
+
+		assertEquals(3.0f, packer.pack().getFloat(offset));
+	}
+
+	@Test
+	void testDeclaration() {
+		Std140Layout layout = Std140Layout.builder()
+				.add(Std140Layout.Type.MAT4, "gbufferModelView")
+				.add(Std140Layout.Type.FLOAT, "far")
+				.build();
+
+		assertEquals("layout(std140) uniform iris_Test {\n" +
+				"    mat4 gbufferModelView;\n" +
+				"    float far;\n" +
+				"};", layout.declare("iris_Test"));
+	}
+}
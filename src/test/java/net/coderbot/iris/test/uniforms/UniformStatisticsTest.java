@@ -0,0 +1,76 @@
+package net.coderbot.iris.test.uniforms;
+
+import com.google.common.collect.ImmutableList;
+import net.coderbot.iris.gl.uniform.UniformStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UniformStatisticsTest {
+	@Test
+	void testFrameRollover() {
+		UniformStatistics.ProgramStatistics statistics = new UniformStatistics.ProgramStatistics("gbuffers_terrain");
+
+		statistics.recordApplied();
+		statistics.recordEvaluation();
+		statistics.recordEvaluation();
+		statistics.recordUpload();
+		statistics.recordTextureBind();
+		statistics.endFrame();
+
+		assertEquals(1, statistics.getLastFrame().getApplied());
+		// The texture bind also counts as an evaluation
+		assertEquals(3, statistics.getLastFrame().getEvaluated());
+		assertEquals(1, statistics.getLastFrame().getChanged());
+		assertEquals(1, statistics.getLastFrame().getTextureBinds());
+		assertEquals(0, statistics.getCurrent().getEvaluated());
+
+		statistics.recordEvaluation();
+		statistics.endFrame();
+
+		assertEquals(1, statistics.getLastFrame().getEvaluated());
+		assertEquals(0, statistics.getLastFrame().getChanged());
+		assertEquals(4, statistics.getTotal().getEvaluated());
+		assertEquals(1, statistics.getTotal().getChanged());
+	}
+
+	@Test
+	void testRedundantPercentage() {
+		UniformStatistics.ProgramStatistics statistics = new UniformStatistics.ProgramStatistics("composite");
+
+		for (int i = 0; i < 4; i++) {
+			statistics.recordEvaluation();
+		}
+
+		statistics.recordUpload();
+		// Texture binds don't count towards redundant uniform evaluations
+		statistics.recordTextureBind();
+		statistics.recordTextureBind();
+		statistics.endFrame();
+
+		assertEquals(75, statistics.getLastFrame().getRedundantPercentage());
+		assertEquals(0, statistics.getCurrent().getRedundantPercentage());
+	}
+
+	@Test
+	void testReportIsSortedByTime() {
+		UniformStatistics.ProgramStatistics fast = new UniformStatistics.ProgramStatistics("fast");
+		UniformStatistics.ProgramStatistics slow = new UniformStatistics.ProgramStatistics("slow");
+
+		fast.recordTime(1_000_000);
+		slow.recordTime(3_000_000);
+		fast.endFrame();
+		slow.endFrame();
+
+		List<String> report = UniformStatistics.createReport(ImmutableList.of(fast, slow), 1);
+
+		assertEquals(4, report.size());
+		assertTrue(report.get(1).startsWith("  (all programs): "));
+		assertTrue(report.get(1).endsWith("4.000 ms"));
+		assertTrue(report.get(2).startsWith("  slow: "));
+		assertTrue(report.get(3).startsWith("  fast: "));
+	}
+}
@@ -0,0 +1,35 @@
+#version 120
+
+/*
+ * Settings for the test pack, laid out the same way as most real shader packs.
+ */
+
+#define SHADOW_QUALITY 2 // [0 1 2 3]
+#define SHADOW_FILTER
+//#define VOLUMETRIC_LIGHT
+#define WATER_WAVE_HEIGHT 0.35 // [0.1 0.2 0.35 0.5]
+#define BLOOM_STRENGTH 4 // [1 2 3 4 5 6]
+#define TAA
+
+#if SHADOW_QUALITY >= 2
+	#define SHADOW_SAMPLES 16
+#elif SHADOW_QUALITY == 1
+	#define SHADOW_SAMPLES 8
+#else
+	#define SHADOW_SAMPLES 1
+#endif
+
+#ifdef VOLUMETRIC_LIGHT
+	#define VL_STEPS 12
+#endif
+
+#if defined TAA && !defined(NO_JITTER)
+	#define JITTER_ENABLED
+#endif
+
+#if MC_VERSION >= 11300
+	#define MODERN_BLOCK_IDS
+#endif
+
+const int shadowMapResolution = 2048; // [1024 2048 4096]
+const float sunPathRotation = -40.0; // [-40.0 -30.0 0.0 30.0 40.0]